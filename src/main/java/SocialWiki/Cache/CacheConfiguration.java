@@ -0,0 +1,55 @@
+package SocialWiki.Cache;
+
+import SocialWiki.Diff.WikiPageDiff;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the application's in-memory caches. Cache sizes are set with socialwiki.cache.* properties
+ */
+@Configuration
+public class CacheConfiguration {
+
+    /**
+     * Cache of WikiPage versions by id. A version never changes once created, so entries only need removing when their author is deleted
+     * @param capacity - the most WikiPage versions to hold
+     * @return the cache
+     */
+    @Bean
+    public LruCache<Long, ConcreteWikiPage> pageVersionCache(@Value("${socialwiki.cache.page-versions.size}") int capacity) {
+        return new LruCache<>("pageVersions", capacity);
+    }
+
+    /**
+     * Cache of the contents of WikiPages by id, so that versions stored as deltas are only rebuilt once
+     * @param capacity - the most WikiPage contents to hold
+     * @return the cache
+     */
+    @Bean
+    public LruCache<Long, String> pageContentCache(@Value("${socialwiki.cache.page-contents.size}") int capacity) {
+        return new LruCache<>("pageContents", capacity);
+    }
+
+    /**
+     * Cache of the HTML rendered from WikiPage contents by content hash, so that each version is rendered once
+     * @param capacity - the most rendered contents to hold
+     * @return the cache
+     */
+    @Bean
+    public LruCache<String, String> renderedContentCache(@Value("${socialwiki.cache.rendered-contents.size}") int capacity) {
+        return new LruCache<>("renderedContents", capacity);
+    }
+
+    /**
+     * Cache of diffs between WikiPage versions by the ids of the versions and the diff mode
+     * @param capacity - the most diffs to hold
+     * @return the cache
+     */
+    @Bean
+    public LruCache<String, WikiPageDiff> pageDiffCache(@Value("${socialwiki.cache.page-diffs.size}") int capacity) {
+        return new LruCache<>("pageDiffs", capacity);
+    }
+
+}
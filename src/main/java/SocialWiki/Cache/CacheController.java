@@ -0,0 +1,34 @@
+package SocialWiki.Cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cache controller provides a REST API interface for monitoring the in-memory caches
+ */
+@RestController
+public class CacheController {
+
+    /**
+     * Every cache in the application
+     */
+    @Autowired
+    private List<LruCache<?, ?>> caches;
+
+    /**
+     * Method to handle retrieval of the statistics of every cache
+     * @return the size, capacity, hits, misses, evictions and hit rate of each cache
+     */
+    @GetMapping("/cacheStatistics")
+    public ResponseEntity<List<CacheStatistics>> cacheStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        caches.forEach(cache -> statistics.add(cache.getStatistics()));
+        return ResponseEntity.ok(statistics);
+    }
+
+}
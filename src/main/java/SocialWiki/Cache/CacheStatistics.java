@@ -0,0 +1,73 @@
+package SocialWiki.Cache;
+
+import lombok.Getter;
+
+/**
+ * Snapshot of the effectiveness of a cache
+ */
+public class CacheStatistics {
+
+    /**
+     * The name of the cache
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * The number of entries in the cache
+     */
+    @Getter
+    private final int size;
+
+    /**
+     * The most entries the cache holds
+     */
+    @Getter
+    private final int capacity;
+
+    /**
+     * The number of lookups that found their entry
+     */
+    @Getter
+    private final long hits;
+
+    /**
+     * The number of lookups that did not find their entry
+     */
+    @Getter
+    private final long misses;
+
+    /**
+     * The number of entries removed to make room for new ones
+     */
+    @Getter
+    private final long evictions;
+
+    /**
+     * Constructor that takes all attributes
+     * @param name - the name of the cache
+     * @param size - the number of entries in the cache
+     * @param capacity - the most entries the cache holds
+     * @param hits - the number of lookups that found their entry
+     * @param misses - the number of lookups that did not find their entry
+     * @param evictions - the number of entries removed to make room for new ones
+     */
+    public CacheStatistics(String name, int size, int capacity, long hits, long misses, long evictions) {
+        this.name = name;
+        this.size = size;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Get the fraction of lookups that found their entry
+     * @return the hit rate, or 0 if there have been no lookups
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+}
@@ -0,0 +1,228 @@
+package SocialWiki.Cache;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Thread safe cache holding at most a fixed number of entries, evicting the least recently used entry when it is full.
+ * Counts hits, misses and evictions so its effectiveness can be monitored.
+ * @param <K> - the type of the keys
+ * @param <V> - the type of the values
+ */
+public class LruCache<K, V> {
+
+    /**
+     * The name the cache is reported under
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * The most entries the cache holds
+     */
+    @Getter
+    private final int capacity;
+
+    /**
+     * The entries in access order, least recently used first
+     */
+    private final AccessOrderedEntries<K, V> entries;
+
+    /**
+     * The values being loaded, so that lookups that miss the same key at the same time wait for one load
+     */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an empty cache
+     * @param name - the name the cache is reported under
+     * @param capacity - the most entries the cache holds, must be positive
+     */
+    public LruCache(String name, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.entries = new AccessOrderedEntries<>(capacity, evictions);
+    }
+
+    /**
+     * Get a value from the cache, loading and caching it if it is not present.
+     * The loader is called without holding the cache lock, so a slow load does not block other lookups.
+     * Lookups of a key that is already being loaded wait for that load instead of loading it again.
+     * @param key - the key of the value
+     * @param loader - loads the value for a key on a miss, may return null if there is no value
+     * @return the value, or null if there is no value for the key. Null values are not cached
+     */
+    public V get(K key, Function<K, V> loader) {
+        synchronized (entries) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+        }
+
+        misses.increment();
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                //Throw what the loader threw, as if it had been called by this lookup
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            V value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    /**
+     * Get a value from the cache without loading it
+     * @param key - the key of the value
+     * @return the value, or null if it is not cached
+     */
+    public V getIfPresent(K key) {
+        synchronized (entries) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Add a value to the cache, evicting the least recently used entry if the cache is full
+     * @param key - the key of the value
+     * @param value - the value, must not be null
+     */
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * Remove every entry that matches a condition, e.g. all entries that depend on something that has changed
+     * @param condition - tests each key and value
+     * @return the number of entries removed
+     */
+    public int removeIf(BiPredicate<K, V> condition) {
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, V> entry = iterator.next();
+                if (condition.test(entry.getKey(), entry.getValue())) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove every entry from the cache
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Get the number of entries in the cache
+     * @return the number of entries
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get a snapshot of the size and the hit, miss and eviction counts of the cache
+     * @return the statistics of the cache
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(name, size(), capacity, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Map of the entries in access order, removing the least recently used entry once it holds more than the capacity
+     * @param <K> - the type of the keys
+     * @param <V> - the type of the values
+     */
+    private static class AccessOrderedEntries<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The most entries the map holds
+         */
+        private final int capacity;
+
+        /**
+         * Counts the entries removed to stay within the capacity
+         */
+        private final LongAdder evictions;
+
+        /**
+         * Constructs an empty map
+         * @param capacity - the most entries the map holds
+         * @param evictions - counts the entries removed to stay within the capacity
+         */
+        private AccessOrderedEntries(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
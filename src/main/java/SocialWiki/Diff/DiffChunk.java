@@ -0,0 +1,62 @@
+package SocialWiki.Diff;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+/**
+ * A run of the same kind of change in a WikiPageDiff
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DiffChunk {
+
+    /**
+     * Text found in both versions
+     */
+    public static final String EQUAL = "equal";
+
+    /**
+     * Text only in the newer version
+     */
+    public static final String INSERT = "insert";
+
+    /**
+     * Text only in the older version
+     */
+    public static final String DELETE = "delete";
+
+    /**
+     * Unchanged lines left out of the diff, only their number is given
+     */
+    public static final String SKIP = "skip";
+
+    /**
+     * The kind of change, one of EQUAL, INSERT, DELETE or SKIP
+     */
+    @Getter
+    private final String type;
+
+    /**
+     * The text of the chunk, or null for skipped lines
+     */
+    @Getter
+    private final String text;
+
+    /**
+     * The number of lines left out, only set for skipped lines
+     */
+    @Getter
+    private final Integer skipped;
+
+    /**
+     * Constructor that takes all attributes
+     * @param type - the kind of change
+     * @param text - the text of the chunk, or null for skipped lines
+     * @param skipped - the number of lines left out, or null if the chunk has text
+     */
+    public DiffChunk(String type, String text, Integer skipped) {
+        this.type = type;
+        this.text = text;
+        this.skipped = skipped;
+    }
+
+}
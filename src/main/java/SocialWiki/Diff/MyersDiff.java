@@ -0,0 +1,128 @@
+package SocialWiki.Diff;
+
+/**
+ * Myers' O((N+M)D) diff algorithm in linear space. Rather than keeping the furthest reaching paths of every number of edits to walk back,
+ * the middle snake of an optimal path is found by searching from both ends at once, and the halves on either side of it are diffed recursively.
+ * Sequences are compared as ints, so callers number equal elements the same.
+ */
+public class MyersDiff {
+
+    private final int[] a;
+    private final int[] b;
+
+    private final boolean[] keptA;
+    private final boolean[] keptB;
+
+    /**
+     * Furthest x reached on each diagonal searching forward from the start, and backward from the end (counted from the end)
+     */
+    private final int[] forward;
+    private final int[] backward;
+
+    private final int offset;
+
+    private MyersDiff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        this.keptA = new boolean[a.length];
+        this.keptB = new boolean[b.length];
+        this.offset = a.length + b.length + 1;
+        this.forward = new int[2 * offset + 1];
+        this.backward = new int[2 * offset + 1];
+    }
+
+    /**
+     * Find a shortest edit script between two sequences, as the elements of each that are kept
+     * @param a - the old sequence
+     * @param b - the new sequence
+     * @return for a then b, whether each element is part of the longest common subsequence. Elements of a that are not kept are deleted,
+     * and elements of b that are not kept are inserted
+     */
+    public static boolean[][] diff(int[] a, int[] b) {
+        MyersDiff diff = new MyersDiff(a, b);
+        diff.diff(0, a.length, 0, b.length);
+        return new boolean[][]{diff.keptA, diff.keptB};
+    }
+
+    private void diff(int aStart, int aEnd, int bStart, int bEnd) {
+        //Elements shared at the start and end are kept without searching
+        while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+            keptA[aStart++] = true;
+            keptB[bStart++] = true;
+        }
+        while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+            keptA[--aEnd] = true;
+            keptB[--bEnd] = true;
+        }
+
+        //With one side empty the rest is all insertions or all deletions. Otherwise at least two edits remain,
+        //so both halves around the middle snake are smaller than the whole
+        if (aStart == aEnd || bStart == bEnd) {
+            return;
+        }
+
+        int[] snake = middleSnake(aStart, aEnd, bStart, bEnd);
+        diff(aStart, snake[0], bStart, snake[1]);
+        for (int x = snake[0], y = snake[1]; x < snake[2]; x++, y++) {
+            keptA[x] = true;
+            keptB[y] = true;
+        }
+        diff(snake[2], aEnd, snake[3], bEnd);
+    }
+
+    /**
+     * Find the middle snake of an optimal path, where the searches from the start and from the end first overlap
+     * @return the start x and y and the end x and y of the snake
+     */
+    private int[] middleSnake(int aStart, int aEnd, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int max = (n + m + 1) / 2;
+
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1]) ? forward[offset + k + 1] : forward[offset + k - 1] + 1;
+                int y = x - k;
+                int startX = x;
+                int startY = y;
+                while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+
+                //Backward diagonal c covers the same points as forward diagonal delta - c
+                int c = delta - k;
+                if (odd && c >= -(d - 1) && c <= d - 1 && x + backward[offset + c] >= n) {
+                    return new int[]{aStart + startX, bStart + startY, aStart + x, bStart + y};
+                }
+            }
+
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1]) ? backward[offset + k + 1] : backward[offset + k - 1] + 1;
+                int y = x - k;
+                int startX = x;
+                int startY = y;
+                while (x < n && y < m && a[aEnd - 1 - x] == b[bEnd - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+
+                int c = delta - k;
+                if (!odd && c >= -d && c <= d && x + forward[offset + c] >= n) {
+                    return new int[]{aEnd - x, bEnd - y, aEnd - startX, bEnd - startY};
+                }
+            }
+        }
+
+        //The searches always meet by the time they have used half of the most possible edits
+        throw new IllegalStateException("Middle snake not found");
+    }
+
+}
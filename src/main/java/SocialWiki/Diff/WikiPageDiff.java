@@ -0,0 +1,66 @@
+package SocialWiki.Diff;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The differences between the contents of two versions of a WikiPage
+ */
+public class WikiPageDiff {
+
+    /**
+     * The id of the older version
+     */
+    @Getter
+    private final Long from;
+
+    /**
+     * The id of the newer version
+     */
+    @Getter
+    private final Long to;
+
+    /**
+     * Whether the contents were compared by line or by word
+     */
+    @Getter
+    private final String mode;
+
+    /**
+     * The number of lines or words only in the newer version
+     */
+    @Getter
+    private final int insertions;
+
+    /**
+     * The number of lines or words only in the older version
+     */
+    @Getter
+    private final int deletions;
+
+    /**
+     * The changes in order. Applying them to the older version gives the newer version
+     */
+    @Getter
+    private final List<DiffChunk> chunks;
+
+    /**
+     * Constructor that takes all attributes
+     * @param from - the id of the older version
+     * @param to - the id of the newer version
+     * @param mode - whether the contents were compared by line or by word
+     * @param insertions - the number of lines or words only in the newer version
+     * @param deletions - the number of lines or words only in the older version
+     * @param chunks - the changes in order
+     */
+    public WikiPageDiff(Long from, Long to, String mode, int insertions, int deletions, List<DiffChunk> chunks) {
+        this.from = from;
+        this.to = to;
+        this.mode = mode;
+        this.insertions = insertions;
+        this.deletions = deletions;
+        this.chunks = chunks;
+    }
+
+}
@@ -0,0 +1,207 @@
+package SocialWiki.Diff;
+
+import SocialWiki.Cache.LruCache;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the contents of two versions of a WikiPage by line or by word with the MyersDiff.
+ * Versions never change, so each diff is computed once and cached by the pair of versions.
+ */
+@Component
+public class WikiPageDiffer {
+
+    /**
+     * Compare whole lines, leaving out unchanged lines away from the changes
+     */
+    public static final String LINE_MODE = "line";
+
+    /**
+     * Compare words, spaces and punctuation, keeping all of the text
+     */
+    public static final String WORD_MODE = "word";
+
+    /**
+     * Number of unchanged lines kept around each change in line mode
+     */
+    static final int CONTEXT_LINES = 3;
+
+    /**
+     * Cache of diffs by versions and mode
+     */
+    @Autowired
+    private LruCache<String, WikiPageDiff> pageDiffCache;
+
+    /**
+     * Most lines or words of the two versions together that are compared, as the time taken grows with the size times the number of changes
+     */
+    @Value("${socialwiki.diff.max-tokens}")
+    private int maxTokens;
+
+    /**
+     * Compare the contents of two versions of a WikiPage
+     * @param from - the older version, with its contents loaded
+     * @param to - the newer version, with its contents loaded
+     * @param mode - LINE_MODE or WORD_MODE
+     * @return the diff, or null if the versions together have more than socialwiki.diff.max-tokens lines or words
+     */
+    public WikiPageDiff diff(ConcreteWikiPage from, ConcreteWikiPage to, String mode) {
+        return pageDiffCache.get(from.getId() + ":" + to.getId() + ":" + mode, key -> {
+            boolean lines = LINE_MODE.equals(mode);
+            List<String> a = lines ? splitLines(from.getContent()) : splitWords(from.getContent());
+            List<String> b = lines ? splitLines(to.getContent()) : splitWords(to.getContent());
+            if (a.size() + b.size() > maxTokens) {
+                return null;
+            }
+
+            //Compare the tokens as numbers, so equal tokens are only ever compared once by content
+            Map<String, Integer> tokenNumbers = new HashMap<>();
+            boolean[][] kept = MyersDiff.diff(number(a, tokenNumbers), number(b, tokenNumbers));
+            return toDiff(from.getId(), to.getId(), mode, a, b, kept[0], kept[1]);
+        });
+    }
+
+    /**
+     * Build a diff from the kept tokens of both versions. At each change the deletions come before the insertions
+     */
+    private static WikiPageDiff toDiff(Long fromId, Long toId, String mode, List<String> a, List<String> b, boolean[] keptA, boolean[] keptB) {
+        boolean lines = LINE_MODE.equals(mode);
+        ChunkWriter writer = new ChunkWriter(lines);
+        int insertions = 0;
+        int deletions = 0;
+
+        int x = 0;
+        int y = 0;
+        while (x < a.size() || y < b.size()) {
+            if (x < a.size() && !keptA[x]) {
+                writer.add(DiffChunk.DELETE, a.get(x++));
+                deletions++;
+            } else if (y < b.size() && !keptB[y]) {
+                writer.add(DiffChunk.INSERT, b.get(y++));
+                insertions++;
+            } else {
+                writer.add(DiffChunk.EQUAL, a.get(x));
+                x++;
+                y++;
+            }
+        }
+        return new WikiPageDiff(fromId, toId, mode, insertions, deletions, writer.finish());
+    }
+
+    /**
+     * Split contents into lines, the same way as LineDelta
+     * @param content - the contents to split
+     * @return the lines
+     */
+    static List<String> splitLines(String content) {
+        List<String> lines = new ArrayList<>();
+        for (String line : content.split("\n", -1)) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Split contents into words, runs of whitespace and single other characters, so that joining them gives back the contents
+     * @param content - the contents to split
+     * @return the tokens
+     */
+    static List<String> splitWords(String content) {
+        List<String> words = new ArrayList<>();
+        int i = 0;
+        while (i < content.length()) {
+            int start = i;
+            char c = content.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                while (i < content.length() && Character.isLetterOrDigit(content.charAt(i))) {
+                    i++;
+                }
+            } else if (Character.isWhitespace(c)) {
+                while (i < content.length() && Character.isWhitespace(content.charAt(i))) {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+            words.add(content.substring(start, i));
+        }
+        return words;
+    }
+
+    private static int[] number(List<String> tokens, Map<String, Integer> tokenNumbers) {
+        int[] numbers = new int[tokens.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = tokenNumbers.computeIfAbsent(tokens.get(i), token -> tokenNumbers.size());
+        }
+        return numbers;
+    }
+
+    /**
+     * Merges tokens of the same kind into chunks, and in line mode leaves out unchanged lines more than CONTEXT_LINES away from a change
+     */
+    private static class ChunkWriter {
+
+        private final boolean lines;
+
+        private final List<DiffChunk> chunks = new ArrayList<>();
+
+        private String type;
+
+        private final List<String> tokens = new ArrayList<>();
+
+        ChunkWriter(boolean lines) {
+            this.lines = lines;
+        }
+
+        void add(String tokenType, String token) {
+            if (!tokenType.equals(type)) {
+                flush(false);
+                type = tokenType;
+            }
+            tokens.add(token);
+        }
+
+        List<DiffChunk> finish() {
+            flush(true);
+            return chunks;
+        }
+
+        private void flush(boolean last) {
+            if (tokens.isEmpty()) {
+                return;
+            }
+
+            if (lines && DiffChunk.EQUAL.equals(type)) {
+                //Keep the lines after the previous change and before the next one
+                int head = chunks.isEmpty() ? 0 : CONTEXT_LINES;
+                int tail = last ? 0 : CONTEXT_LINES;
+                if (tokens.size() > head + tail) {
+                    if (head > 0) {
+                        chunks.add(new DiffChunk(type, join(tokens.subList(0, head)), null));
+                    }
+                    chunks.add(new DiffChunk(DiffChunk.SKIP, null, tokens.size() - head - tail));
+                    if (tail > 0) {
+                        chunks.add(new DiffChunk(type, join(tokens.subList(tokens.size() - tail, tokens.size())), null));
+                    }
+                    tokens.clear();
+                    return;
+                }
+            }
+
+            chunks.add(new DiffChunk(type, join(tokens), null));
+            tokens.clear();
+        }
+
+        private String join(List<String> chunkTokens) {
+            return String.join(lines ? "\n" : "", chunkTokens);
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package SocialWiki.Notifications;
 
+import SocialWiki.Users.SessionPrincipal;
 import SocialWiki.Users.User;
 import SocialWiki.Users.UserRepository;
 import SocialWiki.WikiPages.ConcreteWikiPage;
@@ -40,6 +41,9 @@ public class UserNotificationsAspect {
     @Autowired
     private UserRepository userRepo;
 
+    @Autowired
+    private SessionPrincipal sessionPrincipal;
+
     @Autowired
     private WikiPageRepository wikiRepo;
 
@@ -81,8 +85,7 @@ public class UserNotificationsAspect {
                 (response.getStatusCode().equals(HttpStatus.OK) || response.getStatusCode().equals(HttpStatus.NO_CONTENT))&&   //If the response status is OK or NO_CONTENT
                 NOTIFIABLE_REQUESTS.contains(requestURI)) {         //If the request type was something worth notifying followers of
 
-            String username = (String) session.getAttribute("user");
-            User user = userRepo.findByUserName(username);
+            User user = sessionPrincipal.getUser(session);
 
             if (user != null) { //If username in session is valid
 
@@ -0,0 +1,759 @@
+package SocialWiki.Rendering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the Markdown contents of WikiPages to HTML on the server, covering the Markdown that the showdown converter of the pages renders:
+ * ATX and setext headings, paragraphs, emphasis, code spans, fenced and indented code blocks, block quotes, lists, rules, links and images.
+ * The HTML is safe to insert into a page as it is: every tag in it is written by the renderer, '<', '>' and '"' in the contents are always escaped,
+ * and links and images only keep http, https, mailto and relative URLs.
+ * Contents are stored HTML escaped, so existing entities such as &amp;lt; are kept rather than escaped again, and a quote may start with &amp;gt;.
+ * Rendering takes time linear in the length of the contents: every scan for a closing delimiter remembers where no closer was found,
+ * and quotes, lists, emphasis and links nested deeper than MAX_NESTING are written as text.
+ */
+public class MarkdownRenderer {
+
+    private static final Pattern ATX_HEADING = Pattern.compile("^ {0,3}(#{1,6})[ \\t]*(.*)$");
+
+    private static final Pattern SETEXT_UNDERLINE = Pattern.compile("^ {0,3}(=+|-+)[ \\t]*$");
+
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(`{3,}|~{3,})[ \\t]*([^`\\s]*).*$");
+
+    private static final Pattern QUOTE = Pattern.compile("^ {0,3}(?:>|&gt;) ?(.*)$");
+
+    private static final Pattern LIST_ITEM = Pattern.compile("^( {0,3})([*+-]|(\\d{1,9})[.)])([ \\t]+|$)(.*)$");
+
+    /**
+     * Characters that a backslash makes literal
+     */
+    private static final String ESCAPABLE = "\\`*_{}[]()#+-.!>|~";
+
+    /**
+     * URL schemes that links and images may use, anything else could run script when followed
+     */
+    private static final String[] SAFE_SCHEMES = {"http", "https", "mailto"};
+
+    /**
+     * Deepest nesting of quotes and lists, or of emphasis and links, that is rendered. Each level rescans its text, so deeper levels are written as text
+     */
+    static final int MAX_NESTING = 16;
+
+    private MarkdownRenderer() {
+    }
+
+    /**
+     * Render Markdown to HTML
+     * @param markdown - the Markdown to render
+     * @return the HTML
+     */
+    public static String render(String markdown) {
+        String[] lines = markdown.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1);
+        StringBuilder html = new StringBuilder(markdown.length() + markdown.length() / 4);
+        renderBlocks(lines, 0, lines.length, html, false, 0);
+        return html.toString();
+    }
+
+    /**
+     * Render text as preformatted text without any Markdown, as contents that are too large to render are shown
+     * @param text - the text to show
+     * @return the HTML
+     */
+    public static String renderPreformatted(String text) {
+        StringBuilder html = new StringBuilder(text.length() + 32);
+        html.append("<pre>");
+        appendEscaped(text, html);
+        html.append("</pre>\n");
+        return html.toString();
+    }
+
+    /**
+     * Render the blocks in a range of lines
+     * @param lines - the lines of the Markdown
+     * @param from - the first line to render
+     * @param to - the line after the last line to render
+     * @param html - where the HTML is written
+     * @param tight - true to write paragraphs without p tags, as in the items of a list without blank lines
+     * @param depth - the number of quotes and lists the lines are in
+     */
+    private static void renderBlocks(String[] lines, int from, int to, StringBuilder html, boolean tight, int depth) {
+        if (depth > MAX_NESTING) {
+            html.append("<p>");
+            appendEscaped(String.join("\n", Arrays.asList(lines).subList(from, to)).trim(), html);
+            html.append("</p>\n");
+            return;
+        }
+
+        int i = from;
+        while (i < to) {
+            String line = lines[i];
+            if (isBlank(line)) {
+                i++;
+                continue;
+            }
+
+            Matcher matcher;
+            if ((matcher = FENCE.matcher(line)).matches()) {
+                i = renderFencedCode(lines, i, to, matcher, html);
+            } else if (isIndentedCode(line)) {
+                i = renderIndentedCode(lines, i, to, html);
+            } else if ((matcher = ATX_HEADING.matcher(line)).matches()) {
+                int level = matcher.group(1).length();
+                html.append("<h").append(level).append('>');
+                renderInline(trimClosingHashes(matcher.group(2)), html, 0);
+                html.append("</h").append(level).append(">\n");
+                i++;
+            } else if (isRule(line)) {
+                html.append("<hr />\n");
+                i++;
+            } else if (QUOTE.matcher(line).matches()) {
+                i = renderQuote(lines, i, to, html, depth);
+            } else if (LIST_ITEM.matcher(line).matches()) {
+                i = renderList(lines, i, to, html, depth);
+            } else {
+                i = renderParagraph(lines, i, to, html, tight);
+            }
+        }
+    }
+
+    /**
+     * Remove the optional closing '#'s of an ATX heading. Done without a regex, which would retry them from every character of the heading
+     * @param heading - the text of the heading after its opening '#'s
+     * @return the text without closing '#'s or trailing whitespace
+     */
+    private static String trimClosingHashes(String heading) {
+        int end = heading.length();
+        while (end > 0 && (heading.charAt(end - 1) == ' ' || heading.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        while (end > 0 && heading.charAt(end - 1) == '#') {
+            end--;
+        }
+        while (end > 0 && (heading.charAt(end - 1) == ' ' || heading.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return heading.substring(0, end);
+    }
+
+    private static int renderFencedCode(String[] lines, int from, int to, Matcher fence, StringBuilder html) {
+        String marker = fence.group(1);
+        String language = fence.group(2).replaceAll("[^A-Za-z0-9_+-]", "");
+
+        html.append("<pre><code");
+        if (!language.isEmpty()) {
+            html.append(" class=\"").append(language).append(" language-").append(language).append('"');
+        }
+        html.append('>');
+
+        //An unclosed fence runs to the end of the contents
+        int i = from + 1;
+        while (i < to && !isClosingFence(lines[i], marker)) {
+            appendEscaped(lines[i], html);
+            html.append('\n');
+            i++;
+        }
+        html.append("</code></pre>\n");
+        return Math.min(i + 1, to);
+    }
+
+    private static boolean isClosingFence(String line, String marker) {
+        if (indentOf(line) > 3) {
+            return false;
+        }
+        String trimmed = line.trim();
+        if (trimmed.length() < marker.length()) {
+            return false;
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (trimmed.charAt(i) != marker.charAt(0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a line is a rule, three or more of the same '-', '*' or '_' with optional spaces. Checked without a regex, whose backreference
+     * would take stack for every character of a long line
+     * @param line - the line to check
+     * @return true if the line is a rule
+     */
+    private static boolean isRule(String line) {
+        int i = 0;
+        while (i < line.length() && i < 3 && line.charAt(i) == ' ') {
+            i++;
+        }
+        if (i == line.length() || "-*_".indexOf(line.charAt(i)) < 0) {
+            return false;
+        }
+
+        char marker = line.charAt(i);
+        int markers = 0;
+        for (; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == marker) {
+                markers++;
+            } else if (c != ' ' && c != '\t') {
+                return false;
+            }
+        }
+        return markers >= 3;
+    }
+
+    private static boolean isIndentedCode(String line) {
+        return line.startsWith("    ") || line.startsWith("\t");
+    }
+
+    private static int renderIndentedCode(String[] lines, int from, int to, StringBuilder html) {
+        int end = from;
+        int i = from;
+        while (i < to && (isIndentedCode(lines[i]) || isBlank(lines[i]))) {
+            if (!isBlank(lines[i])) {
+                end = i + 1;
+            }
+            i++;
+        }
+
+        //Blank lines after the last code line are not part of the block
+        html.append("<pre><code>");
+        for (int line = from; line < end; line++) {
+            String code = lines[line];
+            appendEscaped(code.startsWith("\t") ? code.substring(1) : code.substring(Math.min(4, code.length())), html);
+            html.append('\n');
+        }
+        html.append("</code></pre>\n");
+        return end;
+    }
+
+    private static int renderQuote(String[] lines, int from, int to, StringBuilder html, int depth) {
+        List<String> quoted = new ArrayList<>();
+        int i = from;
+        while (i < to && !isBlank(lines[i])) {
+            Matcher matcher = QUOTE.matcher(lines[i]);
+            //Lines that continue a paragraph of the quote do not need their own marker
+            quoted.add(matcher.matches() ? matcher.group(1) : lines[i]);
+            i++;
+        }
+
+        html.append("<blockquote>\n");
+        renderBlocks(quoted.toArray(new String[0]), 0, quoted.size(), html, false, depth + 1);
+        html.append("</blockquote>\n");
+        return i;
+    }
+
+    private static int renderList(String[] lines, int from, int to, StringBuilder html, int depth) {
+        Matcher first = LIST_ITEM.matcher(lines[from]);
+        first.matches();
+        boolean ordered = first.group(3) != null;
+
+        List<List<String>> items = new ArrayList<>();
+        List<String> item = null;
+        int contentIndent = 0;
+        boolean loose = false;
+        boolean afterBlank = false;
+
+        int i = from;
+        while (i < to) {
+            String line = lines[i];
+            Matcher matcher = LIST_ITEM.matcher(line);
+            //Items indented into the current item belong to a list nested in it
+            boolean isItem = matcher.matches() && (matcher.group(3) != null) == ordered && !isRule(line)
+                    && (item == null || matcher.group(1).length() < contentIndent);
+
+            if (isItem) {
+                item = new ArrayList<>();
+                items.add(item);
+                item.add(matcher.group(5));
+                contentIndent = matcher.group(1).length() + matcher.group(2).length() + Math.max(1, Math.min(matcher.group(4).length(), 4));
+                loose |= afterBlank;
+            } else if (isBlank(line)) {
+                //The list goes on past a blank line only if the next line is another item or is indented into the current one
+                int next = i + 1;
+                while (next < to && isBlank(lines[next])) {
+                    next++;
+                }
+                if (next == to || !(indentOf(lines[next]) >= 2 || isSameKindOfItem(lines[next], ordered))) {
+                    break;
+                }
+                item.add("");
+            } else if (indentOf(line) >= 2) {
+                item.add(stripIndent(line, contentIndent));
+                loose |= afterBlank;
+            } else if (!afterBlank && !startsBlock(line)) {
+                item.add(line);
+            } else {
+                break;
+            }
+            afterBlank = isBlank(line);
+            i++;
+        }
+
+        String tag = ordered ? "ol" : "ul";
+        html.append('<').append(tag);
+        if (ordered && !first.group(3).equals("1")) {
+            html.append(" start=\"").append(Integer.parseInt(first.group(3))).append('"');
+        }
+        html.append(">\n");
+        for (List<String> content : items) {
+            html.append("<li>");
+            StringBuilder itemHtml = new StringBuilder();
+            renderBlocks(content.toArray(new String[0]), 0, content.size(), itemHtml, !loose, depth + 1);
+            int length = itemHtml.length();
+            //Tight items have no paragraph tags, so a trailing newline is only needed between blocks
+            html.append(length > 0 && itemHtml.charAt(length - 1) == '\n' ? itemHtml.substring(0, length - 1) : itemHtml);
+            html.append("</li>\n");
+        }
+        html.append("</").append(tag).append(">\n");
+        return i;
+    }
+
+    private static boolean isSameKindOfItem(String line, boolean ordered) {
+        Matcher matcher = LIST_ITEM.matcher(line);
+        return matcher.matches() && (matcher.group(3) != null) == ordered;
+    }
+
+    private static int renderParagraph(String[] lines, int from, int to, StringBuilder html, boolean tight) {
+        StringBuilder text = new StringBuilder(stripIndent(lines[from], 3));
+        int i = from + 1;
+        while (i < to && !isBlank(lines[i])) {
+            Matcher underline = SETEXT_UNDERLINE.matcher(lines[i]);
+            if (underline.matches()) {
+                String level = underline.group(1).charAt(0) == '=' ? "1" : "2";
+                html.append("<h").append(level).append('>');
+                renderInline(text.toString().trim(), html, 0);
+                html.append("</h").append(level).append(">\n");
+                return i + 1;
+            }
+            if (startsBlock(lines[i])) {
+                break;
+            }
+            text.append('\n').append(stripIndent(lines[i], Integer.MAX_VALUE));
+            i++;
+        }
+
+        if (!tight) {
+            html.append("<p>");
+        }
+        renderInline(text.toString().replaceAll("[ \\t]+$", ""), html, 0);
+        html.append(tight ? "\n" : "</p>\n");
+        return i;
+    }
+
+    /**
+     * Check if a line starts a block that ends the paragraph before it. Only lists that start from 1 end a paragraph, so that a sentence
+     * wrapped onto a line starting with a number is not made into a list
+     * @param line - the line to check
+     * @return true if the line starts a new block
+     */
+    private static boolean startsBlock(String line) {
+        Matcher item = LIST_ITEM.matcher(line);
+        return ATX_HEADING.matcher(line).matches() || isRule(line) || FENCE.matcher(line).matches() || QUOTE.matcher(line).matches()
+                || (item.matches() && !item.group(5).trim().isEmpty() && (item.group(3) == null || item.group(3).equals("1")));
+    }
+
+    /**
+     * Render the inline Markdown of a block
+     * @param text - the text of the block, lines separated by '\n'
+     * @param html - where the HTML is written
+     * @param depth - the number of emphasis and links the text is in
+     */
+    private static void renderInline(String text, StringBuilder html, int depth) {
+        if (depth > MAX_NESTING) {
+            appendEscaped(text, html);
+            return;
+        }
+
+        Closers closers = new Closers(text);
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+
+            if (c == '\\' && i + 1 < n && ESCAPABLE.indexOf(text.charAt(i + 1)) >= 0) {
+                appendEscaped(text.charAt(i + 1), html);
+                i += 2;
+                continue;
+            }
+
+            if (c == '`') {
+                int run = runLength(text, i, c);
+                int close = findRun(text, i + run, c, run, closers);
+                if (close >= 0) {
+                    html.append("<code>");
+                    appendEscaped(text.substring(i + run, close).trim(), html);
+                    html.append("</code>");
+                    i = close + run;
+                } else {
+                    html.append(text, i, i + run);
+                    i += run;
+                }
+                continue;
+            }
+
+            if ((c == '!' && i + 1 < n && text.charAt(i + 1) == '[') || c == '[') {
+                boolean image = c == '!';
+                int[] link = parseLink(text, image ? i + 1 : i, closers);
+                if (link != null) {
+                    String label = text.substring(link[0], link[1]);
+                    String url = safeUrl(text.substring(link[2], link[3]));
+                    if (image) {
+                        if (url != null) {
+                            html.append("<img src=\"").append(url).append("\" alt=\"");
+                            appendEscaped(label, html);
+                            html.append("\" />");
+                        } else {
+                            appendEscaped(label, html);
+                        }
+                    } else if (url != null) {
+                        html.append("<a href=\"").append(url).append("\">");
+                        renderInline(label, html, depth + 1);
+                        html.append("</a>");
+                    } else {
+                        renderInline(label, html, depth + 1);
+                    }
+                    i = link[4];
+                    continue;
+                }
+            }
+
+            if (c == '*' || c == '_') {
+                int run = runLength(text, i, c);
+                int count = run >= 2 ? 2 : 1;
+                int close = findClosingDelimiter(text, i, c, count, closers);
+                if (close < 0 && count == 2) {
+                    count = 1;
+                    close = findClosingDelimiter(text, i, c, count, closers);
+                }
+                if (close >= 0) {
+                    String tag = count == 2 ? "strong" : "em";
+                    html.append('<').append(tag).append('>');
+                    renderInline(text.substring(i + count, close), html, depth + 1);
+                    html.append("</").append(tag).append('>');
+                    i = close + count;
+                } else {
+                    html.append(text, i, i + run);
+                    i += run;
+                }
+                continue;
+            }
+
+            if (c == '\n') {
+                //A line ending in two spaces is a hard line break
+                if (i >= 2 && text.charAt(i - 1) == ' ' && text.charAt(i - 2) == ' ') {
+                    while (html.length() > 0 && html.charAt(html.length() - 1) == ' ') {
+                        html.setLength(html.length() - 1);
+                    }
+                    html.append("<br />");
+                }
+                html.append('\n');
+                i++;
+                continue;
+            }
+
+            appendEscaped(c, html);
+            i++;
+        }
+    }
+
+    /**
+     * Parse a link or image target, e.g. [label](url "title")
+     * @param text - the text containing the link
+     * @param open - the index of the '[' that opens the label
+     * @param closers - what is known about the closing delimiters of the text
+     * @return the start and end of the label, the start and end of the url and the index after the link, or null if there is no link
+     */
+    private static int[] parseLink(String text, int open, Closers closers) {
+        int close = closers.closingBracket(open);
+        if (close < 0 || close + 1 >= text.length() || text.charAt(close + 1) != '(') {
+            return null;
+        }
+
+        //Parentheses inside the url must be balanced, e.g. a link to a page about f(x)
+        int end = closers.closingParenthesis(close + 1);
+        if (end < 0) {
+            return null;
+        }
+
+        //The url is the first word inside the parentheses, the rest is an optional title that is not rendered
+        int urlStart = close + 2;
+        while (urlStart < end && Character.isWhitespace(text.charAt(urlStart))) {
+            urlStart++;
+        }
+        int urlEnd = urlStart;
+        while (urlEnd < end && !Character.isWhitespace(text.charAt(urlEnd))) {
+            urlEnd++;
+        }
+        return new int[]{open + 1, close, urlStart, urlEnd, end + 1};
+    }
+
+    /**
+     * Make a URL safe to put in an attribute
+     * @param url - the URL from the Markdown
+     * @return the URL escaped for an attribute, or null if it uses a scheme that is not allowed or contains control characters
+     */
+    static String safeUrl(String url) {
+        if (url.startsWith("&lt;") && url.endsWith("&gt;")) {
+            url = url.substring(4, url.length() - 4);
+        }
+
+        for (int i = 0; i < url.length(); i++) {
+            if (url.charAt(i) < ' ' || url.charAt(i) == 0x7F) {
+                return null;
+            }
+        }
+
+        //A scheme is everything before a ':' that comes before any '/', '?' or '#'
+        int colon = url.indexOf(':');
+        if (colon >= 0) {
+            int pathStart = url.length();
+            for (char c : new char[]{'/', '?', '#'}) {
+                int index = url.indexOf(c);
+                if (index >= 0) {
+                    pathStart = Math.min(pathStart, index);
+                }
+            }
+            if (colon < pathStart) {
+                String scheme = url.substring(0, colon).toLowerCase(Locale.ROOT);
+                boolean safe = false;
+                for (String safeScheme : SAFE_SCHEMES) {
+                    safe |= safeScheme.equals(scheme);
+                }
+                if (!safe) {
+                    return null;
+                }
+            }
+        }
+
+        //Only the &amp; entity is kept, so that no other entity can spell out a ':' or a quote once the browser decodes the attribute
+        StringBuilder escaped = new StringBuilder(url.length() + 16);
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '&') {
+                escaped.append("&amp;");
+                if (url.startsWith("&amp;", i)) {
+                    i += 4;
+                }
+            } else {
+                appendEscaped(c, escaped);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Find the delimiter that closes emphasis. Emphasis must not start or end next to whitespace, and '_' must not be inside a word
+     * @param text - the text containing the emphasis
+     * @param open - the index of the opening delimiter
+     * @param c - the delimiter character
+     * @param count - 1 for emphasis, 2 for strong emphasis
+     * @param closers - what is known about the closing delimiters of the text
+     * @return the index of the closing delimiter, or -1 if there is none
+     */
+    private static int findClosingDelimiter(String text, int open, char c, int count, Closers closers) {
+        int start = open + count;
+        if (start >= text.length() || Character.isWhitespace(text.charAt(start))) {
+            return -1;
+        }
+        if (c == '_' && open > 0 && Character.isLetterOrDigit(text.charAt(open - 1))) {
+            return -1;
+        }
+        //If no closer was found after an earlier delimiter, there is none after this one either
+        int kind = (c == '*' ? 0 : 2) + count - 1;
+        if (start >= closers.noDelimiterFrom[kind]) {
+            return -1;
+        }
+
+        int i = start;
+        while (i < text.length()) {
+            char current = text.charAt(i);
+            if (current == '\\') {
+                i += 2;
+                continue;
+            }
+            if (current == '`') {
+                //Delimiters inside code spans do not count
+                int run = runLength(text, i, current);
+                int close = findRun(text, i + run, current, run, closers);
+                i = close < 0 ? i + run : close + run;
+                continue;
+            }
+            if (current == c) {
+                int run = runLength(text, i, c);
+                //The innermost delimiters of a run close this emphasis, so ***both*** closes strong around emphasis
+                int close = i + run - count;
+                if (run >= count && i > start && !Character.isWhitespace(text.charAt(i - 1))
+                        && !(c == '_' && i + run < text.length() && Character.isLetterOrDigit(text.charAt(i + run)))) {
+                    return close;
+                }
+                i += run;
+                continue;
+            }
+            i++;
+        }
+        closers.noDelimiterFrom[kind] = start;
+        return -1;
+    }
+
+    private static int runLength(String text, int from, char c) {
+        int end = from;
+        while (end < text.length() && text.charAt(end) == c) {
+            end++;
+        }
+        return end - from;
+    }
+
+    /**
+     * Find a run of exactly length characters, as closes a code span
+     * @param text - the text to search
+     * @param from - the index to search from
+     * @param c - the character of the run
+     * @param length - the length of the run
+     * @param closers - what is known about the closing delimiters of the text
+     * @return the index of the run, or -1 if there is none
+     */
+    private static int findRun(String text, int from, char c, int length, Closers closers) {
+        //Runs are only searched for right after a run, so a search from a later index cannot find a run that an earlier one missed
+        Integer noRunFrom = closers.noRunFrom.get(length);
+        if (noRunFrom != null && from >= noRunFrom) {
+            return -1;
+        }
+
+        int i = from;
+        while (i < text.length()) {
+            if (text.charAt(i) == c) {
+                int run = runLength(text, i, c);
+                if (run == length) {
+                    return i;
+                }
+                i += run;
+            } else {
+                i++;
+            }
+        }
+        closers.noRunFrom.put(length, from);
+        return -1;
+    }
+
+    private static void appendEscaped(String text, StringBuilder html) {
+        for (int i = 0; i < text.length(); i++) {
+            appendEscaped(text.charAt(i), html);
+        }
+    }
+
+    private static void appendEscaped(char c, StringBuilder html) {
+        switch (c) {
+            case '<':
+                html.append("&lt;");
+                break;
+            case '>':
+                html.append("&gt;");
+                break;
+            case '"':
+                html.append("&quot;");
+                break;
+            default:
+                html.append(c);
+        }
+    }
+
+    private static boolean isBlank(String line) {
+        return line.trim().isEmpty();
+    }
+
+    private static int indentOf(String line) {
+        int indent = 0;
+        for (int i = 0; i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t'); i++) {
+            indent += line.charAt(i) == '\t' ? 4 : 1;
+        }
+        return indent;
+    }
+
+    private static String stripIndent(String line, int max) {
+        int i = 0;
+        int removed = 0;
+        while (i < line.length() && removed < max && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            removed += line.charAt(i) == '\t' ? 4 : 1;
+            i++;
+        }
+        return line.substring(i);
+    }
+
+    /**
+     * What is known about the closing delimiters of the text of a block, so that scanning for them from every opening delimiter stays linear
+     */
+    private static class Closers {
+
+        private final String text;
+
+        /**
+         * Index from which no closer was found for '*', '**', '_' and '__', or the length of the text if none has been searched for
+         */
+        private final int[] noDelimiterFrom;
+
+        /**
+         * Index from which no closing run of backticks was found, by the length of the run
+         */
+        private final HashMap<Integer, Integer> noRunFrom = new HashMap<>();
+
+        /**
+         * The index of the ']' or ')' that closes each '[' or '(', or -1. Matched once for the whole text when a link is first parsed
+         */
+        private int[] closingBrackets;
+
+        private int[] closingParentheses;
+
+        private Closers(String text) {
+            this.text = text;
+            noDelimiterFrom = new int[]{text.length(), text.length(), text.length(), text.length()};
+        }
+
+        /**
+         * Get the ']' that closes a '[', skipping escaped brackets
+         * @param open - the index of the '['
+         * @return the index of the ']', or -1 if there is none
+         */
+        private int closingBracket(int open) {
+            if (closingBrackets == null) {
+                closingBrackets = match('[', ']', true);
+            }
+            return closingBrackets[open];
+        }
+
+        /**
+         * Get the ')' that closes a '('. Backslashes do not escape parentheses in a url
+         * @param open - the index of the '('
+         * @return the index of the ')', or -1 if there is none
+         */
+        private int closingParenthesis(int open) {
+            if (closingParentheses == null) {
+                closingParentheses = match('(', ')', false);
+            }
+            return closingParentheses[open];
+        }
+
+        private int[] match(char open, char close, boolean escapes) {
+            int[] closing = new int[text.length()];
+            Arrays.fill(closing, -1);
+            int[] opened = new int[text.length()];
+            int depth = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (escapes && c == '\\') {
+                    i++;
+                } else if (c == open) {
+                    opened[depth++] = i;
+                } else if (c == close && depth > 0) {
+                    closing[opened[--depth]] = i;
+                }
+            }
+            return closing;
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package SocialWiki.Rendering;
+
+import SocialWiki.Cache.LruCache;
+import SocialWiki.Storage.ContentHash;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Renders the contents of WikiPages to HTML with the MarkdownRenderer. The contents of a version never change, so each is rendered once
+ * and cached by its ContentHash, which versions with the same contents share.
+ * With socialwiki.render.persist the HTML is also stored in the wiki_page_rendering table, so it survives restarts and is shared between instances.
+ */
+@Component
+public class WikiPageRenderer {
+
+    /**
+     * Version of the MarkdownRenderer output. Increase it when the rendering changes, so HTML stored or cached by clients from an older renderer is not used
+     */
+    public static final int RENDERER_VERSION = 2;
+
+    /**
+     * Statement that creates the table of stored HTML, safe to run on every startup
+     */
+    private static final String SCHEMA = "CREATE TABLE IF NOT EXISTS wiki_page_rendering (content_hash varchar(" + ContentHash.LENGTH + "), " +
+            "renderer_version integer, html text NOT NULL, PRIMARY KEY (content_hash, renderer_version))";
+
+    private static final String FIND_HTML_SQL = "SELECT html FROM wiki_page_rendering WHERE content_hash = ? AND renderer_version = ?";
+
+    /**
+     * Stores HTML. Another instance may render the same contents at the same time, in which case either copy will do
+     */
+    private static final String INSERT_HTML_SQL = "INSERT INTO wiki_page_rendering (content_hash, renderer_version, html) VALUES (?, ?, ?) " +
+            "ON CONFLICT (content_hash, renderer_version) DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Cache of rendered HTML by ContentHash
+     */
+    @Autowired
+    private LruCache<String, String> renderedContentCache;
+
+    /**
+     * Whether rendered HTML is stored in the database
+     */
+    @Value("${socialwiki.render.persist}")
+    private boolean persist;
+
+    /**
+     * Longest contents that are rendered as Markdown, longer contents are shown as preformatted text
+     */
+    @Value("${socialwiki.render.max-length}")
+    private int maxLength;
+
+    /**
+     * Writes stored HTML in its own transaction, as pages are rendered while they are read in read only transactions
+     */
+    private TransactionTemplate persistTransaction;
+
+    @PostConstruct
+    public void createPersistTransaction() {
+        persistTransaction = new TransactionTemplate(transactionManager);
+        persistTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Create the table of stored HTML once Hibernate has created the tables, if HTML is stored
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void installSchema() {
+        if (persist) {
+            jdbcTemplate.execute(SCHEMA);
+        }
+    }
+
+    /**
+     * Get the contents of a WikiPage rendered to HTML, rendering them only if no version with the same contents has been rendered before
+     * @param page - the WikiPage to render, with its contents loaded
+     * @return the sanitized HTML, or the contents as escaped preformatted text if they are longer than socialwiki.render.max-length
+     */
+    public String render(ConcreteWikiPage page) {
+        //Versions from before contents were hashed cannot be looked up until the hashes are backfilled at startup
+        if (page.getContentHash() == null) {
+            return renderContent(page.getContent());
+        }
+
+        return renderedContentCache.get(page.getContentHash(), hash -> {
+            if (persist) {
+                List<String> stored = jdbcTemplate.queryForList(FIND_HTML_SQL, String.class, hash, RENDERER_VERSION);
+                if (!stored.isEmpty()) {
+                    return stored.get(0);
+                }
+            }
+
+            String html = renderContent(page.getContent());
+            if (persist) {
+                persistTransaction.execute(status -> jdbcTemplate.update(INSERT_HTML_SQL, hash, RENDERER_VERSION, html));
+            }
+            return html;
+        });
+    }
+
+    private String renderContent(String content) {
+        if (content.length() > maxLength) {
+            return MarkdownRenderer.renderPreformatted(content);
+        }
+        return MarkdownRenderer.render(content);
+    }
+
+}
@@ -0,0 +1,179 @@
+package SocialWiki.Search;
+
+import SocialWiki.Storage.WikiPageContentStore;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.VersionForest;
+import SocialWiki.WikiPages.WikiPageIndex;
+import SocialWiki.WikiPages.WikiPageRepository;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram indexes over the titles and author usernames of all WikiPages, used to answer fuzzy advanced searches that tolerate typos.
+ * Every result is given a score between 0 and 1 for how closely it matches the search.
+ */
+@Component
+public class FuzzyWikiPageSearchIndex implements WikiPageIndex {
+
+    /**
+     * Number of matching WikiPages loaded from the repository at a time
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * Repository for all WikiPages.
+     */
+    @Autowired
+    private WikiPageRepository wikiPageRepo;
+
+    /**
+     * Loads the contents of WikiPages stored as deltas or as shared contents
+     */
+    @Autowired
+    private WikiPageContentStore wikiPageContentStore;
+
+    /**
+     * Index of the version forest, used to count the versions of each tree in collapsed searches.
+     */
+    @Autowired
+    private VersionForest versionForest;
+
+    /**
+     * The lowest similarity a title or username can have to the search and still match
+     */
+    @Value("${socialwiki.search.fuzzy.threshold:0.5}")
+    private double threshold;
+
+    /**
+     * Trigram index over the title of every WikiPage, keyed by page id
+     */
+    private final TrigramIndex titles = new TrigramIndex();
+
+    /**
+     * Trigram index over the username of every author, keyed by user id
+     */
+    private final TrigramIndex usernames = new TrigramIndex();
+
+    /**
+     * The ids of the WikiPages written by each author
+     */
+    private final Map<Long, Set<Long>> pagesByAuthor = new ConcurrentHashMap<>();
+
+    /**
+     * The author id of every WikiPage
+     */
+    private final Map<Long, Long> authorByPage = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(ConcreteWikiPage page) {
+        Long authorId = page.getAuthor().getId();
+        titles.add(page.getId(), page.getTitle());
+        authorByPage.put(page.getId(), authorId);
+
+        //Only index each username once, when the first page by that author is added
+        pagesByAuthor.computeIfAbsent(authorId, id -> {
+            usernames.add(id, page.getAuthor().getUserName());
+            return ConcurrentHashMap.newKeySet();
+        }).add(page.getId());
+    }
+
+    @Override
+    public void clear() {
+        titles.clear();
+        usernames.clear();
+        pagesByAuthor.clear();
+        authorByPage.clear();
+    }
+
+    /**
+     * Find all WikiPages whose title and author username are similar to the search, and whose content contains the content search exactly.
+     * The score of each page is the average similarity of its title and username to the parts of the search that were provided.
+     * @param title - the title to search for, may be blank
+     * @param username - the author username to search for, may be blank
+     * @param content - the text the content must contain, ignoring case, may be blank
+     * @return the matching WikiPages with their scores, best match first and then newest first, or null if neither a title nor a username was provided
+     */
+    public List<WikiPageWithAuthorProxy> search(String title, String username, String content) {
+        return search(title, username, content, false);
+    }
+
+    /**
+     * Find all WikiPages whose title and author username are similar to the search, and whose content contains the content search exactly,
+     * optionally keeping only the best match of each version tree.
+     * The score of each page is the average similarity of its title and username to the parts of the search that were provided.
+     * @param title - the title to search for, may be blank
+     * @param username - the author username to search for, may be blank
+     * @param content - the text the content must contain, ignoring case, may be blank
+     * @param collapse - whether to keep only the first WikiPage of each version tree, each with the number of versions in its tree
+     * @return the matching WikiPages with their scores, best match first and then newest first, or null if neither a title nor a username was provided
+     */
+    public List<WikiPageWithAuthorProxy> search(String title, String username, String content, boolean collapse) {
+        if (title.isEmpty() && username.isEmpty()) {
+            return null;
+        }
+
+        Map<Long, Double> titleScores = title.isEmpty() ? null : titles.search(title, threshold);
+        Map<Long, Double> userScores = username.isEmpty() ? null : usernames.search(username, threshold);
+
+        //Score each page by the average similarity of the parts of the search that were provided
+        Map<Long, Double> scores = new HashMap<>();
+        if (titleScores != null) {
+            titleScores.forEach((pageId, titleScore) -> {
+                if (userScores == null) {
+                    scores.put(pageId, titleScore);
+                } else {
+                    Double userScore = userScores.get(authorByPage.get(pageId));
+                    if (userScore != null) {
+                        scores.put(pageId, (titleScore + userScore) / 2);
+                    }
+                }
+            });
+        } else {
+            userScores.forEach((authorId, userScore) -> pagesByAuthor.getOrDefault(authorId, ConcurrentHashMap.newKeySet())
+                    .forEach(pageId -> scores.put(pageId, userScore)));
+        }
+
+        String contentQuery = InvertedIndex.fold(content);
+        List<Long> ids = new ArrayList<>(scores.keySet());
+        List<ConcreteWikiPage> matches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += LOAD_BATCH_SIZE) {
+            for (ConcreteWikiPage page : wikiPageRepo.findAll(ids.subList(from, Math.min(from + LOAD_BATCH_SIZE, ids.size())))) {
+                if (contentQuery.isEmpty()) {
+                    matches.add(page);
+                    continue;
+                }
+                String pageContent = wikiPageContentStore.getContent(page);
+                if (pageContent != null && InvertedIndex.fold(pageContent).contains(contentQuery)) {
+                    matches.add(page);
+                }
+            }
+        }
+
+        matches.sort(Comparator.<ConcreteWikiPage>comparingDouble(page -> scores.get(page.getId())).reversed()
+                .thenComparing(ConcreteWikiPage::getCreationDate, Comparator.reverseOrder())
+                .thenComparing(ConcreteWikiPage::getId, Comparator.reverseOrder()));
+
+        List<WikiPageWithAuthorProxy> pages;
+        if (collapse) {
+            pages = WikiPageSearchIndex.collapse(matches, versionForest);
+        } else {
+            pages = new ArrayList<>();
+            for (ConcreteWikiPage page : matches) {
+                pages.add(new WikiPageWithAuthorProxy(page));
+            }
+        }
+        pages.forEach(proxy -> proxy.setScore(scores.get(proxy.getId())));
+        return pages;
+    }
+
+}
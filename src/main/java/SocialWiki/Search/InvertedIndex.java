@@ -0,0 +1,235 @@
+package SocialWiki.Search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from case folded tokens to the sorted ids of the documents containing them.
+ * A token is a maximal run of letters and digits, every other character is a separator.
+ * The index answers substring queries by returning a superset of the matching documents, which the caller must verify.
+ */
+public class InvertedIndex {
+
+    /**
+     * Posting list for every token in the index, sorted so prefix lookups are a range scan
+     */
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+
+    /**
+     * Guards the postings, lookups can run concurrently while additions are exclusive
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Case fold text the same way for indexing and querying
+     * @param text - the text to fold
+     * @return the folded text
+     */
+    public static String fold(String text) {
+        return text.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Split folded text into its tokens
+     * @param text - folded text
+     * @return the tokens in the order they appear, including duplicates
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            if (isTokenChar(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(text.substring(start));
+        }
+        return tokens;
+    }
+
+    /**
+     * Check if a character is part of a token
+     * @param c - the character to check
+     * @return whether the character is a letter or digit
+     */
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Add a document to the index
+     * @param id - the id of the document
+     * @param text - the text of the document, does not need to be folded
+     */
+    public void add(long id, String text) {
+        List<String> tokens = tokenize(fold(text));
+
+        lock.writeLock().lock();
+        try {
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, t -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every document from the index
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of distinct tokens in the index
+     * @return the size of the vocabulary
+     */
+    public int getVocabularySize() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents that may contain the query as a substring.
+     * Each query token is matched against the vocabulary according to whether it touches a separator on either side:
+     * a token bounded on both sides must be a whole token, bounded on the left a token prefix, on the right a token suffix, and otherwise any substring of a token.
+     * @param query - folded query text
+     * @return sorted ids of every document that could contain the query, or null if the query has no tokens and so cannot be answered from the index
+     */
+    public long[] candidates(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        boolean leadingSeparator = !isTokenChar(query.charAt(0));
+        boolean trailingSeparator = !isTokenChar(query.charAt(query.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            long[] result = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean leftBounded = i > 0 || leadingSeparator;
+                boolean rightBounded = i < tokens.size() - 1 || trailingSeparator;
+
+                long[] matches = lookup(tokens.get(i), leftBounded, rightBounded);
+                result = result == null ? matches : intersect(result, matches);
+
+                if (result.length == 0) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the union of the posting lists of every vocabulary token matching a query token. Must hold the read lock.
+     * @param token - the query token
+     * @param leftBounded - whether the query token must start a vocabulary token
+     * @param rightBounded - whether the query token must end a vocabulary token
+     * @return sorted ids of the documents containing a matching token
+     */
+    private long[] lookup(String token, boolean leftBounded, boolean rightBounded) {
+        if (leftBounded && rightBounded) {
+            PostingList list = postings.get(token);
+            return list == null ? new long[0] : list.toArray();
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        if (leftBounded) {
+            //Every token starting with the query token is in a contiguous range of the sorted vocabulary
+            for (PostingList list : postings.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                lists.add(list);
+            }
+        } else {
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                String candidate = entry.getKey();
+                if (rightBounded ? candidate.endsWith(token) : candidate.contains(token)) {
+                    lists.add(entry.getValue());
+                }
+            }
+        }
+        return union(lists);
+    }
+
+    /**
+     * Merge posting lists into a single sorted list without duplicates
+     * @param lists - the posting lists to merge
+     * @return the sorted, distinct ids in any of the lists
+     */
+    private static long[] union(List<PostingList> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0).toArray();
+        }
+
+        int total = 0;
+        for (PostingList list : lists) {
+            total += list.size;
+        }
+
+        long[] merged = new long[total];
+        int length = 0;
+        for (PostingList list : lists) {
+            System.arraycopy(list.ids, 0, merged, length, list.size);
+            length += list.size;
+        }
+        Arrays.sort(merged);
+
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || merged[distinct - 1] != merged[i]) {
+                merged[distinct++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, distinct);
+    }
+
+    /**
+     * Intersect two sorted lists of ids
+     * @param a - the first sorted list
+     * @param b - the second sorted list
+     * @return the sorted ids in both lists
+     */
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, length = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[length++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+}
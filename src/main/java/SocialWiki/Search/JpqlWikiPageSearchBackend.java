@@ -0,0 +1,35 @@
+package SocialWiki.Search;
+
+import SocialWiki.WikiPages.WikiPageRepository;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Search backend that uses the substring matching JPQL query of the WikiPageRepository.
+ * Works on any database, and is the default when no other backend is configured.
+ */
+@Component
+@ConditionalOnProperty(name = "socialwiki.search.backend", havingValue = "jpql", matchIfMissing = true)
+public class JpqlWikiPageSearchBackend implements WikiPageSearchBackend {
+
+    /**
+     * Repository for all WikiPages.
+     */
+    @Autowired
+    private WikiPageRepository wikiPageRepo;
+
+    @Override
+    public List<WikiPageWithAuthorProxy> search(String title, String username, String content) {
+        return wikiPageRepo.findByTitleAndAuthorAndContent(title, username, content);
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> searchCollapsed(String title, String username, String content) {
+        return wikiPageRepo.findByTitleAndAuthorAndContentCollapsed(title, username, content);
+    }
+
+}
@@ -0,0 +1,196 @@
+package SocialWiki.Search;
+
+import SocialWiki.WikiPages.WikiPageRepository;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * Paginated versions of the repository searches that keep their ordering: title match tier, then newest first, then highest id.
+ * Each match tier is read with its own query that seeks past the cursor on (creationDate, id), and no query ever skips rows with an OFFSET.
+ * Every query is matched entirely by the database, contents included, so nothing is computed per search text for each page or tier,
+ * and a deep page runs the same queries as the first one.
+ * Searches in another WikiPageSort order have no tiers, and seek past the cursor on (aggregate, id) in a single query instead.
+ */
+@Component
+public class KeysetWikiPageSearch {
+
+    /**
+     * Match tiers of a title, as given by the CASE expressions of the repository searches.
+     * Tier 3 (ends with) can never be reached because every title ending with the text also contains it.
+     */
+    private static final int[] TITLE_TIERS = {0, 1, 2, 4};
+
+    /**
+     * Match tiers of a title or username in an advanced search, which must contain the text so never reach tier 4
+     */
+    private static final int[] ADVANCED_TIERS = {0, 1, 2};
+
+    /**
+     * Tier of every title or username when the search text is blank, as nothing is empty
+     */
+    private static final int[] BLANK_TIERS = {1};
+
+    /**
+     * Advanced search tiers are the title tier and username tier combined into one number, ordered title tier first
+     */
+    private static final int ADVANCED_TIER_BASE = 5;
+
+    /**
+     * A creation date after every WikiPage, used to start reading a tier from its beginning
+     */
+    private static final Calendar END_OF_TIME = new GregorianCalendar(9999, Calendar.DECEMBER, 31);
+
+    /**
+     * Repository for all WikiPages.
+     */
+    @Autowired
+    private WikiPageRepository wikiPageRepo;
+
+    /**
+     * Find a page of the WikiPages whose title or content contains the search text, ordered the same as WikiPageRepository.findByTitleAndContent
+     * @param searchText - the text to search for
+     * @param cursor - the cursor returned with the previous page, or null for the first page
+     * @param size - the maximum number of WikiPages to return
+     * @return the page of WikiPages found, and the cursor for the next page
+     */
+    public WikiPageSearchResults search(String searchText, WikiPageSearchCursor cursor, int size) {
+        int[] tiers = searchText.isEmpty() ? BLANK_TIERS : TITLE_TIERS;
+        return seek(tiers, cursor, size,
+                (tier, creationDate, id, pageable) -> wikiPageRepo.findByTitleAndContentAfter(searchText, tier, creationDate, id, pageable));
+    }
+
+    /**
+     * Find a page of the WikiPages matching an advanced search, ordered the same as WikiPageRepository.findByTitleAndAuthorAndContent
+     * @param title - the text the title must contain
+     * @param username - the text the author username must contain
+     * @param content - the text the content must contain
+     * @param cursor - the cursor returned with the previous page, or null for the first page
+     * @param size - the maximum number of WikiPages to return
+     * @return the page of WikiPages found, and the cursor for the next page
+     */
+    public WikiPageSearchResults advancedSearch(String title, String username, String content, WikiPageSearchCursor cursor, int size) {
+        int[] titleTiers = title.isEmpty() ? BLANK_TIERS : ADVANCED_TIERS;
+        int[] usernameTiers = username.isEmpty() ? BLANK_TIERS : ADVANCED_TIERS;
+
+        int[] tiers = new int[titleTiers.length * usernameTiers.length];
+        for (int i = 0; i < titleTiers.length; i++) {
+            for (int j = 0; j < usernameTiers.length; j++) {
+                tiers[i * usernameTiers.length + j] = titleTiers[i] * ADVANCED_TIER_BASE + usernameTiers[j];
+            }
+        }
+
+        return seek(tiers, cursor, size,
+                (tier, creationDate, id, pageable) -> wikiPageRepo.findByTitleAndAuthorAndContentAfter(title, username, content,
+                        tier / ADVANCED_TIER_BASE, tier % ADVANCED_TIER_BASE, creationDate, id, pageable));
+    }
+
+    /**
+     * Find a page of the WikiPages whose title or content contains the search text, in a sort order
+     * @param searchText - the text to search for
+     * @param sort - the order to return WikiPages in, relevance is the same as search
+     * @param cursor - the cursor returned with the previous page, or null for the first page
+     * @param size - the maximum number of WikiPages to return
+     * @return the page of WikiPages found, and the cursor for the next page
+     */
+    public WikiPageSearchResults search(String searchText, WikiPageSort sort, WikiPageSearchCursor cursor, int size) {
+        if (sort == WikiPageSort.RELEVANCE) {
+            return search(searchText, cursor, size);
+        }
+        return page(sort, size, wikiPageRepo.findByTitleAndContentSorted(searchText, sort, cursor, size + 1));
+    }
+
+    /**
+     * Find a page of the WikiPages matching an advanced search, in a sort order
+     * @param title - the text the title must contain
+     * @param username - the text the author username must contain
+     * @param content - the text the content must contain
+     * @param sort - the order to return WikiPages in, relevance is the same as advancedSearch
+     * @param cursor - the cursor returned with the previous page, or null for the first page
+     * @param size - the maximum number of WikiPages to return
+     * @return the page of WikiPages found, and the cursor for the next page
+     */
+    public WikiPageSearchResults advancedSearch(String title, String username, String content, WikiPageSort sort, WikiPageSearchCursor cursor, int size) {
+        if (sort == WikiPageSort.RELEVANCE) {
+            return advancedSearch(title, username, content, cursor, size);
+        }
+        return page(sort, size, wikiPageRepo.findByTitleAndAuthorAndContentSorted(title, username, content, sort, cursor, size + 1));
+    }
+
+    /**
+     * Cut WikiPages read in a sort order down to a page
+     * @param sort - the order the WikiPages were read in
+     * @param size - the maximum number of WikiPages to return
+     * @param pages - up to one more WikiPage than a page, read after the cursor
+     * @return the page of WikiPages, and the cursor for the next page
+     */
+    private WikiPageSearchResults page(WikiPageSort sort, int size, List<WikiPageWithAuthorProxy> pages) {
+        if (pages.size() <= size) {
+            return new WikiPageSearchResults(pages, null);
+        }
+
+        //The extra WikiPage only shows that there is more, the next page starts after the last one returned
+        pages = new ArrayList<>(pages.subList(0, size));
+        return new WikiPageSearchResults(pages, sort.cursorAfter(pages.get(size - 1)).encode());
+    }
+
+    /**
+     * Read WikiPages tier by tier, starting just after the cursor, until one more than a page has been found
+     * @param tiers - every tier that can contain results, in ascending order
+     * @param cursor - the position to start after, or null to start at the beginning
+     * @param size - the maximum number of WikiPages to return
+     * @param query - finds the WikiPages of a tier after a creation date and id
+     * @return the page of WikiPages found, and the cursor for the next page
+     */
+    private WikiPageSearchResults seek(int[] tiers, WikiPageSearchCursor cursor, int size, TierQuery query) {
+        List<WikiPageWithAuthorProxy> pages = new ArrayList<>();
+        int lastTier = 0;
+
+        for (int tier : tiers) {
+            if (cursor != null && tier < cursor.getTier()) {
+                continue;
+            }
+
+            //Only the tier the cursor is in starts part way through, later tiers are read from their beginning
+            boolean resume = cursor != null && tier == cursor.getTier();
+            Calendar creationDate = resume ? cursor.getCreationDate() : END_OF_TIME;
+            Long id = resume ? cursor.getId() : Long.MAX_VALUE;
+
+            //Ask for one more than is needed to know if there is another page
+            List<WikiPageWithAuthorProxy> found = query.find(tier, creationDate, id, new PageRequest(0, size + 1 - pages.size()));
+            if (!found.isEmpty() && pages.size() < size) {
+                lastTier = tier;
+            }
+            pages.addAll(found);
+
+            if (pages.size() > size) {
+                break;
+            }
+        }
+
+        if (pages.size() <= size) {
+            return new WikiPageSearchResults(pages, null);
+        }
+
+        //The extra WikiPage only shows that there is more, the next page starts after the last one returned
+        pages = pages.subList(0, size);
+        WikiPageWithAuthorProxy last = pages.get(size - 1);
+        String nextCursor = new WikiPageSearchCursor(lastTier, last.getCreationDate().getTimeInMillis(), last.getId()).encode();
+        return new WikiPageSearchResults(new ArrayList<>(pages), nextCursor);
+    }
+
+    /**
+     * Query for the WikiPages of a single tier that come after a creation date and id
+     */
+    private interface TierQuery {
+        List<WikiPageWithAuthorProxy> find(int tier, Calendar creationDate, Long id, Pageable pageable);
+    }
+
+}
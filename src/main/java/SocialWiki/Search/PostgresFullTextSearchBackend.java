@@ -0,0 +1,178 @@
+package SocialWiki.Search;
+
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Search backend that uses PostgreSQL full text search.
+ * A tsvector column holding the title (weight A) and content (weight B) of every WikiPage is maintained by a trigger and indexed with GIN,
+ * so title and content terms are matched as word prefixes through the index and results are ordered by ts_rank.
+ * Enabled with socialwiki.search.backend=postgres.
+ */
+@Component
+@ConditionalOnProperty(name = "socialwiki.search.backend", havingValue = "postgres")
+public class PostgresFullTextSearchBackend implements WikiPageSearchBackend {
+
+    /**
+     * The contents of the row being written by a trigger. A version stored as a delta or compressed keeps them as plain text in search_content,
+     * and a version stored as shared text contents reads them by hash
+     */
+    private static final String NEW_CONTENT =
+            "coalesce(NEW.content, NEW.search_content, (SELECT body FROM wiki_page_content WHERE hash = NEW.content_hash))";
+
+    /**
+     * Statements that add and backfill the search vector column, its GIN index, and the triggers that maintain it. All are safe to run on every startup.
+     */
+    private static final String[] SCHEMA = {
+            "ALTER TABLE concrete_wiki_page ADD COLUMN IF NOT EXISTS search_vector tsvector",
+            "CREATE INDEX IF NOT EXISTS concrete_wiki_page_search_vector_idx ON concrete_wiki_page USING GIN (search_vector)",
+            "CREATE OR REPLACE FUNCTION concrete_wiki_page_search_vector() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "    NEW.search_vector := setweight(to_tsvector('simple', coalesce(NEW.title, '')), 'A') || " +
+                    "                         setweight(to_tsvector('simple', coalesce(" + NEW_CONTENT + ", '')), 'B'); " +
+                    "    RETURN NEW; " +
+                    "END " +
+                    "$$ LANGUAGE plpgsql",
+            "DROP TRIGGER IF EXISTS concrete_wiki_page_search_vector_insert ON concrete_wiki_page",
+            "CREATE TRIGGER concrete_wiki_page_search_vector_insert BEFORE INSERT ON concrete_wiki_page " +
+                    "FOR EACH ROW EXECUTE PROCEDURE concrete_wiki_page_search_vector()",
+            "DROP TRIGGER IF EXISTS concrete_wiki_page_search_vector_update ON concrete_wiki_page",
+            "CREATE TRIGGER concrete_wiki_page_search_vector_update BEFORE UPDATE ON concrete_wiki_page " +
+                    "FOR EACH ROW WHEN (OLD.title IS DISTINCT FROM NEW.title OR OLD.content IS DISTINCT FROM NEW.content OR OLD.search_content IS DISTINCT FROM NEW.search_content) " +
+                    "EXECUTE PROCEDURE concrete_wiki_page_search_vector()",
+            "UPDATE concrete_wiki_page SET search_vector = " +
+                    "setweight(to_tsvector('simple', coalesce(title, '')), 'A') || setweight(to_tsvector('simple', coalesce(concrete_wiki_page_content(id), '')), 'B') " +
+                    "WHERE search_vector IS NULL"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Install the search vector column, index and triggers once Hibernate has created the tables
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void installSchema() {
+        for (String statement : SCHEMA) {
+            jdbcTemplate.execute(statement);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<WikiPageWithAuthorProxy> search(String title, String username, String content) {
+        String query = toSearchQuery(title, content);
+
+        StringBuilder sql = new StringBuilder("SELECT page.* FROM concrete_wiki_page page JOIN wiki_user author ON author.id = page.author_id ");
+        appendCondition(sql, query, username);
+        sql.append("ORDER BY ");
+        if (!query.isEmpty()) {
+            sql.append("ts_rank(page.search_vector, to_tsquery('simple', :query)) DESC, ");
+        }
+        sql.append("page.creation_date DESC, page.id DESC");
+
+        Query search = entityManager.createNativeQuery(sql.toString(), ConcreteWikiPage.class);
+        setParameters(search, query, username);
+
+        List<WikiPageWithAuthorProxy> pages = new ArrayList<>();
+        for (ConcreteWikiPage page : (List<ConcreteWikiPage>) search.getResultList()) {
+            pages.add(new WikiPageWithAuthorProxy(page));
+        }
+        return pages;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<WikiPageWithAuthorProxy> searchCollapsed(String title, String username, String content) {
+        String query = toSearchQuery(title, content);
+        String rank = query.isEmpty() ? "0" : "ts_rank(page.search_vector, to_tsquery('simple', :query))";
+
+        //DISTINCT ON keeps the best ranked, then newest, WikiPage of each version tree, and the trees are then ordered by it
+        StringBuilder sql = new StringBuilder("SELECT best.* FROM (SELECT DISTINCT ON (COALESCE(page.root_id, page.id)) page.*, ")
+                .append(rank).append(" AS search_rank, COALESCE(root.edit_count, 0) + 1 AS versions ")
+                .append("FROM concrete_wiki_page page JOIN wiki_user author ON author.id = page.author_id ")
+                .append("LEFT JOIN concrete_wiki_page root ON root.id = page.root_id ");
+        appendCondition(sql, query, username);
+        sql.append("ORDER BY COALESCE(page.root_id, page.id), search_rank DESC, page.creation_date DESC, page.id DESC) best ")
+                .append("ORDER BY best.search_rank DESC, best.creation_date DESC, best.id DESC");
+
+        Query search = entityManager.createNativeQuery(sql.toString(), "ConcreteWikiPage.withVersions");
+        setParameters(search, query, username);
+
+        List<WikiPageWithAuthorProxy> pages = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) search.getResultList()) {
+            WikiPageWithAuthorProxy page = new WikiPageWithAuthorProxy((ConcreteWikiPage) row[0]);
+            page.setVersions((Integer) row[1]);
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    /**
+     * Combine the title and content of a search into one tsquery
+     * @param title - the title search text
+     * @param content - the content search text
+     * @return the tsquery, or an empty string if neither has any words
+     */
+    private static String toSearchQuery(String title, String content) {
+        String titleQuery = toTsQuery(title, "A");
+        String contentQuery = toTsQuery(content, "B");
+        return titleQuery + (titleQuery.isEmpty() || contentQuery.isEmpty() ? "" : " & ") + contentQuery;
+    }
+
+    /**
+     * Append the WHERE clause of a search, with the WikiPage aliased page and its author aliased author
+     */
+    private static void appendCondition(StringBuilder sql, String query, String username) {
+        sql.append("WHERE TRUE ");
+        if (!query.isEmpty()) {
+            sql.append("AND page.search_vector @@ to_tsquery('simple', :query) ");
+        }
+        if (!username.isEmpty()) {
+            sql.append("AND UPPER(author.user_name) LIKE ('%' || UPPER(:username) || '%') ");
+        }
+    }
+
+    private static void setParameters(Query search, String query, String username) {
+        if (!query.isEmpty()) {
+            search.setParameter("query", query);
+        }
+        if (!username.isEmpty()) {
+            search.setParameter("username", username);
+        }
+    }
+
+    /**
+     * Convert search text into a tsquery that requires every word as a prefix in the given weight, e.g. "foo bar" becomes "FOO:*A & BAR:*A".
+     * Only letters and digits are kept, so the result never contains tsquery operators from the search text.
+     * @param text - the search text
+     * @param weight - the weight that the words must appear with
+     * @return the tsquery, or an empty string if the text has no words
+     */
+    static String toTsQuery(String text, String weight) {
+        StringBuilder query = new StringBuilder();
+        for (String token : InvertedIndex.tokenize(InvertedIndex.fold(text))) {
+            if (query.length() > 0) {
+                query.append(" & ");
+            }
+            query.append(token).append(":*").append(weight);
+        }
+        return query.toString();
+    }
+
+}
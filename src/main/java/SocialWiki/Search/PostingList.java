@@ -0,0 +1,52 @@
+package SocialWiki.Search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, growable list of document ids for a single index term
+ */
+class PostingList {
+
+    long[] ids = new long[4];
+
+    int size;
+
+    /**
+     * Add an id to the list, keeping it sorted and ignoring duplicates.
+     * Documents are usually added in increasing id order, so this is normally an append.
+     * @param id - the id to add
+     */
+    void add(long id) {
+        int position;
+        if (size == 0 || ids[size - 1] < id) {
+            position = size;
+        } else {
+            position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+        }
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+
+    /**
+     * Check if the list contains an id
+     * @param id - the id to look for
+     * @return whether the id is in the list
+     */
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+}
@@ -0,0 +1,32 @@
+package SocialWiki.Search;
+
+import lombok.Getter;
+
+/**
+ * A WikiPage title suggested by /suggestTitles, with how popular it is
+ */
+public class TitleSuggestion {
+
+    /**
+     * The title as written by the author of its latest version
+     */
+    @Getter
+    private final String title;
+
+    /**
+     * The popularity of the title, the number of WikiPages with it plus their likes
+     */
+    @Getter
+    private final long weight;
+
+    /**
+     * Constructor that takes all attributes
+     * @param title - the title as written by the author of its latest version
+     * @param weight - the popularity of the title
+     */
+    public TitleSuggestion(String title, long weight) {
+        this.title = title;
+        this.weight = weight;
+    }
+
+}
@@ -0,0 +1,72 @@
+package SocialWiki.Search;
+
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Prefix index over the titles of all WikiPages, used to suggest titles as a search is typed.
+ * Titles are case folded with their whitespace collapsed, so versions of a page whose titles only differ in case or spacing are one suggestion.
+ * Each WikiPage adds 1 plus its likes to the weight of its title. Likes are read as the WikiPage is indexed,
+ * so likes given later only count once the indexes are rebuilt on the next startup
+ */
+@Component
+public class TitleSuggestionIndex implements WikiPageIndex {
+
+    /**
+     * The most titles suggested at once
+     */
+    @Value("${socialwiki.suggest.size}")
+    private int size;
+
+    private TitleTrie titles;
+
+    /**
+     * Create the trie once the size is known
+     */
+    @PostConstruct
+    public void init() {
+        titles = new TitleTrie(size);
+    }
+
+    @Override
+    public void add(ConcreteWikiPage page) {
+        String key = normalize(page.getTitle());
+        if (!key.isEmpty()) {
+            titles.add(key, page.getTitle().trim(), 1L + (page.getLikeCount() == null ? 0 : page.getLikeCount()));
+        }
+    }
+
+    @Override
+    public void clear() {
+        titles.clear();
+    }
+
+    /**
+     * Find the most popular titles that start with what has been typed so far
+     * @param prefix - the start of a title, does not need to be folded
+     * @return at most socialwiki.suggest.size titles, most popular first
+     */
+    public List<TitleSuggestion> suggest(String prefix) {
+        String key = normalize(prefix);
+        //A trailing space is kept so that "new " only completes titles with a word after "new"
+        if (!key.isEmpty() && Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            key += " ";
+        }
+        return titles.complete(key, size);
+    }
+
+    /**
+     * Normalize a title or prefix the same way for indexing and lookups
+     * @param text - the text to normalize
+     * @return the case folded text with runs of whitespace collapsed to one space and none at either end
+     */
+    static String normalize(String text) {
+        return InvertedIndex.fold(text).trim().replaceAll("\\s+", " ");
+    }
+
+}
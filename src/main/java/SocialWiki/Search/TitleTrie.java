@@ -0,0 +1,272 @@
+package SocialWiki.Search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Radix trie from normalized titles to their popularity weights, answering the heaviest completions of a prefix without scanning its subtree.
+ * Chains of nodes with a single child are compressed into one edge labelled with the whole run of characters, and every node keeps
+ * the heaviest titles below it in weight order, so a lookup only walks down the prefix and copies out the list of the node it ends in.
+ * Weights only ever grow, so adding weight to a title can only move it up the lists of the nodes above it.
+ */
+public class TitleTrie {
+
+    /**
+     * The most completions kept at each node, and so the most a lookup can return
+     */
+    private final int capacity;
+
+    /**
+     * Guards the nodes, lookups can run concurrently while additions are exclusive
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root = new Node("");
+
+    /**
+     * Constructs an empty trie
+     * @param capacity - the most completions kept at each node, must be positive
+     */
+    public TitleTrie(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Trie capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add weight to a title, adding the title if it is not in the trie yet
+     * @param key - the normalized title, must not be empty
+     * @param title - the title as it should be shown, replaces the one shown so far
+     * @param weight - the weight to add, must not be negative
+     */
+    public void add(String key, String title, long weight) {
+        lock.writeLock().lock();
+        try {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            String rest = key;
+            while (!rest.isEmpty()) {
+                int index = node.childIndex(rest.charAt(0));
+                if (index < 0) {    //If no edge starts with the next character, the rest of the key becomes a single new edge
+                    Node leaf = new Node(rest);
+                    node.insertChild(-index - 1, leaf);
+                    node = leaf;
+                    path.add(node);
+                    break;
+                }
+
+                Node child = node.children[index];
+                int common = commonPrefixLength(child.label, rest);
+                if (common < child.label.length()) {
+                    //The key leaves the edge part way along, so the edge is split where they part
+                    Node middle = new Node(child.label.substring(0, common));
+                    middle.top = Arrays.copyOf(child.top, child.top.length);
+                    middle.topSize = child.topSize;
+                    child.label = child.label.substring(common);
+                    middle.children = new Node[]{child};
+                    node.children[index] = middle;
+                    child = middle;
+                }
+                node = child;
+                path.add(node);
+                rest = rest.substring(common);
+            }
+
+            if (node.entry == null) {
+                node.entry = new Entry(key);
+            }
+            node.entry.title = title;
+            node.entry.weight += weight;
+            for (Node above : path) {
+                above.offer(node.entry, capacity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the heaviest titles that start with a prefix
+     * @param prefix - the normalized prefix, empty for the heaviest titles of all
+     * @param count - the most titles to return, at most the capacity of the trie is returned
+     * @return the titles, heaviest first and then in alphabetical order of their normalized titles
+     */
+    public List<TitleSuggestion> complete(String prefix, int count) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            String rest = prefix;
+            while (!rest.isEmpty()) {
+                int index = node.childIndex(rest.charAt(0));
+                if (index < 0) {
+                    return new ArrayList<>();
+                }
+                Node child = node.children[index];
+                int common = commonPrefixLength(child.label, rest);
+                if (common == rest.length()) {    //If the prefix ends on this edge, every title below it completes the prefix
+                    node = child;
+                    break;
+                }
+                if (common < child.label.length()) {
+                    return new ArrayList<>();
+                }
+                node = child;
+                rest = rest.substring(common);
+            }
+
+            List<TitleSuggestion> suggestions = new ArrayList<>();
+            for (int i = 0; i < Math.min(count, node.topSize); i++) {
+                suggestions.add(new TitleSuggestion(node.top[i].title, node.top[i].weight));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every title from the trie
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root = new Node("");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Whether one title should be suggested before another, the heavier first and then the first alphabetically
+     */
+    private static boolean before(Entry a, Entry b) {
+        return a.weight != b.weight ? a.weight > b.weight : a.key.compareTo(b.key) < 0;
+    }
+
+    /**
+     * A node of the trie, reached from its parent along an edge labelled with one or more characters
+     */
+    private static final class Node {
+
+        /**
+         * The characters on the edge from the parent, empty for the root
+         */
+        private String label;
+
+        /**
+         * The children ordered by the first character of their label, which is different for every child
+         */
+        private Node[] children = new Node[0];
+
+        /**
+         * The title that ends at this node, or null if none does
+         */
+        private Entry entry;
+
+        /**
+         * The heaviest titles ending at or below this node, heaviest first, grown as needed up to the capacity of the trie
+         */
+        private Entry[] top = new Entry[0];
+
+        private int topSize;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Find the child whose label starts with a character
+         * @return the index of the child, or -(insertion point) - 1 if there is none
+         */
+        private int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = children[middle].label.charAt(0);
+                if (label < first) {
+                    low = middle + 1;
+                } else if (label > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        private void insertChild(int index, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        /**
+         * Place a title whose weight has grown in the heaviest titles of this node, if it is heavy enough
+         */
+        private void offer(Entry offered, int capacity) {
+            int position = 0;
+            while (position < topSize && top[position] != offered) {
+                position++;
+            }
+
+            if (position == topSize) {
+                if (topSize == capacity) {
+                    if (!before(offered, top[topSize - 1])) {
+                        return;
+                    }
+                    //The lightest title makes way
+                    position = topSize - 1;
+                } else {
+                    if (topSize == top.length) {
+                        top = Arrays.copyOf(top, Math.min(capacity, Math.max(1, top.length * 2)));
+                    }
+                    position = topSize++;
+                }
+                top[position] = offered;
+            }
+
+            //Only the offered title got heavier, so it only needs to move towards the front
+            while (position > 0 && before(offered, top[position - 1])) {
+                top[position] = top[position - 1];
+                position--;
+            }
+            top[position] = offered;
+        }
+
+    }
+
+    /**
+     * A title in the trie and its total weight
+     */
+    private static final class Entry {
+
+        private final String key;
+
+        private String title;
+
+        private long weight;
+
+        private Entry(String key) {
+            this.key = key;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package SocialWiki.Search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index from character trigrams to the sorted ids of the documents containing them, used for typo tolerant matching.
+ * Trigrams are taken from every token padded with two spaces in front and one behind, the same way as PostgreSQL's pg_trgm,
+ * so "cat" has the trigrams "  C", " CA", "CAT" and "AT ".
+ * The similarity of a document to a query is their Dice coefficient, twice the number of trigrams they share over the number of trigrams of both,
+ * so it is the same whichever of the two is the query, and a short query is not an exact match for every long document containing it.
+ */
+public class TrigramIndex {
+
+    /**
+     * Posting list for every trigram in the index
+     */
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    /**
+     * Number of distinct trigrams of every document, by document id
+     */
+    private final Map<Long, Integer> trigramCounts = new HashMap<>();
+
+    /**
+     * Guards the postings, lookups can run concurrently while additions are exclusive
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Get the distinct trigrams of some text
+     * @param text - the text, does not need to be folded
+     * @return the sorted, distinct trigrams of every token in the text
+     */
+    static List<String> trigrams(String text) {
+        TreeSet<String> trigrams = new TreeSet<>();
+        for (String token : InvertedIndex.tokenize(InvertedIndex.fold(text))) {
+            String padded = "  " + token + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return new ArrayList<>(trigrams);
+    }
+
+    /**
+     * Add a document to the index
+     * @param id - the id of the document
+     * @param text - the text of the document, does not need to be folded
+     */
+    public void add(long id, String text) {
+        List<String> trigrams = trigrams(text);
+
+        lock.writeLock().lock();
+        try {
+            for (String trigram : trigrams) {
+                postings.computeIfAbsent(trigram, t -> new PostingList()).add(id);
+            }
+            trigramCounts.put(id, trigrams.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every document from the index
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            trigramCounts.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents that are similar to the query
+     * @param query - the query text, does not need to be folded
+     * @param threshold - the lowest similarity to return, between 0 exclusive and 1 inclusive
+     * @return the similarity of every document at or above the threshold, keyed by document id. Empty if the query has no trigrams.
+     */
+    public Map<Long, Double> search(String query, double threshold) {
+        List<String> trigrams = trigrams(query);
+        Map<Long, Double> matches = new HashMap<>();
+        if (trigrams.isEmpty()) {
+            return matches;
+        }
+
+        //A document shares at most as many trigrams as it has, so it needs at least this many of the query trigrams to reach the threshold
+        int required = Math.max(1, (int) Math.ceil(threshold * trigrams.size() / (2 - threshold) - 1e-9));
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (String trigram : trigrams) {
+                PostingList list = postings.get(trigram);
+                lists.add(list == null ? new PostingList() : list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            //A document missing from all of the shortest (trigrams - required + 1) lists cannot contain enough trigrams,
+            //so only those lists need to be scanned and the rest are probed for each candidate
+            int scanned = trigrams.size() - required + 1;
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i < scanned; i++) {
+                PostingList list = lists.get(i);
+                for (int j = 0; j < list.size; j++) {
+                    long id = list.ids[j];
+                    if (!seen.add(id)) {
+                        continue;
+                    }
+
+                    int shared = 0;
+                    for (PostingList other : lists) {
+                        if (other == list || other.contains(id)) {
+                            shared++;
+                        }
+                    }
+
+                    if (shared >= required) {
+                        double similarity = 2.0 * shared / (trigrams.size() + trigramCounts.get(id));
+                        if (similarity >= threshold - 1e-9) {
+                            matches.put(id, similarity);
+                        }
+                    }
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+}
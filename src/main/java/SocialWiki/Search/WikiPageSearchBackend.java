@@ -0,0 +1,32 @@
+package SocialWiki.Search;
+
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+
+import java.util.List;
+
+/**
+ * Strategy used by /advancedSearchWikiPage to find WikiPages by title, author and content.
+ * The implementation is chosen with the socialwiki.search.backend property.
+ */
+public interface WikiPageSearchBackend {
+
+    /**
+     * Find all WikiPages that match the search. Cannot accept NULL parameters, a blank parameter matches every WikiPage
+     * @param title - text to look for in the title of the WikiPage
+     * @param username - text to look for in the author username of the WikiPage
+     * @param content - text to look for in the content of the WikiPage
+     * @return all WikiPages matching the search, best matches first
+     */
+    List<WikiPageWithAuthorProxy> search(String title, String username, String content);
+
+    /**
+     * Find the best matching WikiPage of every version tree that has a WikiPage matching the search, grouping the matches in the query.
+     * Cannot accept NULL parameters, a blank parameter matches every WikiPage
+     * @param title - text to look for in the title of the WikiPage
+     * @param username - text to look for in the author username of the WikiPage
+     * @param content - text to look for in the content of the WikiPage
+     * @return the WikiPage search would return first of each version tree, in the same order, each with the number of versions in its tree
+     */
+    List<WikiPageWithAuthorProxy> searchCollapsed(String title, String username, String content);
+
+}
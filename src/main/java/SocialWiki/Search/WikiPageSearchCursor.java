@@ -0,0 +1,185 @@
+package SocialWiki.Search;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Calendar;
+
+/**
+ * Position in a paginated search, just after the last WikiPage returned.
+ * A WikiPage is identified by the values the search is ordered by and its id, so the next page can be found by seeking past it
+ * instead of skipping over every earlier result. In relevance order those are its match tier and creation date, in the other orders
+ * the aggregate of the WikiPageSort. The cursor records the sort it was made for, as its values mean nothing in another order.
+ */
+public class WikiPageSearchCursor {
+
+    /**
+     * The order of the search the cursor was returned by
+     */
+    @Getter
+    private final WikiPageSort sort;
+
+    /**
+     * The match tier of the last WikiPage returned, lower tiers come first. Only used in relevance order
+     */
+    @Getter
+    private final int tier;
+
+    /**
+     * The creation date of the last WikiPage returned, in milliseconds since the epoch. Only used in relevance and recent order
+     */
+    @Getter
+    private final long creationMillis;
+
+    /**
+     * The like or edit count of the last WikiPage returned. Only used in liked and edited order
+     */
+    @Getter
+    private final int count;
+
+    /**
+     * The liker influence of the last WikiPage returned. Only used in popular order
+     */
+    @Getter
+    private final double influence;
+
+    /**
+     * The id of the last WikiPage returned
+     */
+    @Getter
+    private final long id;
+
+    /**
+     * Constructor for a cursor in relevance order
+     * @param tier - the match tier of the last WikiPage returned
+     * @param creationMillis - the creation date of the last WikiPage returned, in milliseconds since the epoch
+     * @param id - the id of the last WikiPage returned
+     */
+    public WikiPageSearchCursor(int tier, long creationMillis, long id) {
+        this(WikiPageSort.RELEVANCE, tier, creationMillis, 0, 0, id);
+    }
+
+    /**
+     * Constructor that takes all attributes
+     */
+    private WikiPageSearchCursor(WikiPageSort sort, int tier, long creationMillis, int count, double influence, long id) {
+        this.sort = sort;
+        this.tier = tier;
+        this.creationMillis = creationMillis;
+        this.count = count;
+        this.influence = influence;
+        this.id = id;
+    }
+
+    /**
+     * Make a cursor in recent order
+     * @param creationMillis - the creation date of the last WikiPage returned, in milliseconds since the epoch
+     * @param id - the id of the last WikiPage returned
+     * @return the cursor
+     */
+    public static WikiPageSearchCursor afterCreationDate(long creationMillis, long id) {
+        return new WikiPageSearchCursor(WikiPageSort.RECENT, 0, creationMillis, 0, 0, id);
+    }
+
+    /**
+     * Make a cursor in an order by a count
+     * @param sort - liked or edited
+     * @param count - the like or edit count of the last WikiPage returned
+     * @param id - the id of the last WikiPage returned
+     * @return the cursor
+     * @throws IllegalArgumentException if the sort is not by a count
+     */
+    public static WikiPageSearchCursor afterCount(WikiPageSort sort, int count, long id) {
+        if (sort != WikiPageSort.LIKED && sort != WikiPageSort.EDITED) {
+            throw new IllegalArgumentException("Not ordered by a count: " + sort);
+        }
+        return new WikiPageSearchCursor(sort, 0, 0, count, 0, id);
+    }
+
+    /**
+     * Make a cursor in popular order
+     * @param influence - the liker influence of the last WikiPage returned
+     * @param id - the id of the last WikiPage returned
+     * @return the cursor
+     */
+    public static WikiPageSearchCursor afterInfluence(double influence, long id) {
+        return new WikiPageSearchCursor(WikiPageSort.POPULAR, 0, 0, 0, influence, id);
+    }
+
+    /**
+     * Get the creation date of the last WikiPage returned
+     * @return the creation date
+     */
+    public Calendar getCreationDate() {
+        Calendar creationDate = Calendar.getInstance();
+        creationDate.setTimeInMillis(creationMillis);
+        return creationDate;
+    }
+
+    /**
+     * Encode the cursor as an opaque, URL safe string, starting with its sort
+     * @return the encoded cursor
+     */
+    public String encode() {
+        String value;
+        switch (sort) {
+            case RELEVANCE:
+                value = tier + ":" + creationMillis;
+                break;
+            case RECENT:
+                value = Long.toString(creationMillis);
+                break;
+            case POPULAR:
+                value = Double.toString(influence);
+                break;
+            default:
+                value = Integer.toString(count);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((sort.name() + ":" + value + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor previously returned by encode
+     * @param cursor - the encoded cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static WikiPageSearchCursor decode(String cursor) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+
+        //An unknown sort is reported by valueOf, and NumberFormatException is an IllegalArgumentException, so malformed numbers are reported the same way
+        WikiPageSort sort = WikiPageSort.valueOf(parts[0]);
+        if (sort.isPersonal() || parts.length != (sort == WikiPageSort.RELEVANCE ? 4 : 3)) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+
+        long id = Long.parseLong(parts[parts.length - 1]);
+        switch (sort) {
+            case RELEVANCE:
+                return new WikiPageSearchCursor(Integer.parseInt(parts[1]), Long.parseLong(parts[2]), id);
+            case RECENT:
+                return afterCreationDate(Long.parseLong(parts[1]), id);
+            case POPULAR:
+                return afterInfluence(Double.parseDouble(parts[1]), id);
+            default:
+                return afterCount(sort, Integer.parseInt(parts[1]), id);
+        }
+    }
+
+    /**
+     * Decode a cursor previously returned by a search in a sort order
+     * @param cursor - the encoded cursor
+     * @param sort - the order of the search continuing after the cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed or was returned by a search in another order
+     */
+    public static WikiPageSearchCursor decode(String cursor, WikiPageSort sort) {
+        WikiPageSearchCursor decoded = decode(cursor);
+        if (decoded.getSort() != sort) {
+            throw new IllegalArgumentException("Cursor of a search in " + decoded.getSort() + " order cannot continue in " + sort + " order");
+        }
+        return decoded;
+    }
+
+}
@@ -0,0 +1,211 @@
+package SocialWiki.Search;
+
+import SocialWiki.Storage.WikiPageContentStore;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.VersionForest;
+import SocialWiki.WikiPages.WikiPageIndex;
+import SocialWiki.WikiPages.WikiPageRepository;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Full text index over the titles and contents of all WikiPages, used to answer title/content searches without scanning every page.
+ * Results are the same as WikiPageRepository.findByTitleAndContent, including its ordering, with one gap: text is case folded with
+ * toUpperCase(Locale.ROOT), which follows Unicode while PostgreSQL UPPER follows the collation of the database. They agree on ASCII,
+ * but may differ elsewhere, e.g. Java folds 'ß' to "SS" where UPPER leaves it, and a database with the C collation does not fold non-ASCII letters at all.
+ */
+@Component
+public class WikiPageSearchIndex implements WikiPageIndex {
+
+    /**
+     * Number of candidate WikiPages loaded from the repository at a time
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * Shortest token a search must have for the index to answer it. Shorter tokens match a large part of the vocabulary,
+     * so verifying their candidates would load nearly every WikiPage, and the database can scan for them without loading any
+     */
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    /**
+     * Most candidates the index verifies for a search, a search with more is unselective enough to be left to the database
+     */
+    private static final int MAX_CANDIDATES = 5000;
+
+    /**
+     * Repository for all WikiPages.
+     */
+    @Autowired
+    private WikiPageRepository wikiPageRepo;
+
+    /**
+     * Index of the version forest, used to count the versions of each tree in collapsed searches.
+     */
+    @Autowired
+    private VersionForest versionForest;
+
+    /**
+     * Loads the contents of WikiPages stored as deltas or as shared contents
+     */
+    @Autowired
+    private WikiPageContentStore wikiPageContentStore;
+
+    /**
+     * The index over the title and content of every WikiPage
+     */
+    private final InvertedIndex index = new InvertedIndex();
+
+    @Override
+    public void add(ConcreteWikiPage page) {
+        //The title and content are separated so that a token can never span both
+        index.add(page.getId(), page.getTitle() + "\n" + wikiPageContentStore.getContent(page));
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+    }
+
+    /**
+     * Find all WikiPages whose title or content contains the search text, ignoring case.
+     * Blank searches, searches containing the LIKE wildcards '%' or '_' and unselective searches cannot be answered by the index, see search(String, boolean).
+     * @param searchText - the text to search for
+     * @return all matching WikiPages ordered by how well the title matches, then newest first, or null if the index cannot answer the search
+     */
+    public List<WikiPageWithAuthorProxy> search(String searchText) {
+        return search(searchText, false);
+    }
+
+    /**
+     * Find all WikiPages whose title or content contains the search text, ignoring case, optionally keeping only the best match of each version tree.
+     * Blank searches and searches containing the LIKE wildcards '%' or '_' cannot be answered by the index, since they do not match on tokens.
+     * Searches whose tokens are all shorter than MIN_TOKEN_LENGTH, or that have more than MAX_CANDIDATES candidates, are left to the database
+     * rather than loading most of the wiki to verify them.
+     * @param searchText - the text to search for
+     * @param collapse - whether to keep only the first WikiPage of each version tree, each with the number of versions in its tree
+     * @return the matching WikiPages ordered by how well the title matches, then newest first, or null if the index cannot answer the search
+     */
+    public List<WikiPageWithAuthorProxy> search(String searchText, boolean collapse) {
+        if (searchText.isEmpty() || searchText.indexOf('%') >= 0 || searchText.indexOf('_') >= 0) {
+            return null;
+        }
+
+        String query = InvertedIndex.fold(searchText);
+        if (longestToken(query) < MIN_TOKEN_LENGTH) {
+            return null;
+        }
+        long[] candidates = index.candidates(query);
+        if (candidates == null || candidates.length > MAX_CANDIDATES) {
+            return null;
+        }
+
+        //Candidates are only guaranteed to contain the query tokens, so check each for the full query
+        List<ConcreteWikiPage> matches = new ArrayList<>();
+        for (int from = 0; from < candidates.length; from += LOAD_BATCH_SIZE) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = from; i < Math.min(from + LOAD_BATCH_SIZE, candidates.length); i++) {
+                ids.add(candidates[i]);
+            }
+
+            for (ConcreteWikiPage page : wikiPageRepo.findAll(ids)) {
+                if (contains(page.getTitle(), query) || contains(wikiPageContentStore.getContent(page), query)) {
+                    matches.add(page);
+                }
+            }
+        }
+
+        matches.sort(byTitleMatch(query));
+
+        if (collapse) {
+            return collapse(matches, versionForest);
+        }
+        List<WikiPageWithAuthorProxy> pages = new ArrayList<>();
+        for (ConcreteWikiPage page : matches) {
+            pages.add(new WikiPageWithAuthorProxy(page));
+        }
+        return pages;
+    }
+
+    /**
+     * Keep only the first of the ordered WikiPages of each version tree, so an entry with many edits is one result
+     * @param ordered - the matching WikiPages, best match first
+     * @param versionForest - the version forest, used to count the versions of each tree
+     * @return the first WikiPage of each tree in the same order, each with the number of versions in its tree
+     */
+    static List<WikiPageWithAuthorProxy> collapse(List<ConcreteWikiPage> ordered, VersionForest versionForest) {
+        Set<Long> seenRoots = new HashSet<>();
+        List<WikiPageWithAuthorProxy> pages = new ArrayList<>();
+        for (ConcreteWikiPage page : ordered) {
+            Long rootId = page.getRootId() == null ? page.getId() : page.getRootId();
+            if (seenRoots.add(rootId)) {
+                WikiPageWithAuthorProxy proxy = new WikiPageWithAuthorProxy(page);
+                //A tree not in the forest yet has at least the version that was found
+                proxy.setVersions(Math.max(1, versionForest.getSubtreeSize(rootId)));
+                pages.add(proxy);
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Get the ordering used by the repository searches: exact title matches, then title prefix matches, then title substring matches,
+     * then everything else, with ties broken by newest creation date and then highest id
+     * @param query - folded search text
+     * @return the comparator for the search results
+     */
+    public static Comparator<ConcreteWikiPage> byTitleMatch(String query) {
+        return Comparator.<ConcreteWikiPage>comparingInt(page -> titleMatchClass(page.getTitle(), query))
+                .thenComparing(ConcreteWikiPage::getCreationDate, Comparator.reverseOrder())
+                .thenComparing(ConcreteWikiPage::getId, Comparator.reverseOrder());
+    }
+
+    /**
+     * Get how well a title matches the search, mirroring the CASE expression of the repository searches
+     * @param title - the title of a WikiPage
+     * @param query - folded search text
+     * @return 0 for an exact match, 1 for a prefix match, 2 for a substring match, and 4 for no match
+     */
+    static int titleMatchClass(String title, String query) {
+        String folded = InvertedIndex.fold(title);
+        if (folded.equals(query)) {
+            return 0;
+        } else if (folded.startsWith(query)) {
+            return 1;
+        } else if (folded.contains(query)) {
+            return 2;
+        }
+        return 4;
+    }
+
+    /**
+     * Get the length of the longest token of a query
+     * @param query - folded search text
+     * @return the length of the longest token, 0 if there are none
+     */
+    private static int longestToken(String query) {
+        int longest = 0;
+        for (String token : InvertedIndex.tokenize(query)) {
+            longest = Math.max(longest, token.length());
+        }
+        return longest;
+    }
+
+    /**
+     * Check if text contains the folded query, ignoring case
+     * @param text - the text to search, may be null
+     * @param query - folded search text
+     * @return whether the text contains the query
+     */
+    private static boolean contains(String text, String query) {
+        return text != null && InvertedIndex.fold(text).contains(query);
+    }
+
+}
@@ -0,0 +1,35 @@
+package SocialWiki.Search;
+
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a paginated search
+ */
+public class WikiPageSearchResults {
+
+    /**
+     * The WikiPages on this page of results
+     */
+    @Getter
+    private final List<WikiPageWithAuthorProxy> pages;
+
+    /**
+     * Cursor to pass back to get the next page of results, or null if this is the last page
+     */
+    @Getter
+    private final String nextCursor;
+
+    /**
+     * Constructor that takes all attributes
+     * @param pages - the WikiPages on this page of results
+     * @param nextCursor - the cursor for the next page of results, or null if this is the last page
+     */
+    public WikiPageSearchResults(List<WikiPageWithAuthorProxy> pages, String nextCursor) {
+        this.pages = pages;
+        this.nextCursor = nextCursor;
+    }
+
+}
@@ -0,0 +1,168 @@
+package SocialWiki.Search;
+
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders a search can return its WikiPages in, as given by the sort parameter of the search endpoints.
+ * Liked, recent, edited and popular are by an aggregate maintained on each WikiPage, highest first and then highest id first,
+ * and each aggregate has an index in that order so a page of results is read from the index without sorting every match.
+ * Closest and similar depend on who is searching, so they can only rank a full list of results whose liker distances or similarities have been set.
+ */
+public enum WikiPageSort {
+
+    /**
+     * The default order of each search, e.g. title match tier then newest first
+     */
+    RELEVANCE(null, null, null),
+
+    /**
+     * Most liked first
+     */
+    LIKED("liked", "page.likeCount", highestFirst(Comparator.comparing(WikiPageWithAuthorProxy::getLikes))),
+
+    /**
+     * Most recently created first
+     */
+    RECENT("recent", "page.creationDate", highestFirst(Comparator.comparing(WikiPageWithAuthorProxy::getCreationDate))),
+
+    /**
+     * Most versions descending from it first
+     */
+    EDITED("edited", "page.editCount", highestFirst(Comparator.comparing(WikiPageWithAuthorProxy::getEdits))),
+
+    /**
+     * Liked by the most influential User first, as scored by the InfluenceJob
+     */
+    POPULAR("popular", "page.likerInfluence", highestFirst(Comparator.comparing(WikiPageWithAuthorProxy::getLikerInfluence))),
+
+    /**
+     * Liked by the closest User in the follow graph of the searching User first, ties and WikiPages with no liker in reach keep their relevance order
+     */
+    CLOSEST("closest", null, Comparator.comparing(WikiPageWithAuthorProxy::getDistance, Comparator.nullsLast(Comparator.naturalOrder()))),
+
+    /**
+     * Liked by the User most similar to the searching User first, by the pages they both like. Ties and WikiPages liked by none of the
+     * most similar Users keep their relevance order
+     */
+    SIMILAR("similar", null, Comparator.comparing(WikiPageWithAuthorProxy::getSimilarity, Comparator.nullsLast(Comparator.reverseOrder())));
+
+    /**
+     * The value of the sort parameter that selects the order
+     */
+    private final String parameter;
+
+    /**
+     * The JPQL path of the aggregate ordered by, where the WikiPage is aliased page
+     */
+    private final String path;
+
+    /**
+     * Orders WikiPages into the sort order, null for relevance as the search has already done so
+     */
+    private final Comparator<WikiPageWithAuthorProxy> comparator;
+
+    /**
+     * Constructor that takes all attributes
+     * @param parameter - the value of the sort parameter that selects the order
+     * @param path - the JPQL path of the aggregate ordered by, or null if the order cannot be read from the database
+     * @param comparator - orders WikiPages into the sort order
+     */
+    WikiPageSort(String parameter, String path, Comparator<WikiPageWithAuthorProxy> comparator) {
+        this.parameter = parameter;
+        this.path = path;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Order WikiPages by an aggregate highest first, then highest id first
+     * @param ascending - orders WikiPages by the aggregate, lowest first
+     * @return the comparator
+     */
+    private static Comparator<WikiPageWithAuthorProxy> highestFirst(Comparator<WikiPageWithAuthorProxy> ascending) {
+        return ascending.thenComparing(WikiPageWithAuthorProxy::getId).reversed();
+    }
+
+    /**
+     * Whether the order depends on the searching User, which means it needs every match to rank and cannot be read a page at a time
+     * @return true for closest and similar
+     */
+    public boolean isPersonal() {
+        return this == CLOSEST || this == SIMILAR;
+    }
+
+    /**
+     * Get the JPQL path of the aggregate ordered by
+     * @return the path, where the WikiPage is aliased page, or null for relevance and the personal orders
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Sort WikiPages already found by a search into this order, in place
+     * @param pages - the WikiPages found
+     */
+    public void sort(List<WikiPageWithAuthorProxy> pages) {
+        if (comparator != null) {
+            pages.sort(comparator);
+        }
+    }
+
+    /**
+     * Get the value of the aggregate to continue after, as stored in a cursor by cursorAfter
+     * @param cursor - the cursor of the previous page, made for this order
+     * @return the value of the aggregate of the last WikiPage of the previous page
+     */
+    public Object getCursorValue(WikiPageSearchCursor cursor) {
+        if (this == RECENT) {
+            return cursor.getCreationDate();
+        }
+        if (this == POPULAR) {
+            return cursor.getInfluence();
+        }
+        return cursor.getCount();
+    }
+
+    /**
+     * Make the cursor for the page after a WikiPage, holding the aggregate of this order
+     * @param last - the last WikiPage of a page of results
+     * @return the cursor to continue after it
+     * @throws IllegalStateException if the order has no aggregate, i.e. relevance and the personal orders
+     */
+    public WikiPageSearchCursor cursorAfter(WikiPageWithAuthorProxy last) {
+        switch (this) {
+            case LIKED:
+                return WikiPageSearchCursor.afterCount(this, last.getLikes(), last.getId());
+            case EDITED:
+                return WikiPageSearchCursor.afterCount(this, last.getEdits(), last.getId());
+            case RECENT:
+                return WikiPageSearchCursor.afterCreationDate(last.getCreationDate().getTimeInMillis(), last.getId());
+            case POPULAR:
+                return WikiPageSearchCursor.afterInfluence(last.getLikerInfluence(), last.getId());
+            default:
+                throw new IllegalStateException("No cursor in " + this + " order");
+        }
+    }
+
+    /**
+     * Find the order selected by a sort parameter
+     * @param parameter - the value of the sort parameter, or null for relevance
+     * @return the order
+     * @throws IllegalArgumentException if the parameter is not a known order
+     */
+    public static WikiPageSort fromParameter(String parameter) {
+        if (parameter == null || parameter.isEmpty()) {
+            return RELEVANCE;
+        }
+        for (WikiPageSort sort : values()) {
+            if (parameter.equals(sort.parameter)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort: " + parameter);
+    }
+
+}
@@ -0,0 +1,81 @@
+package SocialWiki.Storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of stored WikiPage contents. Contents are compressed as a single gzip member at the fastest deflate level,
+ * so that compressed contents can be sent as they are to clients that accept gzip.
+ * Stored contents record their codec by name, and contents stored before compression have no codec and are read as text.
+ */
+public class ContentCodec {
+
+    /**
+     * Name of the gzip codec, as stored with compressed contents
+     */
+    public static final String GZIP = "gzip";
+
+    private ContentCodec() {
+    }
+
+    /**
+     * Compress contents with the gzip codec
+     * @param content - the contents to compress
+     * @return the UTF-8 encoded contents as a gzip member
+     */
+    public static byte[] compress(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 3 + 32);
+        try (GZIPOutputStream gzip = new FastGZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            //Only thrown by the underlying stream, which is in memory
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Decompress contents stored with a codec
+     * @param codec - the name of the codec the contents were stored with
+     * @param compressed - the stored contents
+     * @return the contents
+     * @throws IllegalArgumentException if the codec is unknown or the contents are not valid for it
+     */
+    public static String decompress(String codec, byte[] compressed) {
+        if (!GZIP.equals(codec)) {
+            throw new IllegalArgumentException("Unknown content codec: " + codec);
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream(compressed.length * 4);
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = gzip.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Stored contents are not valid " + codec, e);
+        }
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * GZIPOutputStream at the fastest deflate level, as contents are compressed on every save but only need to be small, not smallest
+     */
+    private static class FastGZIPOutputStream extends GZIPOutputStream {
+
+        FastGZIPOutputStream(ByteArrayOutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+}
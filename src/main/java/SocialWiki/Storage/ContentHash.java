@@ -0,0 +1,45 @@
+package SocialWiki.Storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 hashes of WikiPage contents. Versions with the same hash have the same contents,
+ * so the hash both identifies a shared content body and tells whether an edit changed anything.
+ */
+public class ContentHash {
+
+    /**
+     * The length of a hash, 64 hex digits
+     */
+    public static final int LENGTH = 64;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hash the contents of a WikiPage
+     * @param content - the contents to hash
+     * @return the SHA-256 hash of the UTF-8 encoded contents, as lowercase hex
+     */
+    public static String of(String content) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        char[] hex = new char[LENGTH];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+}
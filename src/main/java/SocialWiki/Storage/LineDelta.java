@@ -0,0 +1,296 @@
+package SocialWiki.Storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line based deltas between two versions of a text, found with Myers' O((N+M)D) diff algorithm.
+ * A delta is itself text, one operation per line, that rebuilds the new version from the lines of the old one:
+ * "=start,count" copies count lines of the old version starting at line start (counted from 0), and "+count" inserts the count lines that follow it.
+ * Lines that are not copied are deleted. Lines are split on '\n' only and an empty text is a single empty line,
+ * so applying a delta gives back exactly the text it was made from, including any '\r' and trailing newline.
+ * The same format is applied by the concrete_wiki_page_apply_delta database function, see WikiPageContentStore.
+ */
+public class LineDelta {
+
+    /**
+     * Number of differences past which a delta is not worth finding, as the two versions have little in common
+     */
+    static final int MAX_EDITS = 2000;
+
+    private LineDelta() {
+    }
+
+    /**
+     * Find the delta that turns one version of a text into another
+     * @param base - the old version
+     * @param target - the new version
+     * @return the delta, or null if the versions differ in more than MAX_EDITS lines
+     */
+    public static String diff(String base, String target) {
+        String[] baseLines = split(base);
+        String[] targetLines = split(target);
+
+        //Lines shared at the start and end are copied without searching
+        int prefix = 0;
+        int maxPrefix = Math.min(baseLines.length, targetLines.length);
+        while (prefix < maxPrefix && baseLines[prefix].equals(targetLines[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < maxPrefix - prefix && baseLines[baseLines.length - 1 - suffix].equals(targetLines[targetLines.length - 1 - suffix])) {
+            suffix++;
+        }
+
+        //Compare the middle lines as numbers, so equal lines are only ever compared once by content
+        Map<String, Integer> lineNumbers = new HashMap<>();
+        int[] a = number(baseLines, prefix, baseLines.length - suffix, lineNumbers);
+        int[] b = number(targetLines, prefix, targetLines.length - suffix, lineNumbers);
+
+        boolean[] keptA = new boolean[a.length];
+        boolean[] keptB = new boolean[b.length];
+        if (!findKeptLines(a, b, keptA, keptB)) {
+            return null;
+        }
+
+        //Lines only in the old version are deleted by not copying them, and lines only in the new version are inserted
+        DeltaWriter writer = new DeltaWriter();
+        writer.copy(0, prefix);
+        int x = 0;
+        int y = 0;
+        while (x < a.length || y < b.length) {
+            if (x < a.length && !keptA[x]) {
+                x++;
+            } else if (y < b.length && !keptB[y]) {
+                writer.insert(targetLines[prefix + y]);
+                y++;
+            } else {
+                writer.copy(prefix + x, 1);
+                x++;
+                y++;
+            }
+        }
+        writer.copy(baseLines.length - suffix, suffix);
+        return writer.toString();
+    }
+
+    /**
+     * Apply a delta to the version it was made from
+     * @param base - the old version
+     * @param delta - the delta made by diff
+     * @return the new version
+     * @throws IllegalArgumentException if the delta is malformed or does not fit the old version
+     */
+    public static String apply(String base, String delta) {
+        String[] baseLines = split(base);
+        String[] ops = delta.isEmpty() ? new String[0] : delta.split("\n", -1);
+
+        StringBuilder result = new StringBuilder(base.length() + delta.length());
+        boolean first = true;
+        try {
+            for (int i = 0; i < ops.length; i++) {
+                String op = ops[i];
+                if (op.startsWith("=")) {
+                    int comma = op.indexOf(',');
+                    int start = Integer.parseInt(op.substring(1, comma));
+                    int count = Integer.parseInt(op.substring(comma + 1));
+                    for (int line = start; line < start + count; line++) {
+                        first = appendLine(result, baseLines[line], first);
+                    }
+                } else if (op.startsWith("+")) {
+                    int count = Integer.parseInt(op.substring(1));
+                    for (int line = 0; line < count; line++) {
+                        first = appendLine(result, ops[++i], first);
+                    }
+                } else {
+                    throw new IllegalArgumentException("Unknown delta operation: " + op);
+                }
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Delta does not fit its base", e);
+        }
+        return result.toString();
+    }
+
+    private static boolean appendLine(StringBuilder result, String line, boolean first) {
+        if (!first) {
+            result.append('\n');
+        }
+        result.append(line);
+        return false;
+    }
+
+    /**
+     * Split a text into lines, keeping empty lines at the end
+     * @param text - the text to split
+     * @return the lines of the text, a single empty line for an empty text
+     */
+    static String[] split(String text) {
+        return text.split("\n", -1);
+    }
+
+    private static int[] number(String[] lines, int from, int to, Map<String, Integer> lineNumbers) {
+        int[] numbers = new int[to - from];
+        for (int i = from; i < to; i++) {
+            numbers[i - from] = lineNumbers.computeIfAbsent(lines[i], line -> lineNumbers.size());
+        }
+        return numbers;
+    }
+
+    /**
+     * Find a longest common subsequence of two sequences with Myers' greedy algorithm, keeping the diagonals reached after each edit to walk back
+     * @param a - the old sequence
+     * @param b - the new sequence
+     * @param keptA - set to whether each element of a is part of the common subsequence
+     * @param keptB - set to whether each element of b is part of the common subsequence
+     * @return false if there are more than MAX_EDITS differences
+     */
+    private static boolean findKeptLines(int[] a, int[] b, boolean[] keptA, boolean[] keptB) {
+        int n = a.length;
+        int m = b.length;
+        int max = Math.min(n + m, MAX_EDITS);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= max; d++) {
+            //Only diagonals -d to d can have been reached after d edits
+            int[] reached = new int[2 * d + 1];
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[x] == b[y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                reached[k + d] = x;
+
+                if (x >= n && y >= m) {
+                    trace.add(reached);
+                    walkBack(trace, n, m, keptA, keptB);
+                    return true;
+                }
+            }
+            trace.add(reached);
+        }
+        return false;
+    }
+
+    /**
+     * Walk back from the end through the diagonals reached after each edit, marking the lines of each snake as kept
+     * @param trace - the furthest x on each diagonal after each number of edits
+     * @param n - the length of the old sequence
+     * @param m - the length of the new sequence
+     * @param keptA - set to whether each element of the old sequence is kept
+     * @param keptB - set to whether each element of the new sequence is kept
+     */
+    private static void walkBack(List<int[]> trace, int n, int m, boolean[] keptA, boolean[] keptB) {
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+
+            //The same choice as going forward: an insertion moves down from diagonal k + 1, a deletion moves right from diagonal k - 1
+            boolean insertion = k == -d || (k != d && reachedAt(previous, d - 1, k - 1) < reachedAt(previous, d - 1, k + 1));
+            int previousK = insertion ? k + 1 : k - 1;
+            int previousX = reachedAt(previous, d - 1, previousK);
+            int snakeStart = insertion ? previousX : previousX + 1;
+
+            while (x > snakeStart) {
+                x--;
+                y--;
+                keptA[x] = true;
+                keptB[y] = true;
+            }
+            x = previousX;
+            y = previousX - previousK;
+        }
+
+        //Lines matched before the first edit
+        while (x > 0) {
+            x--;
+            y--;
+            keptA[x] = true;
+            keptB[y] = true;
+        }
+    }
+
+    private static int reachedAt(int[] reached, int d, int k) {
+        return reached[k + d];
+    }
+
+    /**
+     * Writes delta operations, merging neighbouring copies and inserts into single operations
+     */
+    private static class DeltaWriter {
+
+        private final StringBuilder delta = new StringBuilder();
+
+        private int copyStart;
+        private int copyCount;
+
+        private final List<String> inserted = new ArrayList<>();
+
+        private boolean wroteAny;
+
+        void copy(int start, int count) {
+            if (count == 0) {
+                return;
+            }
+            flushInserts();
+            if (copyCount > 0 && copyStart + copyCount == start) {
+                copyCount += count;
+            } else {
+                flushCopy();
+                copyStart = start;
+                copyCount = count;
+            }
+        }
+
+        void insert(String line) {
+            flushCopy();
+            inserted.add(line);
+        }
+
+        private void flushCopy() {
+            if (copyCount > 0) {
+                writeOp("=" + copyStart + "," + copyCount);
+                copyCount = 0;
+            }
+        }
+
+        private void flushInserts() {
+            if (!inserted.isEmpty()) {
+                writeOp("+" + inserted.size());
+                inserted.forEach(this::writeOp);
+                inserted.clear();
+            }
+        }
+
+        private void writeOp(String line) {
+            //Inserted lines can be empty, so the first operation is tracked rather than checking the length
+            if (wroteAny) {
+                delta.append('\n');
+            }
+            delta.append(line);
+            wroteAny = true;
+        }
+
+        @Override
+        public String toString() {
+            flushCopy();
+            flushInserts();
+            return delta.toString();
+        }
+    }
+
+}
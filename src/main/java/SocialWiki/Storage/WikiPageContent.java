@@ -0,0 +1,48 @@
+package SocialWiki.Storage;
+
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Contents shared by every WikiPage version with the same ContentHash, as stored in the wiki_page_content table by the WikiPageContentStore.
+ * Mapped read only so that searches can join WikiPages to the contents they share, rows are only ever written by the WikiPageContentStore
+ */
+@Entity
+@Immutable
+@Table(name = "wiki_page_content")
+public class WikiPageContent {
+
+    /**
+     * The ContentHash of the contents
+     */
+    @Id
+    @Getter
+    @Column(length = ContentHash.LENGTH)
+    private String hash;
+
+    /**
+     * The contents as text, or null if they are stored compressed
+     */
+    @Getter
+    @Column(columnDefinition = "text")
+    private String body;
+
+    /**
+     * The ContentCodec the contents are compressed with, or null if they are stored as text
+     */
+    @Getter
+    @Column(length = 16)
+    private String codec;
+
+    /**
+     * The compressed contents, or null if they are stored as text
+     */
+    @Column(columnDefinition = "bytea")
+    private byte[] compressed;
+
+}
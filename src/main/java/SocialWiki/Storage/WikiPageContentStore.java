@@ -0,0 +1,310 @@
+package SocialWiki.Storage;
+
+import SocialWiki.Cache.LruCache;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the contents of WikiPage versions as line deltas against their parent, with full contents every socialwiki.content.snapshot-interval
+ * levels of the version tree so that rebuilding a version never applies more than interval - 1 deltas.
+ * Full contents are kept once in the wiki_page_content table by their ContentHash and shared by every version with the same contents,
+ * so reverts and copied pages are not stored again. Shared contents of at least socialwiki.content.compression.threshold characters are stored compressed
+ * with the ContentCodec. The database can read neither compressed contents nor deltas without replaying them for every row scanned,
+ * so versions stored either way also keep their contents as plain text in the search_content column, which searches match instead.
+ * WikiPages stored either way have their contents loaded through this store, which caches them by page id. The same loading is installed in the database as the concrete_wiki_page_content function, for backfills.
+ */
+@Component
+public class WikiPageContentStore {
+
+    /**
+     * Statements that install the shared contents table and the functions that load contents in the database. All are safe to run on every startup.
+     * concrete_wiki_page_apply_delta must give exactly the same result as LineDelta.apply
+     */
+    private static final String[] SCHEMA = {
+            "ALTER TABLE concrete_wiki_page ADD COLUMN IF NOT EXISTS delta text",
+            "ALTER TABLE concrete_wiki_page ADD COLUMN IF NOT EXISTS content_hash varchar(" + ContentHash.LENGTH + ")",
+            "ALTER TABLE concrete_wiki_page ADD COLUMN IF NOT EXISTS search_content text",
+            "CREATE TABLE IF NOT EXISTS wiki_page_content (hash varchar(" + ContentHash.LENGTH + ") PRIMARY KEY, body text)",
+            "ALTER TABLE wiki_page_content ALTER COLUMN body DROP NOT NULL",
+            "ALTER TABLE wiki_page_content ADD COLUMN IF NOT EXISTS codec varchar(16)",
+            "ALTER TABLE wiki_page_content ADD COLUMN IF NOT EXISTS compressed bytea",
+            "CREATE OR REPLACE FUNCTION concrete_wiki_page_apply_delta(base text, delta text) RETURNS text AS $$ " +
+                    "DECLARE " +
+                    "    base_lines text[] := CASE WHEN base = '' THEN ARRAY[''] ELSE string_to_array(base, E'\\n') END; " +
+                    "    ops text[] := string_to_array(delta, E'\\n'); " +
+                    "    result text[] := ARRAY[]::text[]; " +
+                    "    i integer := 1; " +
+                    "    first_line integer; " +
+                    "    line_count integer; " +
+                    "BEGIN " +
+                    "    IF base IS NULL THEN " +
+                    "        RETURN NULL; " +
+                    "    END IF; " +
+                    "    WHILE i <= coalesce(array_length(ops, 1), 0) LOOP " +
+                    "        IF left(ops[i], 1) = '=' THEN " +
+                    "            first_line := split_part(substr(ops[i], 2), ',', 1)::integer; " +
+                    "            line_count := split_part(substr(ops[i], 2), ',', 2)::integer; " +
+                    "            result := result || base_lines[first_line + 1 : first_line + line_count]; " +
+                    "            i := i + 1; " +
+                    "        ELSE " +
+                    "            line_count := substr(ops[i], 2)::integer; " +
+                    "            result := result || ops[i + 1 : i + line_count]; " +
+                    "            i := i + 1 + line_count; " +
+                    "        END IF; " +
+                    "    END LOOP; " +
+                    "    RETURN array_to_string(result, E'\\n'); " +
+                    "END " +
+                    "$$ LANGUAGE plpgsql IMMUTABLE",
+            "CREATE OR REPLACE FUNCTION concrete_wiki_page_content(page_id bigint) RETURNS text AS $$ " +
+                    "DECLARE " +
+                    "    page record; " +
+                    "BEGIN " +
+                    "    SELECT content, search_content, content_hash, delta, parentid INTO page FROM concrete_wiki_page WHERE id = page_id; " +
+                    "    IF page.search_content IS NOT NULL THEN " +
+                    "        RETURN page.search_content; " +
+                    "    END IF; " +
+                    "    IF page.delta IS NULL THEN " +
+                    "        RETURN coalesce(page.content, (SELECT body FROM wiki_page_content WHERE hash = page.content_hash)); " +
+                    "    END IF; " +
+                    "    RETURN concrete_wiki_page_apply_delta(concrete_wiki_page_content(page.parentid), page.delta); " +
+                    "END " +
+                    "$$ LANGUAGE plpgsql STABLE"
+    };
+
+    /**
+     * Stores shared contents, either as text in body or compressed with the named codec. Another version may store the same contents at the same time,
+     * in which case either copy will do
+     */
+    private static final String INSERT_CONTENT_SQL = "INSERT INTO wiki_page_content (hash, body, codec, compressed) VALUES (?, ?, ?, ?) ON CONFLICT (hash) DO NOTHING";
+
+    private static final String FIND_CONTENT_SQL = "SELECT body, codec, compressed FROM wiki_page_content WHERE hash = ?";
+
+    private static final String FIND_CODEC_SQL = "SELECT codec FROM wiki_page_content WHERE hash = ?";
+
+    /**
+     * Number of versions hashed, or given plain text contents for searches, at a time at startup
+     */
+    private static final int HASH_BATCH_SIZE = 500;
+
+    /**
+     * Reads a batch of versions created before every version had a ContentHash, with their contents
+     */
+    private static final String FIND_UNHASHED_SQL = "SELECT id, concrete_wiki_page_content(id) AS content FROM concrete_wiki_page " +
+            "WHERE content_hash IS NULL AND id > ? ORDER BY id LIMIT " + HASH_BATCH_SIZE;
+
+    private static final String SET_HASH_SQL = "UPDATE concrete_wiki_page SET content_hash = ? WHERE id = ?";
+
+    /**
+     * Reads a batch of ids of versions stored as deltas or compressed that were created before their contents were kept as plain text for searches
+     */
+    private static final String FIND_UNSEARCHABLE_SQL = "SELECT page.id FROM concrete_wiki_page page " +
+            "LEFT JOIN wiki_page_content shared ON shared.hash = page.content_hash " +
+            "WHERE page.search_content IS NULL AND page.content IS NULL AND (page.delta IS NOT NULL OR shared.codec IS NOT NULL) AND page.id > ? " +
+            "ORDER BY page.id LIMIT " + HASH_BATCH_SIZE;
+
+    private static final String SET_SEARCH_CONTENT_SQL = "UPDATE concrete_wiki_page SET search_content = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Repository for all WikiPages.
+     */
+    @Autowired
+    private WikiPageRepository wikiPageRepo;
+
+    /**
+     * Cache of the contents of WikiPages by id
+     */
+    @Autowired
+    private LruCache<Long, String> pageContentCache;
+
+    /**
+     * Every this many levels of a version tree, starting with the originals, a version is stored in full. 0 or 1 stores every version in full
+     */
+    @Value("${socialwiki.content.snapshot-interval}")
+    private int snapshotInterval;
+
+    /**
+     * Shared contents of at least this many characters are stored compressed, 0 stores every content as text
+     */
+    @Value("${socialwiki.content.compression.threshold}")
+    private int compressionThreshold;
+
+    /**
+     * Check the settings
+     * @throws IllegalArgumentException if the snapshot interval is negative
+     */
+    @PostConstruct
+    public void checkSettings() {
+        if (snapshotInterval < 0) {
+            throw new IllegalArgumentException("socialwiki.content.snapshot-interval must not be negative: " + snapshotInterval);
+        }
+    }
+
+    /**
+     * Install the shared contents table and database functions once Hibernate has created the tables, hash the contents of versions
+     * created before every version had a ContentHash, and keep the contents of versions stored as deltas or compressed before searches
+     * read plain text as plain text. Their stored contents stay where they are.
+     * Runs before other startup work, as the search vector trigger calls the functions
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void installSchema() {
+        for (String statement : SCHEMA) {
+            jdbcTemplate.execute(statement);
+        }
+
+        long lastId = 0;
+        List<Object[]> batch;
+        do {
+            batch = jdbcTemplate.query(FIND_UNHASHED_SQL, (row, rowNum) ->
+                    new Object[]{row.getString("content") == null ? null : ContentHash.of(row.getString("content")), row.getLong("id")}, lastId);
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate(SET_HASH_SQL, batch);
+                lastId = (Long) batch.get(batch.size() - 1)[1];
+            }
+        } while (!batch.isEmpty());
+
+        lastId = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList(FIND_UNSEARCHABLE_SQL, Long.class, lastId);
+            if (!ids.isEmpty()) {
+                List<Object[]> contents = new ArrayList<>();
+                for (ConcreteWikiPage page : wikiPageRepo.findAll(ids)) {
+                    contents.add(new Object[]{getContent(page), page.getId()});
+                }
+                jdbcTemplate.batchUpdate(SET_SEARCH_CONTENT_SQL, contents);
+                lastId = ids.get(ids.size() - 1);
+            }
+        } while (!ids.isEmpty());
+    }
+
+    /**
+     * Decide how a new version of a WikiPage is stored. Contents that are already stored are shared. Otherwise it is stored as a delta against its parent,
+     * unless it is an original, falls on a snapshot level or the delta would be no smaller than the contents, in which case its contents are stored to be shared
+     * @param page - the new version, not yet saved
+     * @param parent - the WikiPage it was created from, or null if it is an original
+     */
+    public void encode(ConcreteWikiPage page, ConcreteWikiPage parent) {
+        String content = page.getContent();
+        if (content == null) {
+            return;
+        }
+
+        //If the same contents are already stored, e.g. the version reverts an edit, only the hash is kept
+        List<String> codecs = jdbcTemplate.queryForList(FIND_CODEC_SQL, String.class, page.getContentHash());
+        if (!codecs.isEmpty()) {
+            page.storeAsShared(codecs.get(0) != null);
+            return;
+        }
+
+        //Versions whose depth is not known yet, e.g. the parent is from before depths were stored, are kept in full to be safe
+        if (snapshotInterval > 1 && parent != null && parent.getDepth() != null && (parent.getDepth() + 1) % snapshotInterval != 0) {
+            String base = getContent(parent);
+            String delta = base == null ? null : LineDelta.diff(base, content);
+            if (delta != null && delta.length() < content.length()) {
+                page.storeAsDelta(delta);
+                pageContentCache.put(parent.getId(), base);
+                return;
+            }
+        }
+
+        if (compressionThreshold > 0 && content.length() >= compressionThreshold) {
+            jdbcTemplate.update(INSERT_CONTENT_SQL, page.getContentHash(), null, ContentCodec.GZIP, ContentCodec.compress(content));
+            page.storeAsShared(true);
+        } else {
+            jdbcTemplate.update(INSERT_CONTENT_SQL, page.getContentHash(), content, null, null);
+            page.storeAsShared(false);
+        }
+    }
+
+    /**
+     * Get the contents of a WikiPage as they are stored with the gzip codec, so they can be sent to a client without decompressing and compressing them again
+     * @param page - the WikiPage
+     * @return the gzip compressed contents, or null if the contents of the WikiPage are not stored compressed
+     */
+    public byte[] getGzipContent(ConcreteWikiPage page) {
+        //Contents are shared by hash, so any version with the same contents may have stored them compressed
+        List<byte[]> compressed = jdbcTemplate.query(FIND_CONTENT_SQL, (row, rowNum) ->
+                ContentCodec.GZIP.equals(row.getString("codec")) ? row.getBytes("compressed") : null, page.getContentHash());
+        return compressed.isEmpty() ? null : compressed.get(0);
+    }
+
+    /**
+     * Get the contents of a WikiPage by id, from the cache if they have been read before
+     * @param id - the id of the WikiPage
+     * @return the contents, or null if there is no WikiPage with the id
+     */
+    public String getContent(Long id) {
+        return pageContentCache.get(id, pageId -> {
+            ConcreteWikiPage page = wikiPageRepo.findOne(pageId);
+            return page == null ? null : getContent(page);
+        });
+    }
+
+    /**
+     * Get the contents of a WikiPage, loading them if it is stored as a delta or as shared contents.
+     * Loaded contents are kept on the WikiPage, so later reads of it do not go through the store
+     * @param page - the WikiPage
+     * @return the contents of the WikiPage
+     * @throws IllegalStateException if the contents or parent of the WikiPage no longer exist
+     */
+    public String getContent(ConcreteWikiPage page) {
+        if (!page.isContentLoaded()) {
+            page.setLoadedContent(rebuild(page));
+        }
+        return page.getContent();
+    }
+
+    /**
+     * Load the contents of a WikiPage, so that it can be sent with them
+     * @param page - the WikiPage, may be null
+     * @return the same WikiPage
+     * @throws IllegalStateException if the contents or parent of the WikiPage no longer exist
+     */
+    public ConcreteWikiPage loadContent(ConcreteWikiPage page) {
+        if (page != null) {
+            getContent(page);
+        }
+        return page;
+    }
+
+    /**
+     * Load the contents of a WikiPage stored as shared contents, or rebuild them by applying its delta to the contents of its parent
+     * @param page - a WikiPage stored as a delta or as shared contents
+     * @return the contents of the WikiPage
+     * @throws IllegalStateException if the contents or parent of the WikiPage no longer exist
+     */
+    private String rebuild(ConcreteWikiPage page) {
+        return pageContentCache.get(page.getId(), id -> {
+            if (page.getDelta() == null) {
+                List<String> bodies = jdbcTemplate.query(FIND_CONTENT_SQL, (row, rowNum) -> row.getString("codec") == null ?
+                        row.getString("body") : ContentCodec.decompress(row.getString("codec"), row.getBytes("compressed")), page.getContentHash());
+                if (bodies.isEmpty()) {
+                    throw new IllegalStateException("Contents " + page.getContentHash() + " of WikiPage " + id + " are missing");
+                }
+                return bodies.get(0);
+            }
+
+            String base = getContent(page.getParentID());
+            if (base == null) {
+                throw new IllegalStateException("Parent " + page.getParentID() + " of WikiPage " + id + " is missing, its contents cannot be rebuilt");
+            }
+            return LineDelta.apply(base, page.getDelta());
+        });
+    }
+
+}
@@ -0,0 +1,105 @@
+package SocialWiki.Trending;
+
+import java.util.Random;
+
+/**
+ * Fixed size table of counters that estimates how much has been added for any number of keys, never underestimating.
+ * Each key is hashed to one counter in every row and its estimate is the smallest of them, so it is only overestimated by other keys
+ * colliding with it in every row. Additions use the conservative update, raising a counter only as far as the new estimate,
+ * which keeps the counters of colliding keys as low as possible.
+ */
+public class CountMinSketch {
+
+    /**
+     * Counters in each row
+     */
+    private final int width;
+
+    /**
+     * Rows of counters, each hashing keys with its own seed
+     */
+    private final int depth;
+
+    /**
+     * Seed of each row, fixed so estimates are the same on every instance
+     */
+    private final long[] seeds;
+
+    /**
+     * Counters of row r are counters[r * width] up to counters[(r + 1) * width]
+     */
+    private final double[] counters;
+
+    /**
+     * Constructs a sketch with every counter at 0
+     * @param width - the counters in each row, must be positive
+     * @param depth - the rows of counters, must be positive
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Sketch width and depth must be positive: " + width + " x " + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.seeds = new long[depth];
+        this.counters = new double[width * depth];
+
+        Random random = new Random(0xc0117e5L);
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = random.nextLong();
+        }
+    }
+
+    /**
+     * Add an amount to the count of a key
+     * @param key - the key
+     * @param amount - the amount to add, must not be negative
+     * @return the new estimated count of the key
+     */
+    public double add(long key, double amount) {
+        double estimate = estimate(key) + amount;
+        for (int row = 0; row < depth; row++) {
+            int counter = counterOf(row, key);
+            //Counters already above the new estimate are counting other keys too, so raising them would only add error
+            if (counters[counter] < estimate) {
+                counters[counter] = estimate;
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * Estimate the count of a key
+     * @param key - the key
+     * @return the smallest counter of the key, at least the amount added for it
+     */
+    public double estimate(long key) {
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[counterOf(row, key)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Multiply every counter by a factor, e.g. to decay every count at once
+     * @param factor - the factor, must not be negative
+     */
+    public void scale(double factor) {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] *= factor;
+        }
+    }
+
+    /**
+     * Find the counter of a key in a row, using the MurmurHash3 finalizer to mix in the seed of the row
+     */
+    private int counterOf(int row, long key) {
+        long z = key ^ seeds[row];
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z ^= z >>> 33;
+        return row * width + (int) ((z >>> 1) % width);
+    }
+
+}
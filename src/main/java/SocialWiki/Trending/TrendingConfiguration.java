@@ -0,0 +1,29 @@
+package SocialWiki.Trending;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the in-memory list of trending WikiPages. Its size, decay and sketch are set with socialwiki.trending.* properties
+ */
+@Configuration
+public class TrendingConfiguration {
+
+    /**
+     * The WikiPages with the most recent views, fed by /retrieveWikiPageCounters and served by /trendingWikiPages
+     * @param size - the most WikiPages kept
+     * @param halfLifeMillis - milliseconds after which a view counts half as much
+     * @param sketchWidth - the counters in each row of the sketch that counts views of every WikiPage
+     * @param sketchDepth - the rows of counters of the sketch
+     * @return the trending WikiPages
+     */
+    @Bean
+    public TrendingWikiPages trendingWikiPages(@Value("${socialwiki.trending.size}") int size,
+                                               @Value("${socialwiki.trending.half-life}") long halfLifeMillis,
+                                               @Value("${socialwiki.trending.sketch.width}") int sketchWidth,
+                                               @Value("${socialwiki.trending.sketch.depth}") int sketchDepth) {
+        return new TrendingWikiPages(size, halfLifeMillis, sketchWidth, sketchDepth, System.currentTimeMillis());
+    }
+
+}
@@ -0,0 +1,209 @@
+package SocialWiki.Trending;
+
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the WikiPages with the most recent views, where each view counts half as much for every half-life that has passed since it.
+ * Views are counted for every WikiPage in a CountMinSketch, and a min-heap keeps the size most viewed WikiPages found so far,
+ * so memory use depends only on the sketch and the size and never on how many WikiPages there are.
+ * Decay uses forward decay: a view adds 2^((time of the view - landmark) / half-life), and counts are divided by 2^((now - landmark) / half-life)
+ * when read, so old counts never need decaying one by one. The landmark moves forward before the weights grow too large,
+ * scaling every count down once. All methods are synchronized, and recording a view only hashes the page into the sketch and moves it in the heap
+ */
+public class TrendingWikiPages {
+
+    /**
+     * Half-lives after the landmark before every count is scaled down and the landmark moved to now, well within the range of a double
+     */
+    private static final int RESCALE_HALF_LIVES = 64;
+
+    /**
+     * The most WikiPages kept
+     */
+    private final int size;
+
+    /**
+     * Milliseconds after which a view counts half as much
+     */
+    private final long halfLifeMillis;
+
+    private final CountMinSketch sketch;
+
+    /**
+     * The time views are weighed from, views at the landmark have a weight of 1
+     */
+    private long landmarkMillis;
+
+    /**
+     * The kept WikiPages as a min-heap on their counts, so the least viewed one is replaced first
+     */
+    private final Entry[] heap;
+
+    private int heapSize;
+
+    /**
+     * The kept WikiPages by id
+     */
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * Constructs an empty list of trending WikiPages
+     * @param size - the most WikiPages kept, must be positive
+     * @param halfLifeMillis - milliseconds after which a view counts half as much, must be positive
+     * @param sketchWidth - the counters in each row of the sketch
+     * @param sketchDepth - the rows of counters of the sketch
+     * @param nowMillis - the current time
+     */
+    public TrendingWikiPages(int size, long halfLifeMillis, int sketchWidth, int sketchDepth, long nowMillis) {
+        if (size <= 0 || halfLifeMillis <= 0) {
+            throw new IllegalArgumentException("Trending size and half-life must be positive: " + size + ", " + halfLifeMillis);
+        }
+        this.size = size;
+        this.halfLifeMillis = halfLifeMillis;
+        this.sketch = new CountMinSketch(sketchWidth, sketchDepth);
+        this.landmarkMillis = nowMillis;
+        this.heap = new Entry[size];
+    }
+
+    /**
+     * Count a view of a WikiPage now
+     * @param page - the WikiPage that was viewed
+     */
+    public void record(ConcreteWikiPage page) {
+        record(page, System.currentTimeMillis());
+    }
+
+    /**
+     * Count a view of a WikiPage
+     * @param page - the WikiPage that was viewed
+     * @param nowMillis - the time of the view
+     */
+    synchronized void record(ConcreteWikiPage page, long nowMillis) {
+        if (nowMillis - landmarkMillis > RESCALE_HALF_LIVES * halfLifeMillis) {
+            moveLandmark(nowMillis);
+        }
+
+        double count = sketch.add(page.getId(), Math.pow(2, (double) (nowMillis - landmarkMillis) / halfLifeMillis));
+
+        Entry entry = entries.get(page.getId());
+        if (entry != null) {
+            //The latest copy is kept, e.g. one reloaded after its author was deleted
+            entry.page = page;
+            entry.count = count;
+            siftDown(entry.index);
+        } else if (heapSize < size) {
+            entry = new Entry(page, count);
+            entries.put(page.getId(), entry);
+            heap[heapSize] = entry;
+            entry.index = heapSize++;
+            siftUp(entry.index);
+        } else if (count > heap[0].count) {    //If the WikiPage now has more views than the least viewed one kept
+            entries.remove(heap[0].page.getId());
+            entry = new Entry(page, count);
+            entries.put(page.getId(), entry);
+            heap[0] = entry;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Get the trending WikiPages now
+     * @return the kept WikiPages, most recently viewed first
+     */
+    public List<WikiPageWithAuthorProxy> getTrending() {
+        return getTrending(System.currentTimeMillis());
+    }
+
+    /**
+     * Get the trending WikiPages
+     * @param nowMillis - the time to decay the counts to
+     * @return the kept WikiPages, most recently viewed first, each with its views decayed to now as its trending score
+     */
+    synchronized List<WikiPageWithAuthorProxy> getTrending(long nowMillis) {
+        double decay = Math.pow(2, -(double) (nowMillis - landmarkMillis) / halfLifeMillis);
+        List<Entry> kept = new ArrayList<>(entries.values());
+        kept.sort((a, b) -> a.count != b.count ? Double.compare(b.count, a.count) : Long.compare(b.page.getId(), a.page.getId()));
+
+        List<WikiPageWithAuthorProxy> trending = new ArrayList<>(kept.size());
+        for (Entry entry : kept) {
+            WikiPageWithAuthorProxy proxy = new WikiPageWithAuthorProxy(entry.page);
+            proxy.setTrendingScore(entry.count * decay);
+            trending.add(proxy);
+        }
+        return trending;
+    }
+
+    /**
+     * Move the landmark to a time, scaling every count down so they stay the same relative to views weighed from the new landmark
+     */
+    private void moveLandmark(long nowMillis) {
+        double factor = Math.pow(2, -(double) (nowMillis - landmarkMillis) / halfLifeMillis);
+        sketch.scale(factor);
+        for (int i = 0; i < heapSize; i++) {
+            heap[i].count *= factor;
+        }
+        landmarkMillis = nowMillis;
+    }
+
+    private void siftUp(int index) {
+        Entry entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= entry.count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(entry, index);
+    }
+
+    private void siftDown(int index) {
+        Entry entry = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (entry.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(entry, index);
+    }
+
+    private void place(Entry entry, int index) {
+        heap[index] = entry;
+        entry.index = index;
+    }
+
+    /**
+     * A kept WikiPage, its estimated count weighed from the landmark, and where it is in the heap
+     */
+    private static final class Entry {
+
+        private ConcreteWikiPage page;
+
+        private double count;
+
+        private int index;
+
+        private Entry(ConcreteWikiPage page, double count) {
+            this.page = page;
+            this.count = count;
+        }
+
+    }
+
+}
@@ -0,0 +1,280 @@
+package SocialWiki.Users;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory snapshot of who every User follows and which WikiPages they like, used to rank pages by how close their likers are in the follow graph.
+ * Users are numbered by ascending id, and the follows and likes of every User are held in compressed sparse row form:
+ * an offsets array per User into one array of followed User numbers and one array of liked page ids, so no walk of the graph loads an entity.
+ * The snapshot is replaced as a whole by a rebuild that runs on a schedule after any follow, unfollow, like or unlike,
+ * so rankings may lag changes by up to socialwiki.follow-graph.refresh.interval milliseconds.
+ */
+@Component
+public class FollowGraph {
+
+    /**
+     * Reads every follow ordered by following User, the order of the compressed rows
+     */
+    private static final String FOLLOWS_SQL = "SELECT wiki_user_id, followed_users_id FROM wiki_user_followed_users ORDER BY wiki_user_id";
+
+    /**
+     * Reads every like ordered by liking User, the order of the compressed rows
+     */
+    private static final String LIKES_SQL = "SELECT wiki_user_id, liked_pages_id FROM wiki_user_liked_pages ORDER BY wiki_user_id";
+
+    /**
+     * How many Users are visited between checks of the time budget, as reading the clock costs more than visiting a User
+     */
+    private static final int BUDGET_CHECK_INTERVAL = 256;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The greatest follow distance searched, e.g. 2 finds pages liked by followed Users and the Users they follow
+     */
+    @Value("${socialwiki.follow-graph.max-depth}")
+    private int maxDepth;
+
+    /**
+     * The most milliseconds a single search of the graph may take
+     */
+    @Value("${socialwiki.follow-graph.budget}")
+    private long budgetMillis;
+
+    /**
+     * The current snapshot, replaced whole so searches never see a partly built graph
+     */
+    private volatile Snapshot snapshot = new Snapshot(new long[0], new long[0], new long[0], new long[0], new long[0]);
+
+    /**
+     * Whether a follow or like has changed since the snapshot was built
+     */
+    private volatile boolean stale;
+
+    /**
+     * Record that a follow or like has changed, so the next scheduled refresh rebuilds the snapshot
+     */
+    public void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Rebuild the snapshot if a follow or like has changed. Runs every socialwiki.follow-graph.refresh.interval milliseconds
+     */
+    @Scheduled(fixedDelayString = "${socialwiki.follow-graph.refresh.interval}")
+    public void refreshIfStale() {
+        if (stale) {
+            refresh();
+        }
+    }
+
+    /**
+     * Rebuild the snapshot from the follows and likes tables. Runs once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void refresh() {
+        //Cleared first so a change made during the rebuild is picked up by the next one
+        stale = false;
+
+        Edges follows = new Edges();
+        jdbcTemplate.query(FOLLOWS_SQL, row -> {
+            follows.add(row.getLong(1), row.getLong(2));
+        });
+        Edges likes = new Edges();
+        jdbcTemplate.query(LIKES_SQL, row -> {
+            likes.add(row.getLong(1), row.getLong(2));
+        });
+
+        long[] userIds = jdbcTemplate.queryForList("SELECT id FROM wiki_user ORDER BY id", Long.class).stream().mapToLong(Long::longValue).toArray();
+        load(userIds, follows.trimmedFrom(), follows.trimmedTo(), likes.trimmedFrom(), likes.trimmedTo());
+    }
+
+    /**
+     * Replace the snapshot with one built from the given Users, follows and likes
+     * @param userIds - the id of every User, in ascending order
+     * @param followers - the following User of each follow, in ascending order
+     * @param followed - the followed User of each follow
+     * @param likers - the liking User of each like, in ascending order
+     * @param likedPages - the liked page of each like
+     */
+    void load(long[] userIds, long[] followers, long[] followed, long[] likers, long[] likedPages) {
+        snapshot = new Snapshot(userIds, followers, followed, likers, likedPages);
+    }
+
+    /**
+     * Get the current snapshot, e.g. to walk the whole graph
+     * @return the snapshot, which never changes once built
+     */
+    Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Find how close the nearest liker of each WikiPage is to a User, searching the follow graph breadth first from the User
+     * until every WikiPage has a liker, socialwiki.follow-graph.max-depth is reached, or socialwiki.follow-graph.budget runs out.
+     * Levels are finished in order, so every distance found is the true shortest distance even if the search is cut short
+     * @param userId - the id of the User to measure from
+     * @param pageIds - the ids of the WikiPages to find likers of
+     * @return the follow distance of the nearest liker of each WikiPage that has one within reach, 1 for pages liked by a followed User.
+     * WikiPages liked only by the User themselves, or by nobody within reach, are left out
+     */
+    public Map<Long, Integer> findLikerDistances(long userId, Collection<Long> pageIds) {
+        return snapshot.findLikerDistances(userId, new HashSet<>(pageIds), maxDepth, System.nanoTime() + budgetMillis * 1_000_000L);
+    }
+
+    /**
+     * Immutable compressed sparse row form of the follows and likes of every User
+     */
+    static final class Snapshot {
+
+        /**
+         * The id of each User number, in ascending order so ids are found by binary search
+         */
+        final long[] userIds;
+
+        /**
+         * The follows of User number n are followed[followOffsets[n]] up to followed[followOffsets[n + 1]]
+         */
+        final int[] followOffsets;
+        final int[] followed;
+
+        /**
+         * The likes of User number n are likedPages[likeOffsets[n]] up to likedPages[likeOffsets[n + 1]]
+         */
+        private final int[] likeOffsets;
+        private final long[] likedPages;
+
+        private Snapshot(long[] userIds, long[] followers, long[] followedIds, long[] likers, long[] likedPageIds) {
+            this.userIds = userIds;
+            this.followOffsets = new int[userIds.length + 1];
+            this.likeOffsets = new int[userIds.length + 1];
+
+            //Edges of Users deleted since the ids were read have no number and are dropped
+            int[] follows = new int[followers.length];
+            int followCount = 0;
+            for (int i = 0; i < followers.length; i++) {
+                int from = Arrays.binarySearch(userIds, followers[i]);
+                int to = Arrays.binarySearch(userIds, followedIds[i]);
+                if (from >= 0 && to >= 0) {
+                    followOffsets[from + 1]++;
+                    follows[followCount++] = to;
+                }
+            }
+            this.followed = Arrays.copyOf(follows, followCount);
+
+            long[] likes = new long[likers.length];
+            int likeCount = 0;
+            for (int i = 0; i < likers.length; i++) {
+                int from = Arrays.binarySearch(userIds, likers[i]);
+                if (from >= 0) {
+                    likeOffsets[from + 1]++;
+                    likes[likeCount++] = likedPageIds[i];
+                }
+            }
+            this.likedPages = Arrays.copyOf(likes, likeCount);
+
+            //The edges are already grouped by User, so the counts only need summing into offsets
+            for (int n = 0; n < userIds.length; n++) {
+                followOffsets[n + 1] += followOffsets[n];
+                likeOffsets[n + 1] += likeOffsets[n];
+            }
+        }
+
+        private Map<Long, Integer> findLikerDistances(long userId, Set<Long> pageIds, int maxDepth, long deadline) {
+            Map<Long, Integer> distances = new HashMap<>();
+            int source = Arrays.binarySearch(userIds, userId);
+            if (source < 0 || pageIds.isEmpty()) {
+                return distances;
+            }
+
+            BitSet visited = new BitSet(userIds.length);
+            visited.set(source);
+            int[] queue = new int[16];
+            queue[0] = source;
+            int head = 0;
+            int tail = 1;
+            int visits = 0;
+
+            for (int depth = 1; depth <= maxDepth && head < tail; depth++) {
+                //Everything in the queue now is one level up, so its follows are all at this depth
+                int levelEnd = tail;
+                while (head < levelEnd) {
+                    int user = queue[head++];
+                    for (int i = followOffsets[user]; i < followOffsets[user + 1]; i++) {
+                        int next = followed[i];
+                        if (visited.get(next)) {
+                            continue;
+                        }
+                        visited.set(next);
+
+                        for (int j = likeOffsets[next]; j < likeOffsets[next + 1]; j++) {
+                            Long pageId = likedPages[j];
+                            if (pageIds.contains(pageId)) {
+                                distances.putIfAbsent(pageId, depth);
+                            }
+                        }
+                        if (distances.size() == pageIds.size()) {    //If every WikiPage already has its nearest liker
+                            return distances;
+                        }
+
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, queue.length * 2);
+                        }
+                        queue[tail++] = next;
+
+                        if (++visits % BUDGET_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                            return distances;
+                        }
+                    }
+                }
+            }
+            return distances;
+        }
+
+    }
+
+    /**
+     * Growable pair of primitive arrays for reading edges without boxing them
+     */
+    private static final class Edges {
+
+        private long[] from = new long[1024];
+        private long[] to = new long[1024];
+        private int size;
+
+        private void add(long source, long target) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+            }
+            from[size] = source;
+            to[size] = target;
+            size++;
+        }
+
+        private long[] trimmedFrom() {
+            return Arrays.copyOf(from, size);
+        }
+
+        private long[] trimmedTo() {
+            return Arrays.copyOf(to, size);
+        }
+
+    }
+
+}
@@ -0,0 +1,306 @@
+package SocialWiki.Users;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the follower count and influence of every User from the follow graph, and the influence of the most influential liker of every WikiPage,
+ * so that searches can be sorted by "liked by the most popular User" from an index.
+ * Influence is PageRank over the FollowGraph snapshot: each iteration pulls rank along the follows into every User, with the Users split into ranges
+ * that are computed in parallel on a fork/join pool, until the total change in rank is below TOLERANCE or MAX_ITERATIONS is reached.
+ * The scores are stored in the wiki_user and concrete_wiki_page tables, and the runtime and convergence of the last run is kept for /influenceStatistics.
+ */
+@Component
+public class InfluenceJob {
+
+    /**
+     * The probability of following a follow rather than jumping to a random User
+     */
+    static final double DAMPING = 0.85;
+
+    /**
+     * Iteration stops once the ranks change by less than this in total
+     */
+    static final double TOLERANCE = 1e-9;
+
+    static final int MAX_ITERATIONS = 100;
+
+    /**
+     * The fewest Users computed by a single fork/join task, below which splitting costs more than it saves
+     */
+    private static final int TASK_SIZE = 4096;
+
+    /**
+     * Statements that add the score columns and the index that serves searches sorted by popular liker. All are safe to run on every startup.
+     */
+    private static final String[] SCHEMA = {
+            "ALTER TABLE wiki_user ADD COLUMN IF NOT EXISTS follower_count integer",
+            "ALTER TABLE wiki_user ALTER COLUMN follower_count SET DEFAULT 0",
+            "ALTER TABLE wiki_user ADD COLUMN IF NOT EXISTS influence double precision",
+            "ALTER TABLE wiki_user ALTER COLUMN influence SET DEFAULT 0",
+            "ALTER TABLE concrete_wiki_page ADD COLUMN IF NOT EXISTS liker_influence double precision",
+            "ALTER TABLE concrete_wiki_page ALTER COLUMN liker_influence SET DEFAULT 0",
+            "CREATE INDEX IF NOT EXISTS concrete_wiki_page_liker_influence_idx ON concrete_wiki_page (liker_influence DESC, id DESC)",
+            "UPDATE concrete_wiki_page SET liker_influence = 0 WHERE liker_influence IS NULL"
+    };
+
+    /**
+     * Stores the scores of a User, skipping Users whose scores have not changed
+     */
+    private static final String STORE_USER_SQL = "UPDATE wiki_user SET follower_count = ?, influence = ? " +
+            "WHERE id = ? AND (follower_count IS DISTINCT FROM ? OR influence IS DISTINCT FROM ?)";
+
+    /**
+     * Sets the liker influence of every liked WikiPage to that of its most influential liker
+     */
+    private static final String STORE_LIKED_PAGES_SQL = "UPDATE concrete_wiki_page page SET liker_influence = likers.influence " +
+            "FROM (SELECT likes.liked_pages_id AS page_id, MAX(liker.influence) AS influence " +
+            "      FROM wiki_user_liked_pages likes JOIN wiki_user liker ON liker.id = likes.wiki_user_id GROUP BY likes.liked_pages_id) likers " +
+            "WHERE page.id = likers.page_id AND page.liker_influence IS DISTINCT FROM likers.influence";
+
+    /**
+     * Clears the liker influence of WikiPages that are no longer liked by anyone
+     */
+    private static final String CLEAR_UNLIKED_PAGES_SQL = "UPDATE concrete_wiki_page page SET liker_influence = 0 " +
+            "WHERE page.liker_influence <> 0 AND NOT EXISTS (SELECT 1 FROM wiki_user_liked_pages likes WHERE likes.liked_pages_id = page.id)";
+
+    private static final int STORE_BATCH_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    /**
+     * The number of threads that compute ranks, 0 for one per processor
+     */
+    @Value("${socialwiki.influence.parallelism}")
+    private int parallelism;
+
+    /**
+     * The runtime and convergence of the last run, or null if there has not been one
+     */
+    private volatile InfluenceStatistics lastRun;
+
+    /**
+     * Add the score columns once Hibernate has created the tables
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void installSchema() {
+        for (String statement : SCHEMA) {
+            jdbcTemplate.execute(statement);
+        }
+    }
+
+    /**
+     * Compute and store the scores of every User and WikiPage. Runs every socialwiki.influence.interval milliseconds
+     */
+    @Scheduled(fixedDelayString = "${socialwiki.influence.interval}", initialDelayString = "${socialwiki.influence.initial-delay}")
+    public synchronized void run() {
+        long start = System.nanoTime();
+
+        //Make sure the graph includes the latest follows
+        followGraph.refreshIfStale();
+        FollowGraph.Snapshot snapshot = followGraph.getSnapshot();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        Influence influence;
+        try {
+            influence = computeInfluence(snapshot.followOffsets, snapshot.followed, pool);
+        } finally {
+            pool.shutdown();
+        }
+        long computed = System.nanoTime();
+
+        store(snapshot.userIds, influence);
+
+        lastRun = new InfluenceStatistics(snapshot.userIds.length, snapshot.followed.length, influence.iterations, influence.residual,
+                influence.residual < TOLERANCE, (computed - start) / 1_000_000L, (System.nanoTime() - computed) / 1_000_000L);
+    }
+
+    /**
+     * Get the runtime and convergence of the last run
+     * @return the statistics, or null if the job has not run since startup
+     */
+    public InfluenceStatistics getLastRun() {
+        return lastRun;
+    }
+
+    /**
+     * Store the follower count and influence of every User, then the liker influence of every WikiPage
+     * @param userIds - the id of each User number
+     * @param influence - the scores of each User number
+     */
+    private void store(long[] userIds, Influence influence) {
+        List<Object[]> batch = new ArrayList<>(STORE_BATCH_SIZE);
+        for (int user = 0; user < userIds.length; user++) {
+            //Scaled so the average User has an influence of 1, which reads the same however many Users there are
+            double scaled = influence.ranks[user] * userIds.length;
+            batch.add(new Object[]{influence.followerCounts[user], scaled, userIds[user], influence.followerCounts[user], scaled});
+            if (batch.size() == STORE_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(STORE_USER_SQL, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(STORE_USER_SQL, batch);
+        }
+
+        jdbcTemplate.update(STORE_LIKED_PAGES_SQL);
+        jdbcTemplate.update(CLEAR_UNLIKED_PAGES_SQL);
+    }
+
+    /**
+     * Compute the follower count and PageRank of every User of a follow graph
+     * @param followOffsets - the follows of User n are followed[followOffsets[n]] up to followed[followOffsets[n + 1]]
+     * @param followed - the followed User of every follow
+     * @param pool - the pool to compute ranges of Users on
+     * @return the follower counts, ranks summing to 1, and how far the ranks converged
+     */
+    static Influence computeInfluence(int[] followOffsets, int[] followed, ForkJoinPool pool) {
+        int users = followOffsets.length - 1;
+
+        //Rank flows from a follower to the User they follow, so each User pulls from their followers, which are found by reversing the follows
+        int[] followerOffsets = new int[users + 1];
+        for (int target : followed) {
+            followerOffsets[target + 1]++;
+        }
+        int[] followerCounts = new int[users];
+        for (int user = 0; user < users; user++) {
+            followerCounts[user] = followerOffsets[user + 1];
+            followerOffsets[user + 1] += followerOffsets[user];
+        }
+        int[] followers = new int[followed.length];
+        int[] next = followerOffsets.clone();
+        for (int user = 0; user < users; user++) {
+            for (int i = followOffsets[user]; i < followOffsets[user + 1]; i++) {
+                followers[next[followed[i]]++] = user;
+            }
+        }
+
+        double[] ranks = new double[users];
+        if (users == 0) {
+            return new Influence(followerCounts, ranks, 0, 0);
+        }
+        Arrays.fill(ranks, 1.0 / users);
+        double[] shares = new double[users];
+        double[] nextRanks = new double[users];
+
+        int iterations = 0;
+        double residual = Double.MAX_VALUE;
+        while (iterations < MAX_ITERATIONS && residual >= TOLERANCE) {
+            double[] currentRanks = ranks;
+
+            //Each User shares their rank equally between those they follow, and Users who follow nobody share it with everybody
+            double danglingRank = pool.invoke(new RangeSum(0, users, (from, to) -> {
+                double dangling = 0;
+                for (int user = from; user < to; user++) {
+                    int follows = followOffsets[user + 1] - followOffsets[user];
+                    if (follows == 0) {
+                        dangling += currentRanks[user];
+                        shares[user] = 0;
+                    } else {
+                        shares[user] = currentRanks[user] / follows;
+                    }
+                }
+                return dangling;
+            }));
+
+            double base = (1 - DAMPING) / users + DAMPING * danglingRank / users;
+            double[] targetRanks = nextRanks;
+            residual = pool.invoke(new RangeSum(0, users, (from, to) -> {
+                double change = 0;
+                for (int user = from; user < to; user++) {
+                    double pulled = 0;
+                    for (int i = followerOffsets[user]; i < followerOffsets[user + 1]; i++) {
+                        pulled += shares[followers[i]];
+                    }
+                    targetRanks[user] = base + DAMPING * pulled;
+                    change += Math.abs(targetRanks[user] - currentRanks[user]);
+                }
+                return change;
+            }));
+
+            nextRanks = ranks;
+            ranks = targetRanks;
+            iterations++;
+        }
+        return new Influence(followerCounts, ranks, iterations, residual);
+    }
+
+    /**
+     * Scores of every User of a follow graph, and how far the ranks converged
+     */
+    static final class Influence {
+
+        final int[] followerCounts;
+        final double[] ranks;
+        final int iterations;
+
+        /**
+         * The total change in rank made by the last iteration
+         */
+        final double residual;
+
+        private Influence(int[] followerCounts, double[] ranks, int iterations, double residual) {
+            this.followerCounts = followerCounts;
+            this.ranks = ranks;
+            this.iterations = iterations;
+            this.residual = residual;
+        }
+
+    }
+
+    /**
+     * Computes a range of Users, splitting it in half on the pool until it is small enough, and sums what each part returns
+     */
+    private static final class RangeSum extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final Range range;
+
+        private RangeSum(int from, int to, Range range) {
+            this.from = from;
+            this.to = to;
+            this.range = range;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= TASK_SIZE) {
+                return range.compute(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeSum left = new RangeSum(from, middle, range);
+            left.fork();
+            double right = new RangeSum(middle, to, range).compute();
+            return left.join() + right;
+        }
+
+    }
+
+    /**
+     * Work on the Users from one number up to another, returning a part of a sum
+     */
+    private interface Range {
+        double compute(int from, int to);
+    }
+
+}
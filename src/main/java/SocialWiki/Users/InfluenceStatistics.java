@@ -0,0 +1,72 @@
+package SocialWiki.Users;
+
+import lombok.Getter;
+
+/**
+ * Runtime and convergence of a run of the InfluenceJob
+ */
+public class InfluenceStatistics {
+
+    /**
+     * The number of Users scored
+     */
+    @Getter
+    private final int users;
+
+    /**
+     * The number of follows between them
+     */
+    @Getter
+    private final int follows;
+
+    /**
+     * The number of PageRank iterations run
+     */
+    @Getter
+    private final int iterations;
+
+    /**
+     * The total change in rank made by the last iteration
+     */
+    @Getter
+    private final double residual;
+
+    /**
+     * Whether the ranks converged within the tolerance before the iteration limit was reached
+     */
+    @Getter
+    private final boolean converged;
+
+    /**
+     * Milliseconds spent computing the scores
+     */
+    @Getter
+    private final long computeMillis;
+
+    /**
+     * Milliseconds spent storing the scores
+     */
+    @Getter
+    private final long storeMillis;
+
+    /**
+     * Constructor that takes all attributes
+     * @param users - the number of Users scored
+     * @param follows - the number of follows between them
+     * @param iterations - the number of PageRank iterations run
+     * @param residual - the total change in rank made by the last iteration
+     * @param converged - whether the ranks converged within the tolerance
+     * @param computeMillis - milliseconds spent computing the scores
+     * @param storeMillis - milliseconds spent storing the scores
+     */
+    public InfluenceStatistics(int users, int follows, int iterations, double residual, boolean converged, long computeMillis, long storeMillis) {
+        this.users = users;
+        this.follows = follows;
+        this.iterations = iterations;
+        this.residual = residual;
+        this.converged = converged;
+        this.computeMillis = computeMillis;
+        this.storeMillis = storeMillis;
+    }
+
+}
@@ -0,0 +1,330 @@
+package SocialWiki.Users;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory MinHash signatures of the pages every User likes, bucketed by locality sensitive hashing so that the Users most similar to one
+ * (by the Jaccard similarity of their liked pages) are found without comparing them to every other User.
+ * Each signature is cut into bands, and Users sharing any band are candidates whose exact similarity is then measured from their liked pages.
+ * With 32 bands of 2 rows, a pair of Users with a similarity of 0.2 is a candidate about 73% of the time and one of 0.5 over 99% of the time.
+ * The index is updated as pages are liked and unliked, a like only lowers signature values and an unlike recomputes the User's signature.
+ */
+@Component
+public class LikeSimilarityIndex {
+
+    /**
+     * Reads every like ordered by liking User
+     */
+    private static final String LIKES_SQL = "SELECT wiki_user_id, liked_pages_id FROM wiki_user_liked_pages ORDER BY wiki_user_id";
+
+    private static final int BANDS = 32;
+
+    private static final int ROWS = 2;
+
+    private static final int HASHES = BANDS * ROWS;
+
+    /**
+     * Seed of each hash function, fixed so signatures are the same on every instance
+     */
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        Random random = new Random(0x5eed5eedL);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Guards the likes and buckets, lookups can run concurrently while updates are exclusive
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The liked pages and signature of every User that likes at least one page, keyed by User id
+     */
+    private final Map<Long, UserLikes> likes = new HashMap<>();
+
+    /**
+     * For each band, the ids of the Users whose signature has each value in that band
+     */
+    private final List<Map<Long, Set<Long>>> buckets = new ArrayList<>(BANDS);
+
+    /**
+     * Constructs an empty index
+     */
+    public LikeSimilarityIndex() {
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Rebuild the index from the likes table. Runs once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<Long, Set<Long>> likedPages = new HashMap<>();
+        jdbcTemplate.query(LIKES_SQL, row -> {
+            likedPages.computeIfAbsent(row.getLong(1), userId -> new HashSet<>()).add(row.getLong(2));
+        });
+
+        lock.writeLock().lock();
+        try {
+            likes.clear();
+            buckets.forEach(Map::clear);
+            likedPages.forEach((userId, pages) -> {
+                UserLikes userLikes = new UserLikes();
+                userLikes.pages.addAll(pages);
+                userLikes.signature = signatureOf(pages);
+                likes.put(userId, userLikes);
+                for (int band = 0; band < BANDS; band++) {
+                    addToBucket(band, userLikes.signature, userId);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record that a User likes a page
+     * @param userId - the id of the User
+     * @param pageId - the id of the liked page
+     */
+    public void like(long userId, long pageId) {
+        lock.writeLock().lock();
+        try {
+            UserLikes userLikes = likes.computeIfAbsent(userId, id -> new UserLikes());
+            if (!userLikes.pages.add(pageId)) {
+                return;
+            }
+
+            int[] signature = userLikes.signature.clone();
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], hash(i, pageId));
+            }
+            resign(userId, userLikes, signature);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record that a User no longer likes a page
+     * @param userId - the id of the User
+     * @param pageId - the id of the unliked page
+     */
+    public void unlike(long userId, long pageId) {
+        lock.writeLock().lock();
+        try {
+            UserLikes userLikes = likes.get(userId);
+            if (userLikes == null || !userLikes.pages.remove(pageId)) {
+                return;
+            }
+
+            //A minimum cannot be undone, so the signature is computed again from the pages still liked
+            resign(userId, userLikes, signatureOf(userLikes.pages));
+            if (userLikes.pages.isEmpty()) {
+                likes.remove(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every like of a User, e.g. when their account is deleted
+     * @param userId - the id of the User
+     */
+    public void remove(long userId) {
+        lock.writeLock().lock();
+        try {
+            UserLikes userLikes = likes.remove(userId);
+            if (userLikes != null) {
+                resign(userId, userLikes, signatureOf(new HashSet<>()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the Users whose liked pages are most similar to those of a User
+     * @param userId - the id of the User
+     * @param count - the most similar Users to return
+     * @return the similar Users, most similar first and then lowest id first, leaving out Users with no page liked in common
+     */
+    public List<SimilarUser> findMostSimilar(long userId, int count) {
+        lock.readLock().lock();
+        try {
+            UserLikes userLikes = likes.get(userId);
+            if (userLikes == null) {
+                return new ArrayList<>();
+            }
+
+            Set<Long> candidates = new HashSet<>();
+            for (int band = 0; band < BANDS; band++) {
+                Set<Long> bucket = buckets.get(band).get(bandKey(band, userLikes.signature));
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+            candidates.remove(userId);
+
+            List<SimilarUser> similarUsers = new ArrayList<>();
+            for (Long candidate : candidates) {
+                double similarity = jaccard(userLikes.pages, likes.get(candidate).pages);
+                if (similarity > 0) {
+                    similarUsers.add(new SimilarUser(candidate, similarity));
+                }
+            }
+            similarUsers.sort((a, b) -> a.getSimilarity() != b.getSimilarity()
+                    ? Double.compare(b.getSimilarity(), a.getSimilarity()) : Long.compare(a.getUserId(), b.getUserId()));
+            return similarUsers.size() > count ? new ArrayList<>(similarUsers.subList(0, count)) : similarUsers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Score pages by the most similar User that likes them, out of the Users most similar to a User
+     * @param userId - the id of the User
+     * @param pageIds - the ids of the pages to score
+     * @param count - how many of the most similar Users to consider
+     * @return the similarity of the most similar liker of each page liked by one of the similar Users, other pages are left out
+     */
+    public Map<Long, Double> findSimilarLikerScores(long userId, Collection<Long> pageIds, int count) {
+        List<SimilarUser> similarUsers = findMostSimilar(userId, count);
+        Map<Long, Double> scores = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            //Most similar first, so the first liker found for a page is the most similar one
+            for (SimilarUser similarUser : similarUsers) {
+                UserLikes userLikes = likes.get(similarUser.getUserId());
+                if (userLikes == null) {    //If the User unliked everything since they were found
+                    continue;
+                }
+                for (Long pageId : pageIds) {
+                    if (userLikes.pages.contains(pageId)) {
+                        scores.putIfAbsent(pageId, similarUser.getSimilarity());
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores;
+    }
+
+    /**
+     * Give a User a new signature, moving them to the buckets of every band that changed. Must hold the write lock
+     */
+    private void resign(long userId, UserLikes userLikes, int[] signature) {
+        for (int band = 0; band < BANDS; band++) {
+            if (bandKey(band, signature) != bandKey(band, userLikes.signature)) {
+                removeFromBucket(band, userLikes.signature, userId);
+                addToBucket(band, signature, userId);
+            }
+        }
+        userLikes.signature = signature;
+    }
+
+    private void addToBucket(int band, int[] signature, long userId) {
+        //Users with no likes would all share every bucket, and are similar to nobody
+        if (signature[0] != Integer.MAX_VALUE) {
+            buckets.get(band).computeIfAbsent(bandKey(band, signature), key -> new HashSet<>()).add(userId);
+        }
+    }
+
+    private void removeFromBucket(int band, int[] signature, long userId) {
+        Long key = bandKey(band, signature);
+        Set<Long> bucket = buckets.get(band).get(key);
+        if (bucket != null) {
+            bucket.remove(userId);
+            if (bucket.isEmpty()) {
+                buckets.get(band).remove(key);
+            }
+        }
+    }
+
+    /**
+     * Get the bucket of a signature in a band, the rows of the band packed into one number
+     */
+    private static long bandKey(int band, int[] signature) {
+        return ((long) signature[band * ROWS] << 32) | (signature[band * ROWS + 1] & 0xffffffffL);
+    }
+
+    /**
+     * Compute the MinHash signature of a set of pages, every value is Integer.MAX_VALUE for an empty set
+     */
+    static int[] signatureOf(Collection<Long> pageIds) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (Long pageId : pageIds) {
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], hash(i, pageId));
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Hash a page id with one of the hash functions, using the MurmurHash3 finalizer to mix in the seed.
+     * Only 30 bits are kept so no hash equals the Integer.MAX_VALUE of an empty signature
+     */
+    private static int hash(int function, long pageId) {
+        long z = pageId ^ SEEDS[function];
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) ((z ^ (z >>> 33)) >>> 34);
+    }
+
+    /**
+     * Get the Jaccard similarity of two sets of pages, the size of their intersection over the size of their union
+     */
+    static double jaccard(Set<Long> a, Set<Long> b) {
+        Set<Long> smaller = a.size() <= b.size() ? a : b;
+        Set<Long> larger = smaller == a ? b : a;
+        int common = 0;
+        for (Long pageId : smaller) {
+            if (larger.contains(pageId)) {
+                common++;
+            }
+        }
+        int union = a.size() + b.size() - common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    /**
+     * The liked pages of a User and their MinHash signature
+     */
+    private static final class UserLikes {
+
+        private final Set<Long> pages = new HashSet<>();
+
+        private int[] signature = signatureOf(pages);
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package SocialWiki.Users;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpSession;
+
+/**
+ * Resolves the logged in User of a session. The id of the User is stored in the session when it is created,
+ * so every later request finds the User by primary key rather than by the case insensitive userName, which the database can only
+ * answer from an expression index. Repeated lookups within one request are then served by the persistence context of that request.
+ * Sessions created before ids were stored fall back to the userName once and are given the id.
+ */
+@Component
+public class SessionPrincipal {
+
+    /**
+     * Session attribute holding the userName of the logged in User, also compared against the user cookie
+     */
+    public static final String USER_NAME_ATTRIBUTE = "user";
+
+    /**
+     * Session attribute holding the id of the logged in User
+     */
+    public static final String USER_ID_ATTRIBUTE = "userId";
+
+    /**
+     * Repository for all of the Users
+     */
+    @Autowired
+    private UserRepository userRepo;
+
+    /**
+     * Make a User the logged in User of a session
+     * @param session - the newly created session
+     * @param user - the User that logged in or signed up, already saved
+     */
+    public void login(HttpSession session, User user) {
+        session.setAttribute(USER_NAME_ATTRIBUTE, user.getUserName());
+        session.setAttribute(USER_ID_ATTRIBUTE, user.getId());
+    }
+
+    /**
+     * Get the id of the logged in User of a session, without loading the User when the session already holds it
+     * @param session - the session of the request
+     * @return the id, or null if the session has no logged in User
+     */
+    public Long getUserId(HttpSession session) {
+        Long id = (Long) session.getAttribute(USER_ID_ATTRIBUTE);
+        if (id != null) {
+            return id;
+        }
+
+        //If the session predates stored ids, look the User up by name once and keep the id for later requests
+        String userName = (String) session.getAttribute(USER_NAME_ATTRIBUTE);
+        if (userName == null) {
+            return null;
+        }
+        User user = userRepo.findByUserName(userName);
+        if (user == null) {
+            return null;
+        }
+        session.setAttribute(USER_ID_ATTRIBUTE, user.getId());
+        return user.getId();
+    }
+
+    /**
+     * Get the logged in User of a session
+     * @param session - the session of the request
+     * @return the User, or null if the session has no logged in User
+     */
+    public User getUser(HttpSession session) {
+        Long id = getUserId(session);
+        return id == null ? null : userRepo.findOne(id);
+    }
+
+}
@@ -0,0 +1,32 @@
+package SocialWiki.Users;
+
+import lombok.Getter;
+
+/**
+ * A User found by LikeSimilarityIndex, with how similar the pages they like are to those of the User searched for
+ */
+public class SimilarUser {
+
+    /**
+     * The id of the similar User
+     */
+    @Getter
+    private final long userId;
+
+    /**
+     * The Jaccard similarity of the liked pages of the two Users, from 0 to 1
+     */
+    @Getter
+    private final double similarity;
+
+    /**
+     * Constructor that takes all attributes
+     * @param userId - the id of the similar User
+     * @param similarity - the Jaccard similarity of the liked pages of the two Users
+     */
+    public SimilarUser(long userId, double similarity) {
+        this.userId = userId;
+        this.similarity = similarity;
+    }
+
+}
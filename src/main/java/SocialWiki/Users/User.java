@@ -92,6 +92,22 @@ public class User {
     @JsonIgnore
     private List<User> followedUsers;
 
+    /**
+     * The number of Users that follow the User, as of the last run of the InfluenceJob
+     */
+    @Getter
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private Integer followerCount;
+
+    /**
+     * The PageRank of the User in the follow graph as of the last run of the InfluenceJob, scaled so the average User has 1
+     */
+    @Getter
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private Double influence;
+
     /**
      * The list of notifications the User currently has
      */
@@ -1,6 +1,9 @@
 package SocialWiki.Users;
 
+import SocialWiki.Cache.LruCache;
 import SocialWiki.Cookies.CookieManager;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +19,7 @@ import javax.servlet.http.HttpSession;
 import javax.transaction.Transactional;
 import javax.validation.ConstraintViolationException;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Created by Chris on 3/30/2017.
@@ -29,6 +33,36 @@ public class UserAccountController {
     @Autowired
     private UserRepository userRepo;
 
+    /**
+     * Resolves the logged in User of a session
+     */
+    @Autowired
+    private SessionPrincipal sessionPrincipal;
+
+    /**
+     * Repository for all of the Wiki Pages
+     */
+    @Autowired
+    private WikiPageRepository pageRepo;
+
+    /**
+     * Cache of WikiPage versions by id
+     */
+    @Autowired
+    private LruCache<Long, ConcreteWikiPage> pageVersionCache;
+
+    /**
+     * Snapshot of the follows and likes of every User, rebuilt after they change
+     */
+    @Autowired
+    private FollowGraph followGraph;
+
+    /**
+     * MinHash index of the liked pages of every User, used to find similar Users
+     */
+    @Autowired
+    private LikeSimilarityIndex likeSimilarityIndex;
+
     /**
      * Authenticate a User's login information and return a version of the User to be used in the session
      * @param request - an HTTP request that contains the login information
@@ -67,7 +101,7 @@ public class UserAccountController {
 
         // create a new session for the User
         session = request.getSession();
-        session.setAttribute("user", user.getUserName());
+        sessionPrincipal.login(session, user);
 
         // add the user cookie to the response
         response.addCookie(CookieManager.getUserCookie(user.getUserName()));
@@ -131,7 +165,7 @@ public class UserAccountController {
 
         // create a new session for the new User
         session = request.getSession();
-        session.setAttribute("user", user);
+        sessionPrincipal.login(session, newUser);
 
         // add the user cookie to the response
         response.addCookie(CookieManager.getUserCookie(user));
@@ -179,19 +213,29 @@ public class UserAccountController {
         }
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         //remove deleted user from all followers lists
         List<User> followers = userRepo.findUsersFollowingUserByUser(user);
         followers.forEach(user1 -> user1.unfollowUser(user));
         userRepo.save(followers);
 
+        // take the user's likes off the pages they liked, since deleting the account removes them
+        List<Long> likedPageIds = user.getLikedPages().stream().map(ConcreteWikiPage::getId).collect(Collectors.toList());
+        if (!likedPageIds.isEmpty()) {
+            pageRepo.decrementLikeCounts(likedPageIds);
+        }
+
         // remove the user's sensitive info and mark as deleted
         user.delete();
 
         // save the deletion of the account into the repository
         userRepo.save(user);
+        followGraph.markStale();
+        likeSimilarityIndex.remove(user.getId());
+
+        // cached pages by the user show them as their author, so they have to be reloaded to show that the author is deleted
+        pageVersionCache.removeIf((pageId, page) -> page.getAuthor().getId() == user.getId());
 
         // invalidate the user session, since the user no longer exists
         session.invalidate();
@@ -4,6 +4,7 @@ import SocialWiki.Cookies.CookieManager;
 import SocialWiki.WikiPages.ConcreteWikiPage;
 import SocialWiki.WikiPages.WikiPageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,7 +14,10 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.servlet.http.*;
 import javax.transaction.Transactional;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by connor on 2/24/17.
@@ -29,12 +33,42 @@ public class UserController {
     @Autowired
     private UserRepository userRepo;
 
+    /**
+     * Resolves the logged in User of a session
+     */
+    @Autowired
+    private SessionPrincipal sessionPrincipal;
+
     /**
      * Repository for all of the Wiki Pages
      */
     @Autowired
     private WikiPageRepository pageRepo;
 
+    /**
+     * Snapshot of the follows and likes of every User, rebuilt after they change
+     */
+    @Autowired
+    private FollowGraph followGraph;
+
+    /**
+     * MinHash index of the liked pages of every User, used to find similar Users
+     */
+    @Autowired
+    private LikeSimilarityIndex likeSimilarityIndex;
+
+    /**
+     * Computes the follower count and influence of every User
+     */
+    @Autowired
+    private InfluenceJob influenceJob;
+
+    /**
+     * The most similar Users returned by /getSimilarUsers
+     */
+    @Value("${socialwiki.similar-users.count}")
+    private int similarUserCount;
+
     /**
      * Add a wiki page to the list of pages that a User currently likes
      * @param request - an HTTP request that contains the session's cookie information
@@ -66,8 +100,7 @@ public class UserController {
         }
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         // send an HTTP 403 response if the User already likes the page
         if (user.getLikedPages().contains(page)) {
@@ -80,6 +113,11 @@ public class UserController {
         // save the update to the user in the database and session
         userRepo.save(user);
 
+        // count the like on the page in the database, so that concurrent likes are never lost
+        pageRepo.incrementLikeCount(pageId);
+        followGraph.markStale();
+        likeSimilarityIndex.like(user.getId(), pageId);
+
         // send an HTTP 204 response to signify the page was successfully liked
         return ResponseEntity.status(HttpStatus.NO_CONTENT).body(null);
     }
@@ -110,8 +148,7 @@ public class UserController {
         }
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         // send an HTTP 403 response if the User does not like the page
         if (!user.getLikedPages().contains(page)) {
@@ -124,6 +161,11 @@ public class UserController {
         // save the update to the user in the database and session
         user = userRepo.save(user);
 
+        // remove the like from the page's count in the database, so that concurrent unlikes are never lost
+        pageRepo.decrementLikeCounts(Collections.singletonList(pageId));
+        followGraph.markStale();
+        likeSimilarityIndex.unlike(user.getId(), pageId);
+
         // send an HTTP 204 response to signify the page was successfully unliked
         return ResponseEntity.status(HttpStatus.NO_CONTENT).body(null);
     }
@@ -150,8 +192,7 @@ public class UserController {
         if (session == null) {
             response.addCookie(CookieManager.getClearIsFollowedCookie());
         } else {
-            String username = (String) session.getAttribute("user");
-            User sessionUser = userRepo.findByUserName(username);
+            User sessionUser = sessionPrincipal.getUser(session);
             response.addCookie(CookieManager.getIsFollowedCookie(sessionUser, userName));
         }
 
@@ -189,8 +230,7 @@ public class UserController {
         }
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         // send an HTTP 403 response if the User already follows the user or the following user is the user behind the request
         if (user.getFollowedUsers().contains(followinguser) || followinguser.equals(user)) {
@@ -202,6 +242,7 @@ public class UserController {
 
         // save the update to the user in the database and session
         userRepo.save(user);
+        followGraph.markStale();
 
         //Respond with isFollowed Cookie
         response.addCookie(CookieManager.getIsFollowedCookie(user, userName));
@@ -241,8 +282,7 @@ public class UserController {
         }
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         // send an HTTP 403 response if the User doesn't follow the user
         if (!user.getFollowedUsers().contains(followinguser)) {
@@ -255,6 +295,7 @@ public class UserController {
 
         // save the update to the user in the database and session
         user = userRepo.save(user);
+        followGraph.markStale();
 
         //Respond with isFollowed Cookie
         response.addCookie(CookieManager.getIsFollowedCookie(user, userName));
@@ -290,6 +331,58 @@ public class UserController {
         return ResponseEntity.ok(userNames);
     }
 
+    /**
+     * Gets the usernames of the users whose liked pages are most similar to those of the logged in user, most similar first
+     * @param request - an HTTP request that contains the session's cookie information
+     * @return an HTTP response that contains users username's
+     */
+    @GetMapping("/getSimilarUsers")
+    @Transactional
+    public ResponseEntity<List<String>> getSimilarUsers(HttpServletRequest request) {
+        // send an HTTP 403 response if there is currently not a session
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+
+        // get the logged in user from the current session
+        User user = sessionPrincipal.getUser(session);
+
+        List<Long> similarUserIds = new ArrayList<>();
+        for (SimilarUser similarUser : likeSimilarityIndex.findMostSimilar(user.getId(), similarUserCount)) {
+            similarUserIds.add(similarUser.getUserId());
+        }
+
+        // load the similar users in one query, then put them back in order of similarity
+        Map<Long, String> userNamesById = new HashMap<>();
+        for (User similarUser : userRepo.findAll(similarUserIds)) {
+            if (!similarUser.isDeleted()) {
+                userNamesById.put(similarUser.getId(), similarUser.getUserName());
+            }
+        }
+        List<String> userNames = new ArrayList<>();
+        for (Long similarUserId : similarUserIds) {
+            if (userNamesById.containsKey(similarUserId)) {
+                userNames.add(userNamesById.get(similarUserId));
+            }
+        }
+
+        return ResponseEntity.ok(userNames);
+    }
+
+    /**
+     * Gets the runtime and convergence of the last computation of the follower count and influence of every user
+     * @return an HTTP response that contains the statistics, or HTTP 204 if they have not been computed since startup
+     */
+    @GetMapping("/influenceStatistics")
+    public ResponseEntity<InfluenceStatistics> influenceStatistics() {
+        InfluenceStatistics statistics = influenceJob.getLastRun();
+        if (statistics == null) {
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).body(null);
+        }
+        return ResponseEntity.ok(statistics);
+    }
+
     /**
      * Gets a list of usernames of users that are following user specified
      * @param request - an HTTP request that contains the session's cookie information
@@ -340,8 +433,7 @@ public class UserController {
         }
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         if (user == null) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
@@ -367,8 +459,7 @@ public class UserController {
         }
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         if (user == null) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
@@ -410,8 +501,7 @@ public class UserController {
         }
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         if (user == null) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
@@ -0,0 +1,39 @@
+package SocialWiki.Users;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes the case insensitive lookups of UserRepository. Users are found by UPPER(userName) and UPPER(email),
+ * which the unique indexes on the plain columns cannot serve, so without these every login, signup and lookup by name scans wiki_user.
+ */
+@Component
+public class UserLookupSchema {
+
+    /**
+     * Statements that add the expression indexes. All are safe to run on every startup.
+     */
+    private static final String[] SCHEMA = {
+            "CREATE INDEX IF NOT EXISTS wiki_user_upper_user_name_idx ON wiki_user (UPPER(user_name))",
+            "CREATE INDEX IF NOT EXISTS wiki_user_upper_email_idx ON wiki_user (UPPER(email))"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Create the indexes once Hibernate has created the tables
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void installSchema() {
+        for (String statement : SCHEMA) {
+            jdbcTemplate.execute(statement);
+        }
+    }
+
+}
@@ -1,13 +1,17 @@
 package SocialWiki.WikiPages;
 
+import SocialWiki.Storage.ContentHash;
 import SocialWiki.Users.User;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Generated;
+import org.hibernate.annotations.GenerationTime;
 import org.springframework.stereotype.Component;
 
 import javax.persistence.*;
 import java.util.Calendar;
+import java.util.Objects;
 
 /**
  * Created by Chris on 2/24/2017.
@@ -15,6 +19,16 @@ import java.util.Calendar;
  */
 @Component
 @Entity
+//Paginated searches read WikiPages newest first and seek on (creationDate, id), and most liked, most edited or popular liker lists read them by
+//likeCount, editCount or likerInfluence, which these indexes serve without sorting.
+//A version history reads every WikiPage with the same rootId in id order, which is a single range of the rootId index
+@Table(indexes = {
+        @Index(name = "concrete_wiki_page_creation_date_id_idx", columnList = "creationDate DESC, id DESC"),
+        @Index(name = "concrete_wiki_page_like_count_idx", columnList = "likeCount DESC, id DESC"),
+        @Index(name = "concrete_wiki_page_edit_count_idx", columnList = "editCount DESC, id DESC"),
+        @Index(name = "concrete_wiki_page_liker_influence_idx", columnList = "likerInfluence DESC, id DESC"),
+        @Index(name = "concrete_wiki_page_root_id_idx", columnList = "rootId, id")
+})
 // These queries are created here as opposed to the Repository Class as they are native Postgres queries and having them defined here allows for the query result to be a ConcreteWikiPage object,
 // as opposed to a list of object arrays representing the returned columns. This allows for the result set to be much easier to work with.
 @NamedNativeQueries({
@@ -27,13 +41,14 @@ import java.util.Calendar;
                 name = "ConcreteWikiPage.findDescendantsById",
                 query = "WITH RECURSIVE pages AS (SELECT p1.* FROM concrete_wiki_page p1 WHERE p1.id = :source UNION ALL SELECT p2.* FROM concrete_wiki_page p2 INNER JOIN pages p1 ON p2.parentid = p1.id) SELECT * FROM pages ORDER BY pages.id",
                 resultClass = ConcreteWikiPage.class
-        ),
-        @NamedNativeQuery(
-                name = "ConcreteWikiPage.findRootById",
-                query = "WITH RECURSIVE pages AS (SELECT p1.* FROM concrete_wiki_page p1 WHERE p1.id = :source UNION ALL SELECT p2.* FROM pages p1 JOIN concrete_wiki_page p2 ON p2.id = p1.parentid) SELECT * FROM pages ORDER BY pages.parentid ASC LIMIT 1",
-                resultClass = ConcreteWikiPage.class
         )
 })
+//Searches collapsed to one WikiPage per version tree read each WikiPage together with the number of versions in its tree
+@SqlResultSetMapping(
+        name = "ConcreteWikiPage.withVersions",
+        entities = @EntityResult(entityClass = ConcreteWikiPage.class),
+        columns = @ColumnResult(name = "versions", type = Integer.class)
+)
 public class ConcreteWikiPage implements WikiPage {
 
     /**
@@ -66,11 +81,43 @@ public class ConcreteWikiPage implements WikiPage {
     private Calendar creationDate;
 
     /**
-     * The contents of the WikiPage in Markdown
+     * The contents of the WikiPage in Markdown. Not held in this row for versions stored as deltas or as shared contents, which the WikiPageContentStore loads
      */
-    @Column(columnDefinition = "text")
+    @Transient
     private String content;
 
+    /**
+     * The full contents of the WikiPage, or null if the WikiPage is stored as a delta against its parent or as shared contents.
+     * Versions created before contents were shared keep them here
+     */
+    @Column(name = "content", columnDefinition = "text")
+    @JsonIgnore
+    private String snapshot;
+
+    /**
+     * The LineDelta that turns the contents of the parent WikiPage into the contents of this WikiPage, or null if the WikiPage is a snapshot
+     */
+    @Getter
+    @Column(columnDefinition = "text")
+    @JsonIgnore
+    private String delta;
+
+    /**
+     * The ContentHash of the contents of the WikiPage. Versions stored as shared contents find them in the wiki_page_content table by this hash
+     */
+    @Getter
+    @Column(length = ContentHash.LENGTH)
+    @JsonIgnore
+    private String contentHash;
+
+    /**
+     * The full contents of the WikiPage kept as plain text for searches, for versions stored as a delta or as compressed shared contents,
+     * which the database cannot read. Null for versions whose contents the database can read from their row or their shared contents
+     */
+    @Column(columnDefinition = "text", updatable = false)
+    @JsonIgnore
+    private String searchContent;
+
     /**
      * The authoring User of the WikiPage
      */
@@ -80,11 +127,57 @@ public class ConcreteWikiPage implements WikiPage {
     private User author;
 
     /**
-     * The number of views that the page has
+     * The number of views that the page has. Views are counted by the ViewCounter and added to this in the database,
+     * so it is never written when the WikiPage is saved
      */
     @Getter @Setter
+    @Column(updatable = false)
     private Integer views;
 
+    /**
+     * The number of Users that like the page. It is only ever changed in the database by atomic increments and decrements,
+     * so it is never written when the WikiPage is saved and a stale copy cannot overwrite it
+     */
+    @Getter
+    @Column(updatable = false)
+    private Integer likeCount;
+
+    /**
+     * The ID of the original WikiPage that this version descends from, or its own ID if it is an original.
+     * Set by the database when the WikiPage is inserted, see WikiPageTreeSchema
+     */
+    @Getter
+    @Column(insertable = false, updatable = false)
+    @Generated(GenerationTime.INSERT)
+    private Long rootId;
+
+    /**
+     * The number of versions between this WikiPage and its original, 0 for an original.
+     * Set by the database when the WikiPage is inserted, see WikiPageTreeSchema
+     */
+    @Getter
+    @Column(insertable = false, updatable = false)
+    @Generated(GenerationTime.INSERT)
+    private Integer depth;
+
+    /**
+     * The number of versions that descend from this WikiPage, i.e. how many times it has been edited directly or indirectly.
+     * Kept up to date by the database when a version is inserted, see WikiPageTreeSchema
+     */
+    @Getter
+    @Column(insertable = false, updatable = false)
+    @Generated(GenerationTime.INSERT)
+    private Integer editCount;
+
+    /**
+     * The influence of the most influential User that likes the WikiPage, 0 if nobody does.
+     * Set by the database when the InfluenceJob runs, so it lags likes made since
+     */
+    @Getter
+    @Column(insertable = false, updatable = false)
+    @Generated(GenerationTime.INSERT)
+    private Double likerInfluence;
+
     /**
      * Default constructor
      */
@@ -103,9 +196,12 @@ public class ConcreteWikiPage implements WikiPage {
         this.title = title;
         this.parentID = parentID;
         this.content = content;
+        this.snapshot = content;
+        this.contentHash = content == null ? null : ContentHash.of(content);
         this.author = author;
         this.creationDate = Calendar.getInstance();
         this.views = 0;
+        this.likeCount = 0;
     }
 
     /**
@@ -118,9 +214,12 @@ public class ConcreteWikiPage implements WikiPage {
         this.title = title;
         this.parentID = IS_ORIGINAL_ID;
         this.content = content;
+        this.snapshot = content;
+        this.contentHash = content == null ? null : ContentHash.of(content);
         this.author = author;
         this.creationDate = Calendar.getInstance();
         this.views = 0;
+        this.likeCount = 0;
     }
 
 
@@ -145,11 +244,51 @@ public class ConcreteWikiPage implements WikiPage {
     }
 
     /**
-     * Get the contents of the WikiPage
+     * Get the contents of the WikiPage. A WikiPage stored as a delta or as shared contents must have them loaded by the WikiPageContentStore first
      * @return the contents of the WikiPage
+     * @throws IllegalStateException if the contents are stored elsewhere and have not been loaded
      */
     public String getContent() {
-        return content;
+        if (!isContentLoaded()) {
+            throw new IllegalStateException("Contents of WikiPage " + id + " have not been loaded, see WikiPageContentStore.getContent");
+        }
+        return content == null ? snapshot : content;
+    }
+
+    /**
+     * Check if the contents of the WikiPage can be read, i.e. they are held in its row or have been loaded
+     * @return whether getContent can return the contents
+     */
+    public boolean isContentLoaded() {
+        return content != null || (delta == null && (snapshot != null || contentHash == null));
+    }
+
+    /**
+     * Set the contents of a WikiPage stored as a delta or as shared contents, once they are loaded
+     * @param content - the contents of the WikiPage
+     */
+    public void setLoadedContent(String content) {
+        this.content = content;
+    }
+
+    /**
+     * Store the WikiPage as a delta against its parent instead of as a full snapshot. Must be called before the WikiPage is first saved
+     * @param delta - the LineDelta from the contents of the parent WikiPage to the contents of this WikiPage
+     */
+    public void storeAsDelta(String delta) {
+        this.searchContent = getContent();
+        this.snapshot = null;
+        this.delta = delta;
+    }
+
+    /**
+     * Store the WikiPage as a reference to the shared contents with its ContentHash instead of as a full snapshot. Must be called before the WikiPage is first saved
+     * @param compressed - whether the shared contents are stored compressed, in which case the contents are also kept as plain text for searches
+     */
+    public void storeAsShared(boolean compressed) {
+        this.searchContent = compressed ? getContent() : null;
+        this.snapshot = null;
+        this.delta = null;
     }
 
     /**
@@ -160,6 +299,7 @@ public class ConcreteWikiPage implements WikiPage {
         return author;
     }
 
+    //Versions never change once saved, so the id, title and ContentHash identify one without reading its contents or author
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -167,12 +307,9 @@ public class ConcreteWikiPage implements WikiPage {
 
         ConcreteWikiPage that = (ConcreteWikiPage) o;
 
-        if (!id.equals(that.id)) return false;
-        if (!title.equals(that.title)) return false;
-        if (!parentID.equals(that.parentID)) return false;
-        if (!creationDate.equals(that.creationDate)) return false;
-        if (!content.equals(that.content)) return false;
-        return author.equals(that.author);
+        if (!Objects.equals(id, that.id)) return false;
+        if (!Objects.equals(title, that.title)) return false;
+        return Objects.equals(contentHash, that.contentHash);
     }
 
     @Override
@@ -180,10 +317,7 @@ public class ConcreteWikiPage implements WikiPage {
         return "ConcreteWikiPage{" +
                 "id=" + id +
                 ", title='" + title + '\'' +
-                ", parentID=" + parentID +
-                ", creationDate=" + creationDate +
-                ", content='" + content + '\'' +
-                ", author=" + author +
+                ", contentHash=" + contentHash +
                 '}';
     }
 
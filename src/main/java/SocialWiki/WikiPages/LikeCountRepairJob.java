@@ -0,0 +1,34 @@
+package SocialWiki.WikiPages;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the like count of every WikiPage in agreement with the Users that like it.
+ * The counts are maintained incrementally as pages are liked and unliked, so this only has to fix counts that have drifted,
+ * and fill in the counts of pages created before the counter existed.
+ */
+@Component
+public class LikeCountRepairJob {
+
+    /**
+     * Repository for all WikiPages.
+     */
+    @Autowired
+    private WikiPageRepository wikiPageRepo;
+
+    /**
+     * Recompute every like count from the likes join table. Runs once the application has started and then on the socialwiki.likes.repair.cron schedule
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${socialwiki.likes.repair.cron}")
+    public void repair() {
+        //Make sure any likes made in the current transaction are counted
+        wikiPageRepo.flush();
+        wikiPageRepo.repairLikeCounts();
+    }
+
+}
@@ -0,0 +1,452 @@
+package SocialWiki.WikiPages;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the version forest formed by the parentID of every WikiPage, used to answer root, ancestor, descendant,
+ * depth and subtree size queries without recursive SQL.
+ * Every WikiPage is a node numbered in the order it was added, and all per node data is held in primitive arrays indexed by that number:
+ * the parent, root and depth of each node, its subtree size and child count, and its children as first child / next sibling links.
+ * Page ids are mapped to node numbers by an open addressing hash table of primitive longs, so no lookup boxes an id.
+ */
+@Component
+public class VersionForest implements WikiPageIndex {
+
+    /**
+     * Returned in place of an id when a WikiPage is not in the forest
+     */
+    public static final long NOT_FOUND = -1L;
+
+    /**
+     * Marks the absence of a node, e.g. the parent of a root or the child of a leaf
+     */
+    private static final int NO_NODE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Guards every array, lookups can run concurrently while additions are exclusive
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The number of nodes in the forest
+     */
+    private int size;
+
+    /**
+     * The page id of each node
+     */
+    private long[] ids;
+
+    /**
+     * The parent node of each node, or NO_NODE for a root
+     */
+    private int[] parents;
+
+    /**
+     * The root node of each node, which is itself for a root
+     */
+    private int[] roots;
+
+    /**
+     * The number of edges between each node and its root
+     */
+    private int[] depths;
+
+    /**
+     * The number of nodes in the subtree of each node, including itself
+     */
+    private int[] subtreeSizes;
+
+    /**
+     * The number of children of each node
+     */
+    private int[] childCounts;
+
+    /**
+     * The first and last child of each node, or NO_NODE for a leaf. Children are linked in the order they were added
+     */
+    private int[] firstChildren;
+    private int[] lastChildren;
+
+    /**
+     * The next child of the same parent after each node, or NO_NODE for the last child
+     */
+    private int[] nextSiblings;
+
+    /**
+     * Hash table from page id to node. A slot is empty when its node is NO_NODE, and the table is never more than half full
+     */
+    private long[] slotIds;
+    private int[] slotNodes;
+
+    /**
+     * Constructs an empty forest
+     */
+    public VersionForest() {
+        reset();
+    }
+
+    @Override
+    public void add(ConcreteWikiPage page) {
+        add(page.getId(), page.getParentID());
+    }
+
+    /**
+     * Add a WikiPage to the forest. A WikiPage whose parent is not in the forest becomes a root, as there is nothing to attach it to
+     * @param id - the id of the WikiPage
+     * @param parentId - the id of the parent of the WikiPage, or ConcreteWikiPage.IS_ORIGINAL_ID for an original
+     */
+    void add(long id, long parentId) {
+        lock.writeLock().lock();
+        try {
+            if (find(id) != NO_NODE) {
+                return;
+            }
+
+            if (size == ids.length) {
+                grow();
+            }
+
+            int node = size++;
+            int parent = parentId == ConcreteWikiPage.IS_ORIGINAL_ID ? NO_NODE : find(parentId);
+            ids[node] = id;
+            parents[node] = parent;
+            firstChildren[node] = NO_NODE;
+            lastChildren[node] = NO_NODE;
+            nextSiblings[node] = NO_NODE;
+            subtreeSizes[node] = 1;
+            childCounts[node] = 0;
+
+            if (parent == NO_NODE) {
+                roots[node] = node;
+                depths[node] = 0;
+            } else {
+                roots[node] = roots[parent];
+                depths[node] = depths[parent] + 1;
+
+                if (lastChildren[parent] == NO_NODE) {
+                    firstChildren[parent] = node;
+                } else {
+                    nextSiblings[lastChildren[parent]] = node;
+                }
+                lastChildren[parent] = node;
+                childCounts[parent]++;
+
+                for (int ancestor = parent; ancestor != NO_NODE; ancestor = parents[ancestor]) {
+                    subtreeSizes[ancestor]++;
+                }
+            }
+
+            insertSlot(id, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a WikiPage is in the forest
+     * @param id - the id of the WikiPage
+     * @return whether the WikiPage is in the forest
+     */
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return find(id) != NO_NODE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the original WikiPage that a WikiPage descends from
+     * @param id - the id of the WikiPage
+     * @return the id of the original, which is the given id for an original, or NOT_FOUND if the WikiPage is not in the forest
+     */
+    public long getRoot(long id) {
+        lock.readLock().lock();
+        try {
+            int node = find(id);
+            return node == NO_NODE ? NOT_FOUND : ids[roots[node]];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the parent of a WikiPage
+     * @param id - the id of the WikiPage
+     * @return the id of the parent, or NOT_FOUND if the WikiPage is a root or is not in the forest
+     */
+    public long getParent(long id) {
+        lock.readLock().lock();
+        try {
+            int node = find(id);
+            return node == NO_NODE || parents[node] == NO_NODE ? NOT_FOUND : ids[parents[node]];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of versions between a WikiPage and its original
+     * @param id - the id of the WikiPage
+     * @return the depth of the WikiPage, 0 for an original, or -1 if the WikiPage is not in the forest
+     */
+    public int getDepth(long id) {
+        lock.readLock().lock();
+        try {
+            int node = find(id);
+            return node == NO_NODE ? -1 : depths[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of WikiPages in the subtree of a WikiPage
+     * @param id - the id of the WikiPage
+     * @return the number of descendants of the WikiPage plus one for itself, or 0 if the WikiPage is not in the forest
+     */
+    public int getSubtreeSize(long id) {
+        lock.readLock().lock();
+        try {
+            int node = find(id);
+            return node == NO_NODE ? 0 : subtreeSizes[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the path from the original of a WikiPage down to the WikiPage
+     * @param id - the id of the WikiPage
+     * @return the ids of the WikiPage and its ancestors, root first, or an empty array if the WikiPage is not in the forest
+     */
+    public long[] getAncestors(long id) {
+        lock.readLock().lock();
+        try {
+            int node = find(id);
+            if (node == NO_NODE) {
+                return new long[0];
+            }
+
+            long[] path = new long[depths[node] + 1];
+            for (int i = path.length - 1; node != NO_NODE; i--, node = parents[node]) {
+                path[i] = ids[node];
+            }
+            return path;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get a WikiPage and all of its descendants
+     * @param id - the id of the WikiPage
+     * @return the ids of the WikiPage and its descendants in ascending order, or an empty array if the WikiPage is not in the forest
+     */
+    public long[] getDescendants(long id) {
+        lock.readLock().lock();
+        try {
+            int node = find(id);
+            if (node == NO_NODE) {
+                return new long[0];
+            }
+
+            //The subtree size bounds both the result and the stack of the depth first walk
+            long[] descendants = new long[subtreeSizes[node]];
+            int[] stack = new int[subtreeSizes[node]];
+            int count = 0;
+            int top = 0;
+            stack[top++] = node;
+            while (top > 0) {
+                int current = stack[--top];
+                descendants[count++] = ids[current];
+                for (int child = firstChildren[current]; child != NO_NODE; child = nextSiblings[child]) {
+                    stack[top++] = child;
+                }
+            }
+
+            Arrays.sort(descendants);
+            return descendants;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the children of a WikiPage
+     * @param id - the id of the WikiPage
+     * @return the ids of the children in the order they were added, or an empty array if the WikiPage is not in the forest
+     */
+    public long[] getChildren(long id) {
+        return getChildren(id, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get some of the children of a WikiPage, so that a WikiPage with many children can be read a part at a time
+     * @param id - the id of the WikiPage
+     * @param after - only children with a greater id are returned
+     * @param limit - the most children to return
+     * @return the ids of the children in the order they were added, or an empty array if the WikiPage is not in the forest
+     */
+    public long[] getChildren(long id, long after, int limit) {
+        lock.readLock().lock();
+        try {
+            int node = find(id);
+            if (node == NO_NODE) {
+                return new long[0];
+            }
+
+            int count = 0;
+            for (int child = firstChildren[node]; child != NO_NODE && count < limit; child = nextSiblings[child]) {
+                if (ids[child] > after) {
+                    count++;
+                }
+            }
+            long[] children = new long[count];
+            int i = 0;
+            for (int child = firstChildren[node]; child != NO_NODE && i < count; child = nextSiblings[child]) {
+                if (ids[child] > after) {
+                    children[i++] = ids[child];
+                }
+            }
+            return children;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of children of a WikiPage
+     * @param id - the id of the WikiPage
+     * @return the number of children, or 0 if the WikiPage is not in the forest
+     */
+    public int getChildCount(long id) {
+        lock.readLock().lock();
+        try {
+            int node = find(id);
+            return node == NO_NODE ? 0 : childCounts[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of WikiPages in the forest
+     * @return the number of WikiPages
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the node of a page id
+     * @param id - the page id
+     * @return the node, or NO_NODE if the id is not in the forest
+     */
+    private int find(long id) {
+        int mask = slotIds.length - 1;
+        for (int slot = hash(id) & mask; slotNodes[slot] != NO_NODE; slot = (slot + 1) & mask) {
+            if (slotIds[slot] == id) {
+                return slotNodes[slot];
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Map a page id to a node, growing the hash table to keep it at most half full
+     * @param id - the page id, must not be in the table
+     * @param node - the node of the page
+     */
+    private void insertSlot(long id, int node) {
+        if (size * 2 > slotIds.length) {
+            long[] oldIds = slotIds;
+            int[] oldNodes = slotNodes;
+            slotIds = new long[oldIds.length * 2];
+            slotNodes = new int[oldNodes.length * 2];
+            Arrays.fill(slotNodes, NO_NODE);
+            for (int slot = 0; slot < oldIds.length; slot++) {
+                if (oldNodes[slot] != NO_NODE) {
+                    insertSlot(oldIds[slot], oldNodes[slot]);
+                }
+            }
+        }
+
+        int mask = slotIds.length - 1;
+        int slot = hash(id) & mask;
+        while (slotNodes[slot] != NO_NODE) {
+            slot = (slot + 1) & mask;
+        }
+        slotIds[slot] = id;
+        slotNodes[slot] = node;
+    }
+
+    /**
+     * Spread the bits of an id so that sequential ids do not fill neighbouring slots
+     * @param id - the page id
+     * @return the hash of the id
+     */
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Double the capacity of every per node array
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        roots = Arrays.copyOf(roots, capacity);
+        depths = Arrays.copyOf(depths, capacity);
+        subtreeSizes = Arrays.copyOf(subtreeSizes, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        lastChildren = Arrays.copyOf(lastChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+    }
+
+    /**
+     * Empty the forest and shrink it back to its initial capacity
+     */
+    private void reset() {
+        size = 0;
+        ids = new long[INITIAL_CAPACITY];
+        parents = new int[INITIAL_CAPACITY];
+        roots = new int[INITIAL_CAPACITY];
+        depths = new int[INITIAL_CAPACITY];
+        subtreeSizes = new int[INITIAL_CAPACITY];
+        childCounts = new int[INITIAL_CAPACITY];
+        firstChildren = new int[INITIAL_CAPACITY];
+        lastChildren = new int[INITIAL_CAPACITY];
+        nextSiblings = new int[INITIAL_CAPACITY];
+        slotIds = new long[INITIAL_CAPACITY * 2];
+        slotNodes = new int[INITIAL_CAPACITY * 2];
+        Arrays.fill(slotNodes, NO_NODE);
+    }
+
+}
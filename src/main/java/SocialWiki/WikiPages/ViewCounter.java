@@ -0,0 +1,161 @@
+package SocialWiki.WikiPages;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts WikiPage views in memory and writes them to the database in periodic batches, so that viewing a page never writes its row.
+ * Views are added to the stored count with an atomic increment, so no view is lost to concurrent readers or to other instances.
+ */
+@Component
+public class ViewCounter {
+
+    /**
+     * Adds the flushed views of a WikiPage to its stored count
+     */
+    private static final String FLUSH_SQL = "UPDATE concrete_wiki_page SET views = COALESCE(views, 0) + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The views of every WikiPage viewed since the last flush that had nothing left to write for it, keyed by page id
+     */
+    private final Map<Long, PageViews> views = new ConcurrentHashMap<>();
+
+    /**
+     * Count a view of a WikiPage
+     * @param id - the id of the WikiPage that was viewed
+     */
+    public void increment(Long id) {
+        PageViews pageViews = views.computeIfAbsent(id, pageId -> new PageViews());
+        pageViews.count.increment();
+
+        //If a flush removed the entry while the view was being counted, move the view to the entry that replaced it
+        if (pageViews.removed) {
+            moveRemovedViews(id, pageViews);
+        }
+    }
+
+    /**
+     * Get the views of a WikiPage that have not been written to the database yet
+     * @param id - the id of the WikiPage
+     * @return the number of unwritten views
+     */
+    public long getPendingViews(Long id) {
+        PageViews pageViews = views.get(id);
+        return pageViews == null ? 0 : pageViews.pending();
+    }
+
+    /**
+     * Get the total views of a WikiPage, including those that have not been written to the database yet
+     * @param id - the id of the WikiPage
+     * @param storedViews - the views stored in the database for the WikiPage, may be null if it has never been viewed
+     * @return the total number of views
+     */
+    public int getViews(Long id, Integer storedViews) {
+        return Math.toIntExact((storedViews == null ? 0 : storedViews) + getPendingViews(id));
+    }
+
+    /**
+     * Write every unwritten view to the database in a single batch. Runs every socialwiki.views.flush.interval milliseconds and on shutdown
+     */
+    @Scheduled(fixedDelayString = "${socialwiki.views.flush.interval}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Long> ids = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        views.forEach((id, pageViews) -> {
+            long pending = pageViews.pending();
+            if (pending > 0) {
+                ids.add(id);
+                batch.add(new Object[]{pending, id});
+            }
+        });
+
+        if (!batch.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            for (int i = 0; i < updated.length; i++) {
+                //If the row was not updated, e.g. it is not visible yet, keep the views to try again on the next flush
+                if (updated[i] != 0) {
+                    views.get(ids.get(i)).flushed += (Long) batch.get(i)[0];
+                }
+            }
+        }
+
+        //Forget the WikiPages with nothing left to write, so only pages viewed since the last flush are held in memory
+        views.forEach((id, pageViews) -> {
+            if (pageViews.pending() == 0 && views.remove(id, pageViews)) {
+                pageViews.removed = true;
+                moveRemovedViews(id, pageViews);
+            }
+        });
+    }
+
+    /**
+     * Move the views counted on an entry after a flush removed it to the entry now in the map, so they are written by a later flush.
+     * Both the flush and every view that sees the entry removed call this, and each view is moved by exactly one of them:
+     * a view that did not see the entry removed was counted before it was marked removed, so the flush moves it.
+     * @param id - the id of the WikiPage
+     * @param removed - the entry that was removed from the map
+     */
+    private void moveRemovedViews(Long id, PageViews removed) {
+        while (true) {
+            long moved = removed.moved.get();
+            long unwritten = removed.pending();
+            if (unwritten <= moved) {
+                return;
+            }
+            if (removed.moved.compareAndSet(moved, unwritten)) {
+                PageViews replacement = views.computeIfAbsent(id, pageId -> new PageViews());
+                replacement.count.add(unwritten - moved);
+                //The replacement may have been removed by a flush in the meantime too
+                if (replacement.removed) {
+                    removed = replacement;
+                }
+            }
+        }
+    }
+
+    /**
+     * The views of a single WikiPage. The count only ever grows, and the views up to flushed have been written to the database,
+     * so taking a snapshot never races with concurrent views the way resetting the count would
+     */
+    private static class PageViews {
+
+        /**
+         * Every view since startup, striped across cells so that a popular page does not contend on a single counter
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * The number of views that have been written to the database, only changed while holding the flush lock
+         */
+        private volatile long flushed;
+
+        /**
+         * Whether a flush has removed the entry from the map, after which views counted on it are moved to the entry that replaced it
+         */
+        private volatile boolean removed;
+
+        /**
+         * The number of unwritten views moved to the replacing entry since the entry was removed
+         */
+        private final AtomicLong moved = new AtomicLong();
+
+        long pending() {
+            return count.sum() - flushed;
+        }
+    }
+
+}
@@ -1,11 +1,35 @@
 package SocialWiki.WikiPages;
 
+import SocialWiki.Cache.LruCache;
 import SocialWiki.Cookies.CookieManager;
+import SocialWiki.Diff.WikiPageDiff;
+import SocialWiki.Diff.WikiPageDiffer;
+import SocialWiki.Rendering.WikiPageRenderer;
+import SocialWiki.Search.FuzzyWikiPageSearchIndex;
+import SocialWiki.Search.KeysetWikiPageSearch;
+import SocialWiki.Search.TitleSuggestion;
+import SocialWiki.Search.TitleSuggestionIndex;
+import SocialWiki.Search.WikiPageSearchCursor;
+import SocialWiki.Search.WikiPageSearchResults;
+import SocialWiki.Search.WikiPageSearchBackend;
+import SocialWiki.Search.WikiPageSearchIndex;
+import SocialWiki.Search.WikiPageSort;
+import SocialWiki.Storage.ContentCodec;
+import SocialWiki.Storage.WikiPageContentStore;
+import SocialWiki.Trending.TrendingWikiPages;
+import SocialWiki.Users.FollowGraph;
+import SocialWiki.Users.LikeSimilarityIndex;
+import SocialWiki.Users.SessionPrincipal;
 import SocialWiki.Users.User;
 import SocialWiki.Users.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -14,9 +38,12 @@ import org.springframework.web.util.HtmlUtils;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import javax.transaction.Transactional;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Created by Chris on 2/24/2017.
@@ -25,6 +52,51 @@ import java.util.List;
 @RestController
 public class WikiPageController {
 
+    /**
+     * Number of WikiPages returned by a paginated search when no size is given
+     */
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * Largest number of WikiPages a paginated search can return at once
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Caching policy of a WikiPage version, which never changes so can be kept for a year without being revalidated
+     */
+    private static final String VERSION_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    /**
+     * Caching policy of a WikiPage version rendered to HTML, which changes when the renderer does, so is revalidated against its ETag after an hour
+     */
+    private static final String HTML_CACHE_CONTROL = "public, max-age=3600";
+
+    /**
+     * Content type of the contents of a WikiPage sent on their own
+     */
+    private static final MediaType MARKDOWN_TYPE = new MediaType("text", "markdown", StandardCharsets.UTF_8);
+
+    /**
+     * Number of levels of a history tree expanded when no depth is given
+     */
+    private static final int DEFAULT_HISTORY_DEPTH = 2;
+
+    /**
+     * Most levels of a history tree that can be expanded at once
+     */
+    private static final int MAX_HISTORY_DEPTH = 10;
+
+    /**
+     * Number of children of each WikiPage in a history tree expanded when no width is given
+     */
+    private static final int DEFAULT_HISTORY_WIDTH = 20;
+
+    /**
+     * Most children of each WikiPage in a history tree that can be expanded at once
+     */
+    private static final int MAX_HISTORY_WIDTH = 100;
+
     /**
      * Repository for all WikiPages.
      */
@@ -37,6 +109,114 @@ public class WikiPageController {
     @Autowired
     private UserRepository userRepo;
 
+    /**
+     * Resolves the logged in User of a session
+     */
+    @Autowired
+    private SessionPrincipal sessionPrincipal;
+
+    /**
+     * Keeps the in-memory WikiPage indexes up to date.
+     */
+    @Autowired
+    private WikiPageIndexer wikiPageIndexer;
+
+    /**
+     * Full text index over all WikiPages.
+     */
+    @Autowired
+    private WikiPageSearchIndex wikiPageSearchIndex;
+
+    /**
+     * Backend used for advanced searches, chosen by configuration.
+     */
+    @Autowired
+    private WikiPageSearchBackend wikiPageSearchBackend;
+
+    /**
+     * Trigram index over the titles and authors of all WikiPages, used for fuzzy advanced searches.
+     */
+    @Autowired
+    private FuzzyWikiPageSearchIndex fuzzyWikiPageSearchIndex;
+
+    /**
+     * Prefix index over the titles of all WikiPages, used to suggest titles as a search is typed.
+     */
+    @Autowired
+    private TitleSuggestionIndex titleSuggestionIndex;
+
+    /**
+     * Cursor based paginated searches.
+     */
+    @Autowired
+    private KeysetWikiPageSearch keysetWikiPageSearch;
+
+    /**
+     * Snapshot of the follows and likes of every User, used to sort searches by closest liker.
+     */
+    @Autowired
+    private FollowGraph followGraph;
+
+    /**
+     * MinHash index of the liked pages of every User, used to sort searches by similar liker.
+     */
+    @Autowired
+    private LikeSimilarityIndex likeSimilarityIndex;
+
+    /**
+     * How many of the Users most similar to the searching User rank a search sorted by similar liker
+     */
+    @Value("${socialwiki.similar-users.count}")
+    private int similarUserCount;
+
+    /**
+     * Counts WikiPage views and writes them to the database in batches.
+     */
+    @Autowired
+    private ViewCounter viewCounter;
+
+    /**
+     * The WikiPages with the most recent views, counted in a fixed amount of memory.
+     */
+    @Autowired
+    private TrendingWikiPages trendingWikiPages;
+
+    /**
+     * Cache of WikiPage versions by id.
+     */
+    @Autowired
+    private LruCache<Long, ConcreteWikiPage> pageVersionCache;
+
+    /**
+     * Storage of WikiPage contents as deltas, which loads the contents of WikiPages before they are sent.
+     */
+    @Autowired
+    private WikiPageContentStore wikiPageContentStore;
+
+    /**
+     * Renders and caches the HTML of WikiPage contents
+     */
+    @Autowired
+    private WikiPageRenderer wikiPageRenderer;
+
+    /**
+     * Compares and caches the contents of WikiPage versions
+     */
+    @Autowired
+    private WikiPageDiffer wikiPageDiffer;
+
+    /**
+     * Reader of bounded parts of version history trees.
+     */
+    @Autowired
+    private WikiPageHistory wikiPageHistory;
+
+    /**
+     * Index of the version forest.
+     */
+    @Autowired
+    private VersionForest versionForest;
+
     /**
      * Method to handle the creation or editing of a ConcreteWikiPage
      * @param request - contains the title, content, parentID of the ConcreteWikiPage being created/altered
@@ -80,10 +260,10 @@ public class WikiPageController {
         content = HtmlUtils.htmlEscape(content);
 
         // get the logged in user from the current session
-        String username = (String) session.getAttribute("user");
-        User user = userRepo.findByUserName(username);
+        User user = sessionPrincipal.getUser(session);
 
         ConcreteWikiPage newPage;
+        ConcreteWikiPage parent = null;
 
         //If the ConcreteWikiPage being created has no predecessor and is original then use specific constructor
         if (parentID.compareTo(ConcreteWikiPage.IS_ORIGINAL_ID) == 0) {
@@ -91,14 +271,18 @@ public class WikiPageController {
         }
         else {
             newPage = new ConcreteWikiPage(title, content, parentID, user);
-            ConcreteWikiPage parent = wikiPageRepo.findById(parentID);
+            parent = wikiPageRepo.findById(parentID);
 
-            if (parent.getTitle().equals(newPage.getTitle()) && parent.getContent().equals(newPage.getContent())) { //Ensure that a change was actually made before saving
+            //Ensure that a change was actually made before saving. Comparing hashes does not need the contents of the parent
+            if (parent.getTitle().equals(newPage.getTitle()) && newPage.getContentHash().equals(parent.getContentHash())) {
                 return ResponseEntity.unprocessableEntity().body(null);
             }
 
         }
 
+        //Share contents that are already stored, otherwise store only what changed from the parent when that is worth it
+        wikiPageContentStore.encode(newPage, parent);
+
         //Save the ConcreteWikiPage
         try {
             newPage = wikiPageRepo.save(newPage);
@@ -106,6 +290,9 @@ public class WikiPageController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
 
+        //Indexed once the transaction commits, so a failure below never leaves the page in the indexes
+        wikiPageIndexer.index(newPage);
+
         user.getCreatedPages().size();
 
         // add the page to the User's list of created pages and save it in the repository
@@ -120,7 +307,29 @@ public class WikiPageController {
     }
 
     /**
-     * Method to handle searching for list of WikiPages. Will return all WikiPages if all parameters are blank
+     * Method to handle suggesting WikiPage titles as a search is typed. Answered from memory, so it is cheap enough to call on every keystroke
+     * @param request - contains the prefix typed so far, ignoring case and extra whitespace
+     * @return the most popular titles that start with the prefix, most popular first
+     */
+    @GetMapping("/suggestTitles")
+    public ResponseEntity<List<TitleSuggestion>> suggestTitles(HttpServletRequest request) {
+
+        String prefix = request.getParameter("prefix");
+
+        if (prefix == null) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        return ResponseEntity.ok(titleSuggestionIndex.suggest(prefix));
+    }
+
+    /**
+     * Method to handle searching for list of WikiPages. Will return all WikiPages if all parameters are blank.
+     * If sort is liked, recent, edited or popular then the WikiPages are returned most liked, most recently created, most edited
+     * or liked by the most influential User first,
+     * and if sort is closest or similar then those liked by the closest User in the follow graph of the logged in User,
+     * or by the User whose likes are most similar to those of the logged in User, come first.
+     * If collapse is tree then only the best matching, then newest, WikiPage of each version tree is returned, with the number of versions in its tree
      * @param request - contains the parameters of the WikiPages being searched for
      * @return the list of WikiPages found
      */
@@ -134,14 +343,42 @@ public class WikiPageController {
             return ResponseEntity.unprocessableEntity().body(null);
         }
 
-        List<WikiPageWithAuthorProxy> pages = wikiPageRepo.findByTitleAndContent(searchText.trim());
-        pages.forEach(wikiPageWithAuthorProxy -> wikiPageWithAuthorProxy.setLikes(userRepo.findUsersByLikedPage(wikiPageWithAuthorProxy.getId()).size()));
+        WikiPageSort sort;
+        try {
+            sort = WikiPageSort.fromParameter(request.getParameter("sort"));
+        } catch (IllegalArgumentException e) {    //If the sort order is not one of liked, recent, edited, popular, closest or similar
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        boolean collapse;
+        try {
+            collapse = isCollapsed(request);
+        } catch (IllegalArgumentException e) {    //If collapse is given but is not tree
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        //The index is only used once it holds every WikiPage, during the startup rebuild it would miss those not loaded yet
+        List<WikiPageWithAuthorProxy> pages = wikiPageIndexer.isReady() ? wikiPageSearchIndex.search(searchText.trim(), collapse) : null;
+        if (pages == null) {    //If the index cannot answer the search then fall back to the database
+            pages = collapse ? wikiPageRepo.findByTitleAndContentCollapsed(searchText.trim()) : wikiPageRepo.findByTitleAndContent(searchText.trim());
+        }
+        if (sort.isPersonal() && !rankForUser(request, sort, pages)) {    //If there is no User to rank for
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+        //Every match is returned, so sorting them here costs no more than the database would
+        sort.sort(pages);
         return ResponseEntity.ok(pages);
 
     }
 
     /**
-     * Method to handle searching for list of WikiPages. Will return all WikiPages if all parameters are blank
+     * Method to handle searching for list of WikiPages. Will return all WikiPages if all parameters are blank.
+     * If fuzzy=true then the title and user are matched allowing for typos and each WikiPage found is given a score, best match first.
+     * If sort is liked, recent, edited or popular then the WikiPages are returned most liked, most recently created, most edited
+     * or liked by the most influential User first instead,
+     * and if sort is closest or similar then those liked by the closest User in the follow graph of the logged in User,
+     * or by the User whose likes are most similar to those of the logged in User, come first.
+     * If collapse is tree then only the best matching, then newest, WikiPage of each version tree is returned, with the number of versions in its tree
      * @param request - contains the parameters of the WikiPages being searched for
      * @return the list of WikiPages found
      */
@@ -169,19 +406,232 @@ public class WikiPageController {
         }
         //Note this still allows for parameters to be NULL if at least one is not null. In these cases, null parameters will be treated as empty string by the query.
 
-        List<WikiPageWithAuthorProxy> pages = wikiPageRepo.findByTitleAndAuthorAndContent(title.trim(), username.trim(), content.trim());
-        pages.forEach(wikiPageWithAuthorProxy -> wikiPageWithAuthorProxy.setLikes(userRepo.findUsersByLikedPage(wikiPageWithAuthorProxy.getId()).size()));
+        WikiPageSort sort;
+        try {
+            sort = WikiPageSort.fromParameter(request.getParameter("sort"));
+        } catch (IllegalArgumentException e) {    //If the sort order is not one of liked, recent, edited, popular, closest or similar
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        boolean collapse;
+        try {
+            collapse = isCollapsed(request);
+        } catch (IllegalArgumentException e) {    //If collapse is given but is not tree
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        List<WikiPageWithAuthorProxy> pages = null;
+        if (Boolean.parseBoolean(request.getParameter("fuzzy")) && wikiPageIndexer.isReady()) {
+            pages = fuzzyWikiPageSearchIndex.search(title.trim(), username.trim(), content.trim(), collapse);
+        }
+        if (pages == null) {    //If not fuzzy, there is no title or user to match fuzzily, or the index is still being built, then do a normal search
+            pages = collapse ? wikiPageSearchBackend.searchCollapsed(title.trim(), username.trim(), content.trim())
+                    : wikiPageSearchBackend.search(title.trim(), username.trim(), content.trim());
+        }
+        if (sort.isPersonal() && !rankForUser(request, sort, pages)) {    //If there is no User to rank for
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+        }
+        sort.sort(pages);
         return ResponseEntity.ok(pages);
 
     }
 
+    /**
+     * Method to handle searching for a page of WikiPages at a time, ordered the same as /searchWikiPage including its sort parameter, except closest and similar,
+     * and without collapsing version trees.
+     * The response includes a cursor that is passed back to get the next page, which is null on the last page
+     * @param request - contains the parameters of the WikiPages being searched for, the page size, and the cursor from the previous page
+     * @return the page of WikiPages found and the cursor for the next page
+     */
+    @GetMapping("/searchWikiPagePaged")
+    public ResponseEntity<WikiPageSearchResults> searchWikiPagePaged(HttpServletRequest request) {
+
+        //Retrieve parameters from request
+        String searchText = request.getParameter("title");
+
+        if (searchText == null) {    //If no parameter was provided
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        Integer size = getBoundedParameter(request, "size", 1, MAX_PAGE_SIZE, DEFAULT_PAGE_SIZE);
+        if (size == null) {    //If the page size is not valid
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        WikiPageSort sort;
+        try {
+            sort = WikiPageSort.fromParameter(request.getParameter("sort"));
+        } catch (IllegalArgumentException e) {    //If the sort order is not one of liked, recent, edited, popular, closest or similar
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+        if (sort.isPersonal()) {    //If the sort order needs every match to rank, e.g. closest
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+        if (request.getParameter("collapse") != null) {    //If collapsing was asked for, which needs every match of a tree to pick the best
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        WikiPageSearchCursor cursor;
+        try {
+            cursor = getCursor(request, sort);
+        } catch (IllegalArgumentException e) {    //If the cursor was not one returned by a previous search in the same sort order
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        WikiPageSearchResults results = keysetWikiPageSearch.search(searchText.trim(), sort, cursor, size);
+        return ResponseEntity.ok(results);
+
+    }
+
+    /**
+     * Method to handle advanced searching for a page of WikiPages at a time, ordered the same as /advancedSearchWikiPage including its sort parameter, except closest and similar,
+     * and without collapsing version trees.
+     * The response includes a cursor that is passed back to get the next page, which is null on the last page
+     * @param request - contains the parameters of the WikiPages being searched for, the page size, and the cursor from the previous page
+     * @return the page of WikiPages found and the cursor for the next page
+     */
+    @GetMapping("/advancedSearchWikiPagePaged")
+    public ResponseEntity<WikiPageSearchResults> advancedSearchWikiPagePaged(HttpServletRequest request) {
+
+        //Retrieve parameters from request
+        String title = request.getParameter("title");
+        String username = request.getParameter("user");
+        String content = request.getParameter("content");
+
+        if (title == null && username == null && content == null ) {    //If no parameters where provided
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        Integer size = getBoundedParameter(request, "size", 1, MAX_PAGE_SIZE, DEFAULT_PAGE_SIZE);
+        if (size == null) {    //If the page size is not valid
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        WikiPageSort sort;
+        try {
+            sort = WikiPageSort.fromParameter(request.getParameter("sort"));
+        } catch (IllegalArgumentException e) {    //If the sort order is not one of liked, recent, edited, popular, closest or similar
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+        if (sort.isPersonal()) {    //If the sort order needs every match to rank, e.g. closest
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+        if (request.getParameter("collapse") != null) {    //If collapsing was asked for, which needs every match of a tree to pick the best
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        WikiPageSearchCursor cursor;
+        try {
+            cursor = getCursor(request, sort);
+        } catch (IllegalArgumentException e) {    //If the cursor was not one returned by a previous search in the same sort order
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        //Missing parameters are treated as empty strings, the same as /advancedSearchWikiPage
+        WikiPageSearchResults results = keysetWikiPageSearch.advancedSearch(title == null ? "" : title.trim(), username == null ? "" : username.trim(),
+                content == null ? "" : content.trim(), sort, cursor, size);
+        return ResponseEntity.ok(results);
+
+    }
+
+    /**
+     * Set what a sort order depending on the logged in User ranks each WikiPage found by: the follow distance to its closest liker for closest,
+     * or the similarity of its most similar liker for similar
+     * @param request - contains the session of the logged in User
+     * @param sort - the sort order, closest or similar
+     * @param pages - the WikiPages found
+     * @return false if there is no logged in User to rank for
+     */
+    private boolean rankForUser(HttpServletRequest request, WikiPageSort sort, List<WikiPageWithAuthorProxy> pages) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return false;
+        }
+
+        //Only the id of the User is needed, which the session already holds
+        Long userId = sessionPrincipal.getUserId(session);
+        if (userId == null) {
+            return false;
+        }
+
+        List<Long> ids = new ArrayList<>(pages.size());
+        for (WikiPageWithAuthorProxy page : pages) {
+            ids.add(page.getId());
+        }
+
+        if (sort == WikiPageSort.CLOSEST) {
+            Map<Long, Integer> distances = followGraph.findLikerDistances(userId, ids);
+            for (WikiPageWithAuthorProxy page : pages) {
+                page.setDistance(distances.get(page.getId()));
+            }
+        } else {
+            Map<Long, Double> similarities = likeSimilarityIndex.findSimilarLikerScores(userId, ids, similarUserCount);
+            for (WikiPageWithAuthorProxy page : pages) {
+                page.setSimilarity(similarities.get(page.getId()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get a bounded numeric parameter, such as the page size of a paginated search
+     * @param request - may contain the parameter
+     * @param name - the name of the parameter
+     * @param min - the smallest allowed value
+     * @param max - the largest allowed value
+     * @param defaultValue - the value to use if the parameter was not given
+     * @return the value, the default if none was given, or null if the value is not a number from min to max
+     */
+    private Integer getBoundedParameter(HttpServletRequest request, String name, int min, int max, int defaultValue) {
+        String parameter = request.getParameter(name);
+        if (parameter == null) {
+            return defaultValue;
+        }
+
+        try {
+            int value = Integer.parseInt(parameter);
+            return value < min || value > max ? null : value;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if a search should return only the best matching WikiPage of each version tree
+     * @param request - may contain the collapse parameter
+     * @return true if collapse is tree, false if it was not given
+     * @throws IllegalArgumentException if collapse is given but is not tree
+     */
+    private static boolean isCollapsed(HttpServletRequest request) {
+        String collapse = request.getParameter("collapse");
+        if (collapse == null || collapse.isEmpty()) {
+            return false;
+        }
+        if (!collapse.equals("tree")) {
+            throw new IllegalArgumentException("Unknown collapse: " + collapse);
+        }
+        return true;
+    }
+
+    /**
+     * Get the cursor of a paginated search
+     * @param request - may contain the cursor parameter
+     * @param sort - the order of the search
+     * @return the decoded cursor, or null to start from the first page
+     * @throws IllegalArgumentException if the cursor is malformed or was returned by a search in another order
+     */
+    private WikiPageSearchCursor getCursor(HttpServletRequest request, WikiPageSort sort) {
+        String cursor = request.getParameter("cursor");
+        return cursor == null || cursor.isEmpty() ? null : WikiPageSearchCursor.decode(cursor, sort);
+    }
+
     /**
      * Method to handle retrieval of WikiPages
-     * @param request - contains id of the WikiPages being retrieved
+     * @param request - contains id of the WikiPages being retrieved, and format=html to get the contents rendered to HTML instead of as Markdown
      * @return the WikiPages found
      */
     @GetMapping("/retrieveWikiPage")
-    @Transactional
+    @Transactional(readOnly = true)
     public ResponseEntity<WikiPageWithAuthorAndContentProxy> retrieveWikiPage(HttpServletRequest request, HttpServletResponse response) {
 
         Long id;
@@ -192,34 +642,317 @@ public class WikiPageController {
             return ResponseEntity.unprocessableEntity().body(null);
         }
 
-        ConcreteWikiPage page = wikiPageRepo.findById(id);
+        //Page versions never change, so they are served from the cache and only the counters are read from the database
+        ConcreteWikiPage page = pageVersionCache.get(id, wikiPageRepo::findById);
+
+        if (page == null) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        // count the view in memory, it is written to the database with other views in the next batch
+        viewCounter.increment(id);
+        trendingWikiPages.record(page);
+
+        WikiPageCounters counters = wikiPageRepo.findCountersById(id);
+        WikiPageWithAuthorAndContentProxy contentProxyPage = new WikiPageWithAuthorAndContentProxy(wikiPageContentStore.loadContent(page));
+        contentProxyPage.setViews(viewCounter.getViews(id, counters.getViews()));
+        contentProxyPage.setLikes(counters.getLikes());
+        if (wantsHtml(request)) {
+            contentProxyPage.setHtml(wikiPageRenderer.render(page));
+        }
+
+        addIsLikedCookie(request, response, id);
+
+        return ResponseEntity.ok(contentProxyPage);
+    }
+
+    /**
+     * Method to handle retrieval of the parts of a WikiPage that never change, so that they can be cached by browsers and proxies.
+     * The version is identified by a strong ETag, and a request with a matching If-None-Match is answered without loading the WikiPage.
+     * The HTML of a version is only cached for an hour, as it changes with the WikiPageRenderer
+     * @param request - contains id of the WikiPage being retrieved, and format=html to get the contents rendered to HTML instead of as Markdown
+     * @return the WikiPage version found, or an empty 304 response if the client already has it
+     */
+    @GetMapping("/retrieveWikiPageContent")
+    public ResponseEntity<WikiPageVersionProxy> retrieveWikiPageContent(HttpServletRequest request) {
+
+        Long id;
+
+        try {
+            id = Long.parseLong(request.getParameter("id"));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        //The content of an id never changes, so the id alone identifies the version. The HTML of it is a different response, which changes with the renderer
+        boolean html = wantsHtml(request);
+        String eTag = "\"" + id + (html ? "-html-" + WikiPageRenderer.RENDERER_VERSION : "") + "\"";
+        String cacheControl = html ? HTML_CACHE_CONTROL : VERSION_CACHE_CONTROL;
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).header(HttpHeaders.CACHE_CONTROL, cacheControl).body(null);
+        }
+
+        ConcreteWikiPage page = pageVersionCache.get(id, wikiPageRepo::findById);
 
         if (page == null) {
             return ResponseEntity.unprocessableEntity().body(null);
         }
 
-        // catch NullPointerException for reverse compatibility with pages that do not have counter yet
+        WikiPageVersionProxy version = new WikiPageVersionProxy(wikiPageContentStore.loadContent(page));
+        if (html) {
+            version.setHtml(wikiPageRenderer.render(page));
+        }
+
+        return ResponseEntity.ok().eTag(eTag).header(HttpHeaders.CACHE_CONTROL, cacheControl).body(version);
+    }
+
+    /**
+     * Method to handle retrieval of the Markdown contents of a WikiPage version on their own. Contents stored compressed are sent as they are stored
+     * to clients that accept gzip, without decompressing them. Cached like /retrieveWikiPageContent, with an ETag for each encoding
+     * @param request - contains id of the WikiPage being retrieved
+     * @return the contents of the WikiPage version, or an empty 304 response if the client already has them
+     */
+    @GetMapping("/retrieveWikiPageBody")
+    @Transactional(readOnly = true)
+    public ResponseEntity<byte[]> retrieveWikiPageBody(HttpServletRequest request) {
+
+        Long id;
+
+        try {
+            id = Long.parseLong(request.getParameter("id"));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        //The same contents sent with and without gzip are different responses, so each has its own ETag
+        String eTag = "\"" + id + "\"";
+        String gzipETag = "\"" + id + "-gzip\"";
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (matchesETag(ifNoneMatch, eTag) || matchesETag(ifNoneMatch, gzipETag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(matchesETag(ifNoneMatch, eTag) ? eTag : gzipETag)
+                    .header(HttpHeaders.CACHE_CONTROL, VERSION_CACHE_CONTROL).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).body(null);
+        }
+
+        ConcreteWikiPage page = pageVersionCache.get(id, wikiPageRepo::findById);
+
+        if (page == null) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MARKDOWN_TYPE)
+                .header(HttpHeaders.CACHE_CONTROL, VERSION_CACHE_CONTROL).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            byte[] gzipContent = wikiPageContentStore.getGzipContent(page);
+            if (gzipContent != null) {
+                return response.eTag(gzipETag).header(HttpHeaders.CONTENT_ENCODING, ContentCodec.GZIP).body(gzipContent);
+            }
+        }
+
+        return response.eTag(eTag).body(wikiPageContentStore.getContent(page).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Method to handle comparing the contents of two versions of the same WikiPage. Versions never change, so the diff can be cached like them
+     * @param request - contains the ids from and to of the versions to compare, and optionally mode as line (the default) or word
+     * @return the changes from one version to the other, or an HTTP 413 response if the versions are too large to compare
+     */
+    @GetMapping("/diffWikiPages")
+    @Transactional(readOnly = true)
+    public ResponseEntity<WikiPageDiff> diffWikiPages(HttpServletRequest request) {
+
+        Long fromID;
+        Long toID;
+
+        try {
+            fromID = Long.parseLong(request.getParameter("from"));
+            toID = Long.parseLong(request.getParameter("to"));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        String mode = request.getParameter("mode");
+        if (mode == null) {
+            mode = WikiPageDiffer.LINE_MODE;
+        } else if (!mode.equals(WikiPageDiffer.LINE_MODE) && !mode.equals(WikiPageDiffer.WORD_MODE)) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        ConcreteWikiPage from = pageVersionCache.get(fromID, wikiPageRepo::findById);
+        ConcreteWikiPage to = pageVersionCache.get(toID, wikiPageRepo::findById);
+
+        //Only versions in the same version tree can be compared
+        if (from == null || to == null || from.getRootId() == null || !from.getRootId().equals(to.getRootId())) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        WikiPageDiff diff = wikiPageDiffer.diff(wikiPageContentStore.loadContent(from), wikiPageContentStore.loadContent(to), mode);
+
+        if (diff == null) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(null);
+        }
+
+        return ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, VERSION_CACHE_CONTROL).body(diff);
+    }
+
+    /**
+     * Method to handle retrieval of the parts of a WikiPage that keep changing, counting a view of the WikiPage.
+     * Used together with /retrieveWikiPageContent, which may be served from a cache without reaching the server
+     * @param request - contains id of the WikiPage being viewed
+     * @param response - an HTTP response that will be used to provide the isLiked cookie
+     * @return the views, likes and author state of the WikiPage
+     */
+    @GetMapping("/retrieveWikiPageCounters")
+    public ResponseEntity<WikiPageCounters> retrieveWikiPageCounters(HttpServletRequest request, HttpServletResponse response) {
+
+        Long id;
+
         try {
-            page.setViews(page.getViews() + 1);
-        } catch (NullPointerException e) {
-            page.setViews(1); // assume this is the first viewing
+            id = Long.parseLong(request.getParameter("id"));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        WikiPageCounters counters = wikiPageRepo.findCountersById(id);
+
+        if (counters == null) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        // count the view in memory, it is written to the database with other views in the next batch
+        viewCounter.increment(id);
+        counters.setViews(viewCounter.getViews(id, counters.getViews()));
+
+        //The view page reads its contents from /retrieveWikiPageContent, which may not reach the server, so views are counted towards trending here
+        ConcreteWikiPage page = pageVersionCache.get(id, wikiPageRepo::findById);
+        if (page != null) {
+            trendingWikiPages.record(page);
+        }
+
+        addIsLikedCookie(request, response, id);
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(counters);
+    }
+
+    /**
+     * Method to handle retrieval of the WikiPages with the most recent views, as counted by /retrieveWikiPageCounters.
+     * Each view counts half as much for every socialwiki.trending.half-life milliseconds since it, and the list is kept in memory.
+     * The kept WikiPages are cached versions whose counters are never updated, so their views and likes are read in one query
+     * @return the trending WikiPages, most recently viewed first, each with its decayed views as its trendingScore
+     */
+    @GetMapping("/trendingWikiPages")
+    public ResponseEntity<List<WikiPageWithAuthorProxy>> trendingWikiPages() {
+        List<WikiPageWithAuthorProxy> trending = trendingWikiPages.getTrending();
+        if (trending.isEmpty()) {
+            return ResponseEntity.ok(trending);
+        }
+
+        List<Long> ids = new ArrayList<>(trending.size());
+        for (WikiPageWithAuthorProxy page : trending) {
+            ids.add(page.getId());
+        }
+        Map<Long, WikiPageCounters> counters = new HashMap<>();
+        for (WikiPageCounters pageCounters : wikiPageRepo.findCountersByIdIn(ids)) {
+            counters.put(pageCounters.getId(), pageCounters);
+        }
+
+        for (WikiPageWithAuthorProxy page : trending) {
+            WikiPageCounters pageCounters = counters.get(page.getId());
+            if (pageCounters != null) {
+                page.setViews(viewCounter.getViews(page.getId(), pageCounters.getViews()));
+                page.setLikes(pageCounters.getLikes());
+            }
+        }
+        return ResponseEntity.ok(trending);
+    }
+
+    /**
+     * Check if the client asked for the contents of a WikiPage rendered to HTML
+     * @param request - may contain the format parameter
+     * @return true if the format parameter is html
+     */
+    private static boolean wantsHtml(HttpServletRequest request) {
+        return "html".equals(request.getParameter("format"));
+    }
+
+    /**
+     * Check if an Accept-Encoding header accepts gzip. Codings are weighted by q-values, and a q-value of 0 (e.g. gzip;q=0) refuses the coding.
+     * gzip is accepted if it is listed with a q-value above 0, or if it is not listed and * is
+     * @param acceptEncoding - the Accept-Encoding header of a request, may be null
+     * @return true if the response may be sent gzip compressed
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzipWeight = null;
+        Double anyWeight = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double weight = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (parameter.startsWith("q=")) {
+                    try {
+                        weight = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {    //If the q-value is malformed the coding is ignored
+                        weight = 0;
+                    }
+                }
+            }
+
+            if (name.equals(ContentCodec.GZIP) || name.equals("x-gzip")) {
+                gzipWeight = weight;
+            } else if (name.equals("*")) {
+                anyWeight = weight;
+            }
         }
 
-        page = wikiPageRepo.save(page);
+        if (gzipWeight != null) {
+            return gzipWeight > 0;
+        }
+        return anyWeight != null && anyWeight > 0;
+    }
+
+    /**
+     * Check if an If-None-Match header matches an ETag. If-None-Match uses the weak comparison, so a weak tag of the same value matches
+     * @param ifNoneMatch - the If-None-Match header of a request, may be null
+     * @param eTag - the current ETag of the resource
+     * @return true if the client already has the current version of the resource
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
 
-        WikiPageWithAuthorAndContentProxy contentProxyPage = new WikiPageWithAuthorAndContentProxy(page);
-        contentProxyPage.setLikes(userRepo.findUsersByLikedPage(id).size());
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Add the cookie that tells the client if the session user likes a WikiPage
+     * @param request - may contain the session of the logged in user
+     * @param response - an HTTP response that will be used to provide the isLiked cookie
+     * @param id - the id of the WikiPage
+     */
+    private void addIsLikedCookie(HttpServletRequest request, HttpServletResponse response, Long id) {
         HttpSession session = request.getSession(false);
         if (session == null) {
             response.addCookie(CookieManager.getClearIsLikedCookie());
         } else {
-            String username = (String) session.getAttribute("user");
-            User user = userRepo.findByUserName(username);
+            User user = sessionPrincipal.getUser(session);
             response.addCookie(CookieManager.getIsLikedCookie(user, id));
         }
-
-        return ResponseEntity.ok(contentProxyPage);
     }
 
     /**
@@ -239,27 +972,71 @@ public class WikiPageController {
             return ResponseEntity.unprocessableEntity().body(null);
         }
 
-        //Get root WikiPage from given page
-        ConcreteWikiPage root = wikiPageRepo.findRootById(id);
+        //The root of a page never changes, so the given page can come from the cache
+        ConcreteWikiPage page = pageVersionCache.get(id, wikiPageRepo::findById);
 
-        if (root == null) {    //If no root exist than invalid page given
+        if (page == null) {    //If no page exist than invalid page given
             return ResponseEntity.unprocessableEntity().body(null);
         }
 
-        //Get descendants of root
-        List<ConcreteWikiPage> descendants = wikiPageRepo.findDescendantsById(root.getId());
+        //Get the whole tree from the root of the given page
+        List<ConcreteWikiPage> descendants = wikiPageRepo.findByRootIdOrderByIdAsc(page.getRootId());
 
         //Create list to hold all WikiPage proxy objects
         List<WikiPageWithAuthorProxy> pages = new ArrayList<>();
 
         //need to parse descendants list in order to create WikiPage proxy objects to send back as response
-        for (ConcreteWikiPage page: descendants) {
-            pages.add(new WikiPageWithAuthorProxy(page));
+        for (ConcreteWikiPage descendant: descendants) {
+            pages.add(new WikiPageWithAuthorProxy(descendant));
         }
 
         return ResponseEntity.ok(pages);
 
     }
 
+    /**
+     * Method to handle retrieval of part of a WikiPage history tree. Returns a limited number of levels below a WikiPage,
+     * with the child count and subtree size of every WikiPage so that the client can expand the rest on demand
+     * @param request - contains id of the WikiPage to expand, and optionally root (start from the original of the WikiPage instead),
+     *                depth (levels to expand), width (children to expand per WikiPage) and after (expand only the children of the WikiPage after this id)
+     * @return the WikiPage with its children expanded
+     */
+    @GetMapping("/retrieveWikiPageHistoryTree")
+    public ResponseEntity<WikiPageHistoryNode> retrieveWikiPageHistoryTree(HttpServletRequest request) {
+
+        long id;
+        long after;
+
+        try {
+            id = Long.parseLong(request.getParameter("id"));
+            after = request.getParameter("after") == null ? Long.MIN_VALUE : Long.parseLong(request.getParameter("after"));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        Integer depth = getBoundedParameter(request, "depth", 0, MAX_HISTORY_DEPTH, DEFAULT_HISTORY_DEPTH);
+        Integer width = getBoundedParameter(request, "width", 1, MAX_HISTORY_WIDTH, DEFAULT_HISTORY_WIDTH);
+        if (depth == null || width == null) {    //If the depth or width is not valid
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        if (Boolean.parseBoolean(request.getParameter("root"))) {
+            //Until the version forest holds every WikiPage the root is read from the database
+            if (wikiPageIndexer.isReady()) {
+                id = versionForest.getRoot(id);
+            } else {
+                ConcreteWikiPage root = wikiPageRepo.findRootById(id);
+                id = root == null ? VersionForest.NOT_FOUND : root.getId();
+            }
+        }
+
+        WikiPageHistoryNode tree = wikiPageHistory.expand(id, depth, width, after);
+
+        if (tree == null) {    //If the page does not exist
+            return ResponseEntity.unprocessableEntity().body(null);
+        }
+
+        return ResponseEntity.ok(tree);
+    }
 
 }
@@ -0,0 +1,61 @@
+package SocialWiki.WikiPages;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The parts of a WikiPage that keep changing after it is created, read without loading the rest of the page
+ */
+public class WikiPageCounters {
+
+    /**
+     * The id of the page, only set when the counters of several pages are read together
+     */
+    @Getter
+    @JsonIgnore
+    private Long id;
+
+    /**
+     * The number of views that the page has
+     */
+    @Getter @Setter
+    private Integer views;
+
+    /**
+     * The number of Users that like the page
+     */
+    @Getter @Setter
+    private Integer likes;
+
+    /**
+     * The flag that signifies if the author account is deleted or not
+     */
+    @Getter
+    private boolean authorDeleted;
+
+    /**
+     * Constructor used by repository queries. Pages created before a counter existed may have no value, which is counted as zero
+     * @param views - the stored number of views
+     * @param likes - the stored number of likes
+     * @param authorDeleted - whether the author account is deleted
+     */
+    public WikiPageCounters(Integer views, Integer likes, boolean authorDeleted) {
+        this.views = views == null ? 0 : views;
+        this.likes = likes == null ? 0 : likes;
+        this.authorDeleted = authorDeleted;
+    }
+
+    /**
+     * Constructor used by repository queries that read the counters of several pages
+     * @param id - the id of the page
+     * @param views - the stored number of views
+     * @param likes - the stored number of likes
+     * @param authorDeleted - whether the author account is deleted
+     */
+    public WikiPageCounters(Long id, Integer views, Integer likes, boolean authorDeleted) {
+        this(views, likes, authorDeleted);
+        this.id = id;
+    }
+
+}
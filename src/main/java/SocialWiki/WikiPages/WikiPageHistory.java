@@ -0,0 +1,122 @@
+package SocialWiki.WikiPages;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a bounded part of a version history tree, so that heavily forked WikiPages can be browsed a few levels at a time.
+ * The shape of the tree comes from the VersionForest, and only the WikiPages that are returned are loaded from the database.
+ * Until the WikiPageIndexer has loaded every WikiPage into the forest, the shape is read from the database instead.
+ */
+@Component
+public class WikiPageHistory {
+
+    /**
+     * The most WikiPages returned for a single request. WikiPages past this are returned unexpanded, with their child counts
+     */
+    static final int MAX_NODES = 500;
+
+    /**
+     * Repository for all WikiPages.
+     */
+    @Autowired
+    private WikiPageRepository wikiPageRepo;
+
+    /**
+     * Index of the version forest
+     */
+    @Autowired
+    private VersionForest versionForest;
+
+    /**
+     * Tells whether the version forest holds every WikiPage
+     */
+    @Autowired
+    private WikiPageIndexer wikiPageIndexer;
+
+    /**
+     * Read the tree below a WikiPage, breadth first, a limited number of levels deep
+     * @param id - the id of the WikiPage at the top of the tree
+     * @param depth - the number of levels of children to expand below the WikiPage, 0 for none
+     * @param width - the most children to expand for each WikiPage
+     * @param after - only children of the top WikiPage with a greater id are expanded, to read the rest of a WikiPage with many children
+     * @return the top WikiPage with its children expanded, or null if the WikiPage does not exist
+     */
+    public WikiPageHistoryNode expand(long id, int depth, int width, long after) {
+        VersionForest forest = versionForest;
+        if (!wikiPageIndexer.isReady()) {
+            //The descendants are in id order, so each is added after its parent
+            forest = new VersionForest();
+            for (ConcreteWikiPage page : wikiPageRepo.findDescendantsById(id)) {
+                forest.add(page);
+            }
+        }
+        if (!forest.contains(id)) {
+            return null;
+        }
+
+        //Walk the forest level by level to find the WikiPages to return, without loading any of them
+        Map<Long, long[]> expanded = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        ids.add(id);
+        long[] level = {id};
+        for (int d = 0; d < depth && level.length > 0 && ids.size() < MAX_NODES; d++) {
+            List<Long> nextLevel = new ArrayList<>();
+            for (long parent : level) {
+                int limit = Math.min(width, MAX_NODES - ids.size());
+                if (limit == 0) {
+                    break;
+                }
+
+                long[] children = forest.getChildren(parent, parent == id ? after : Long.MIN_VALUE, limit);
+                expanded.put(parent, children);
+                for (long child : children) {
+                    ids.add(child);
+                    nextLevel.add(child);
+                }
+            }
+            level = nextLevel.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        Map<Long, ConcreteWikiPage> pages = new HashMap<>();
+        for (ConcreteWikiPage page : wikiPageRepo.findByIdIn(ids)) {
+            pages.put(page.getId(), page);
+        }
+        return toNode(id, pages, expanded, forest);
+    }
+
+    /**
+     * Build the node of a WikiPage and the nodes of its expanded children
+     * @param id - the id of the WikiPage
+     * @param pages - every loaded WikiPage, by id
+     * @param expanded - the children of every expanded WikiPage, by id
+     * @param forest - the version forest the children were found in
+     * @return the node, or null if the WikiPage could not be loaded
+     */
+    private WikiPageHistoryNode toNode(long id, Map<Long, ConcreteWikiPage> pages, Map<Long, long[]> expanded, VersionForest forest) {
+        ConcreteWikiPage page = pages.get(id);
+        if (page == null) {
+            return null;
+        }
+
+        WikiPageHistoryNode node = new WikiPageHistoryNode(page, forest.getChildCount(id), forest.getSubtreeSize(id));
+        long[] children = expanded.get(id);
+        if (children != null) {
+            List<WikiPageHistoryNode> childNodes = new ArrayList<>(children.length);
+            for (long child : children) {
+                WikiPageHistoryNode childNode = toNode(child, pages, expanded, forest);
+                if (childNode != null) {
+                    childNodes.add(childNode);
+                }
+            }
+            node.setChildren(childNodes);
+        }
+        return node;
+    }
+
+}
@@ -0,0 +1,46 @@
+package SocialWiki.WikiPages;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A WikiPage in a version history tree, with the size of the tree below it so that a client can show it before expanding it
+ */
+public class WikiPageHistoryNode extends WikiPageWithAuthorProxy {
+
+    /**
+     * The number of direct children of the WikiPage
+     */
+    @Getter
+    private final int childCount;
+
+    /**
+     * The number of WikiPages in the subtree of the WikiPage, including itself
+     */
+    @Getter
+    private final int subtreeSize;
+
+    /**
+     * The children that were expanded, in the order they were created. Null if the WikiPage was not expanded,
+     * and shorter than childCount if only some of its children were returned
+     */
+    @Getter @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<WikiPageHistoryNode> children;
+
+    /**
+     * Constructs WikiPageHistoryNode for the provided WikiPage
+     * @param realWikiPage - WikiPage that requires proxy
+     * @param childCount - the number of direct children of the WikiPage
+     * @param subtreeSize - the number of WikiPages in the subtree of the WikiPage
+     */
+    public WikiPageHistoryNode(ConcreteWikiPage realWikiPage, int childCount, int subtreeSize) {
+        super(realWikiPage);
+        this.childCount = childCount;
+        this.subtreeSize = subtreeSize;
+    }
+
+}
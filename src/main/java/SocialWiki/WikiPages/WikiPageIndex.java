@@ -0,0 +1,20 @@
+package SocialWiki.WikiPages;
+
+/**
+ * In-memory structure that is built from the persisted WikiPages. Implementations are fed every page on startup and
+ * every newly created page afterwards by the WikiPageIndexer.
+ */
+public interface WikiPageIndex {
+
+    /**
+     * Add a persisted WikiPage to the index
+     * @param page - the WikiPage to add, must already have an ID
+     */
+    void add(ConcreteWikiPage page);
+
+    /**
+     * Remove every WikiPage from the index
+     */
+    void clear();
+
+}
@@ -0,0 +1,169 @@
+package SocialWiki.WikiPages;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps every WikiPageIndex in sync with the WikiPage repository.
+ * The indexes are rebuilt from the database once the application has started and are then updated incrementally as pages are created,
+ * each page once the transaction that saved it commits.
+ * Until the first rebuild completes the indexes hold only part of the wiki, see isReady.
+ */
+@Component
+public class WikiPageIndexer {
+
+    /**
+     * Number of WikiPages loaded from the database at a time while rebuilding the indexes
+     */
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    /**
+     * Repository for all WikiPages.
+     */
+    @Autowired
+    private WikiPageRepository wikiPageRepo;
+
+    /**
+     * All of the indexes that need to be kept up to date
+     */
+    @Autowired
+    private List<WikiPageIndex> indexes;
+
+    /**
+     * Guards the indexes against a WikiPage being added while a rebuild clears or finishes them
+     */
+    private final Object lock = new Object();
+
+    /**
+     * WikiPages created while a rebuild is running, sorted by id, or null when no rebuild is running
+     */
+    private Map<Long, ConcreteWikiPage> pending;
+
+    /**
+     * Sorted ids of the WikiPages the running rebuild has loaded, and how many there are. Kept after the rebuild until every transaction
+     * that saved a WikiPage while it ran has completed, as the rebuild may have loaded those WikiPages before they were indexed
+     */
+    private long[] rebuiltIds;
+    private int rebuiltCount;
+
+    /**
+     * Number of WikiPages saved in transactions that have not completed yet
+     */
+    private int committing;
+
+    /**
+     * Whether the indexes hold every WikiPage, false until the first rebuild completes and while any rebuild runs
+     */
+    private volatile boolean ready;
+
+    /**
+     * Check if the indexes hold every WikiPage. Until they do searches should be answered by the database instead
+     * @return true once a rebuild has completed and no other is running
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Add a newly created WikiPage to every index. A WikiPage saved in a transaction is only added once the transaction commits,
+     * so a rollback never leaves it in the indexes. While a rebuild is running the WikiPage is held back until the rebuild finishes,
+     * and only added then if the rebuild did not load it itself, so it is never lost or added twice
+     * @param page - the WikiPage that was just saved
+     */
+    public void index(ConcreteWikiPage page) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (lock) {
+                add(page);
+            }
+            return;
+        }
+
+        synchronized (lock) {
+            committing++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (lock) {
+                    if (status == STATUS_COMMITTED) {
+                        add(page);
+                    }
+                    if (--committing == 0 && pending == null) {
+                        rebuiltIds = null;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Add a committed WikiPage to every index, or hold it back while a rebuild is running. Must be called holding the lock
+     * @param page - the WikiPage to add
+     */
+    private void add(ConcreteWikiPage page) {
+        if (pending != null) {
+            pending.put(page.getId(), page);
+        } else if (rebuiltIds == null || Arrays.binarySearch(rebuiltIds, 0, rebuiltCount, page.getId()) < 0) {
+            indexes.forEach(index -> index.add(page));
+        }
+    }
+
+    /**
+     * Clear every index and reload them with all WikiPages in the repository
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (lock) {
+            ready = false;
+            pending = new TreeMap<>();
+            rebuiltIds = new long[REBUILD_BATCH_SIZE];
+            rebuiltCount = 0;
+            indexes.forEach(WikiPageIndex::clear);
+        }
+
+        //Load the pages in batches keyed on the last seen id so that the whole wiki is never held in memory at once
+        Long lastId = 0L;
+        List<ConcreteWikiPage> batch = wikiPageRepo.findByIdGreaterThanOrderByIdAsc(lastId, new PageRequest(0, REBUILD_BATCH_SIZE));
+        while (!batch.isEmpty()) {
+            synchronized (lock) {
+                for (ConcreteWikiPage page : batch) {
+                    indexes.forEach(index -> index.add(page));
+                    if (rebuiltCount == rebuiltIds.length) {
+                        rebuiltIds = Arrays.copyOf(rebuiltIds, rebuiltCount * 2);
+                    }
+                    rebuiltIds[rebuiltCount++] = page.getId();
+                }
+            }
+
+            lastId = batch.get(batch.size() - 1).getId();
+            batch = wikiPageRepo.findByIdGreaterThanOrderByIdAsc(lastId, new PageRequest(0, REBUILD_BATCH_SIZE));
+        }
+
+        //Pages created during the rebuild may have been committed too late for their batch, those are added now.
+        //Batches are read in id order, so the loaded ids are already sorted. The pending pages are added in id order too,
+        //so a parent is added before its children and the VersionForest attaches them to it rather than making them roots
+        synchronized (lock) {
+            for (ConcreteWikiPage page : pending.values()) {
+                if (Arrays.binarySearch(rebuiltIds, 0, rebuiltCount, page.getId()) < 0) {
+                    indexes.forEach(index -> index.add(page));
+                }
+            }
+            pending = null;
+            if (committing == 0) {
+                rebuiltIds = null;
+            }
+            ready = true;
+        }
+    }
+
+}
@@ -1,16 +1,20 @@
 package SocialWiki.WikiPages;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import javax.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Created by Chris on 2/24/2017.
  * Repository to persist all WikiPages. Uses the ConcreteWikiPage class.
  */
-public interface WikiPageRepository extends JpaRepository<ConcreteWikiPage, Long> {
+public interface WikiPageRepository extends JpaRepository<ConcreteWikiPage, Long>, WikiPageRepositoryCustom {
 
     /**
      * Finds all WikiPages in repository with matching title
@@ -43,84 +47,87 @@ public interface WikiPageRepository extends JpaRepository<ConcreteWikiPage, Long
     ConcreteWikiPage findById(@Param("id") Long id);
 
     /**
-     * Finds the descendants of source WikiPage
-     * Need to make native query to access recursive capabilities of PostgreSQL.
-     * @param sourceId - The id of source WikiPage
-     * @return Descendant WikiPages
+     * Finds the stored counters of the WikiPage with matching id
+     * @param id - id to look for
+     * @return The counters of the WikiPage, or null if there is no WikiPage with the id
      */
-    @Query(name = "ConcreteWikiPage.findDescendantsById") //calls the NamedNativeQuery defined in the ConcreteWikiPage Class
-    List<ConcreteWikiPage> findDescendantsById(@Param("source") Long sourceId);
+    @Query("SELECT NEW SocialWiki.WikiPages.WikiPageCounters(page.views, page.likeCount, page.author.isDeleted) " +
+            "FROM ConcreteWikiPage page " +
+            "WHERE page.id = :id")
+    WikiPageCounters findCountersById(@Param("id") Long id);
 
     /**
-     * Finds the ancestors of source WikiPage
-     * Need to make native query to access recursive capabilities of PostgreSQL.
-     * @param sourceId - The id of source WikiPage
-     * @return Ancestor WikiPages
+     * Finds the stored counters of the WikiPages with matching ids
+     * @param ids - ids to look for, must not be empty
+     * @return The counters of the WikiPages found, in no particular order
      */
-    @Query(name = "ConcreteWikiPage.findAncestorsById") //calls the NamedNativeQuery defined in the ConcreteWikiPage Class
-    List<ConcreteWikiPage> findAncestorsById(@Param("source") Long sourceId);
+    @Query("SELECT NEW SocialWiki.WikiPages.WikiPageCounters(page.id, page.views, page.likeCount, page.author.isDeleted) " +
+            "FROM ConcreteWikiPage page " +
+            "WHERE page.id IN (:ids)")
+    List<WikiPageCounters> findCountersByIdIn(@Param("ids") Collection<Long> ids);
 
     /**
-     * Finds the root WikiPage of source WikiPage
-     * Need to make native query to access recursive capabilities of PostgreSQL.
-     * @param sourceId - The id of source WikiPage
-     * @return Root WikiPages
+     * Finds a batch of WikiPages with ids greater than the given id, in ascending id order
+     * @param id - the id to start after
+     * @param pageable - limits the size of the batch
+     * @return the next batch of WikiPages
      */
-    @Query(name = "ConcreteWikiPage.findRootById") //calls the NamedNativeQuery defined in the ConcreteWikiPage Class
-    ConcreteWikiPage findRootById(@Param("source") Long sourceId);
+    List<ConcreteWikiPage> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 
     /**
-     * Find all WikiPages that match the query string. Cannot accept NULL parameters
-     * @param title - The title of the ConcreteWikiPage (Can be a substring of full title)
-     * @param username - The author username of the ConcreteWikiPage (Can be a substring of full username)
-     * @param content - The content of the ConcreteWikiPage (Can be a substring of full content)
-     * @return all WikiPages matching query
+     * Finds the WikiPages with the given ids
+     * @param ids - ids to look for
+     * @return The WikiPages found, in no particular order
      */
-    @Query("SELECT NEW SocialWiki.WikiPages.WikiPageWithAuthorProxy(page) " +
-            "FROM ConcreteWikiPage page LEFT JOIN page.author author " +
-            "WHERE (" +
-            "(UPPER(page.title) LIKE ('%' || UPPER(:title) || '%')  ) AND " +
-            "(UPPER(author.userName) LIKE ('%' || UPPER(:username) || '%') ) AND " +
-            "(UPPER(page.content) LIKE ('%' || UPPER(:pageContent) || '%') )) " +
-            "ORDER BY " +
-            "CASE " +
-            "    WHEN (UPPER(page.title) = UPPER(:title) ) THEN 0 " +
-            "    WHEN (UPPER(page.title) LIKE (UPPER(:title) || '%') ) THEN 1 " +
-            "    WHEN (UPPER(page.title) LIKE ('%' || UPPER(:title) || '%') ) THEN 2 " +
-            "    WHEN (UPPER(page.title) LIKE ('%' || UPPER(:title)) ) THEN 3 " +
-            "    ELSE 4 " +
-            "END ASC," +
-            "CASE " +
-            "    WHEN (UPPER(author.userName) = UPPER(:username) ) THEN 0 " +
-            "    WHEN (UPPER(author.userName) LIKE (UPPER(:username) || '%') ) THEN 1 " +
-            "    WHEN (UPPER(author.userName) LIKE ('%' || UPPER(:username) || '%') ) THEN 2 " +
-            "    WHEN (UPPER(author.userName) LIKE ('%' || UPPER(:username)) ) THEN 3 " +
-            "    ELSE 4 " +
-            "END ASC," +
-            "page.creationDate DESC," +
-            "page.id DESC")
-    List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContent(@Param("title") String title, @Param("username") String username, @Param("pageContent") String content);
+    List<ConcreteWikiPage> findByIdIn(Collection<Long> ids);
 
     /**
-     * Find all WikiPages that match the query string. Cannot accept NULL parameters
-     * @param titleOrContent - The title of the ConcreteWikiPage (Can be a substring of full title or ConcreteWikiPage content)
-     * @return all WikiPages matching query
+     * Finds every version in the tree of an original WikiPage, with a single range read of the rootId index
+     * @param rootId - The id of the original WikiPage
+     * @return The original WikiPage and all of its descendants, ordered by id
      */
-    @Query("SELECT NEW SocialWiki.WikiPages.WikiPageWithAuthorProxy(page) " +
-            "FROM ConcreteWikiPage page LEFT JOIN page.author author " +
-            "WHERE " +
-            "(UPPER(page.title) LIKE ('%' || UPPER(:title) || '%') OR  UPPER(page.content) LIKE ('%' || UPPER(:title) || '%') ) " +
-            "ORDER BY " +
-            "CASE " +
-            "    WHEN (UPPER(page.title) = UPPER(:title) ) THEN 0 " +
-            "    WHEN (UPPER(page.title) LIKE (UPPER(:title) || '%') ) THEN 1 " +
-            "    WHEN (UPPER(page.title) LIKE ('%' || UPPER(:title) || '%') ) THEN 2 " +
-            "    WHEN (UPPER(page.title) LIKE ('%' || UPPER(:title)) ) THEN 3 " +
-            "    ELSE 4 " +
-            "END ASC," +
-            "page.creationDate DESC," +
-            "page.id DESC")
-    List<WikiPageWithAuthorProxy> findByTitleAndContent(@Param("title") String titleOrContent);
+    List<ConcreteWikiPage> findByRootIdOrderByIdAsc(Long rootId);
 
+    /**
+     * Atomically add one to the like count of a WikiPage
+     * @param id - the id of the WikiPage that was liked
+     * @return the number of WikiPages updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ConcreteWikiPage page " +
+            "SET page.likeCount = COALESCE(page.likeCount, 0) + 1 " +
+            "WHERE page.id = :id")
+    int incrementLikeCount(@Param("id") Long id);
+
+    /**
+     * Atomically take one from the like counts of WikiPages, never going below zero
+     * @param ids - the ids of the WikiPages that were unliked, must not be empty
+     * @return the number of WikiPages updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ConcreteWikiPage page " +
+            "SET page.likeCount = CASE WHEN page.likeCount > 0 THEN page.likeCount - 1 ELSE 0 END " +
+            "WHERE page.id IN (:ids)")
+    int decrementLikeCounts(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Recompute the like count of every WikiPage from the Users that like it, only writing the counts that are wrong.
+     * Need to make native query as JPQL cannot update from an aggregate over the likes join table.
+     * @return the number of WikiPages whose count was repaired
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = "WITH counts AS (" +
+            "    SELECT page.id, COUNT(likes.liked_pages_id) AS likes " +
+            "    FROM concrete_wiki_page page LEFT JOIN wiki_user_liked_pages likes ON likes.liked_pages_id = page.id " +
+            "    GROUP BY page.id) " +
+            "UPDATE concrete_wiki_page page " +
+            "SET like_count = counts.likes " +
+            "FROM counts " +
+            "WHERE counts.id = page.id AND page.like_count IS DISTINCT FROM counts.likes",
+            nativeQuery = true)
+    int repairLikeCounts();
 
 }
@@ -0,0 +1,119 @@
+package SocialWiki.WikiPages;
+
+import SocialWiki.Search.WikiPageSearchCursor;
+import SocialWiki.Search.WikiPageSort;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Queries of WikiPageRepository over the version forest and the searches that match contents, implemented by WikiPageRepositoryImpl
+ */
+public interface WikiPageRepositoryCustom {
+
+    /**
+     * Finds the descendants of source WikiPage
+     * @param sourceId - The id of source WikiPage
+     * @return The source WikiPage and its descendants, ordered by id
+     */
+    List<ConcreteWikiPage> findDescendantsById(Long sourceId);
+
+    /**
+     * Finds the ancestors of source WikiPage
+     * @param sourceId - The id of source WikiPage
+     * @return The source WikiPage and its ancestors, root first
+     */
+    List<ConcreteWikiPage> findAncestorsById(Long sourceId);
+
+    /**
+     * Finds the root WikiPage of source WikiPage
+     * @param sourceId - The id of source WikiPage
+     * @return Root WikiPage, or null if there is no WikiPage with the id
+     */
+    ConcreteWikiPage findRootById(Long sourceId);
+
+    /**
+     * Find all WikiPages that match the query string, ordered by title match tier, then username match tier, then newest first. Cannot accept NULL parameters
+     * @param title - The title of the ConcreteWikiPage (Can be a substring of full title)
+     * @param username - The author username of the ConcreteWikiPage (Can be a substring of full username)
+     * @param content - The content of the ConcreteWikiPage (Can be a substring of full content)
+     * @return all WikiPages matching query
+     */
+    List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContent(String title, String username, String content);
+
+    /**
+     * Find all WikiPages that match the query string, ordered by title match tier, then newest first. Cannot accept NULL parameters
+     * @param titleOrContent - The title of the ConcreteWikiPage (Can be a substring of full title or ConcreteWikiPage content)
+     * @return all WikiPages matching query
+     */
+    List<WikiPageWithAuthorProxy> findByTitleAndContent(String titleOrContent);
+
+    /**
+     * Find a page of the WikiPages that match the query string and are in one title match tier, continuing after a given WikiPage. Cannot accept NULL parameters
+     * @param titleOrContent - The title of the ConcreteWikiPage (Can be a substring of full title or ConcreteWikiPage content)
+     * @param tier - The title match tier, as given by the ordering of findByTitleAndContent
+     * @param creationDate - The creation date of the WikiPage to continue after
+     * @param id - The id of the WikiPage to continue after
+     * @param pageable - limits the number of WikiPages found
+     * @return WikiPages in the tier after the given WikiPage, newest first
+     */
+    List<WikiPageWithAuthorProxy> findByTitleAndContentAfter(String titleOrContent, int tier, Calendar creationDate, Long id, Pageable pageable);
+
+    /**
+     * Find a page of the WikiPages that match the query string and are in one title and username match tier, continuing after a given WikiPage. Cannot accept NULL parameters
+     * @param title - The title of the ConcreteWikiPage (Can be a substring of full title)
+     * @param username - The author username of the ConcreteWikiPage (Can be a substring of full username)
+     * @param content - The content of the ConcreteWikiPage (Can be a substring of full content)
+     * @param titleTier - The title match tier, as given by the ordering of findByTitleAndAuthorAndContent
+     * @param usernameTier - The username match tier, as given by the ordering of findByTitleAndAuthorAndContent
+     * @param creationDate - The creation date of the WikiPage to continue after
+     * @param id - The id of the WikiPage to continue after
+     * @param pageable - limits the number of WikiPages found
+     * @return WikiPages in the tiers after the given WikiPage, newest first
+     */
+    List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContentAfter(String title, String username, String content, int titleTier, int usernameTier,
+                                                                      Calendar creationDate, Long id, Pageable pageable);
+
+    /**
+     * Find the best matching WikiPage of every version tree that has a WikiPage matching the query string, with the number of versions in its tree.
+     * The best match of a tree is the one findByTitleAndContent would return first, and the trees are ordered by their best matches the same way. Cannot accept NULL parameters
+     * @param titleOrContent - The title of the ConcreteWikiPage (Can be a substring of full title or ConcreteWikiPage content)
+     * @return one WikiPage per matching version tree
+     */
+    List<WikiPageWithAuthorProxy> findByTitleAndContentCollapsed(String titleOrContent);
+
+    /**
+     * Find the best matching WikiPage of every version tree that has a WikiPage matching the query strings, with the number of versions in its tree.
+     * The best match of a tree is the one findByTitleAndAuthorAndContent would return first, and the trees are ordered by their best matches the same way. Cannot accept NULL parameters
+     * @param title - The title of the ConcreteWikiPage (Can be a substring of full title)
+     * @param username - The username of the author of the ConcreteWikiPage (Can be a substring of full username)
+     * @param content - The content of the ConcreteWikiPage (Can be a substring of full content)
+     * @return one WikiPage per matching version tree
+     */
+    List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContentCollapsed(String title, String username, String content);
+
+    /**
+     * Find a page of the WikiPages that match the query string in a sort order other than relevance, continuing after a given WikiPage. Cannot accept NULL parameters
+     * @param titleOrContent - The title of the ConcreteWikiPage (Can be a substring of full title or ConcreteWikiPage content)
+     * @param sort - The order to find WikiPages in
+     * @param after - The cursor of the WikiPage to continue after, or null to start from the beginning
+     * @param limit - The maximum number of WikiPages to find
+     * @return WikiPages after the given WikiPage, in the sort order
+     */
+    List<WikiPageWithAuthorProxy> findByTitleAndContentSorted(String titleOrContent, WikiPageSort sort, WikiPageSearchCursor after, int limit);
+
+    /**
+     * Find a page of the WikiPages that match the query strings in a sort order other than relevance, continuing after a given WikiPage. Cannot accept NULL parameters
+     * @param title - The title of the ConcreteWikiPage (Can be a substring of full title)
+     * @param username - The username of the author of the ConcreteWikiPage (Can be a substring of full username)
+     * @param content - The content of the ConcreteWikiPage (Can be a substring of full content)
+     * @param sort - The order to find WikiPages in
+     * @param after - The cursor of the WikiPage to continue after, or null to start from the beginning
+     * @param limit - The maximum number of WikiPages to find
+     * @return WikiPages after the given WikiPage, in the sort order
+     */
+    List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContentSorted(String title, String username, String content, WikiPageSort sort,
+                                                                         WikiPageSearchCursor after, int limit);
+
+}
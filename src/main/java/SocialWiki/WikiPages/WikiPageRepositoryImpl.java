@@ -0,0 +1,333 @@
+package SocialWiki.WikiPages;
+
+import SocialWiki.Search.WikiPageSearchCursor;
+import SocialWiki.Search.WikiPageSort;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Answers the version forest queries of WikiPageRepository from the VersionForest, so only the WikiPages themselves are read from the database.
+ * Until the WikiPageIndexer has loaded every WikiPage into the forest, and for WikiPages that are not in it, e.g. ones saved without going
+ * through the WikiPageIndexer, the queries fall back to the database.
+ * Also builds the searches that match contents, whose contents may be in the row or shared, and the sorted searches,
+ * whose ORDER BY and seek condition depend on the sort order.
+ */
+public class WikiPageRepositoryImpl implements WikiPageRepositoryCustom {
+
+    /**
+     * Condition of a search for text in the title or content. The title is checked first, so a blank search never reads any contents
+     */
+    private static final String TITLE_OR_CONTENT_MATCH =
+            "(UPPER(page.title) LIKE ('%' || UPPER(:title) || '%') OR (:title <> '' AND " + contentMatch("title") + ")) ";
+
+    /**
+     * Condition of an advanced search. A blank content parameter skips reading contents
+     */
+    private static final String ADVANCED_MATCH =
+            "(UPPER(page.title) LIKE ('%' || UPPER(:title) || '%')  ) AND " +
+            "(UPPER(author.userName) LIKE ('%' || UPPER(:username) || '%') ) AND " +
+            "(:pageContent = '' OR " + contentMatch("pageContent") + ") ";
+
+    /**
+     * How well the title matches, in JPQL
+     */
+    private static final String TITLE_TIER = "CASE " +
+            "WHEN (UPPER(page.title) = UPPER(:title) ) THEN 0 " +
+            "WHEN (UPPER(page.title) LIKE (UPPER(:title) || '%') ) THEN 1 " +
+            "WHEN (UPPER(page.title) LIKE ('%' || UPPER(:title) || '%') ) THEN 2 " +
+            "WHEN (UPPER(page.title) LIKE ('%' || UPPER(:title)) ) THEN 3 " +
+            "ELSE 4 END";
+
+    /**
+     * How well the author username matches, in JPQL
+     */
+    private static final String USERNAME_TIER = "CASE " +
+            "WHEN (UPPER(author.userName) = UPPER(:username) ) THEN 0 " +
+            "WHEN (UPPER(author.userName) LIKE (UPPER(:username) || '%') ) THEN 1 " +
+            "WHEN (UPPER(author.userName) LIKE ('%' || UPPER(:username) || '%') ) THEN 2 " +
+            "WHEN (UPPER(author.userName) LIKE ('%' || UPPER(:username)) ) THEN 3 " +
+            "ELSE 4 END";
+
+    /**
+     * Seeks past the WikiPage to continue after in newest first order
+     */
+    private static final String AFTER = "(page.creationDate < :creationDate OR (page.creationDate = :creationDate AND page.id < :id)) ";
+
+    /**
+     * Condition of a search for text in the title or content in SQL, the same as TITLE_OR_CONTENT_MATCH
+     */
+    private static final String TITLE_OR_CONTENT_MATCH_SQL =
+            "(UPPER(page.title) LIKE ('%' || UPPER(:title) || '%') OR (:title <> '' AND " + contentMatchSql("title") + ")) ";
+
+    /**
+     * How well the title matches in SQL, the same tiers as the CASE expression of WikiPageRepository.findByTitleAndContent
+     */
+    private static final String TITLE_TIER_SQL = "CASE " +
+            "WHEN UPPER(page.title) = UPPER(:title) THEN 0 " +
+            "WHEN UPPER(page.title) LIKE (UPPER(:title) || '%') THEN 1 " +
+            "WHEN UPPER(page.title) LIKE ('%' || UPPER(:title) || '%') THEN 2 " +
+            "WHEN UPPER(page.title) LIKE ('%' || UPPER(:title)) THEN 3 " +
+            "ELSE 4 END";
+
+    /**
+     * How well the author username matches in SQL, the same tiers as the CASE expression of WikiPageRepository.findByTitleAndAuthorAndContent
+     */
+    private static final String USERNAME_TIER_SQL = "CASE " +
+            "WHEN UPPER(author.user_name) = UPPER(:username) THEN 0 " +
+            "WHEN UPPER(author.user_name) LIKE (UPPER(:username) || '%') THEN 1 " +
+            "WHEN UPPER(author.user_name) LIKE ('%' || UPPER(:username) || '%') THEN 2 " +
+            "WHEN UPPER(author.user_name) LIKE ('%' || UPPER(:username)) THEN 3 " +
+            "ELSE 4 END";
+
+    @Autowired
+    private VersionForest versionForest;
+
+    /**
+     * Tells whether the forest holds every WikiPage. Lazy, as the WikiPageIndexer itself reads WikiPages through the repository
+     */
+    @Lazy
+    @Autowired
+    private WikiPageIndexer wikiPageIndexer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ConcreteWikiPage> findDescendantsById(Long sourceId) {
+        if (!isInForest(sourceId)) {
+            //Need to make native query to access recursive capabilities of PostgreSQL
+            return entityManager.createNamedQuery("ConcreteWikiPage.findDescendantsById", ConcreteWikiPage.class)
+                    .setParameter("source", sourceId)
+                    .getResultList();
+        }
+        return findByIds(versionForest.getDescendants(sourceId));
+    }
+
+    @Override
+    public List<ConcreteWikiPage> findAncestorsById(Long sourceId) {
+        if (!isInForest(sourceId)) {
+            return entityManager.createNamedQuery("ConcreteWikiPage.findAncestorsById", ConcreteWikiPage.class)
+                    .setParameter("source", sourceId)
+                    .getResultList();
+        }
+        //Every version is created after its parent, so root first is ascending id order
+        return findByIds(versionForest.getAncestors(sourceId));
+    }
+
+    @Override
+    public ConcreteWikiPage findRootById(Long sourceId) {
+        if (!isInForest(sourceId)) {
+            List<ConcreteWikiPage> roots = entityManager.createQuery(
+                    "SELECT root FROM ConcreteWikiPage page, ConcreteWikiPage root WHERE page.id = :source AND root.id = page.rootId", ConcreteWikiPage.class)
+                    .setParameter("source", sourceId)
+                    .getResultList();
+            return roots.isEmpty() ? null : roots.get(0);
+        }
+        return entityManager.find(ConcreteWikiPage.class, versionForest.getRoot(sourceId));
+    }
+
+    /**
+     * Check if the forest can answer a query about a WikiPage. While the indexes are rebuilt the forest may hold the WikiPage but not all of its versions
+     * @param id - the id of the WikiPage
+     * @return true if the forest holds every WikiPage and this one is among them
+     */
+    private boolean isInForest(Long id) {
+        return wikiPageIndexer.isReady() && versionForest.contains(id);
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContent(String title, String username, String content) {
+        return entityManager.createQuery("SELECT NEW SocialWiki.WikiPages.WikiPageWithAuthorProxy(page) " +
+                "FROM ConcreteWikiPage page LEFT JOIN page.author author WHERE " + ADVANCED_MATCH +
+                "ORDER BY " + TITLE_TIER + " ASC, " + USERNAME_TIER + " ASC, page.creationDate DESC, page.id DESC", WikiPageWithAuthorProxy.class)
+                .setParameter("title", title)
+                .setParameter("username", username)
+                .setParameter("pageContent", content)
+                .getResultList();
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> findByTitleAndContent(String titleOrContent) {
+        return entityManager.createQuery("SELECT NEW SocialWiki.WikiPages.WikiPageWithAuthorProxy(page) " +
+                "FROM ConcreteWikiPage page WHERE " + TITLE_OR_CONTENT_MATCH +
+                "ORDER BY " + TITLE_TIER + " ASC, page.creationDate DESC, page.id DESC", WikiPageWithAuthorProxy.class)
+                .setParameter("title", titleOrContent)
+                .getResultList();
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> findByTitleAndContentAfter(String titleOrContent, int tier, Calendar creationDate, Long id, Pageable pageable) {
+        return entityManager.createQuery("SELECT NEW SocialWiki.WikiPages.WikiPageWithAuthorProxy(page) " +
+                "FROM ConcreteWikiPage page WHERE " + TITLE_OR_CONTENT_MATCH + "AND " + TITLE_TIER + " = :tier AND " + AFTER +
+                "ORDER BY page.creationDate DESC, page.id DESC", WikiPageWithAuthorProxy.class)
+                .setParameter("title", titleOrContent)
+                .setParameter("tier", tier)
+                .setParameter("creationDate", creationDate)
+                .setParameter("id", id)
+                .setFirstResult(pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContentAfter(String title, String username, String content, int titleTier, int usernameTier,
+                                                                             Calendar creationDate, Long id, Pageable pageable) {
+        return entityManager.createQuery("SELECT NEW SocialWiki.WikiPages.WikiPageWithAuthorProxy(page) " +
+                "FROM ConcreteWikiPage page LEFT JOIN page.author author WHERE " + ADVANCED_MATCH +
+                "AND " + TITLE_TIER + " = :titleTier AND " + USERNAME_TIER + " = :usernameTier AND " + AFTER +
+                "ORDER BY page.creationDate DESC, page.id DESC", WikiPageWithAuthorProxy.class)
+                .setParameter("title", title)
+                .setParameter("username", username)
+                .setParameter("pageContent", content)
+                .setParameter("titleTier", titleTier)
+                .setParameter("usernameTier", usernameTier)
+                .setParameter("creationDate", creationDate)
+                .setParameter("id", id)
+                .setFirstResult(pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> findByTitleAndContentCollapsed(String titleOrContent) {
+        Query query = createCollapsedQuery("", TITLE_OR_CONTENT_MATCH_SQL, TITLE_TIER_SQL + " AS title_tier", "title_tier");
+        return getCollapsedResults(query.setParameter("title", titleOrContent));
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContentCollapsed(String title, String username, String content) {
+        Query query = createCollapsedQuery("LEFT JOIN wiki_user author ON author.id = page.author_id ",
+                "UPPER(page.title) LIKE ('%' || UPPER(:title) || '%') AND " +
+                "UPPER(author.user_name) LIKE ('%' || UPPER(:username) || '%') AND " +
+                "(:pageContent = '' OR " + contentMatchSql("pageContent") + ") ",
+                TITLE_TIER_SQL + " AS title_tier, " + USERNAME_TIER_SQL + " AS username_tier", "title_tier, username_tier");
+        return getCollapsedResults(query.setParameter("title", title)
+                .setParameter("username", username)
+                .setParameter("pageContent", content));
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> findByTitleAndContentSorted(String titleOrContent, WikiPageSort sort, WikiPageSearchCursor after, int limit) {
+        return createSortedQuery("FROM ConcreteWikiPage page WHERE " + TITLE_OR_CONTENT_MATCH, sort, after, limit)
+                .setParameter("title", titleOrContent)
+                .getResultList();
+    }
+
+    @Override
+    public List<WikiPageWithAuthorProxy> findByTitleAndAuthorAndContentSorted(String title, String username, String content, WikiPageSort sort,
+                                                                                WikiPageSearchCursor after, int limit) {
+        return createSortedQuery("FROM ConcreteWikiPage page LEFT JOIN page.author author WHERE " + ADVANCED_MATCH, sort, after, limit)
+                .setParameter("title", title)
+                .setParameter("username", username)
+                .setParameter("pageContent", content)
+                .getResultList();
+    }
+
+    /**
+     * Create a search query that reads WikiPages in a sort order, seeking past the cursor on (aggregate, id) so the aggregate's index is read in order
+     * @param match - the FROM and WHERE clauses that select the WikiPages matching the search, with the WikiPage aliased page
+     * @param sort - the order to find WikiPages in, must not be relevance
+     * @param after - the cursor of the WikiPage to continue after, or null to start from the beginning
+     * @param limit - the maximum number of WikiPages to find
+     * @return the query, still needing the parameters of the match
+     */
+    private TypedQuery<WikiPageWithAuthorProxy> createSortedQuery(String match, WikiPageSort sort, WikiPageSearchCursor after, int limit) {
+        String path = sort.getPath();
+        String seek = after == null ? "" : "AND (" + path + " < :value OR (" + path + " = :value AND page.id < :id)) ";
+
+        TypedQuery<WikiPageWithAuthorProxy> query = entityManager.createQuery(
+                "SELECT NEW SocialWiki.WikiPages.WikiPageWithAuthorProxy(page) " + match + seek +
+                "ORDER BY " + path + " DESC, page.id DESC", WikiPageWithAuthorProxy.class)
+                .setMaxResults(limit);
+        if (after != null) {
+            query.setParameter("value", sort.getCursorValue(after))
+                    .setParameter("id", after.getId());
+        }
+        return query;
+    }
+
+    /**
+     * Create a search query that returns the best matching WikiPage of each version tree and the number of versions in the tree.
+     * DISTINCT ON keeps the first WikiPage of each tree in match tier, newest and then highest id order, so the grouping is done by the database
+     * and only one WikiPage per tree is read
+     * @param joins - the joins the condition needs, with the WikiPage aliased page
+     * @param condition - the condition that the matching WikiPages meet
+     * @param tiers - the match tier columns, each an expression with an alias
+     * @param tierOrder - the aliases of the match tier columns, best first
+     * @return the query, still needing the parameters of the condition and tiers
+     */
+    private Query createCollapsedQuery(String joins, String condition, String tiers, String tierOrder) {
+        return entityManager.createNativeQuery(
+                "SELECT best.* FROM (" +
+                "SELECT DISTINCT ON (COALESCE(page.root_id, page.id)) page.*, " + tiers + ", COALESCE(root.edit_count, 0) + 1 AS versions " +
+                "FROM concrete_wiki_page page LEFT JOIN concrete_wiki_page root ON root.id = page.root_id " + joins +
+                "WHERE " + condition +
+                "ORDER BY COALESCE(page.root_id, page.id), " + tierOrder + ", page.creation_date DESC, page.id DESC) best " +
+                "ORDER BY " + tierOrder + ", best.creation_date DESC, best.id DESC", "ConcreteWikiPage.withVersions");
+    }
+
+    /**
+     * Read the WikiPages found by a collapsed search query
+     * @param query - the query, with its parameters set
+     * @return the WikiPages found, each with the number of versions in its tree
+     */
+    @SuppressWarnings("unchecked")
+    private List<WikiPageWithAuthorProxy> getCollapsedResults(Query query) {
+        List<WikiPageWithAuthorProxy> pages = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            WikiPageWithAuthorProxy page = new WikiPageWithAuthorProxy((ConcreteWikiPage) row[0]);
+            page.setVersions((Integer) row[1]);
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    /**
+     * Condition that the contents of a WikiPage contain a parameter, ignoring case. Contents held in the row of the WikiPage, or kept there as plain text
+     * for searches when the WikiPage is stored as a delta or compressed, are matched directly. Contents shared in the wiki_page_content table as text
+     * are found by the primary key of the shared contents
+     * @param parameter - the name of the parameter holding the text
+     * @return the condition in JPQL, with the WikiPage aliased page
+     */
+    private static String contentMatch(String parameter) {
+        return "(UPPER(COALESCE(page.snapshot, page.searchContent)) LIKE ('%' || UPPER(:" + parameter + ") || '%') OR " +
+                "EXISTS (SELECT shared.hash FROM WikiPageContent shared WHERE shared.hash = page.contentHash AND " +
+                "UPPER(shared.body) LIKE ('%' || UPPER(:" + parameter + ") || '%'))) ";
+    }
+
+    /**
+     * Condition that the contents of a WikiPage contain a parameter, the same as contentMatch
+     * @param parameter - the name of the parameter holding the text
+     * @return the condition in SQL, with the WikiPage aliased page
+     */
+    private static String contentMatchSql(String parameter) {
+        return "(UPPER(COALESCE(page.content, page.search_content)) LIKE ('%' || UPPER(:" + parameter + ") || '%') OR " +
+                "EXISTS (SELECT 1 FROM wiki_page_content shared WHERE shared.hash = page.content_hash AND " +
+                "UPPER(shared.body) LIKE ('%' || UPPER(:" + parameter + ") || '%'))) ";
+    }
+
+    /**
+     * Load WikiPages by id in a single query
+     * @param ids - the ids of the WikiPages, must not be empty
+     * @return the WikiPages ordered by id
+     */
+    private List<ConcreteWikiPage> findByIds(long[] ids) {
+        List<Long> boxedIds = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            boxedIds.add(id);
+        }
+        return entityManager.createQuery("SELECT page FROM ConcreteWikiPage page WHERE page.id IN :ids ORDER BY page.id", ConcreteWikiPage.class)
+                .setParameter("ids", boxedIds)
+                .getResultList();
+    }
+
+}
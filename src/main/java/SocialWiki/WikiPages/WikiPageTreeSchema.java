@@ -0,0 +1,95 @@
+package SocialWiki.WikiPages;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintains the root id and depth of every WikiPage in the database, so that finding the tree of a WikiPage never walks its ancestors.
+ * A trigger copies them from the parent when a WikiPage is inserted, as the id of an original is only known to the database at that point,
+ * and a backfill fills them in for WikiPages created before the columns existed.
+ * The edit count of every WikiPage, the number of versions descending from it, is maintained the same way so that most edited searches can read it from an index.
+ */
+@Component
+public class WikiPageTreeSchema {
+
+    /**
+     * Statements that add the columns, the trigger that sets them, and the backfill of existing rows. All are safe to run on every startup.
+     */
+    private static final String[] SCHEMA = {
+            "ALTER TABLE concrete_wiki_page ADD COLUMN IF NOT EXISTS root_id bigint",
+            "ALTER TABLE concrete_wiki_page ADD COLUMN IF NOT EXISTS depth integer",
+            "CREATE INDEX IF NOT EXISTS concrete_wiki_page_root_id_idx ON concrete_wiki_page (root_id, id)",
+            "CREATE OR REPLACE FUNCTION concrete_wiki_page_tree() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "    IF NEW.parentid = -1 THEN " +
+                    "        NEW.root_id := NEW.id; " +
+                    "        NEW.depth := 0; " +
+                    "    ELSE " +
+                    "        SELECT parent.root_id, parent.depth + 1 INTO NEW.root_id, NEW.depth " +
+                    "        FROM concrete_wiki_page parent WHERE parent.id = NEW.parentid; " +
+                    "    END IF; " +
+                    "    RETURN NEW; " +
+                    "END " +
+                    "$$ LANGUAGE plpgsql",
+            "DROP TRIGGER IF EXISTS concrete_wiki_page_tree_insert ON concrete_wiki_page",
+            "CREATE TRIGGER concrete_wiki_page_tree_insert BEFORE INSERT ON concrete_wiki_page " +
+                    "FOR EACH ROW EXECUTE PROCEDURE concrete_wiki_page_tree()",
+            //Walks down from every original, but only when some WikiPage is missing its root id
+            "WITH RECURSIVE tree AS (" +
+                    "SELECT page.id, page.id AS root_id, 0 AS depth FROM concrete_wiki_page page " +
+                    "WHERE page.parentid = -1 AND EXISTS (SELECT 1 FROM concrete_wiki_page missing WHERE missing.root_id IS NULL) " +
+                    "UNION ALL " +
+                    "SELECT child.id, tree.root_id, tree.depth + 1 FROM concrete_wiki_page child JOIN tree ON child.parentid = tree.id) " +
+                    "UPDATE concrete_wiki_page page SET root_id = tree.root_id, depth = tree.depth " +
+                    "FROM tree WHERE page.id = tree.id AND page.root_id IS NULL",
+            "ALTER TABLE concrete_wiki_page ADD COLUMN IF NOT EXISTS edit_count integer",
+            "ALTER TABLE concrete_wiki_page ALTER COLUMN edit_count SET DEFAULT 0",
+            "CREATE INDEX IF NOT EXISTS concrete_wiki_page_edit_count_idx ON concrete_wiki_page (edit_count DESC, id DESC)",
+            //A new version is one more edit of its parent and of every ancestor above it
+            "CREATE OR REPLACE FUNCTION concrete_wiki_page_edit_count() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "    IF NEW.parentid <> -1 THEN " +
+                    "        WITH RECURSIVE ancestors AS (" +
+                    "            SELECT page.id, page.parentid FROM concrete_wiki_page page WHERE page.id = NEW.parentid " +
+                    "            UNION ALL " +
+                    "            SELECT page.id, page.parentid FROM concrete_wiki_page page JOIN ancestors ON page.id = ancestors.parentid) " +
+                    "        UPDATE concrete_wiki_page SET edit_count = COALESCE(edit_count, 0) + 1 WHERE id IN (SELECT id FROM ancestors); " +
+                    "    END IF; " +
+                    "    RETURN NULL; " +
+                    "END " +
+                    "$$ LANGUAGE plpgsql",
+            "DROP TRIGGER IF EXISTS concrete_wiki_page_edit_count_insert ON concrete_wiki_page",
+            "CREATE TRIGGER concrete_wiki_page_edit_count_insert AFTER INSERT ON concrete_wiki_page " +
+                    "FOR EACH ROW EXECUTE PROCEDURE concrete_wiki_page_edit_count()",
+            //Pairs every version with each of its ancestors to count descendants, but only when some WikiPage is missing its edit count
+            "WITH RECURSIVE edits AS (" +
+                    "SELECT page.parentid AS ancestor_id FROM concrete_wiki_page page " +
+                    "WHERE page.parentid <> -1 AND EXISTS (SELECT 1 FROM concrete_wiki_page missing WHERE missing.edit_count IS NULL) " +
+                    "UNION ALL " +
+                    "SELECT parent.parentid FROM concrete_wiki_page parent JOIN edits ON parent.id = edits.ancestor_id WHERE parent.parentid <> -1) " +
+                    "UPDATE concrete_wiki_page page SET edit_count = counts.edits " +
+                    "FROM (SELECT ancestor_id, COUNT(*) AS edits FROM edits GROUP BY ancestor_id) counts " +
+                    "WHERE page.id = counts.ancestor_id AND page.edit_count IS NULL",
+            "UPDATE concrete_wiki_page SET edit_count = 0 WHERE edit_count IS NULL"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Install the trigger and backfill existing WikiPages once Hibernate has created the tables.
+     * Runs before other startup work, as that may create WikiPages or read their trees
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void installSchema() {
+        for (String statement : SCHEMA) {
+            jdbcTemplate.execute(statement);
+        }
+    }
+
+}
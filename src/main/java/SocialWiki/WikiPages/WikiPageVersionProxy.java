@@ -0,0 +1,72 @@
+package SocialWiki.WikiPages;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Calendar;
+
+/**
+ * Proxy for ConcreteWikiPage that exposes only the parts of a WikiPage that never change once it is saved,
+ * so that the same representation can be cached for as long as the WikiPage exists
+ */
+public class WikiPageVersionProxy implements WikiPage {
+
+    /**
+     * The real WikiPage
+     */
+    private final ConcreteWikiPage realWikiPage;
+
+    /**
+     * The contents of the WikiPage rendered to HTML, only set when the client asks for HTML, in which case the Markdown contents are left out
+     */
+    @Getter @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String html;
+
+    /**
+     * Constructs WikiPageVersionProxy for the provided WikiPage
+     * @param realWikiPage - WikiPage that requires proxy
+     */
+    public WikiPageVersionProxy(ConcreteWikiPage realWikiPage) {
+        this.realWikiPage = realWikiPage;
+    }
+
+    /**
+     * Get the Authoring Users username, which is kept when the account is deleted
+     * @return the Authoring Users username
+     */
+    public String getAuthor() {
+        return realWikiPage.getAuthor().getUserName();
+    }
+
+    /**
+     * Get the contents of the WikiPage, unless they are sent rendered to HTML
+     * @return the contents of the WikiPage, or null if the HTML is set
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getContent() {
+        return html == null ? realWikiPage.getContent() : null;
+    }
+
+    @Override
+    public Long getId() {
+        return realWikiPage.getId();
+    }
+
+    @Override
+    public String getTitle() {
+        return realWikiPage.getTitle();
+    }
+
+    @Override
+    public Long getParentID() {
+        return realWikiPage.getParentID();
+    }
+
+    @Override
+    public Calendar getCreationDate() {
+        return realWikiPage.getCreationDate();
+    }
+
+}
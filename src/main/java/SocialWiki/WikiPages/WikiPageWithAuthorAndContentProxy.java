@@ -1,11 +1,22 @@
 package SocialWiki.WikiPages;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
 /**
  * Created by Chris on 3/4/2017.
  * Proxy for ConcreteWikiPage that exposes the username of the authoring user and the WikiPages contents
  */
 public class WikiPageWithAuthorAndContentProxy extends WikiPageWithAuthorProxy {
 
+    /**
+     * The contents of the WikiPage rendered to HTML, only set when the client asks for HTML, in which case the Markdown contents are left out
+     */
+    @Getter @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String html;
+
     /**
      * Constructs WikiPageWithAuthorAndContentProxy for the provided WikiPage
      * @param realWikiPage - WikiPage that requires proxy
@@ -15,11 +26,12 @@ public class WikiPageWithAuthorAndContentProxy extends WikiPageWithAuthorProxy {
     }
 
     /**
-     * Get the contents of the WikiPage
-     * @return the contents of the WikiPage
+     * Get the contents of the WikiPage, unless they are sent rendered to HTML
+     * @return the contents of the WikiPage, or null if the HTML is set
      */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public String getContent() {
-        return realWikiPage.getContent();
+        return html == null ? realWikiPage.getContent() : null;
     }
 
     /**
@@ -1,6 +1,7 @@
 package SocialWiki.WikiPages;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -18,17 +19,60 @@ public class WikiPageWithAuthorProxy implements WikiPage {
     protected ConcreteWikiPage realWikiPage;
 
     /**
-     * The counter used to display how many likes this page has (must be set by the controller)
+     * The counter used to display how many likes this page has, taken from the like count of the page
      */
     @Getter @Setter
     private Integer likes;
 
+    /**
+     * How closely the WikiPage matched a fuzzy search, from 0 to 1 (only set for fuzzy search results)
+     */
+    @Getter @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double score;
+
+    /**
+     * The follow distance from the searching User to the closest User that likes the WikiPage (only set for searches sorted by closest liker)
+     */
+    @Getter @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer distance;
+
+    /**
+     * The similarity of the most similar User that likes the WikiPage to the searching User, from 0 to 1 (only set for searches sorted by similar liker)
+     */
+    @Getter @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double similarity;
+
+    /**
+     * The views of the WikiPage, each counting half as much for every half-life since it (only set for trending WikiPages)
+     */
+    @Getter @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double trendingScore;
+
+    /**
+     * The number of versions in the version tree of the WikiPage (only set for searches collapsed to one WikiPage per tree)
+     */
+    @Getter @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer versions;
+
+    /**
+     * The views to display in place of the stored count of the page, e.g. to include views that are not stored yet (optional)
+     */
+    @Setter
+    private Integer views;
+
     /**
      * Constructs WikiPageWithAuthorProxy for the provided WikiPage
      * @param realWikiPage - WikiPage that requires proxy
      */
     public WikiPageWithAuthorProxy(ConcreteWikiPage realWikiPage) {
         this.realWikiPage = realWikiPage;
+        //Pages created before like counts existed have no count until it is repaired
+        this.likes = realWikiPage.getLikeCount() == null ? 0 : realWikiPage.getLikeCount();
     }
 
     /**
@@ -44,7 +88,24 @@ public class WikiPageWithAuthorProxy implements WikiPage {
      * @return the total views of the WikiPage
      */
     public Integer getViews() {
-        return realWikiPage.getViews();
+        return views == null ? realWikiPage.getViews() : views;
+    }
+
+    /**
+     * Get the number of versions that descend from the WikiPage
+     * @return the number of edits of the WikiPage
+     */
+    public Integer getEdits() {
+        //Pages read before their edit count was backfilled have no count
+        return realWikiPage.getEditCount() == null ? 0 : realWikiPage.getEditCount();
+    }
+
+    /**
+     * Get the influence of the most influential User that likes the WikiPage
+     * @return the liker influence, 0 if nobody likes the WikiPage
+     */
+    public Double getLikerInfluence() {
+        return realWikiPage.getLikerInfluence() == null ? 0 : realWikiPage.getLikerInfluence();
     }
 
     /**
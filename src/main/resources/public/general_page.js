@@ -50,6 +50,14 @@ generalPages.handler.searchEnterPressed = function(key) {
   }
 };
 
+generalPages.suggestTitles = function(text) {
+  //Ask for suggestions on every keystroke, the server answers them from memory
+  this.clearAll();
+  if( text.length > 0 ) {
+    this.load("/suggestTitles?prefix=" + encodeURIComponent(text));
+  }
+};
+
 generalPages.getCookie = function (name) {
     var re = new RegExp(name + "=([^;]+)");
     var value = re.exec(document.cookie);
@@ -64,7 +72,8 @@ generalPages.toolbar = {
     {width:5},
     {view:"label", label:'<img src="img/flame_white.png" width="50%" onclick="generalPages.handler.homeClick()" style="cursor: pointer;"/>', width:50, align:"left"},
     {view:"label", label:"<div onclick=\"generalPages.handler.homeClick()\" style=\"cursor: pointer;\">Social Wiki</div>", align:"left"},
-    {view:"search", id:"searchbox", placeholder:"Search Pages", align:"right", width:200, on:{onSearchIconClick:generalPages.handler.searchClick, onKeyPress:generalPages.handler.searchEnterPressed}},
+    {view:"search", id:"searchbox", placeholder:"Search Pages", align:"right", width:200, on:{onSearchIconClick:generalPages.handler.searchClick, onKeyPress:generalPages.handler.searchEnterPressed},
+      suggest:{textValue:"title", body:{template:"#title#", dataFeed:generalPages.suggestTitles}}},
 
     //Right
     {view:"button", id:"toolbarnewpage", value:"New Page", align:"right", width:100, click:generalPages.handler.addPageClick},
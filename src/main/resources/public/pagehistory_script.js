@@ -15,11 +15,20 @@ historyPage.handler = {};
 
 historyPage.handler.itemClick = function(itemId) {
     var item = $$("resultlist").getItem(itemId);
-    if( item.id !== undefined ) {
+    if( item.more !== undefined ) {
+        //Load the next children of the parent in place of the "more" item
+        historyPage.getChildren(item.more, item.after, item.loaded, itemId);
+    } else if( item.id !== undefined ) {
         location.href = "/viewpage?id=" + item.id;
     }
 };
 
+historyPage.handler.dataRequest = function(itemId) {
+    //Load the children of a page the first time it is opened
+    historyPage.getChildren(itemId, undefined, 0, undefined);
+    return false;
+};
+
 historyPage.handler.error = function() {
     $$("resultlabel").setValue(historyPage.strings.error);
     $$("resultlabel").define("css","label_error");
@@ -31,20 +40,84 @@ historyPage.getHistory = function() {
     if( idString.id === undefined ){
         return;
     }
-    webix.ajax().get("/retrieveWikiPageHistory?id=" + idString.id, {
+    webix.ajax().get("/retrieveWikiPageHistoryTree?root=true&id=" + idString.id, {
         error:historyPage.handler.error,
         success:historyPage.handler.success
     });
 };
 
+historyPage.getChildren = function(parentId, after, loaded, moreItemId) {
+    var url = "/retrieveWikiPageHistoryTree?depth=1&id=" + parentId;
+    if( after !== undefined ) {
+        url += "&after=" + after;
+    }
+    webix.ajax().get(url, {
+        error:historyPage.handler.error,
+        success:function(dataString) {
+            var node = historyPage.parseTree(dataString);
+            if( node === null ) {
+                historyPage.handler.error();
+                return;
+            }
+            if( moreItemId !== undefined ) {
+                $$("resultlist").remove(moreItemId);
+            }
+            $$("resultlist").parse({ parent:parentId, data:historyPage.toChildItems(node, after, loaded) });
+        }
+    });
+};
+
+//Convert a page of the history tree to a tree item. Pages that were not expanded load their children when opened
+historyPage.toItem = function(node) {
+    var item = {
+        id:node.id,
+        title:node.title,
+        author:node.author,
+        creationDate:pageUtil.getFormattedDate(node.creationDate),
+        subtreeSize:node.subtreeSize
+    };
+    if( node.children !== undefined ) {
+        item.data = historyPage.toChildItems(node, undefined, 0);
+        item.open = true;
+    } else if( node.childCount > 0 ) {
+        item.webix_kids = true;
+    }
+    return item;
+};
+
+//Convert the expanded children of a page to tree items, followed by an item to load the rest if only some were returned
+historyPage.toChildItems = function(node, after, loaded) {
+    var items = [];
+    var children = node.children === undefined ? [] : node.children;
+    for( var i = 0; i < children.length; i++ ){
+        items.push(historyPage.toItem(children[i]));
+    }
+
+    var last = children.length > 0 ? children[children.length - 1].id : after;
+    loaded += children.length;
+    if( loaded < node.childCount ) {
+        items.push({ id:"more" + node.id + "_" + last, more:node.id, after:last, loaded:loaded, title:"Show more versions..." });
+    }
+    return items;
+};
+
+//Parse the history tree of a response, null if there is none
+historyPage.parseTree = function(dataString) {
+    if( dataString === null || dataString === undefined || dataString === "" ) {
+        return null;
+    }
+    var tree = JSON.parse(dataString);
+    if( tree === null || typeof tree !== "object" || tree.id === undefined ) {
+        return null;
+    }
+    return tree;
+};
+
 historyPage.handler.success = function(dataString) {
-  if(dataString === null) {
-      historyPage.handler.error();
-  }
-  var items = JSON.parse(dataString);
+  var tree = historyPage.parseTree(dataString);
 
-  if( items.length === 0 ){
-      //Show no results
+  if( tree === null || !(tree.childCount > 0) ){
+      //Show no results, a page with no other versions has no history
 
       $$("resultlabel").setValue(historyPage.strings.noHistory);
       $$("resultlabel").define("css","label_error");
@@ -57,10 +130,7 @@ historyPage.handler.success = function(dataString) {
       $$("resultlist").show();
 
       $$("resultlist").clearAll();
-      for( var i = 0; i < items.length; i++){
-          items[i].creationDate = pageUtil.getFormattedDate(items[i].creationDate);
-          $$("resultlist").add(items[i]);
-      }
+      $$("resultlist").parse([historyPage.toItem(tree)]);
       $$("resultlist").refresh();
   }
 };
@@ -80,15 +150,18 @@ historyPage.onReady = function() {
           { cols:[
               { },
               {
-                  view:"list",
+                  view:"tree",
                   id:"resultlist",
                   align:"center",
-                  template:"#title# <div> Created By: #author# on #creationDate#</div>",
-                  type:{
-                      height:62
+                  template:function(item, common) {
+                      if( item.more !== undefined ) {
+                          return common.icon(item, common) + item.title;
+                      }
+                      return common.icon(item, common) + item.title + " - Created By: " + item.author + " on " + item.creationDate + " (" + item.subtreeSize + ")";
                   },
                   on:{
-                      onItemClick:historyPage.handler.itemClick
+                      onItemClick:historyPage.handler.itemClick,
+                      onDataRequest:historyPage.handler.dataRequest
                   },
                   data:historyPage.results
               },
@@ -60,37 +60,75 @@ viewPage.handler.historyClick = function() {
 
 viewPage.handler.setContent = function(dataString) {
   if (dataString !== null) {
+      //The version never changes, so everything but its counters is shown from it even if it came from the browser cache
       viewPage.pageData = JSON.parse(dataString);
-      var heading = "<h1>" + viewPage.pageData.title + "</h1>";
+      viewPage.setHeading();
 
-      if( viewPage.pageData.authorDeleted ) {
-          heading += "<h3>Created by " + viewPage.pageData.author + " [Deleted] on " + pageUtil.getFormattedDate(viewPage.pageData.creationDate);
+      if (viewPage.pageData.parentID === -1) { //If the original copy
+        $$("previousversionbutton").hide();
+      } else {
+        $$("previousversionbutton").show();
+      }
+
+      //If the server rendered the content, it is already sanitized HTML
+      if (viewPage.pageData.html !== undefined) {
+          $$("content").setHTML(viewPage.pageData.html);
       } else {
-          heading += '<h3>Created by <a href="/profile?user=' + viewPage.pageData.author + '">' + viewPage.pageData.author + '</a> on ' + pageUtil.getFormattedDate(viewPage.pageData.creationDate);
+          $$("content").setHTML(viewPage.converter.makeHtml(viewPage.pageData.content));
       }
+      viewPage.setEditButton();
+
+      //The counters are always fetched to count the view
+      webix.ajax().get("/retrieveWikiPageCounters?id=" + viewPage.pageData.id, {
+          error:viewPage.handler.countersErrorHandler,
+          success:viewPage.handler.setCounters
+      });
+  }
+};
+
+viewPage.handler.setCounters = function(dataString) {
+  if (dataString !== null && viewPage.pageData !== null) {
+      var counters = JSON.parse(dataString);
+      viewPage.pageData.views = counters.views;
+      viewPage.pageData.likes = counters.likes;
 
       $$("views").setHTML(viewPage.pageData.views);
       $$("likes").setHTML(viewPage.pageData.likes);
 
-      if (viewPage.pageData.parentID === -1) { //If the original copy
-        $$("previousversionbutton").hide();
+      //Only the counters know if the author was deleted after the version was cached
+      if (counters.authorDeleted) {
+          viewPage.pageData.authorDeleted = true;
+          viewPage.setHeading();
       }
-
-      heading += "</h3>";
-      $$("heading").setHTML(heading);
-
-      var content = viewPage.converter.makeHtml(viewPage.pageData.content);
-      $$("content").setHTML(content);
       viewPage.setLikeButton();
-      viewPage.setEditButton();
   }
 };
 
+viewPage.handler.countersErrorHandler = function() {
+    //The page is already shown, only its views and likes are missing
+};
+
+viewPage.setHeading = function() {
+    var heading = "<h1>" + viewPage.pageData.title + "</h1>";
+
+    if( viewPage.pageData.authorDeleted ) {
+        heading += "<h3>Created by " + viewPage.pageData.author + " [Deleted] on " + pageUtil.getFormattedDate(viewPage.pageData.creationDate);
+    } else {
+        heading += '<h3>Created by <a href="/profile?user=' + viewPage.pageData.author + '">' + viewPage.pageData.author + '</a> on ' + pageUtil.getFormattedDate(viewPage.pageData.creationDate);
+    }
+
+    heading += "</h3>";
+    $$("heading").setHTML(heading);
+};
+
 viewPage.getContent = function() {
 
     var params = pageUtil.getUrlContent(location.href);
 
-    webix.ajax().get("/retrieveWikiPage?id=" + params.id, {
+    //The server only renders the content when the page is opened with format=html
+    var format = params.format === "html" ? "format=html&" : "";
+
+    webix.ajax().get("/retrieveWikiPageContent?" + format + "id=" + params.id, {
         error:viewPage.handler.errorHandler,
         success:viewPage.handler.setContent
     });
@@ -0,0 +1,106 @@
+package SocialWiki.Cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for LruCache class
+ */
+public class LruCacheTest {
+
+    private LruCache<Long, String> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new LruCache<>("test", 2);
+    }
+
+    @Test
+    public void getLoadsOnMiss() throws Exception {
+        assertEquals("Failure - value should be loaded on a miss", "1", cache.get(1L, String::valueOf));
+        assertEquals("Failure - value should be served from the cache on a hit", "1", cache.get(1L, id -> "reloaded"));
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals("Failure - hits", 1, statistics.getHits());
+        assertEquals("Failure - misses", 1, statistics.getMisses());
+        assertEquals("Failure - hit rate", 0.5, statistics.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void nullNotCached() throws Exception {
+        assertNull("Failure - missing value should be null", cache.get(1L, id -> null));
+        assertEquals("Failure - null value should not be cached", 0, cache.size());
+        assertEquals("Failure - value should be loaded once it exists", "1", cache.get(1L, String::valueOf));
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        String[] waited = new String[1];
+
+        Thread loader = new Thread(() -> cache.get(1L, id -> {
+            loads.incrementAndGet();
+            loadStarted.countDown();
+            try {
+                finishLoad.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "1";
+        }));
+        loader.start();
+        loadStarted.await();
+
+        Thread waiter = new Thread(() -> waited[0] = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return "reloaded";
+        }));
+        waiter.start();
+        //Give the second lookup time to find the running load before it finishes
+        Thread.sleep(100);
+        finishLoad.countDown();
+        loader.join();
+        waiter.join();
+
+        assertEquals("Failure - value should be loaded once", 1, loads.get());
+        assertEquals("Failure - second lookup should get the loaded value", "1", waited[0]);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        cache.put(1L, "1");
+        cache.put(2L, "2");
+        cache.getIfPresent(1L);
+        cache.put(3L, "3");
+
+        assertEquals("Failure - cache should not grow past its capacity", 2, cache.size());
+        assertNull("Failure - least recently used entry should be evicted", cache.getIfPresent(2L));
+        assertEquals("Failure - recently used entry should be kept", "1", cache.getIfPresent(1L));
+        assertEquals("Failure - evictions", 1, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void removeIf() throws Exception {
+        cache.put(1L, "keep");
+        cache.put(2L, "remove");
+
+        assertEquals("Failure - matching entries should be removed", 1, cache.removeIf((id, value) -> value.equals("remove")));
+        assertNull("Failure - removed entry should not be cached", cache.getIfPresent(2L));
+        assertEquals("Failure - other entries should be kept", "keep", cache.getIfPresent(1L));
+        assertEquals("Failure - removal should not count as eviction", 0, cache.getStatistics().getEvictions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() throws Exception {
+        new LruCache<Long, String>("test", 0);
+    }
+
+}
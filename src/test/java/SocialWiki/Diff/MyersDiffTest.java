@@ -0,0 +1,79 @@
+package SocialWiki.Diff;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for MyersDiff class
+ */
+public class MyersDiffTest {
+
+    @Test
+    public void diff() throws Exception {
+        boolean[][] kept = MyersDiff.diff(new int[]{1, 2, 3, 4, 5}, new int[]{1, 3, 4, 6, 5});
+
+        assertArrayEquals("Failure - wrong elements of the old sequence kept", new boolean[]{true, false, true, true, true}, kept[0]);
+        assertArrayEquals("Failure - wrong elements of the new sequence kept", new boolean[]{true, true, true, false, true}, kept[1]);
+    }
+
+    @Test
+    public void diffEmpty() throws Exception {
+        boolean[][] kept = MyersDiff.diff(new int[0], new int[]{1, 2});
+
+        assertEquals("Failure - empty sequence has elements", 0, kept[0].length);
+        assertArrayEquals("Failure - insertions into an empty sequence were kept", new boolean[]{false, false}, kept[1]);
+    }
+
+    @Test
+    public void diffIsShortest() throws Exception {
+        Random random = new Random(17);
+        for (int run = 0; run < 500; run++) {
+            int[] a = randomSequence(random, random.nextInt(40), 1 + random.nextInt(5));
+            int[] b = randomSequence(random, random.nextInt(40), 1 + random.nextInt(5));
+            boolean[][] kept = MyersDiff.diff(a, b);
+
+            //The kept elements of both sequences must be the same subsequence, and as long as the longest common subsequence
+            int[] commonA = keptElements(a, kept[0]);
+            int[] commonB = keptElements(b, kept[1]);
+            assertArrayEquals("Failure - kept elements differ between the sequences", commonA, commonB);
+            assertEquals("Failure - edit script is not shortest", longestCommonSubsequence(a, b), commonA.length);
+        }
+    }
+
+    private static int[] randomSequence(Random random, int length, int alphabet) {
+        int[] sequence = new int[length];
+        for (int i = 0; i < length; i++) {
+            sequence[i] = random.nextInt(alphabet);
+        }
+        return sequence;
+    }
+
+    private static int[] keptElements(int[] sequence, boolean[] kept) {
+        int count = 0;
+        for (boolean keep : kept) {
+            count += keep ? 1 : 0;
+        }
+        int[] elements = new int[count];
+        for (int i = 0, j = 0; i < sequence.length; i++) {
+            if (kept[i]) {
+                elements[j++] = sequence[i];
+            }
+        }
+        return elements;
+    }
+
+    private static int longestCommonSubsequence(int[] a, int[] b) {
+        int[][] lengths = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                lengths[i][j] = a[i - 1] == b[j - 1] ? lengths[i - 1][j - 1] + 1 : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+        return lengths[a.length][b.length];
+    }
+
+}
@@ -0,0 +1,88 @@
+package SocialWiki.Diff;
+
+import SocialWiki.Cache.LruCache;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for WikiPageDiffer class
+ */
+public class WikiPageDifferTest {
+
+    private WikiPageDiffer wikiPageDiffer;
+
+    @Before
+    public void setUp() throws Exception {
+        wikiPageDiffer = new WikiPageDiffer();
+        ReflectionTestUtils.setField(wikiPageDiffer, "pageDiffCache", new LruCache<String, WikiPageDiff>("pageDiffs", 10));
+        ReflectionTestUtils.setField(wikiPageDiffer, "maxTokens", 100);
+    }
+
+    @Test
+    public void diffLines() throws Exception {
+        ConcreteWikiPage from = page(1L, "l1\nl2\nl3\nl4\nl5\nl6\nl7\nl8\nold\nl10");
+        ConcreteWikiPage to = page(2L, "l1\nl2\nl3\nl4\nl5\nl6\nl7\nl8\nnew\nadded\nl10");
+
+        WikiPageDiff diff = wikiPageDiffer.diff(from, to, WikiPageDiffer.LINE_MODE);
+        List<DiffChunk> chunks = diff.getChunks();
+
+        assertEquals("Failure - wrong number of insertions", 2, diff.getInsertions());
+        assertEquals("Failure - wrong number of deletions", 1, diff.getDeletions());
+        assertEquals("Failure - wrong number of chunks", 5, chunks.size());
+        assertEquals("Failure - lines far from the change were not skipped", DiffChunk.SKIP, chunks.get(0).getType());
+        assertEquals("Failure - wrong number of lines skipped", 5, (int) chunks.get(0).getSkipped());
+        assertEquals("Failure - context before the change is wrong", "l6\nl7\nl8", chunks.get(1).getText());
+        assertEquals("Failure - deleted line is wrong", "old", chunks.get(2).getText());
+        assertEquals("Failure - inserted lines are wrong", "new\nadded", chunks.get(3).getText());
+        assertEquals("Failure - context after the change is wrong", "l10", chunks.get(4).getText());
+    }
+
+    @Test
+    public void diffWords() throws Exception {
+        WikiPageDiff diff = wikiPageDiffer.diff(page(1L, "the quick fox."), page(2L, "the slow fox!"), WikiPageDiffer.WORD_MODE);
+
+        StringBuilder oldText = new StringBuilder();
+        StringBuilder newText = new StringBuilder();
+        for (DiffChunk chunk : diff.getChunks()) {
+            if (!chunk.getType().equals(DiffChunk.INSERT)) {
+                oldText.append(chunk.getText());
+            }
+            if (!chunk.getType().equals(DiffChunk.DELETE)) {
+                newText.append(chunk.getText());
+            }
+        }
+
+        assertEquals("Failure - old version is not rebuilt from the diff", "the quick fox.", oldText.toString());
+        assertEquals("Failure - new version is not rebuilt from the diff", "the slow fox!", newText.toString());
+        assertEquals("Failure - wrong number of insertions", 2, diff.getInsertions());
+    }
+
+    @Test
+    public void diffIsCachedAndGuarded() throws Exception {
+        ConcreteWikiPage from = page(1L, "testContent1");
+        ConcreteWikiPage to = page(2L, "testContent2");
+
+        assertSame("Failure - diff was not cached", wikiPageDiffer.diff(from, to, WikiPageDiffer.LINE_MODE), wikiPageDiffer.diff(from, to, WikiPageDiffer.LINE_MODE));
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("line").append(i).append('\n');
+        }
+        assertNull("Failure - versions over the size guard were compared", wikiPageDiffer.diff(from, page(3L, large.toString()), WikiPageDiffer.LINE_MODE));
+    }
+
+    private static ConcreteWikiPage page(Long id, String content) {
+        ConcreteWikiPage page = new ConcreteWikiPage("testTitle", content, null);
+        ReflectionTestUtils.setField(page, "id", id);
+        return page;
+    }
+
+}
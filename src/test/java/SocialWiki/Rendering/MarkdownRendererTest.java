@@ -0,0 +1,103 @@
+package SocialWiki.Rendering;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for MarkdownRenderer class
+ */
+public class MarkdownRendererTest {
+
+    @Test
+    public void renderBlocks() throws Exception {
+        assertEquals("Failure - headings were not rendered", "<h1>testTitle</h1>\n<h3>testSection</h3>\n<h2>testSetext</h2>\n",
+                MarkdownRenderer.render("# testTitle\n### testSection ###\ntestSetext\n---"));
+        assertEquals("Failure - paragraphs were not rendered", "<p>testLine1\ntestLine2</p>\n<p>testLine3</p>\n",
+                MarkdownRenderer.render("testLine1\ntestLine2\n\ntestLine3\n"));
+        assertEquals("Failure - rule was not rendered", "<p>testLine</p>\n<hr />\n", MarkdownRenderer.render("testLine\n\n* * *"));
+        assertEquals("Failure - quote was not rendered", "<blockquote>\n<p>testQuote\ntestLazy</p>\n</blockquote>\n",
+                MarkdownRenderer.render("&gt; testQuote\ntestLazy"));
+    }
+
+    @Test
+    public void renderCode() throws Exception {
+        assertEquals("Failure - fenced code was not rendered", "<pre><code class=\"java language-java\">int *a* = 1;\n\n# not a heading\n</code></pre>\n",
+                MarkdownRenderer.render("```java\nint *a* = 1;\n\n# not a heading\n```"));
+        assertEquals("Failure - indented code was not rendered", "<p>testLine</p>\n<pre><code>code line\n\n  indented\n</code></pre>\n",
+                MarkdownRenderer.render("testLine\n\n    code line\n\n      indented\n\n"));
+        assertEquals("Failure - code span was not rendered", "<p>use <code>a*b*c</code> and <code>x `y`</code></p>\n",
+                MarkdownRenderer.render("use `a*b*c` and `` x `y` ``"));
+    }
+
+    @Test
+    public void renderLists() throws Exception {
+        assertEquals("Failure - tight list was not rendered", "<ul>\n<li>testItem1</li>\n<li>testItem2\ncontinued</li>\n</ul>\n",
+                MarkdownRenderer.render("* testItem1\n* testItem2\ncontinued"));
+        assertEquals("Failure - loose ordered list was not rendered", "<ol start=\"3\">\n<li><p>testItem1</p></li>\n<li><p>testItem2</p></li>\n</ol>\n",
+                MarkdownRenderer.render("3. testItem1\n\n4. testItem2"));
+        assertEquals("Failure - nested list was not rendered", "<ul>\n<li>testItem1\n<ul>\n<li>testNested</li>\n</ul></li>\n<li>testItem2</li>\n</ul>\n",
+                MarkdownRenderer.render("- testItem1\n  - testNested\n- testItem2"));
+    }
+
+    @Test
+    public void renderInline() throws Exception {
+        assertEquals("Failure - emphasis was not rendered", "<p><strong>bold</strong> <em>em</em> <strong><em>both</em></strong> snake_case_word</p>\n",
+                MarkdownRenderer.render("**bold** _em_ ***both*** snake_case_word"));
+        assertEquals("Failure - link and image were not rendered",
+                "<p><a href=\"/viewpage?id=1&amp;x=2\">page <em>one</em></a> <img src=\"https://example.com/a.png\" alt=\"testAlt\" /></p>\n",
+                MarkdownRenderer.render("[page *one*](/viewpage?id=1&amp;x=2) ![testAlt](https://example.com/a.png \"title\")"));
+        assertEquals("Failure - escapes and line breaks were not rendered", "<p>*not em*<br />\nnext</p>\n",
+                MarkdownRenderer.render("\\*not em\\*  \nnext"));
+    }
+
+    @Test
+    public void renderIsSanitized() throws Exception {
+        assertEquals("Failure - raw HTML was not escaped", "<p>&lt;script&gt;alert(1)&lt;/script&gt; &lt;b&gt;</p>\n",
+                MarkdownRenderer.render("<script>alert(1)</script> &lt;b&gt;"));
+        assertEquals("Failure - unsafe link was kept", "<p>click</p>\n", MarkdownRenderer.render("[click](javascript:alert(1))"));
+        assertEquals("Failure - unsafe image was kept", "<p>x</p>\n", MarkdownRenderer.render("![x](JaVaScRiPt:alert(1))"));
+        assertFalse("Failure - quote in a URL ended the attribute", MarkdownRenderer.render("[x](/a\"onmouseover=\"alert(1))").contains("\"onmouseover"));
+
+        assertEquals("Failure - entity could spell out a scheme", "javascript&amp;#58;alert(1)", MarkdownRenderer.safeUrl("javascript&#58;alert(1)"));
+        assertNull("Failure - control character in a URL was allowed", MarkdownRenderer.safeUrl("java\tscript:alert(1)"));
+        assertEquals("Failure - relative URL with a colon in the query was rejected", "/page?time=10:30", MarkdownRenderer.safeUrl("/page?time=10:30"));
+    }
+
+    @Test(timeout = 10000)
+    public void renderUnmatchedDelimitersInLinearTime() throws Exception {
+        for (String delimiter : new String[]{"*a ", "**a ", "_a ", "[a ", "![a ", "[a](", "`` ` ", "# #"}) {
+            StringBuilder markdown = new StringBuilder();
+            for (int i = 0; i < 80000; i++) {
+                markdown.append(delimiter);
+            }
+            String html = MarkdownRenderer.render(markdown.toString());
+            assertFalse("Failure - unmatched " + delimiter + " was rendered as markup", html.contains("<em>") || html.contains("<a "));
+        }
+    }
+
+    @Test
+    public void renderDeepNestingAsText() throws Exception {
+        StringBuilder quote = new StringBuilder();
+        StringBuilder emphasis = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            quote.append("> ");
+            emphasis.append(i % 2 == 0 ? "*" : "_");
+        }
+        String quoteHtml = MarkdownRenderer.render(quote + "testQuote");
+        assertTrue("Failure - deeply nested quote was not rendered", quoteHtml.contains("testQuote"));
+        assertEquals("Failure - quotes past the nesting limit were rendered", MarkdownRenderer.MAX_NESTING + 1, quoteHtml.split("<blockquote>", -1).length - 1);
+
+        String emphasisHtml = MarkdownRenderer.render("x" + emphasis + "testEm" + emphasis.reverse() + "x");
+        assertTrue("Failure - deeply nested emphasis was not rendered", emphasisHtml.contains("testEm"));
+    }
+
+    @Test
+    public void renderPreformatted() throws Exception {
+        assertEquals("Failure - preformatted text was not escaped", "<pre># &lt;b&gt;\n*x*</pre>\n", MarkdownRenderer.renderPreformatted("# <b>\n*x*"));
+    }
+
+}
@@ -0,0 +1,61 @@
+package SocialWiki.Search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for InvertedIndex class
+ */
+public class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new InvertedIndex();
+        index.add(1L, "testTitle1\ntestContent1");
+        index.add(2L, "testTitlePair\nSome other content, with punctuation!");
+        index.add(3L, "Another Title\nsome more CONTENT");
+    }
+
+    @Test
+    public void tokenize() throws Exception {
+        assertEquals("Failure - tokenize should split on non alphanumeric characters", Arrays.asList("A", "B1", "C"), InvertedIndex.tokenize("A, B1-C"));
+        assertEquals("Failure - tokenize of only separators should be empty", 0, InvertedIndex.tokenize(" &;\n").size());
+    }
+
+    @Test
+    public void candidatesSingleToken() throws Exception {
+        assertArrayEquals("Failure - whole token", new long[]{1L}, index.candidates("TESTTITLE1"));
+        assertArrayEquals("Failure - substring of token", new long[]{1L, 2L}, index.candidates("STTITLE"));
+        assertArrayEquals("Failure - case folded substring of token", new long[]{1L, 2L, 3L}, index.candidates("CONTENT"));
+        assertArrayEquals("Failure - no matching token", new long[0], index.candidates("MISSING"));
+    }
+
+    @Test
+    public void candidatesMultipleTokens() throws Exception {
+        assertArrayEquals("Failure - tokens spanning a separator", new long[]{2L, 3L}, index.candidates("OTHER CONTENT"));
+        assertArrayEquals("Failure - suffix then prefix", new long[]{3L}, index.candidates("ME MORE CONT"));
+        assertArrayEquals("Failure - leading separator requires a token prefix", new long[]{2L}, index.candidates(" PUNCT"));
+        assertArrayEquals("Failure - trailing separator requires a token suffix", new long[0], index.candidates("PUNCT "));
+    }
+
+    @Test
+    public void candidatesWithoutTokens() throws Exception {
+        assertNull("Failure - a query without tokens cannot be answered", index.candidates(", "));
+    }
+
+    @Test
+    public void clear() throws Exception {
+        index.clear();
+        assertEquals("Failure - vocabulary should be empty after clear", 0, index.getVocabularySize());
+        assertArrayEquals("Failure - no candidates after clear", new long[0], index.candidates("TESTTITLE1"));
+    }
+
+}
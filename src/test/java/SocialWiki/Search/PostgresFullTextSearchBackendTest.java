@@ -0,0 +1,103 @@
+package SocialWiki.Search;
+
+import SocialWiki.Users.User;
+import SocialWiki.Users.UserRepository;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageRepository;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.transaction.Transactional;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for PostgresFullTextSearchBackend class
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "socialwiki.search.backend=postgres")
+@Transactional
+public class PostgresFullTextSearchBackendTest {
+
+    @Autowired
+    private WikiPageSearchBackend wikiPageSearchBackend;
+
+    @Autowired
+    private WikiPageRepository wikiPageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser1;
+    private User testUser2;
+
+    private ConcreteWikiPage testConcreteWikiPage1;
+    private ConcreteWikiPage testConcreteWikiPage2;
+    private ConcreteWikiPage testConcreteWikiPage3;
+
+    @Before
+    public void setUp() throws Exception {
+        testUser1 = userRepository.save(new User("testUserName1", "testFirstName1", "testLastName1", "Test1@email.com", "testPassword1"));
+        testUser2 = userRepository.save(new User("testUserName2", "testFirstName2", "testLastName2", "Test2@email.com", "testPassword2"));
+
+        testConcreteWikiPage1 = wikiPageRepository.save(new ConcreteWikiPage("Spring Boot", "Getting started with a web application", testUser1));
+        testConcreteWikiPage2 = wikiPageRepository.save(new ConcreteWikiPage("Boot camp", "Spring training for the web", testUser2));
+        testConcreteWikiPage3 = wikiPageRepository.save(new ConcreteWikiPage("Databases", "Indexes make web searches fast", testUser2));
+
+        //The search is a native query, so make sure the pages have reached the database
+        wikiPageRepository.flush();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wikiPageRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void toTsQuery() throws Exception {
+        assertEquals("Failure - toTsQuery of multiple words", "SPRING:*A & BOOT:*A", PostgresFullTextSearchBackend.toTsQuery("spring boot", "A"));
+        assertEquals("Failure - toTsQuery should drop tsquery operators", "FOO:*B & BAR:*B", PostgresFullTextSearchBackend.toTsQuery("foo | !bar:*", "B"));
+        assertEquals("Failure - toTsQuery of blank text", "", PostgresFullTextSearchBackend.toTsQuery(" ", "A"));
+    }
+
+    @Test
+    public void search() throws Exception {
+        List<WikiPageWithAuthorProxy> pages = wikiPageSearchBackend.search("", "", "");
+        assertEquals("Failure - Number of pages found by search('','','') should be 3", 3, pages.size());
+
+        pages = wikiPageSearchBackend.search("boot", "", "");
+        assertEquals("Failure - Number of pages found by search('boot','','') should be 2", 2, pages.size());
+
+        //Title words only match the title weight, so a page with the word only in its content is not found
+        pages = wikiPageSearchBackend.search("spring", "", "");
+        assertEquals("Failure - Number of pages found by search('spring','','') should be 1", 1, pages.size());
+        assertEquals("Failure - Page found by search('spring','','') is not correct", testConcreteWikiPage1.getId(), pages.get(0).getId());
+
+        pages = wikiPageSearchBackend.search("", "", "web");
+        assertEquals("Failure - Number of pages found by search('','','web') should be 3", 3, pages.size());
+
+        //Content words are matched as prefixes
+        pages = wikiPageSearchBackend.search("", "", "train");
+        assertEquals("Failure - Number of pages found by search('','','train') should be 1", 1, pages.size());
+        assertEquals("Failure - Page found by search('','','train') is not correct", testConcreteWikiPage2.getId(), pages.get(0).getId());
+
+        pages = wikiPageSearchBackend.search("", "userName2", "web");
+        assertEquals("Failure - Number of pages found by search('','userName2','web') should be 2", 2, pages.size());
+        assertTrue("Failure - Pages found by search('','userName2','web') are not correct",
+                pages.get(0).getId().equals(testConcreteWikiPage3.getId()) || pages.get(1).getId().equals(testConcreteWikiPage3.getId()));
+
+        pages = wikiPageSearchBackend.search("boot", "", "spring");
+        assertEquals("Failure - Number of pages found by search('boot','','spring') should be 1", 1, pages.size());
+        assertEquals("Failure - Page found by search('boot','','spring') is not correct", testConcreteWikiPage2.getId(), pages.get(0).getId());
+    }
+
+}
@@ -0,0 +1,108 @@
+package SocialWiki.Search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for TitleTrie class
+ */
+public class TitleTrieTest {
+
+    private TitleTrie titleTrie;
+
+    @Before
+    public void setUp() throws Exception {
+        titleTrie = new TitleTrie(3);
+    }
+
+    @Test
+    public void complete() throws Exception {
+        titleTrie.add("CAT", "cat", 1);
+        titleTrie.add("CATALOG", "Catalog", 5);
+        titleTrie.add("CATS", "Cats", 3);
+        titleTrie.add("DOG", "Dog", 10);
+
+        assertEquals("Failure - heaviest completions first", Arrays.asList("Catalog", "Cats", "cat"), titles(titleTrie.complete("CA", 10)));
+        assertEquals("Failure - a prefix ending inside an edge should complete", Arrays.asList("Catalog"), titles(titleTrie.complete("CATA", 10)));
+        assertEquals("Failure - count should limit the completions", Arrays.asList("Catalog"), titles(titleTrie.complete("CAT", 1)));
+        assertEquals("Failure - empty prefix should give the heaviest of all", Arrays.asList("Dog", "Catalog", "Cats"), titles(titleTrie.complete("", 10)));
+        assertTrue("Failure - a prefix leaving an edge should have no completions", titleTrie.complete("CAB", 10).isEmpty());
+        assertTrue("Failure - a prefix longer than every title should have no completions", titleTrie.complete("CATALOGUE", 10).isEmpty());
+        assertEquals("Failure - completion should carry the weight", 5, titleTrie.complete("CATA", 10).get(0).getWeight());
+    }
+
+    @Test
+    public void addWeight() throws Exception {
+        titleTrie.add("CAT", "cat", 1);
+        titleTrie.add("CATS", "Cats", 2);
+        titleTrie.add("CAT", "Cat", 2);
+
+        List<TitleSuggestion> suggestions = titleTrie.complete("C", 10);
+        assertEquals("Failure - added weight should move a title up", Arrays.asList("Cat", "Cats"), titles(suggestions));
+        assertEquals("Failure - weights should add up", 3, suggestions.get(0).getWeight());
+    }
+
+    @Test
+    public void ties() throws Exception {
+        titleTrie.add("B", "B", 1);
+        titleTrie.add("A", "A", 1);
+
+        assertEquals("Failure - equal weights should be alphabetical", Arrays.asList("A", "B"), titles(titleTrie.complete("", 10)));
+    }
+
+    @Test
+    public void clear() throws Exception {
+        titleTrie.add("CAT", "cat", 1);
+        titleTrie.clear();
+
+        assertTrue("Failure - a cleared trie should have no completions", titleTrie.complete("", 10).isEmpty());
+    }
+
+    @Test
+    public void matchesScan() throws Exception {
+        //Random titles over a small alphabet share long prefixes, so edges are split at every depth
+        TitleTrie trie = new TitleTrie(5);
+        Map<String, Long> weights = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int length = 1 + random.nextInt(8); length > 0; length--) {
+                key.append((char) ('A' + random.nextInt(3)));
+            }
+            long weight = random.nextInt(4);
+            trie.add(key.toString(), key.toString(), weight);
+            weights.merge(key.toString(), weight, Long::sum);
+        }
+
+        for (String prefix : Arrays.asList("", "A", "AB", "CCA", "BACB", "ABCABCAB")) {
+            List<String> expected = new ArrayList<>(weights.keySet()).stream()
+                    .filter(key -> key.startsWith(prefix))
+                    .sorted(Comparator.<String>comparingLong(weights::get).reversed().thenComparing(Comparator.naturalOrder()))
+                    .limit(5)
+                    .collect(Collectors.toList());
+            assertEquals("Failure - completions of " + prefix + " should match a scan", expected, titles(trie.complete(prefix, 5)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyTrie() throws Exception {
+        new TitleTrie(0);
+    }
+
+    private static List<String> titles(List<TitleSuggestion> suggestions) {
+        return suggestions.stream().map(TitleSuggestion::getTitle).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,72 @@
+package SocialWiki.Search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for TrigramIndex class
+ */
+public class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new TrigramIndex();
+        index.add(1L, "Spring Boot");
+        index.add(2L, "Boot camp");
+        index.add(3L, "Databases");
+    }
+
+    @Test
+    public void trigrams() throws Exception {
+        assertEquals("Failure - trigrams of a single word", Arrays.asList("  C", " CA", "AT ", "CAT"), TrigramIndex.trigrams("cat"));
+        assertEquals("Failure - trigrams should be distinct", Arrays.asList("  A", " AA", "AA ", "AAA"), TrigramIndex.trigrams("aaa aaa"));
+        assertEquals("Failure - trigrams of only separators should be empty", 0, TrigramIndex.trigrams(" ;-").size());
+    }
+
+    @Test
+    public void searchExact() throws Exception {
+        Map<Long, Double> matches = index.search("spring boot", 0.5);
+        assertEquals("Failure - similarity of an exact match should be 1", 1.0, matches.get(1L), 0.0);
+        assertEquals("Failure - similarity of a partial match", 2.0 * 5 / (12 + 10), index.search("spring boot", 0.1).get(2L), 1e-9);
+        assertEquals("Failure - pages below the threshold should not match", 1, matches.size());
+    }
+
+    @Test
+    public void searchIsSymmetric() throws Exception {
+        //"boot" has 5 trigrams, all of them in "Spring Boot", which has 12
+        assertEquals("Failure - a short query contained in a longer document should not be an exact match",
+                2.0 * 5 / (5 + 12), index.search("boot", 0.1).get(1L), 1e-9);
+        index.add(4L, "boot");
+        assertEquals("Failure - similarity should not depend on which text is the query",
+                index.search("boot", 0.1).get(1L), index.search("spring boot", 0.1).get(4L), 1e-9);
+        assertEquals("Failure - documents below the threshold should not match", null, index.search("boot", 0.6).get(1L));
+    }
+
+    @Test
+    public void searchWithTypo() throws Exception {
+        Map<Long, Double> matches = index.search("Databsaes", 0.5);
+        assertEquals("Failure - a misspelt word should still match", 1, matches.size());
+        assertTrue("Failure - a misspelt word should not be an exact match", matches.get(3L) < 1.0);
+    }
+
+    @Test
+    public void searchNoMatch() throws Exception {
+        assertTrue("Failure - unrelated query should not match", index.search("zebra", 0.5).isEmpty());
+        assertTrue("Failure - query without trigrams should not match", index.search("; ", 0.5).isEmpty());
+    }
+
+    @Test
+    public void clear() throws Exception {
+        index.clear();
+        assertTrue("Failure - no matches after clear", index.search("spring boot", 0.5).isEmpty());
+    }
+
+}
@@ -0,0 +1,109 @@
+package SocialWiki.Search;
+
+import SocialWiki.Users.User;
+import SocialWiki.Users.UserRepository;
+import SocialWiki.WikiPages.WikiPageRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the JPQL and PostgreSQL full text search backends of /advancedSearchWikiPage on large wikis.
+ * Only runs when the benchmark system property is set, e.g. mvn test -Dtest=WikiPageSearchBackendBenchmark -Dbenchmark=true
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "socialwiki.search.backend=postgres")
+public class WikiPageSearchBackendBenchmark {
+
+    /**
+     * Number of times each search is timed
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Searches as title, username, content triples
+     */
+    private static final String[][] SEARCHES = {
+            {"page", "", ""},
+            {"", "", "word42"},
+            {"page 4242", "", ""},
+            {"", "benchmark", "content word7"}
+    };
+
+    @Autowired
+    private WikiPageSearchBackend postgresBackend;
+
+    @Autowired
+    private WikiPageRepository wikiPageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User benchmarkUser;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue("Benchmarks only run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+        benchmarkUser = userRepository.save(new User("benchmarkUser", "benchmark", "user", "benchmark@email.com", "benchmark"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (benchmarkUser != null) {
+            jdbcTemplate.update("DELETE FROM concrete_wiki_page WHERE author_id = ?", benchmarkUser.getId());
+            userRepository.delete(benchmarkUser);
+        }
+    }
+
+    @Test
+    public void compareBackends() throws Exception {
+        int loaded = 0;
+        for (int size : new int[]{100_000, 1_000_000}) {
+            //Generate the pages in the database, the search vector trigger fills in the full text column
+            jdbcTemplate.update("INSERT INTO concrete_wiki_page (id, title, content, parentid, creation_date, author_id, views) " +
+                    "SELECT nextval('hibernate_sequence'), 'Benchmark page ' || g, 'Benchmark content word' || (g % 1000) || ' ' || md5(g::text), -1, now(), ?, 0 " +
+                    "FROM generate_series(?, ?) g", benchmarkUser.getId(), loaded + 1, size);
+            jdbcTemplate.execute("ANALYZE concrete_wiki_page");
+            loaded = size;
+
+            for (String[] search : SEARCHES) {
+                long jpql = time(() -> wikiPageRepository.findByTitleAndAuthorAndContent(search[0], search[1], search[2]).size());
+                long postgres = time(() -> postgresBackend.search(search[0], search[1], search[2]).size());
+                System.out.println(String.format("%,d pages, search %s: jpql %d ms, postgres %d ms", size, String.join("|", search), jpql, postgres));
+            }
+        }
+    }
+
+    /**
+     * Time a search
+     * @param search - runs the search and returns the number of results
+     * @return the median time of the search in milliseconds
+     */
+    private long time(SearchRun search) {
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            search.run();
+            times[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    private interface SearchRun {
+        int run();
+    }
+
+}
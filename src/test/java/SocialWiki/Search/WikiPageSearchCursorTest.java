@@ -0,0 +1,58 @@
+package SocialWiki.Search;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Unit tests for WikiPageSearchCursor class
+ */
+public class WikiPageSearchCursorTest {
+
+    @Test
+    public void encodeDecode() throws Exception {
+        String encoded = new WikiPageSearchCursor(6, 1488326400123L, 42L).encode();
+        assertFalse("Failure - encoded cursor should be URL safe", encoded.matches(".*[+/=].*"));
+
+        WikiPageSearchCursor cursor = WikiPageSearchCursor.decode(encoded);
+        assertEquals("Failure - decoded tier", 6, cursor.getTier());
+        assertEquals("Failure - decoded creation date", 1488326400123L, cursor.getCreationDate().getTimeInMillis());
+        assertEquals("Failure - decoded id", 42L, cursor.getId());
+        assertEquals("Failure - decoded sort", WikiPageSort.RELEVANCE, cursor.getSort());
+    }
+
+    @Test
+    public void encodeDecodeSorted() throws Exception {
+        WikiPageSearchCursor liked = WikiPageSearchCursor.decode(WikiPageSearchCursor.afterCount(WikiPageSort.LIKED, 7, 42L).encode(), WikiPageSort.LIKED);
+        assertEquals("Failure - decoded count", 7, liked.getCount());
+        assertEquals("Failure - decoded id", 42L, liked.getId());
+
+        WikiPageSearchCursor popular = WikiPageSearchCursor.decode(WikiPageSearchCursor.afterInfluence(0.1 + 0.2, 42L).encode(), WikiPageSort.POPULAR);
+        assertEquals("Failure - liker influence should be decoded exactly", 0.1 + 0.2, popular.getInfluence(), 0);
+
+        WikiPageSearchCursor recent = WikiPageSearchCursor.decode(WikiPageSearchCursor.afterCreationDate(1488326400123L, 42L).encode(), WikiPageSort.RECENT);
+        assertEquals("Failure - decoded creation date", 1488326400123L, recent.getCreationMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeOtherSort() throws Exception {
+        WikiPageSearchCursor.decode(WikiPageSearchCursor.afterCount(WikiPageSort.EDITED, 7, 42L).encode(), WikiPageSort.LIKED);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRelevanceInSort() throws Exception {
+        WikiPageSearchCursor.decode(new WikiPageSearchCursor(6, 1488326400123L, 42L).encode(), WikiPageSort.POPULAR);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeNotBase64() throws Exception {
+        WikiPageSearchCursor.decode("not a cursor!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeWrongParts() throws Exception {
+        WikiPageSearchCursor.decode(new WikiPageSearchCursor(1, 2L, 3L).encode().substring(2));
+    }
+
+}
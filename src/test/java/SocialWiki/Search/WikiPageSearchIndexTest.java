@@ -0,0 +1,92 @@
+package SocialWiki.Search;
+
+import SocialWiki.Users.User;
+import SocialWiki.Users.UserRepository;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageRepository;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.transaction.Transactional;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for WikiPageSearchIndex class
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class WikiPageSearchIndexTest {
+
+    @Autowired
+    private WikiPageSearchIndex wikiPageSearchIndex;
+
+    @Autowired
+    private WikiPageRepository wikiPageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser1;
+
+    @Before
+    public void setUp() throws Exception {
+        testUser1 = new User("testUserName1", "testFirstName1", "testLastName1", "Test1@email.com", "testPassword1");
+        testUser1 = userRepository.save(testUser1);
+
+        wikiPageSearchIndex.clear();
+
+        String[][] corpus = {
+                {"testTitle1", "testContent1"},
+                {"testTitlePair", "testContent2"},
+                {"testTitlePair", "testContent3"},
+                {"Another page", "This page mentions testTitle1 in its content"},
+                {"Punctuation", "Words, separated; by - punctuation &amp; entities"},
+                {"title", "The Title, the whole title and nothing but the title"},
+                {"TITLE case", "Some CONTENT in upper case"}
+        };
+        for (String[] entry : corpus) {
+            ConcreteWikiPage page = wikiPageRepository.save(new ConcreteWikiPage(entry[0], entry[1], testUser1));
+            wikiPageSearchIndex.add(page);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wikiPageSearchIndex.clear();
+        wikiPageRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void searchMatchesRepository() throws Exception {
+        String[] queries = {"testTitle1", "TESTTITLE", "sttitle", "content", "Content1", "title", "the title", "title, the",
+                "separated; by", "; by - punctuation", "amp", "upper case", "missing", "mentions testTitle1 in"};
+
+        for (String query : queries) {
+            List<WikiPageWithAuthorProxy> expected = wikiPageRepository.findByTitleAndContent(query);
+            List<WikiPageWithAuthorProxy> actual = wikiPageSearchIndex.search(query);
+            assertEquals("Failure - search('" + query + "') does not match findByTitleAndContent('" + query + "')", expected, actual);
+        }
+    }
+
+    @Test
+    public void searchUnanswerable() throws Exception {
+        assertNull("Failure - search('') should not be answered by the index", wikiPageSearchIndex.search(""));
+        assertNull("Failure - search('; ') should not be answered by the index", wikiPageSearchIndex.search("; "));
+        assertNull("Failure - search('test%') should not be answered by the index", wikiPageSearchIndex.search("test%"));
+        assertNull("Failure - search('test_') should not be answered by the index", wikiPageSearchIndex.search("test_"));
+        assertNull("Failure - search('e') should be left to the database as it would load every page", wikiPageSearchIndex.search("e"));
+        assertNull("Failure - search('; by -') should be left to the database as it has no token of 3 characters", wikiPageSearchIndex.search("; by -"));
+    }
+
+}
@@ -0,0 +1,105 @@
+package SocialWiki.Search;
+
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for WikiPageSort class
+ */
+public class WikiPageSortTest {
+
+    @Test
+    public void fromParameter() throws Exception {
+        assertEquals("Failure - no sort should be relevance", WikiPageSort.RELEVANCE, WikiPageSort.fromParameter(null));
+        assertEquals("Failure - empty sort should be relevance", WikiPageSort.RELEVANCE, WikiPageSort.fromParameter(""));
+        assertEquals("Failure - liked sort", WikiPageSort.LIKED, WikiPageSort.fromParameter("liked"));
+        assertEquals("Failure - recent sort", WikiPageSort.RECENT, WikiPageSort.fromParameter("recent"));
+        assertEquals("Failure - edited sort", WikiPageSort.EDITED, WikiPageSort.fromParameter("edited"));
+        assertEquals("Failure - popular sort", WikiPageSort.POPULAR, WikiPageSort.fromParameter("popular"));
+        assertEquals("Failure - closest sort", WikiPageSort.CLOSEST, WikiPageSort.fromParameter("closest"));
+        assertNull("Failure - relevance has no aggregate", WikiPageSort.RELEVANCE.getPath());
+        assertEquals("Failure - similar sort", WikiPageSort.SIMILAR, WikiPageSort.fromParameter("similar"));
+        assertTrue("Failure - closest depends on the searching user", WikiPageSort.CLOSEST.isPersonal());
+        assertTrue("Failure - similar depends on the searching user", WikiPageSort.SIMILAR.isPersonal());
+        assertFalse("Failure - liked does not depend on the searching user", WikiPageSort.LIKED.isPersonal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromUnknownParameter() throws Exception {
+        WikiPageSort.fromParameter("relevance");
+    }
+
+    @Test
+    public void sort() throws Exception {
+        WikiPageWithAuthorProxy oldPopular = proxy(1L, 5, 0, 1000L);
+        WikiPageWithAuthorProxy oldEdited = proxy(2L, 1, 7, 2000L);
+        WikiPageWithAuthorProxy newest = proxy(3L, 1, 0, 3000L);
+        List<WikiPageWithAuthorProxy> pages = new ArrayList<>(Arrays.asList(oldEdited, newest, oldPopular));
+
+        WikiPageSort.LIKED.sort(pages);
+        assertEquals("Failure - most liked first, ties by highest id", Arrays.asList(oldPopular, newest, oldEdited), pages);
+
+        WikiPageSort.EDITED.sort(pages);
+        assertEquals("Failure - most edited first, ties by highest id", Arrays.asList(oldEdited, newest, oldPopular), pages);
+
+        WikiPageSort.RECENT.sort(pages);
+        assertEquals("Failure - most recent first", Arrays.asList(newest, oldEdited, oldPopular), pages);
+
+        WikiPageSort.RELEVANCE.sort(pages);
+        assertEquals("Failure - relevance should keep the order of the search", Arrays.asList(newest, oldEdited, oldPopular), pages);
+
+        oldPopular.setDistance(2);
+        oldEdited.setDistance(1);
+        WikiPageSort.CLOSEST.sort(pages);
+        assertEquals("Failure - closest liker first, no liker last", Arrays.asList(oldEdited, oldPopular, newest), pages);
+
+        newest.setSimilarity(0.25);
+        oldPopular.setSimilarity(0.5);
+        WikiPageSort.SIMILAR.sort(pages);
+        assertEquals("Failure - most similar liker first, no similar liker last", Arrays.asList(oldPopular, newest, oldEdited), pages);
+    }
+
+    @Test
+    public void cursorAfter() throws Exception {
+        WikiPageWithAuthorProxy page = proxy(4L, 3, 9, 4000L);
+
+        WikiPageSearchCursor liked = WikiPageSearchCursor.decode(WikiPageSort.LIKED.cursorAfter(page).encode());
+        assertEquals("Failure - liked cursor should continue after the like count", 3, WikiPageSort.LIKED.getCursorValue(liked));
+        assertEquals("Failure - cursor should continue after the id", 4L, liked.getId());
+
+        WikiPageSearchCursor edited = WikiPageSort.EDITED.cursorAfter(page);
+        assertEquals("Failure - edited cursor should continue after the edit count", 9, WikiPageSort.EDITED.getCursorValue(edited));
+
+        ReflectionTestUtils.setField(ReflectionTestUtils.getField(page, "realWikiPage"), "likerInfluence", 2.75);
+        WikiPageSearchCursor popular = WikiPageSearchCursor.decode(WikiPageSort.POPULAR.cursorAfter(page).encode());
+        assertEquals("Failure - popular cursor should continue after the liker influence", 2.75, WikiPageSort.POPULAR.getCursorValue(popular));
+
+        WikiPageSearchCursor recent = WikiPageSort.RECENT.cursorAfter(page);
+        assertEquals("Failure - recent cursor should continue after the creation date", 4000L,
+                ((Calendar) WikiPageSort.RECENT.getCursorValue(recent)).getTimeInMillis());
+    }
+
+    private static WikiPageWithAuthorProxy proxy(Long id, int likes, int edits, long creationMillis) {
+        ConcreteWikiPage page = new ConcreteWikiPage();
+        Calendar creationDate = Calendar.getInstance();
+        creationDate.setTimeInMillis(creationMillis);
+        ReflectionTestUtils.setField(page, "id", id);
+        ReflectionTestUtils.setField(page, "likeCount", likes);
+        ReflectionTestUtils.setField(page, "editCount", edits);
+        ReflectionTestUtils.setField(page, "creationDate", creationDate);
+        return new WikiPageWithAuthorProxy(page);
+    }
+
+}
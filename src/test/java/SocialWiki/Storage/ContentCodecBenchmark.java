@@ -0,0 +1,112 @@
+package SocialWiki.Storage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the compression ratio of the ContentCodec on Markdown contents of different sizes, and how long decompressing takes compared to
+ * decoding the same contents stored as text.
+ * Only runs when the benchmark system property is set, e.g. mvn test -Dtest=ContentCodecBenchmark -Dbenchmark=true
+ */
+public class ContentCodecBenchmark {
+
+    /**
+     * Number of times each decode is timed, after as many untimed runs to warm up
+     */
+    private static final int RUNS = 200;
+
+    /**
+     * Sizes of the generated contents in characters
+     */
+    private static final int[] SIZES = {256, 1024, 4096, 16384, 65536, 262144};
+
+    private static final String[] WORDS = {"the", "wiki", "page", "version", "social", "edit", "history", "author", "link", "markdown",
+            "content", "search", "like", "view", "parent", "original", "fork", "user", "title", "section"};
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue("Benchmarks only run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void compressionRatioAndDecodeTime() throws Exception {
+        System.out.println(String.format("%10s %12s %10s %14s %14s", "chars", "compressed", "ratio", "text us", "gzip us"));
+        for (int size : SIZES) {
+            String content = markdown(size, new Random(size));
+            byte[] text = content.getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = ContentCodec.compress(content);
+
+            long textNanos = time(() -> new String(text, StandardCharsets.UTF_8).length());
+            long gzipNanos = time(() -> ContentCodec.decompress(ContentCodec.GZIP, compressed).length());
+
+            System.out.println(String.format("%10d %12d %10.2f %14.1f %14.1f", size, compressed.length, (double) text.length / compressed.length,
+                    textNanos / 1000.0 / RUNS, gzipNanos / 1000.0 / RUNS));
+        }
+    }
+
+    /**
+     * Time a decode, returning a value so that it is not optimised away
+     * @param decode - decodes the contents and returns their length
+     * @return the total nanoseconds of the timed runs
+     */
+    private static long time(Decode decode) {
+        long sink = 0;
+        for (int i = 0; i < RUNS; i++) {
+            sink += decode.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            sink += decode.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return elapsed;
+    }
+
+    /**
+     * Generate Markdown that looks like a wiki page: headings, paragraphs of common words and list items
+     * @param size - the number of characters to generate
+     * @param random - the source of words
+     * @return the Markdown
+     */
+    private static String markdown(int size, Random random) {
+        StringBuilder content = new StringBuilder(size + 64);
+        while (content.length() < size) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    content.append("## ").append(sentence(random, 4)).append("\n\n");
+                    break;
+                case 1:
+                    content.append("* ").append(sentence(random, 8)).append('\n');
+                    break;
+                default:
+                    content.append(sentence(random, 40)).append(" [").append(WORDS[random.nextInt(WORDS.length)])
+                            .append("](/viewpage?id=").append(random.nextInt(100000)).append(")\n\n");
+            }
+        }
+        return content.substring(0, size);
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+
+    private interface Decode {
+        int run();
+    }
+
+}
@@ -0,0 +1,64 @@
+package SocialWiki.Storage;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for ContentCodec class
+ */
+public class ContentCodecTest {
+
+    @Test
+    public void compressAndDecompress() throws Exception {
+        for (String content : new String[]{"", "testContent", "# Heading\n\n* é中 \r\n", repeat("testLine\n", 10000)}) {
+            assertEquals("Failure - contents changed when compressed and decompressed", content,
+                    ContentCodec.decompress(ContentCodec.GZIP, ContentCodec.compress(content)));
+        }
+    }
+
+    @Test
+    public void compressIsGzip() throws Exception {
+        String content = repeat("# testHeading\n\ntestParagraph\n", 1000);
+        byte[] compressed = ContentCodec.compress(content);
+
+        assertTrue("Failure - repetitive contents were not made smaller", compressed.length < content.length() / 10);
+
+        //Any gzip client must be able to read the stored bytes
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = gzip.read(buffer)) != -1) {
+                decompressed.write(buffer, 0, read);
+            }
+        }
+        assertArrayEquals("Failure - compressed contents are not standard gzip", content.getBytes(StandardCharsets.UTF_8), decompressed.toByteArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressUnknownCodec() throws Exception {
+        ContentCodec.decompress("testCodec", ContentCodec.compress("testContent"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decompressCorrupt() throws Exception {
+        ContentCodec.decompress(ContentCodec.GZIP, "testContent".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+
+}
@@ -0,0 +1,28 @@
+package SocialWiki.Storage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Unit tests for ContentHash class
+ */
+public class ContentHashTest {
+
+    @Test
+    public void of() throws Exception {
+        assertEquals("Failure - hash of empty contents is not the SHA-256 of nothing",
+                "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", ContentHash.of(""));
+        assertEquals("Failure - hash is not the SHA-256 of the UTF-8 contents",
+                "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", ContentHash.of("abc"));
+        assertEquals("Failure - hash is not " + ContentHash.LENGTH + " hex digits", ContentHash.LENGTH, ContentHash.of("é中").length());
+    }
+
+    @Test
+    public void ofDiffersWithContents() throws Exception {
+        assertEquals("Failure - same contents have different hashes", ContentHash.of("testContent"), ContentHash.of("testContent"));
+        assertNotEquals("Failure - different contents have the same hash", ContentHash.of("testContent"), ContentHash.of("testContent\n"));
+    }
+
+}
@@ -0,0 +1,78 @@
+package SocialWiki.Storage;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for LineDelta class
+ */
+public class LineDeltaTest {
+
+    private static void assertRoundTrip(String base, String target) {
+        String delta = LineDelta.diff(base, target);
+        assertEquals("Failure - applying the delta should give back the target", target, LineDelta.apply(base, delta));
+    }
+
+    @Test
+    public void diffSingleLineChange() throws Exception {
+        String delta = LineDelta.diff("a\nb\nc\nd", "a\nb\nX\nd");
+        assertEquals("Failure - delta of a single changed line", "=0,2\n+1\nX\n=3,1", delta);
+        assertEquals("Failure - delta of identical texts should copy every line", "=0,3", LineDelta.diff("a\nb\nc", "a\nb\nc"));
+    }
+
+    @Test
+    public void roundTripEdgeCases() throws Exception {
+        assertRoundTrip("", "");
+        assertRoundTrip("", "a");
+        assertRoundTrip("a", "");
+        assertRoundTrip("a\n", "a");
+        assertRoundTrip("a", "a\n");
+        assertRoundTrip("\n\n", "\n");
+        assertRoundTrip("a\r\nb\r\n", "a\r\nc\r\n");
+        assertRoundTrip("x\na\nb", "a\nb\ny");
+        assertRoundTrip("a\nb\nc", "c\nb\na");
+        assertRoundTrip("+1\n=0,1", "=0,1\n+1\n\n");
+    }
+
+    @Test
+    public void roundTripRandomEdits() throws Exception {
+        Random random = new Random(42);
+        for (int test = 0; test < 500; test++) {
+            StringBuilder base = new StringBuilder();
+            StringBuilder target = new StringBuilder();
+            int lines = random.nextInt(30);
+            for (int line = 0; line < lines; line++) {
+                String text = Integer.toString(random.nextInt(5));
+                int edit = random.nextInt(6);
+                if (edit != 0) {
+                    base.append(text).append('\n');
+                }
+                if (edit != 1) {
+                    target.append(edit == 2 ? "changed" : text).append('\n');
+                }
+            }
+            assertRoundTrip(base.toString(), target.toString());
+        }
+    }
+
+    @Test
+    public void diffGivesUpOnUnrelatedTexts() throws Exception {
+        StringBuilder base = new StringBuilder();
+        StringBuilder target = new StringBuilder();
+        for (int line = 0; line <= LineDelta.MAX_EDITS; line++) {
+            base.append("a").append(line).append('\n');
+            target.append("b").append(line).append('\n');
+        }
+        assertNull("Failure - texts with nothing in common should have no delta", LineDelta.diff(base.toString(), target.toString()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void applyRejectsDeltaOfAnotherBase() throws Exception {
+        LineDelta.apply("a", "=0,5");
+    }
+
+}
@@ -0,0 +1,220 @@
+package SocialWiki.Storage;
+
+import SocialWiki.Cache.LruCache;
+import SocialWiki.Search.KeysetWikiPageSearch;
+import SocialWiki.Search.WikiPageSearchCursor;
+import SocialWiki.Search.WikiPageSearchResults;
+import SocialWiki.Users.User;
+import SocialWiki.Users.UserRepository;
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for WikiPageContentStore class
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class WikiPageContentStoreTest {
+
+    @Autowired
+    private WikiPageContentStore wikiPageContentStore;
+
+    @Autowired
+    private WikiPageRepository wikiPageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private KeysetWikiPageSearch keysetWikiPageSearch;
+
+    @Autowired
+    private LruCache<Long, String> pageContentCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User testUser;
+
+    private ConcreteWikiPage testOriginal;
+
+    @Before
+    public void setUp() throws Exception {
+        testUser = userRepository.save(new User("testUserName1", "testFirstName1", "testLastName1", "Test1@email.com", "testPassword1"));
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append("testLine").append(i).append('\n');
+        }
+        testOriginal = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", content.toString(), testUser));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wikiPageRepository.deleteAll();
+        userRepository.deleteAll();
+        pageContentCache.clear();
+    }
+
+    @Test
+    public void encodeAndRebuild() throws Exception {
+        String content = testOriginal.getContent().replace("testLine25", "testDeltaOnlyLine");
+        ConcreteWikiPage child = new ConcreteWikiPage("testTitle1", content, testOriginal.getId(), testUser);
+        wikiPageContentStore.encode(child, testOriginal);
+        child = wikiPageRepository.save(child);
+
+        assertNotNull("Failure - a small change was not stored as a delta", child.getDelta());
+
+        entityManager.flush();
+        entityManager.clear();
+        pageContentCache.clear();
+
+        ConcreteWikiPage stored = wikiPageRepository.findOne(child.getId());
+        assertFalse("Failure - contents stored as a delta should not be readable before they are loaded", stored.isContentLoaded());
+        assertEquals("Failure - contents were not rebuilt from the delta", content, wikiPageContentStore.getContent(stored));
+        assertTrue("Failure - loaded contents should be kept on the WikiPage", stored.isContentLoaded());
+        assertEquals("Failure - contents were not read through the store", content, wikiPageContentStore.getContent(child.getId()));
+    }
+
+    @Test
+    public void encodeWithoutSnapshotInterval() throws Exception {
+        ReflectionTestUtils.setField(wikiPageContentStore, "snapshotInterval", 0);
+        try {
+            String content = testOriginal.getContent().replace("testLine25", "testFullLine");
+            ConcreteWikiPage child = new ConcreteWikiPage("testTitle1", content, testOriginal.getId(), testUser);
+            wikiPageContentStore.encode(child, testOriginal);
+
+            assertNull("Failure - a snapshot interval of 0 should store every version in full", child.getDelta());
+        } finally {
+            ReflectionTestUtils.setField(wikiPageContentStore, "snapshotInterval", 10);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSnapshotInterval() throws Exception {
+        ReflectionTestUtils.setField(wikiPageContentStore, "snapshotInterval", -1);
+        try {
+            wikiPageContentStore.checkSettings();
+        } finally {
+            ReflectionTestUtils.setField(wikiPageContentStore, "snapshotInterval", 10);
+        }
+    }
+
+    @Test
+    public void encodeSharesSameContents() throws Exception {
+        ConcreteWikiPage fork = new ConcreteWikiPage("testTitle2", "testSharedContent", testUser);
+        wikiPageContentStore.encode(fork, null);
+        fork = wikiPageRepository.save(fork);
+
+        ConcreteWikiPage copy = new ConcreteWikiPage("testTitle3", "testSharedContent", testUser);
+        wikiPageContentStore.encode(copy, null);
+        copy = wikiPageRepository.save(copy);
+
+        assertEquals("Failure - same contents were given different hashes", fork.getContentHash(), copy.getContentHash());
+        assertEquals("Failure - same contents were stored more than once", 1, (int) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM wiki_page_content WHERE hash = ?", Integer.class, copy.getContentHash()));
+
+        entityManager.flush();
+        entityManager.clear();
+        pageContentCache.clear();
+
+        assertEquals("Failure - shared contents were not loaded", "testSharedContent", wikiPageContentStore.getContent(wikiPageRepository.findOne(copy.getId())));
+    }
+
+    @Test
+    public void encodeCompressesLargeContents() throws Exception {
+        ReflectionTestUtils.setField(wikiPageContentStore, "compressionThreshold", 100);
+        try {
+            ConcreteWikiPage small = new ConcreteWikiPage("testTitle2", "testSmallContent", testUser);
+            wikiPageContentStore.encode(small, null);
+            small = wikiPageRepository.save(small);
+
+            ConcreteWikiPage large = new ConcreteWikiPage("testTitle3", testOriginal.getContent() + "testLargeContent", testUser);
+            wikiPageContentStore.encode(large, null);
+            large = wikiPageRepository.save(large);
+
+            assertNull("Failure - contents below the threshold were compressed", wikiPageContentStore.getGzipContent(small));
+            assertNotNull("Failure - contents above the threshold were not compressed", wikiPageContentStore.getGzipContent(large));
+
+            entityManager.flush();
+            entityManager.clear();
+            pageContentCache.clear();
+
+            assertEquals("Failure - compressed contents were not decompressed", testOriginal.getContent() + "testLargeContent",
+                    wikiPageContentStore.getContent(wikiPageRepository.findOne(large.getId())));
+
+            assertEquals("Failure - search did not match compressed contents", 1,
+                    wikiPageRepository.findByTitleAndAuthorAndContent("", "", "testLargeContent").size());
+        } finally {
+            ReflectionTestUtils.setField(wikiPageContentStore, "compressionThreshold", 0);
+        }
+    }
+
+    @Test
+    public void searchMatchesDeltaContents() throws Exception {
+        String content = testOriginal.getContent().replace("testLine25", "testDeltaOnlyLine x_y");
+        ConcreteWikiPage child = new ConcreteWikiPage("testTitle1", content, testOriginal.getId(), testUser);
+        wikiPageContentStore.encode(child, testOriginal);
+        child = wikiPageRepository.save(child);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertNotNull("Failure - a small change was not stored as a delta", child.getDelta());
+        assertEquals("Failure - search did not match text that is only in a delta", 1,
+                wikiPageRepository.findByTitleAndAuthorAndContent("", "", "testDeltaOnlyLine").size());
+
+        //Searches the in-memory index cannot answer, with LIKE wildcards or only short tokens, are matched by the database as well
+        assertEquals("Failure - search with a wildcard did not match text that is only in a delta", 1,
+                wikiPageRepository.findByTitleAndAuthorAndContent("", "", "x_y").size());
+        assertEquals("Failure - search with short tokens did not match text that is only in a delta", 1,
+                wikiPageRepository.findByTitleAndContent("Only").size());
+    }
+
+    @Test
+    public void pagedSearchMatchesDeltaContents() throws Exception {
+        ConcreteWikiPage parent = testOriginal;
+        Long[] ids = new Long[3];
+        for (int i = 0; i < ids.length; i++) {
+            String content = testOriginal.getContent().replace("testLine25", "testDeltaOnlyLine" + i);
+            ConcreteWikiPage child = new ConcreteWikiPage("testTitle1", content, parent.getId(), testUser);
+            wikiPageContentStore.encode(child, parent);
+            parent = wikiPageRepository.save(child);
+            ids[i] = parent.getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        //Follow the cursors one WikiPage at a time, newest first
+        WikiPageSearchCursor cursor = null;
+        for (int i = ids.length - 1; i >= 0; i--) {
+            WikiPageSearchResults results = keysetWikiPageSearch.search("testDeltaOnlyLine", cursor, 1);
+            assertEquals("Failure - wrong page of versions stored as deltas", ids[i], results.getPages().get(0).getId());
+            cursor = results.getNextCursor() == null ? null : WikiPageSearchCursor.decode(results.getNextCursor());
+        }
+        assertNull("Failure - the last page of results should have no next cursor", cursor);
+    }
+
+}
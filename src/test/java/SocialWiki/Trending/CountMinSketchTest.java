@@ -0,0 +1,71 @@
+package SocialWiki.Trending;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for CountMinSketch class
+ */
+public class CountMinSketchTest {
+
+    @Test
+    public void add() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+
+        assertEquals("Failure - an unseen key should be estimated at 0", 0, sketch.estimate(1L), 0);
+        assertEquals("Failure - adding should return the new estimate", 2.5, sketch.add(1L, 2.5), 0);
+        assertEquals("Failure - amounts should add up", 3.5, sketch.add(1L, 1), 0);
+        assertEquals("Failure - estimate should match the amounts added", 3.5, sketch.estimate(1L), 0);
+    }
+
+    @Test
+    public void neverUnderestimates() throws Exception {
+        //Far more keys than counters, so nearly every key collides with others in every row
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        int[] counts = new int[2000];
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(counts.length);
+            counts[key]++;
+            sketch.add(key, 1);
+        }
+
+        for (int key = 0; key < counts.length; key++) {
+            assertTrue("Failure - estimate should be at least the count of key " + key, sketch.estimate(key) >= counts[key]);
+        }
+    }
+
+    @Test
+    public void heavyHitterIsAccurate() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(4096, 4);
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            sketch.add(random.nextInt(100000) + 1000L, 1);
+            if (i % 10 == 0) {
+                sketch.add(1L, 1);
+            }
+        }
+
+        //The error of a key is at most a few times the total count over the width, and the conservative update keeps it well below
+        assertEquals("Failure - a heavy hitter should be estimated closely", 1000, sketch.estimate(1L), 20);
+    }
+
+    @Test
+    public void scale() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        sketch.add(1L, 8);
+        sketch.scale(0.25);
+
+        assertEquals("Failure - scaling should scale every estimate", 2, sketch.estimate(1L), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptySketch() throws Exception {
+        new CountMinSketch(0, 4);
+    }
+
+}
@@ -0,0 +1,92 @@
+package SocialWiki.Trending;
+
+import SocialWiki.WikiPages.ConcreteWikiPage;
+import SocialWiki.WikiPages.WikiPageWithAuthorProxy;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for TrendingWikiPages class
+ */
+public class TrendingWikiPagesTest {
+
+    private static final long HOUR = 3600000L;
+
+    @Test
+    public void mostViewedFirst() throws Exception {
+        TrendingWikiPages trending = new TrendingWikiPages(2, HOUR, 1024, 4, 0);
+        view(trending, page(1L), 0, 1);
+        view(trending, page(2L), 0, 3);
+        view(trending, page(3L), 0, 2);
+
+        List<WikiPageWithAuthorProxy> pages = trending.getTrending(0);
+        assertEquals("Failure - only the most viewed pages should be kept, most viewed first", Arrays.asList(2L, 3L), ids(pages));
+        assertEquals("Failure - trending score should be the views at the landmark", 3, pages.get(0).getTrendingScore(), 1e-9);
+    }
+
+    @Test
+    public void viewsDecay() throws Exception {
+        TrendingWikiPages trending = new TrendingWikiPages(2, HOUR, 1024, 4, 0);
+
+        //Page 1 was viewed a lot two hours ago, page 2 a little now
+        view(trending, page(1L), 0, 8);
+        view(trending, page(2L), 2 * HOUR, 3);
+
+        List<WikiPageWithAuthorProxy> pages = trending.getTrending(2 * HOUR);
+        assertEquals("Failure - recent views should outweigh older ones", Arrays.asList(2L, 1L), ids(pages));
+        assertEquals("Failure - views two half-lives old should count a quarter", 2, pages.get(1).getTrendingScore(), 1e-9);
+        assertEquals("Failure - scores should keep decaying when read later", 1.5, trending.getTrending(3 * HOUR).get(0).getTrendingScore(), 1e-9);
+    }
+
+    @Test
+    public void replacesLeastViewed() throws Exception {
+        TrendingWikiPages trending = new TrendingWikiPages(2, HOUR, 1024, 4, 0);
+        view(trending, page(1L), 0, 2);
+        view(trending, page(2L), 0, 4);
+
+        //Page 3 only enters once it has more views than page 1
+        view(trending, page(3L), 0, 2);
+        assertEquals("Failure - a page with no more views than the least kept should not enter", Arrays.asList(2L, 1L), ids(trending.getTrending(0)));
+        view(trending, page(3L), 0, 1);
+        assertEquals("Failure - a page with more views than the least kept should replace it", Arrays.asList(2L, 3L), ids(trending.getTrending(0)));
+    }
+
+    @Test
+    public void movesLandmark() throws Exception {
+        TrendingWikiPages trending = new TrendingWikiPages(2, HOUR, 1024, 4, 0);
+        view(trending, page(1L), 0, 4);
+
+        //Far enough past the landmark that the weights are rescaled, which must not change the decayed scores
+        long later = 100 * HOUR;
+        view(trending, page(2L), later, 1);
+        view(trending, page(1L), later, 2);
+
+        List<WikiPageWithAuthorProxy> pages = trending.getTrending(later + HOUR);
+        assertEquals("Failure - order should survive moving the landmark", Arrays.asList(1L, 2L), ids(pages));
+        assertEquals("Failure - scores should survive moving the landmark", 0.5, pages.get(1).getTrendingScore(), 1e-9);
+        assertEquals("Failure - views from 100 half-lives ago should have decayed away", 1, pages.get(0).getTrendingScore(), 1e-9);
+    }
+
+    private static void view(TrendingWikiPages trending, ConcreteWikiPage page, long nowMillis, int times) {
+        for (int i = 0; i < times; i++) {
+            trending.record(page, nowMillis);
+        }
+    }
+
+    private static ConcreteWikiPage page(Long id) {
+        ConcreteWikiPage page = new ConcreteWikiPage();
+        ReflectionTestUtils.setField(page, "id", id);
+        return page;
+    }
+
+    private static List<Long> ids(List<WikiPageWithAuthorProxy> pages) {
+        return pages.stream().map(WikiPageWithAuthorProxy::getId).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,80 @@
+package SocialWiki.Users;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for FollowGraph class
+ */
+public class FollowGraphTest {
+
+    private FollowGraph followGraph;
+
+    @Before
+    public void setUp() throws Exception {
+        followGraph = new FollowGraph();
+        ReflectionTestUtils.setField(followGraph, "maxDepth", 2);
+        ReflectionTestUtils.setField(followGraph, "budgetMillis", 1000L);
+
+        //User 1 follows 2 and 5, 2 follows 3, 3 follows 4 and 1, and 9 follows a user that no longer exists
+        followGraph.load(new long[]{1, 2, 3, 4, 5, 9},
+                new long[]{1, 1, 2, 3, 3, 9}, new long[]{2, 5, 3, 4, 1, 8},
+                new long[]{1, 2, 3, 4, 5}, new long[]{103, 100, 101, 102, 101});
+    }
+
+    @Test
+    public void findLikerDistances() throws Exception {
+        Map<Long, Integer> distances = followGraph.findLikerDistances(1L, Arrays.asList(100L, 101L, 102L, 103L, 104L));
+
+        assertEquals("Failure - page liked by a followed user", 1, (int) distances.get(100L));
+        assertEquals("Failure - page liked at two distances should take the nearest", 1, (int) distances.get(101L));
+        assertFalse("Failure - page liked beyond the max depth", distances.containsKey(102L));
+        assertFalse("Failure - page liked only by the user themselves", distances.containsKey(103L));
+        assertFalse("Failure - page liked by nobody", distances.containsKey(104L));
+
+        distances = followGraph.findLikerDistances(2L, Arrays.asList(101L, 102L, 103L));
+        assertEquals("Failure - distances should be measured from the given user", 1, (int) distances.get(101L));
+        assertEquals("Failure - page liked two follows away", 2, (int) distances.get(102L));
+        assertEquals("Failure - follows back to an earlier user should be walked", 2, (int) distances.get(103L));
+    }
+
+    @Test
+    public void findLikerDistancesUnknownUser() throws Exception {
+        assertTrue("Failure - a user not in the graph has no likers in reach", followGraph.findLikerDistances(7L, Arrays.asList(100L)).isEmpty());
+        assertTrue("Failure - a user following only missing users has no likers in reach", followGraph.findLikerDistances(9L, Arrays.asList(100L)).isEmpty());
+    }
+
+    @Test
+    public void findLikerDistancesBudget() throws Exception {
+        //User 0 follows 1000 users who each like their own page
+        int followed = 1000;
+        long[] userIds = new long[followed + 1];
+        long[] followers = new long[followed];
+        long[] likers = new long[followed];
+        List<Long> pageIds = new ArrayList<>();
+        for (int i = 1; i <= followed; i++) {
+            userIds[i] = i;
+            likers[i - 1] = i;
+            pageIds.add(1000L + i);
+        }
+        long[] likedPages = pageIds.stream().mapToLong(Long::longValue).toArray();
+        followGraph.load(userIds, followers, Arrays.copyOfRange(userIds, 1, followed + 1), likers, likedPages);
+
+        assertEquals("Failure - every page should be found within the budget", followed, followGraph.findLikerDistances(0L, pageIds).size());
+
+        ReflectionTestUtils.setField(followGraph, "budgetMillis", 0L);
+        int found = followGraph.findLikerDistances(0L, pageIds).size();
+        assertTrue("Failure - the search should stop once the budget runs out", found > 0 && found < followed);
+    }
+
+}
@@ -0,0 +1,100 @@
+package SocialWiki.Users;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for InfluenceJob class
+ */
+public class InfluenceJobTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdown();
+    }
+
+    @Test
+    public void computeInfluenceStar() throws Exception {
+        //Users 1, 2 and 3 follow user 0, who follows nobody
+        InfluenceJob.Influence influence = InfluenceJob.computeInfluence(new int[]{0, 0, 1, 2, 3}, new int[]{0, 0, 0}, pool);
+
+        assertArrayEquals("Failure - follower counts", new int[]{3, 0, 0, 0}, influence.followerCounts);
+        assertTrue("Failure - the followed user should be the most influential",
+                influence.ranks[0] > influence.ranks[1] && influence.ranks[1] == influence.ranks[2] && influence.ranks[2] == influence.ranks[3]);
+        assertEquals("Failure - ranks should sum to 1", 1.0, sum(influence.ranks), 1e-9);
+        assertTrue("Failure - ranks should converge", influence.residual < InfluenceJob.TOLERANCE && influence.iterations < InfluenceJob.MAX_ITERATIONS);
+    }
+
+    @Test
+    public void computeInfluenceCycle() throws Exception {
+        //Users 0, 1 and 2 follow each other in a cycle, so all are equally influential
+        InfluenceJob.Influence influence = InfluenceJob.computeInfluence(new int[]{0, 1, 2, 3}, new int[]{1, 2, 0}, pool);
+
+        for (double rank : influence.ranks) {
+            assertEquals("Failure - every user in a cycle has the same rank", 1.0 / 3, rank, 1e-9);
+        }
+    }
+
+    @Test
+    public void computeInfluenceEmpty() throws Exception {
+        InfluenceJob.Influence influence = InfluenceJob.computeInfluence(new int[]{0}, new int[0], pool);
+        assertEquals("Failure - no users should have no ranks", 0, influence.ranks.length);
+    }
+
+    @Test
+    public void computeInfluenceParallel() throws Exception {
+        //Enough users for the ranges to be split across threads, which must give the same ranks as a single thread
+        int users = 50000;
+        Random random = new Random(21);
+        int[] followOffsets = new int[users + 1];
+        int[] followed = new int[users * 5];
+        int follows = 0;
+        for (int user = 0; user < users; user++) {
+            int count = random.nextInt(10);
+            for (int i = 0; i < count && follows < followed.length; i++) {
+                //Skewed so a few users gather most of the followers
+                followed[follows++] = (int) (users * Math.pow(random.nextDouble(), 3));
+            }
+            followOffsets[user + 1] = follows;
+        }
+        int[] trimmed = Arrays.copyOf(followed, follows);
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        InfluenceJob.Influence expected;
+        try {
+            expected = InfluenceJob.computeInfluence(followOffsets, trimmed, single);
+        } finally {
+            single.shutdown();
+        }
+        InfluenceJob.Influence actual = InfluenceJob.computeInfluence(followOffsets, trimmed, pool);
+
+        assertEquals("Failure - ranks should sum to 1", 1.0, sum(actual.ranks), 1e-9);
+        assertArrayEquals("Failure - parallel ranks should match a single thread", expected.ranks, actual.ranks, 1e-12);
+        assertArrayEquals("Failure - parallel follower counts should match a single thread", expected.followerCounts, actual.followerCounts);
+    }
+
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,109 @@
+package SocialWiki.Users;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for LikeSimilarityIndex class
+ */
+public class LikeSimilarityIndexTest {
+
+    private LikeSimilarityIndex likeSimilarityIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        likeSimilarityIndex = new LikeSimilarityIndex();
+    }
+
+    @Test
+    public void findMostSimilar() throws Exception {
+        //User 1 likes pages 1 to 4, user 2 shares three of them, user 3 shares one and user 4 shares none
+        likes(1L, 1, 2, 3, 4);
+        likes(2L, 1, 2, 3, 5);
+        likes(3L, 4, 6, 7, 8, 9, 10);
+        likes(4L, 11, 12);
+
+        List<SimilarUser> similarUsers = likeSimilarityIndex.findMostSimilar(1L, 10);
+        assertEquals("Failure - most similar user first", 2L, similarUsers.get(0).getUserId());
+        assertEquals("Failure - similarity should be the exact Jaccard similarity", 0.6, similarUsers.get(0).getSimilarity(), 1e-9);
+        assertTrue("Failure - users with no likes in common should be left out",
+                similarUsers.stream().noneMatch(similarUser -> similarUser.getUserId() == 4L || similarUser.getUserId() == 1L));
+
+        assertEquals("Failure - count should limit the users returned", 1, likeSimilarityIndex.findMostSimilar(1L, 1).size());
+        assertTrue("Failure - a user with no likes is similar to nobody", likeSimilarityIndex.findMostSimilar(5L, 10).isEmpty());
+    }
+
+    @Test
+    public void unlikeAndRemove() throws Exception {
+        likes(1L, 1, 2);
+        likes(2L, 1, 2);
+
+        likeSimilarityIndex.unlike(2L, 2L);
+        assertEquals("Failure - unlike should lower the similarity", 0.5, likeSimilarityIndex.findMostSimilar(1L, 10).get(0).getSimilarity(), 1e-9);
+
+        likeSimilarityIndex.unlike(2L, 1L);
+        assertTrue("Failure - a user who unliked everything is similar to nobody", likeSimilarityIndex.findMostSimilar(1L, 10).isEmpty());
+
+        likes(3L, 1, 2);
+        likeSimilarityIndex.remove(3L);
+        assertTrue("Failure - a removed user is similar to nobody", likeSimilarityIndex.findMostSimilar(1L, 10).isEmpty());
+    }
+
+    @Test
+    public void findSimilarLikerScores() throws Exception {
+        likes(1L, 1, 2, 3, 4);
+        likes(2L, 1, 2, 3, 100);
+        likes(3L, 1, 2, 101);
+
+        Map<Long, Double> scores = likeSimilarityIndex.findSimilarLikerScores(1L, Arrays.asList(100L, 101L, 102L), 10);
+        assertEquals("Failure - page should be scored by its most similar liker", 0.6, scores.get(100L), 1e-9);
+        assertEquals("Failure - page liked by a less similar user", 0.4, scores.get(101L), 1e-9);
+        assertFalse("Failure - page liked by no similar user", scores.containsKey(102L));
+    }
+
+    @Test
+    public void findMostSimilarRecall() throws Exception {
+        //Pairs of users sharing half of their likes should almost always be found among many unrelated users
+        Random random = new Random(7);
+        int found = 0;
+        for (long pair = 0; pair < 100; pair++) {
+            long base = pair * 1000;
+            for (int i = 0; i < 20; i++) {
+                likeSimilarityIndex.like(pair * 2, base + i);
+                likeSimilarityIndex.like(pair * 2 + 1, base + (i < 13 ? i : 100 + i));
+                likeSimilarityIndex.like(1000 + pair, 1_000_000 + random.nextInt(1_000_000));
+            }
+        }
+        for (long pair = 0; pair < 100; pair++) {
+            List<SimilarUser> similarUsers = likeSimilarityIndex.findMostSimilar(pair * 2, 1);
+            if (!similarUsers.isEmpty() && similarUsers.get(0).getUserId() == pair * 2 + 1) {
+                found++;
+            }
+        }
+        assertTrue("Failure - too few similar pairs were found: " + found, found >= 95);
+    }
+
+    @Test
+    public void jaccard() throws Exception {
+        assertEquals("Failure - identical sets", 1.0,
+                LikeSimilarityIndex.jaccard(new HashSet<>(Arrays.asList(1L, 2L)), new HashSet<>(Arrays.asList(1L, 2L))), 1e-9);
+        assertEquals("Failure - empty sets", 0.0, LikeSimilarityIndex.jaccard(new HashSet<>(), new HashSet<>()), 1e-9);
+    }
+
+    private void likes(long userId, long... pageIds) {
+        for (long pageId : pageIds) {
+            likeSimilarityIndex.like(userId, pageId);
+        }
+    }
+
+}
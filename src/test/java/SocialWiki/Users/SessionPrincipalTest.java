@@ -0,0 +1,70 @@
+package SocialWiki.Users;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for SessionPrincipal
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SessionPrincipalTest {
+
+    @Autowired
+    private SessionPrincipal sessionPrincipal;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    private User user;
+
+    @Before
+    public void setUp() throws Exception {
+        user = userRepo.save(new User("testUserName1", "testFirstName1", "testLastName1", "Test1@email.com", "testPassword1"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        userRepo.deleteAll();
+    }
+
+    @Test
+    public void login() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        sessionPrincipal.login(session, user);
+
+        assertEquals("Failure - login should store the userName", "testUserName1", session.getAttribute(SessionPrincipal.USER_NAME_ATTRIBUTE));
+        assertEquals("Failure - login should store the id", user.getId(), session.getAttribute(SessionPrincipal.USER_ID_ATTRIBUTE));
+        assertEquals("Failure - the logged in user should be found by id", user, sessionPrincipal.getUser(session));
+    }
+
+    @Test
+    public void getUserOfSessionWithoutId() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(SessionPrincipal.USER_NAME_ATTRIBUTE, "TESTUSERNAME1");
+
+        assertEquals("Failure - a session without an id should fall back to the userName", user, sessionPrincipal.getUser(session));
+        assertEquals("Failure - the id should be kept for later requests", user.getId(), session.getAttribute(SessionPrincipal.USER_ID_ATTRIBUTE));
+    }
+
+    @Test
+    public void getUserOfSessionWithoutUser() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        assertNull("Failure - a session without a user has no id", sessionPrincipal.getUserId(session));
+        assertNull("Failure - a session without a user has no user", sessionPrincipal.getUser(session));
+
+        session.setAttribute(SessionPrincipal.USER_NAME_ATTRIBUTE, "notAUser");
+        assertNull("Failure - a session of an unknown user has no user", sessionPrincipal.getUser(session));
+        assertNull("Failure - no id should be kept for an unknown user", session.getAttribute(SessionPrincipal.USER_ID_ATTRIBUTE));
+    }
+
+}
@@ -82,6 +82,7 @@ public class UserAccountControllerTest {
 
         MockHttpSession session = (MockHttpSession) result.getRequest().getSession(false);
         assertNotEquals("Failure - successful login did not create a session for user", null, session);
+        assertEquals("Failure - successful login did not store the user id in the session", user1.getId(), session.getAttribute(SessionPrincipal.USER_ID_ATTRIBUTE));
 
         // perform successful login with email
         result = mockMvc.perform(post("/login")
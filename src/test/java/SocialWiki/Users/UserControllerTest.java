@@ -14,6 +14,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpSession;
 import javax.transaction.Transactional;
@@ -47,6 +49,9 @@ public class UserControllerTest {
     @Autowired
     private WikiPageRepository pageRepo;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private User user1;
     private User user2;
     private User user3;
@@ -88,6 +93,7 @@ public class UserControllerTest {
         // check that the page is now in the User's liked pages list
         User testUser = userRepo.findByUserName("testUserName1");
         assertTrue("Failure - wiki page is not in the User's liked pages list", testUser.getLikedPages().contains(page1));
+        assertEquals("Failure - wiki page like count should be 1", 1, likeCount(page1));
 
         // perform successful liking of a second page
         mockMvc.perform(post("/likePage")
@@ -169,6 +175,8 @@ public class UserControllerTest {
         User testUser2 = userRepo.findByUserName("testUserName3");
         assertTrue("Failure - wiki page is not in the User's liked pages list", testUser1.getLikedPages().contains(page1));
         assertTrue("Failure - wiki page is not in the User's liked pages list", testUser2.getLikedPages().contains(page1));
+        assertEquals("Failure - wiki page liked by two users should have a like count of 2", 2, likeCount(page1));
+        assertEquals("Failure - wiki page liked by one user should have a like count of 1", 1, likeCount(page2));
 
     }
 
@@ -199,6 +207,7 @@ public class UserControllerTest {
         // check that the page is not in the User's liked pages list
         User testUser = userRepo.findByUserName("testUserName1");
         assertFalse("Failure - wiki page is not in the User's liked pages list", testUser.getLikedPages().contains(page1));
+        assertEquals("Failure - wiki page like count should be 0 after unliking", 0, likeCount(page1));
 
         // perform unsuccessful unliking of page that is already unliked
         mockMvc.perform(post("/unlikePage")
@@ -840,4 +849,14 @@ public class UserControllerTest {
                 .andExpect(status().isForbidden());
     }
 
-}
\ No newline at end of file
+    /**
+     * Get the like count of a page as it is in the database, since it is only updated there
+     * @param page - the page to check
+     * @return the like count of the page
+     */
+    private int likeCount(ConcreteWikiPage page) {
+        entityManager.refresh(page);
+        return page.getLikeCount();
+    }
+
+}
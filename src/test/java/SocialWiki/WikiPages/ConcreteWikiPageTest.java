@@ -9,11 +9,15 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by Chris on 2/24/2017.
@@ -44,6 +48,27 @@ public class ConcreteWikiPageTest {
         assertEquals("Failure - getContent for testConcreteWikiPage2", "testContent2", testConcreteWikiPage2.getContent());
     }
 
+    @Test
+    public void equalsAndToStringWithoutContent() throws Exception {
+        //Neither comparing nor printing a WikiPage stored as a delta should need its contents
+        ConcreteWikiPage stored = new ConcreteWikiPage();
+        ReflectionTestUtils.setField(stored, "title", "testTitle2");
+        ReflectionTestUtils.setField(stored, "contentHash", testConcreteWikiPage2.getContentHash());
+        ReflectionTestUtils.setField(stored, "delta", "=0,1");
+
+        assertFalse("Failure - contents stored as a delta should not be loaded", stored.isContentLoaded());
+        assertEquals("Failure - equals for the same version", testConcreteWikiPage2, stored);
+        assertNotEquals("Failure - equals for different versions", testConcreteWikiPage1, stored);
+        assertTrue("Failure - toString for testConcreteWikiPage2", stored.toString().contains("testTitle2"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getContentNotLoaded() throws Exception {
+        ConcreteWikiPage stored = new ConcreteWikiPage();
+        ReflectionTestUtils.setField(stored, "delta", "=0,1");
+        stored.getContent();
+    }
+
     @Test
     public void getParentID() throws Exception {
         assertEquals("Failure - getParentID for testConcreteWikiPage1", ConcreteWikiPage.IS_ORIGINAL_ID, testConcreteWikiPage1.getParentID());
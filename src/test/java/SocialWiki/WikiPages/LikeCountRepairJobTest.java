@@ -0,0 +1,94 @@
+package SocialWiki.WikiPages;
+
+import SocialWiki.Users.User;
+import SocialWiki.Users.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for LikeCountRepairJob class
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class LikeCountRepairJobTest {
+
+    @Autowired
+    private LikeCountRepairJob likeCountRepairJob;
+
+    @Autowired
+    private WikiPageRepository wikiPageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User testUser1;
+    private User testUser2;
+
+    private ConcreteWikiPage testConcreteWikiPage1;
+    private ConcreteWikiPage testConcreteWikiPage2;
+
+    @Before
+    public void setUp() throws Exception {
+        testUser1 = userRepository.save(new User("testUserName1", "testFirstName1", "testLastName1", "Test1@email.com", "testPassword1"));
+        testUser2 = userRepository.save(new User("testUserName2", "testFirstName2", "testLastName2", "Test2@email.com", "testPassword2"));
+
+        testConcreteWikiPage1 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent1", testUser1));
+        testConcreteWikiPage2 = wikiPageRepository.save(new ConcreteWikiPage("testTitle2", "testContent2", testUser1));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wikiPageRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void repair() throws Exception {
+        //Like the pages without maintaining the counts, and push one count out of agreement
+        testUser1.likePage(testConcreteWikiPage1);
+        testUser2.likePage(testConcreteWikiPage1);
+        testUser1 = userRepository.save(testUser1);
+        testUser2 = userRepository.save(testUser2);
+        wikiPageRepository.incrementLikeCount(testConcreteWikiPage2.getId());
+
+        likeCountRepairJob.repair();
+
+        assertEquals("Failure - like count of a page liked by two users should be repaired to 2", Integer.valueOf(2),
+                wikiPageRepository.findById(testConcreteWikiPage1.getId()).getLikeCount());
+        assertEquals("Failure - like count of a page liked by no users should be repaired to 0", Integer.valueOf(0),
+                wikiPageRepository.findById(testConcreteWikiPage2.getId()).getLikeCount());
+    }
+
+    @Test
+    public void incrementAndDecrement() throws Exception {
+        wikiPageRepository.incrementLikeCount(testConcreteWikiPage1.getId());
+        wikiPageRepository.incrementLikeCount(testConcreteWikiPage1.getId());
+        wikiPageRepository.decrementLikeCounts(Collections.singletonList(testConcreteWikiPage1.getId()));
+        wikiPageRepository.decrementLikeCounts(Collections.singletonList(testConcreteWikiPage2.getId()));
+
+        //The counts are only updated in the database, so read them back from there
+        entityManager.clear();
+
+        assertEquals("Failure - like count after two increments and a decrement should be 1", Integer.valueOf(1),
+                wikiPageRepository.findById(testConcreteWikiPage1.getId()).getLikeCount());
+        assertEquals("Failure - like count should never go below 0", Integer.valueOf(0),
+                wikiPageRepository.findById(testConcreteWikiPage2.getId()).getLikeCount());
+    }
+
+}
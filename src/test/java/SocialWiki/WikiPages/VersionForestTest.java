@@ -0,0 +1,95 @@
+package SocialWiki.WikiPages;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for VersionForest class
+ */
+public class VersionForestTest {
+
+    private VersionForest forest;
+
+    @Before
+    public void setUp() throws Exception {
+        //Two trees: 1 -> (2 -> (4, 5), 3) and 10 -> 11
+        forest = new VersionForest();
+        forest.add(1L, ConcreteWikiPage.IS_ORIGINAL_ID);
+        forest.add(2L, 1L);
+        forest.add(3L, 1L);
+        forest.add(4L, 2L);
+        forest.add(10L, ConcreteWikiPage.IS_ORIGINAL_ID);
+        forest.add(5L, 2L);
+        forest.add(11L, 10L);
+    }
+
+    @Test
+    public void getRoot() throws Exception {
+        assertEquals("Failure - root of an original should be itself", 1L, forest.getRoot(1L));
+        assertEquals("Failure - root of a version", 1L, forest.getRoot(5L));
+        assertEquals("Failure - root of a version in another tree", 10L, forest.getRoot(11L));
+        assertEquals("Failure - root of a missing page", VersionForest.NOT_FOUND, forest.getRoot(-1L));
+    }
+
+    @Test
+    public void getDepthAndParent() throws Exception {
+        assertEquals("Failure - depth of an original", 0, forest.getDepth(1L));
+        assertEquals("Failure - depth of a version", 2, forest.getDepth(4L));
+        assertEquals("Failure - depth of a missing page", -1, forest.getDepth(99L));
+        assertEquals("Failure - parent of a version", 2L, forest.getParent(5L));
+        assertEquals("Failure - parent of an original", VersionForest.NOT_FOUND, forest.getParent(10L));
+    }
+
+    @Test
+    public void getSubtreeSize() throws Exception {
+        assertEquals("Failure - subtree size of a root", 5, forest.getSubtreeSize(1L));
+        assertEquals("Failure - subtree size of an inner version", 3, forest.getSubtreeSize(2L));
+        assertEquals("Failure - subtree size of a leaf", 1, forest.getSubtreeSize(3L));
+        assertEquals("Failure - subtree size of a missing page", 0, forest.getSubtreeSize(99L));
+    }
+
+    @Test
+    public void getAncestors() throws Exception {
+        assertArrayEquals("Failure - ancestors should run from the root", new long[]{1L, 2L, 5L}, forest.getAncestors(5L));
+        assertArrayEquals("Failure - ancestors of an original", new long[]{10L}, forest.getAncestors(10L));
+        assertArrayEquals("Failure - ancestors of a missing page", new long[0], forest.getAncestors(99L));
+    }
+
+    @Test
+    public void getDescendantsAndChildren() throws Exception {
+        assertArrayEquals("Failure - descendants should be in id order", new long[]{1L, 2L, 3L, 4L, 5L}, forest.getDescendants(1L));
+        assertArrayEquals("Failure - descendants of an inner version", new long[]{2L, 4L, 5L}, forest.getDescendants(2L));
+        assertArrayEquals("Failure - descendants of a missing page", new long[0], forest.getDescendants(99L));
+        assertArrayEquals("Failure - children should be in the order they were added", new long[]{4L, 5L}, forest.getChildren(2L));
+        assertArrayEquals("Failure - children should be limited", new long[]{4L}, forest.getChildren(2L, Long.MIN_VALUE, 1));
+        assertArrayEquals("Failure - children should start after the given id", new long[]{5L}, forest.getChildren(2L, 4L, 1));
+        assertEquals("Failure - child count of an inner version", 2, forest.getChildCount(1L));
+        assertEquals("Failure - child count of a leaf", 0, forest.getChildCount(4L));
+    }
+
+    @Test
+    public void addIsIdempotentAndGrows() throws Exception {
+        forest.add(2L, 1L);
+        assertEquals("Failure - adding a page twice should not change the forest", 7, forest.size());
+        assertEquals("Failure - adding a page twice should not change subtree sizes", 5, forest.getSubtreeSize(1L));
+
+        //Long chain past the initial capacity
+        for (long id = 100; id < 5100; id++) {
+            forest.add(id, id == 100 ? ConcreteWikiPage.IS_ORIGINAL_ID : id - 1);
+        }
+        assertEquals("Failure - root of the end of a long chain", 100L, forest.getRoot(5099L));
+        assertEquals("Failure - depth of the end of a long chain", 4999, forest.getDepth(5099L));
+        assertEquals("Failure - subtree size of the start of a long chain", 5000, forest.getSubtreeSize(100L));
+        assertTrue("Failure - earlier pages should survive growing", forest.contains(4L));
+
+        forest.clear();
+        assertFalse("Failure - clear should remove every page", forest.contains(1L));
+        assertEquals("Failure - clear should empty the forest", 0, forest.size());
+    }
+
+}
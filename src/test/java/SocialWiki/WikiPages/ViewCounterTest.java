@@ -0,0 +1,117 @@
+package SocialWiki.WikiPages;
+
+import SocialWiki.Users.User;
+import SocialWiki.Users.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for ViewCounter class
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ViewCounterTest {
+
+    @Autowired
+    private ViewCounter viewCounter;
+
+    @Autowired
+    private WikiPageRepository wikiPageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private ConcreteWikiPage testConcreteWikiPage1;
+
+    @Before
+    public void setUp() throws Exception {
+        User testUser1 = userRepository.save(new User("testUserName1", "testFirstName1", "testLastName1", "Test1@email.com", "testPassword1"));
+        testConcreteWikiPage1 = wikiPageRepository.saveAndFlush(new ConcreteWikiPage("testTitle1", "testContent1", testUser1));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        wikiPageRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void incrementAndFlush() throws Exception {
+        viewCounter.increment(testConcreteWikiPage1.getId());
+        viewCounter.increment(testConcreteWikiPage1.getId());
+        viewCounter.increment(testConcreteWikiPage1.getId());
+
+        assertEquals("Failure - pending views after 3 views should be 3", 3, viewCounter.getPendingViews(testConcreteWikiPage1.getId()));
+        assertEquals("Failure - total views should include pending views", 3, viewCounter.getViews(testConcreteWikiPage1.getId(), testConcreteWikiPage1.getViews()));
+
+        viewCounter.flush();
+
+        //The views are only written to the database, so read them back from there
+        entityManager.clear();
+        ConcreteWikiPage page = wikiPageRepository.findById(testConcreteWikiPage1.getId());
+
+        assertEquals("Failure - pending views after a flush should be 0", 0, viewCounter.getPendingViews(page.getId()));
+        assertEquals("Failure - stored views after a flush should be 3", Integer.valueOf(3), page.getViews());
+        assertEquals("Failure - total views should not change on a flush", 3, viewCounter.getViews(page.getId(), page.getViews()));
+    }
+
+    @Test
+    public void saveDoesNotOverwriteViews() throws Exception {
+        viewCounter.increment(testConcreteWikiPage1.getId());
+        viewCounter.flush();
+
+        //Saving a stale copy of the page must not write its view count back
+        testConcreteWikiPage1.setViews(0);
+        wikiPageRepository.saveAndFlush(testConcreteWikiPage1);
+        entityManager.clear();
+
+        assertEquals("Failure - saving a page should not overwrite its views", Integer.valueOf(1),
+                wikiPageRepository.findById(testConcreteWikiPage1.getId()).getViews());
+    }
+
+    @Test
+    public void flushForgetsWrittenPages() throws Exception {
+        Map<?, ?> views = (Map<?, ?>) ReflectionTestUtils.getField(viewCounter, "views");
+
+        viewCounter.increment(testConcreteWikiPage1.getId());
+        assertTrue("Failure - a viewed page should be held until its views are written", views.containsKey(testConcreteWikiPage1.getId()));
+
+        viewCounter.flush();
+        assertFalse("Failure - a page with every view written should be forgotten", views.containsKey(testConcreteWikiPage1.getId()));
+
+        //A view after the page was forgotten is still counted and written
+        viewCounter.increment(testConcreteWikiPage1.getId());
+        assertEquals("Failure - pending views after a view of a forgotten page should be 1", 1, viewCounter.getPendingViews(testConcreteWikiPage1.getId()));
+
+        viewCounter.flush();
+        entityManager.clear();
+        assertEquals("Failure - stored views after two flushes should be 2", Integer.valueOf(2),
+                wikiPageRepository.findById(testConcreteWikiPage1.getId()).getViews());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void getViewsOverflow() throws Exception {
+        viewCounter.increment(testConcreteWikiPage1.getId());
+        viewCounter.getViews(testConcreteWikiPage1.getId(), Integer.MAX_VALUE);
+    }
+
+}
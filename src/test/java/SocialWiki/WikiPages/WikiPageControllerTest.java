@@ -1,7 +1,14 @@
 package SocialWiki.WikiPages;
 
+import SocialWiki.Rendering.WikiPageRenderer;
+import SocialWiki.Users.FollowGraph;
+import SocialWiki.Users.InfluenceJob;
+import SocialWiki.Users.LikeSimilarityIndex;
 import SocialWiki.Users.User;
 import SocialWiki.Users.UserRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -16,16 +23,29 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.MultiValueMap;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
 import javax.servlet.http.Cookie;
 import javax.transaction.Transactional;
 
 import java.util.Arrays;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -48,6 +68,27 @@ public class WikiPageControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private WikiPageIndexer wikiPageIndexer;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private LikeCountRepairJob likeCountRepairJob;
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Autowired
+    private LikeSimilarityIndex likeSimilarityIndex;
+
+    @Autowired
+    private InfluenceJob influenceJob;
+
     private User testUser1;
     private User testUser2;
 
@@ -359,6 +400,8 @@ public class WikiPageControllerTest {
 
         testUser1.likePage(testConcreteWikiPage1);
         testUser1 = userRepository.save(testUser1);
+        //Likes saved directly to the repository are only counted on the page by a repair
+        likeCountRepairJob.repair();
         //Check for successful search that also returns amount of likes page has
         params.add("title", "testTitle1");
         params.add("user", testUser1.getUserName());
@@ -370,6 +413,504 @@ public class WikiPageControllerTest {
                 .andExpect(jsonPath("$.[0].likes", is(1)));
         params.clear();
 
+        //Pages saved directly to the repository are only picked up by the fuzzy index on a rebuild
+        wikiPageIndexer.rebuild();
+
+        //Check for successful fuzzy search with a typo in the title, ordered by score
+        params.add("title", "testTitlePari");
+        params.add("fuzzy", "true");
+        this.mockMvc.perform(get("/advancedSearchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].id", is(testConcreteWikiPage3.getId().intValue())))
+                .andExpect(jsonPath("$.[1].id", is(testConcreteWikiPage2.getId().intValue())))
+                .andExpect(jsonPath("$.[2].id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$.[0].score", is(2.0 * 11 / (14 + 14))));
+        params.clear();
+
+        //Check for successful fuzzy search with a typo in the user
+        params.add("user", "tsetUserName1");
+        params.add("fuzzy", "true");
+        this.mockMvc.perform(get("/advancedSearchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].id", is(testConcreteWikiPage1.getId().intValue())));
+        params.clear();
+
+    }
+
+    @Test
+    public void collapsedSearchWikiPage() throws Exception {
+
+        //One version tree with an original and two edits, and another with only an original
+        ConcreteWikiPage original = wikiPageRepository.save(new ConcreteWikiPage("collapseTitle", "testContent1",testUser1));
+        ConcreteWikiPage edit1 = wikiPageRepository.save(new ConcreteWikiPage("collapseTitle", "testContent2", original.getId(),testUser2));
+        ConcreteWikiPage edit2 = wikiPageRepository.save(new ConcreteWikiPage("collapseTitle", "testContent3", edit1.getId(),testUser1));
+        ConcreteWikiPage other = wikiPageRepository.save(new ConcreteWikiPage("collapseTitle other", "testContent4",testUser2));
+
+        //The version trees are maintained by the database, and pages saved directly to the repository are only indexed on a rebuild
+        entityManager.flush();
+        wikiPageIndexer.rebuild();
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful search due to an unknown collapse
+        params.add("title", "collapseTitle");
+        params.add("collapse", "page");
+        this.mockMvc.perform(get("/searchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for successful search from the index, one WikiPage per tree, newest of the best matches first
+        params.add("title", "collapseTitle");
+        params.add("collapse", "tree");
+        this.mockMvc.perform(get("/searchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(edit2.getId().intValue())))
+                .andExpect(jsonPath("$[0].versions", is(3)))
+                .andExpect(jsonPath("$[1].id", is(other.getId().intValue())))
+                .andExpect(jsonPath("$[1].versions", is(1)));
+
+        //Check for successful search from the database
+        this.mockMvc.perform(get("/advancedSearchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(edit2.getId().intValue())))
+                .andExpect(jsonPath("$[0].versions", is(3)))
+                .andExpect(jsonPath("$[1].id", is(other.getId().intValue())));
+
+        //Check for unsuccessful paged search, which cannot collapse
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for successful fuzzy search, only the WikiPage with the better title of each tree being kept
+        params.add("title", "colapseTitle");
+        params.add("fuzzy", "true");
+        params.add("collapse", "tree");
+        this.mockMvc.perform(get("/advancedSearchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(edit2.getId().intValue())))
+                .andExpect(jsonPath("$[0].versions", is(3)));
+        params.clear();
+
+    }
+
+    @Test
+    public void searchWikiPagePaged() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = new ConcreteWikiPage("testTitle1", "testContent1",testUser1);
+        ConcreteWikiPage testConcreteWikiPage2 = new ConcreteWikiPage("testTitlePair", "testContent2",testUser2);
+
+        testConcreteWikiPage1 = wikiPageRepository.save(testConcreteWikiPage1);
+        testConcreteWikiPage2 = wikiPageRepository.save(testConcreteWikiPage2);
+
+        ConcreteWikiPage testConcreteWikiPage3 = new ConcreteWikiPage("testTitlePair", "testContent3", testConcreteWikiPage2.getId(),testUser2);
+        testConcreteWikiPage3 = wikiPageRepository.save(testConcreteWikiPage3);
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful search due to no parameter
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+
+        //Check for unsuccessful search due to invalid page size
+        params.add("title", "testTitle");
+        params.add("size", "0");
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for unsuccessful search due to malformed cursor
+        params.add("title", "testTitle");
+        params.add("cursor", "not a cursor!");
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for successful search of the first page
+        params.add("title", "testTitle");
+        params.add("size", "2");
+        MvcResult result = this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pages.length()", is(2)))
+                .andExpect(jsonPath("$.pages[0].id", is(testConcreteWikiPage3.getId().intValue())))
+                .andExpect(jsonPath("$.pages[1].id", is(testConcreteWikiPage2.getId().intValue())))
+                .andReturn();
+        params.clear();
+
+        //Check for successful search of the last page using the cursor of the first
+        params.add("title", "testTitle");
+        params.add("size", "2");
+        params.add("cursor", JsonPath.read(result.getResponse().getContentAsString(), "$.nextCursor"));
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pages.length()", is(1)))
+                .andExpect(jsonPath("$.pages[0].id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+        params.clear();
+
+        //Check for successful search across match tiers, the exact title match comes before the content match
+        params.add("title", "testTitle1");
+        params.add("size", "1");
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pages[0].id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+        params.clear();
+
+    }
+
+    @Test
+    public void advancedSearchWikiPagePaged() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = new ConcreteWikiPage("testTitle1", "testContent1",testUser1);
+        ConcreteWikiPage testConcreteWikiPage2 = new ConcreteWikiPage("testTitlePair", "testContent2",testUser2);
+
+        testConcreteWikiPage1 = wikiPageRepository.save(testConcreteWikiPage1);
+        testConcreteWikiPage2 = wikiPageRepository.save(testConcreteWikiPage2);
+
+        ConcreteWikiPage testConcreteWikiPage3 = new ConcreteWikiPage("testTitlePair", "testContent3", testConcreteWikiPage2.getId(),testUser2);
+        testConcreteWikiPage3 = wikiPageRepository.save(testConcreteWikiPage3);
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful search due to no parameters
+        this.mockMvc.perform(get("/advancedSearchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+
+        //Check for successful search of every page one at a time, following the cursors
+        params.add("user", "testUserName");
+        params.add("size", "1");
+        Long[] expected = {testConcreteWikiPage3.getId(), testConcreteWikiPage2.getId(), testConcreteWikiPage1.getId()};
+        String cursor = "";
+        for (int i = 0; i < expected.length; i++) {
+            params.set("cursor", cursor);
+            MvcResult result = this.mockMvc.perform(get("/advancedSearchWikiPagePaged").params(params))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.pages.length()", is(1)))
+                    .andExpect(jsonPath("$.pages[0].id", is(expected[i].intValue())))
+                    .andReturn();
+            cursor = JsonPath.read(result.getResponse().getContentAsString(), "$.nextCursor");
+        }
+        params.clear();
+
+        //Check that the last page has no cursor
+        assertNull("Failure - the last page of results should have no next cursor", cursor);
+
+    }
+
+    @Test
+    public void sortedSearchWikiPage() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = new ConcreteWikiPage("testTitle1", "testContent1",testUser1);
+        ConcreteWikiPage testConcreteWikiPage2 = new ConcreteWikiPage("testTitlePair", "testContent2",testUser2);
+
+        testConcreteWikiPage1 = wikiPageRepository.save(testConcreteWikiPage1);
+        testConcreteWikiPage2 = wikiPageRepository.save(testConcreteWikiPage2);
+
+        ConcreteWikiPage testConcreteWikiPage3 = new ConcreteWikiPage("testTitlePair", "testContent3", testConcreteWikiPage2.getId(),testUser2);
+        testConcreteWikiPage3 = wikiPageRepository.save(testConcreteWikiPage3);
+        ConcreteWikiPage testConcreteWikiPage4 = new ConcreteWikiPage("testTitlePair", "testContent4", testConcreteWikiPage3.getId(),testUser1);
+        testConcreteWikiPage4 = wikiPageRepository.save(testConcreteWikiPage4);
+
+        wikiPageRepository.incrementLikeCount(testConcreteWikiPage1.getId());
+        wikiPageRepository.incrementLikeCount(testConcreteWikiPage1.getId());
+        wikiPageRepository.incrementLikeCount(testConcreteWikiPage3.getId());
+
+        //Edit counts are maintained by the database, so read the WikiPages again
+        entityManager.flush();
+        entityManager.clear();
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful search due to unknown sort
+        params.add("title", "testTitle");
+        params.add("sort", "bogus");
+        this.mockMvc.perform(get("/searchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for successful search most edited first, ties broken by highest id
+        params.add("title", "testTitle");
+        params.add("sort", "edited");
+        this.mockMvc.perform(get("/searchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(4)))
+                .andExpect(jsonPath("$[0].id", is(testConcreteWikiPage2.getId().intValue())))
+                .andExpect(jsonPath("$[0].edits", is(2)))
+                .andExpect(jsonPath("$[1].id", is(testConcreteWikiPage3.getId().intValue())))
+                .andExpect(jsonPath("$[2].id", is(testConcreteWikiPage4.getId().intValue())))
+                .andExpect(jsonPath("$[3].id", is(testConcreteWikiPage1.getId().intValue())));
+        params.clear();
+
+        //Check for successful search most liked first
+        params.add("title", "testTitle");
+        params.add("sort", "liked");
+        this.mockMvc.perform(get("/searchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$[1].id", is(testConcreteWikiPage3.getId().intValue())));
+        params.clear();
+
+        //Check for successful search of every page most edited first, following the cursor
+        params.add("title", "testTitle");
+        params.add("sort", "edited");
+        params.add("size", "3");
+        MvcResult result = this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pages.length()", is(3)))
+                .andExpect(jsonPath("$.pages[0].id", is(testConcreteWikiPage2.getId().intValue())))
+                .andExpect(jsonPath("$.pages[1].id", is(testConcreteWikiPage3.getId().intValue())))
+                .andExpect(jsonPath("$.pages[2].id", is(testConcreteWikiPage4.getId().intValue())))
+                .andReturn();
+        params.add("cursor", JsonPath.read(result.getResponse().getContentAsString(), "$.nextCursor"));
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pages.length()", is(1)))
+                .andExpect(jsonPath("$.pages[0].id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+
+        //Check for unsuccessful search continuing the cursor of one sort order in another
+        params.set("sort", "liked");
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.remove("sort");
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for successful advanced search of one page most recent first
+        params.add("user", "testUserName1");
+        params.add("sort", "recent");
+        params.add("size", "1");
+        this.mockMvc.perform(get("/advancedSearchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pages[0].id", is(testConcreteWikiPage4.getId().intValue())));
+        params.clear();
+
+    }
+
+    @Test
+    public void closestSortedSearchWikiPage() throws Exception {
+
+        User testUser3 = userRepository.save(new User("testUserName3", "testFirstName3", "testLastName3", "Test3@email.com", "testPassword3"));
+
+        ConcreteWikiPage testConcreteWikiPage1 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent1",testUser1));
+        ConcreteWikiPage testConcreteWikiPage2 = wikiPageRepository.save(new ConcreteWikiPage("testTitle2", "testContent2",testUser2));
+        ConcreteWikiPage testConcreteWikiPage3 = wikiPageRepository.save(new ConcreteWikiPage("testTitle3", "testContent3",testUser3));
+
+        //testUserName1 follows testUserName2, who follows testUserName3
+        testUser1.followUser(testUser2);
+        testUser2.followUser(testUser3);
+        testUser2.likePage(testConcreteWikiPage1);
+        testUser3.likePage(testConcreteWikiPage2);
+        userRepository.save(Arrays.asList(testUser1, testUser2, testUser3));
+        entityManager.flush();
+        followGraph.refresh();
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful search due to no session to measure from
+        params.add("title", "testTitle");
+        params.add("sort", "closest");
+        this.mockMvc.perform(get("/searchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isForbidden());
+
+        //Check for unsuccessful paged search, as closest needs every match to rank
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+
+        // perform login to get session
+        MvcResult result = this.mockMvc.perform(post("/login")
+                .content("login="+ testUser1.getUserName() + "&pass=" + testUser1.getPassword())
+                .contentType("application/x-www-form-urlencoded"))
+                .andReturn();
+        MockHttpSession session = (MockHttpSession) result.getRequest().getSession(false);
+
+        //Check for successful search, pages liked by closer users first and the page with no liker last
+        this.mockMvc.perform(get("/searchWikiPage").params(params).session(session))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[0].id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$[0].distance", is(1)))
+                .andExpect(jsonPath("$[1].id", is(testConcreteWikiPage2.getId().intValue())))
+                .andExpect(jsonPath("$[1].distance", is(2)))
+                .andExpect(jsonPath("$[2].id", is(testConcreteWikiPage3.getId().intValue())))
+                .andExpect(jsonPath("$[2].distance").doesNotExist());
+        params.clear();
+
+    }
+
+    @Test
+    public void similarSortedSearchWikiPage() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent1",testUser1));
+        ConcreteWikiPage testConcreteWikiPage2 = wikiPageRepository.save(new ConcreteWikiPage("testTitle2", "testContent2",testUser2));
+        ConcreteWikiPage testConcreteWikiPage3 = wikiPageRepository.save(new ConcreteWikiPage("testTitle3", "testContent3",testUser2));
+
+        //Both users like the first page, and only testUserName2 likes the second
+        testUser1.likePage(testConcreteWikiPage1);
+        testUser2.likePage(testConcreteWikiPage1);
+        testUser2.likePage(testConcreteWikiPage2);
+        userRepository.save(Arrays.asList(testUser1, testUser2));
+        entityManager.flush();
+        likeSimilarityIndex.rebuild();
+
+        // perform login to get session
+        MvcResult result = this.mockMvc.perform(post("/login")
+                .content("login="+ testUser1.getUserName() + "&pass=" + testUser1.getPassword())
+                .contentType("application/x-www-form-urlencoded"))
+                .andReturn();
+        MockHttpSession session = (MockHttpSession) result.getRequest().getSession(false);
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for successful search, pages liked by the most similar user first and the page they do not like last
+        params.add("title", "testTitle");
+        params.add("sort", "similar");
+        this.mockMvc.perform(get("/searchWikiPage").params(params).session(session))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[0].similarity", is(0.5)))
+                .andExpect(jsonPath("$[1].similarity", is(0.5)))
+                .andExpect(jsonPath("$[2].id", is(testConcreteWikiPage3.getId().intValue())))
+                .andExpect(jsonPath("$[2].similarity").doesNotExist());
+
+        //Check for unsuccessful paged search, as similar needs every match to rank
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params).session(session))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+    }
+
+    @Test
+    public void popularSortedSearchWikiPage() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent1",testUser1));
+        ConcreteWikiPage testConcreteWikiPage2 = wikiPageRepository.save(new ConcreteWikiPage("testTitle2", "testContent2",testUser2));
+
+        //testUserName1 follows testUserName2, making testUserName2 the more influential
+        testUser1.followUser(testUser2);
+        testUser1.likePage(testConcreteWikiPage1);
+        testUser2.likePage(testConcreteWikiPage2);
+        userRepository.save(Arrays.asList(testUser1, testUser2));
+        entityManager.flush();
+        followGraph.refresh();
+        influenceJob.run();
+
+        //Influence is stored by the database, so read the WikiPages again
+        entityManager.clear();
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for successful search, the page liked by the more influential user first
+        params.add("title", "testTitle");
+        params.add("sort", "popular");
+        this.mockMvc.perform(get("/searchWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(testConcreteWikiPage2.getId().intValue())))
+                .andExpect(jsonPath("$[1].id", is(testConcreteWikiPage1.getId().intValue())));
+
+        //Check for successful paged search, following the cursor to the second page
+        params.add("size", "1");
+        MvcResult result = this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pages[0].id", is(testConcreteWikiPage2.getId().intValue())))
+                .andReturn();
+        params.add("cursor", JsonPath.read(result.getResponse().getContentAsString(), "$.nextCursor"));
+        this.mockMvc.perform(get("/searchWikiPagePaged").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pages[0].id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+        params.clear();
+
+        //Check that the run was reported
+        this.mockMvc.perform(get("/influenceStatistics"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.converged", is(true)));
+
+    }
+
+    @Test
+    public void searchStatementCount() throws Exception {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+        params.add("title", "statementCount");
+
+        long[] searchStatements = new long[2];
+        long[] advancedSearchStatements = new long[2];
+        int[] resultCounts = {3, 30};
+
+        for (int i = 0; i < resultCounts.length; i++) {
+            //Add liked pages until there are the required number of results
+            while (wikiPageRepository.findByTitleAndContent("statementCount").size() < resultCounts[i]) {
+                ConcreteWikiPage page = wikiPageRepository.save(new ConcreteWikiPage("statementCount", "testContent", testUser2));
+                testUser1.likePage(page);
+            }
+            testUser1 = userRepository.save(testUser1);
+            likeCountRepairJob.repair();
+            wikiPageIndexer.rebuild();
+
+            statistics.clear();
+            this.mockMvc.perform(get("/searchWikiPage").params(params))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()", is(resultCounts[i])))
+                    .andExpect(jsonPath("$.[0].likes", is(1)));
+            searchStatements[i] = statistics.getPrepareStatementCount();
+
+            statistics.clear();
+            this.mockMvc.perform(get("/advancedSearchWikiPage").params(params))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()", is(resultCounts[i])))
+                    .andExpect(jsonPath("$.[0].likes", is(1)));
+            advancedSearchStatements[i] = statistics.getPrepareStatementCount();
+        }
+
+        statistics.setStatisticsEnabled(false);
+
+        //Check that the number of statements does not grow with the number of results
+        assertEquals("Failure - statements run by searchWikiPage should not depend on the number of results", searchStatements[0], searchStatements[1]);
+        assertEquals("Failure - statements run by advancedSearchWikiPage should not depend on the number of results", advancedSearchStatements[0], advancedSearchStatements[1]);
+
     }
 
     @Test
@@ -418,6 +959,8 @@ public class WikiPageControllerTest {
         // Check for successful search after user likes page and increments like counter
         testUser1.likePage(testConcreteWikiPage1);
         testUser1 = userRepository.save(testUser1);
+        //Likes saved directly to the repository are only counted on the page by a repair
+        likeCountRepairJob.repair();
         params.add("id", testConcreteWikiPage1.getId().toString());
         this.mockMvc.perform(get("/retrieveWikiPage").params(params))
                 .andDo(print())
@@ -431,6 +974,7 @@ public class WikiPageControllerTest {
         // Check for successful search after user unlikes page
         testUser1.unlikePage(testConcreteWikiPage1);
         testUser1 = userRepository.save(testUser1);
+        likeCountRepairJob.repair();
         params.add("id", testConcreteWikiPage1.getId().toString());
         this.mockMvc.perform(get("/retrieveWikiPage").params(params))
                 .andDo(print())
@@ -455,6 +999,273 @@ public class WikiPageControllerTest {
         params.clear();
     }
 
+    @Test
+    public void retrieveWikiPageContent() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = new ConcreteWikiPage("testTitle1", "testContent1",testUser1);
+
+        testConcreteWikiPage1 = wikiPageRepository.save(testConcreteWikiPage1);
+        String eTag = "\"" + testConcreteWikiPage1.getId() + "\"";
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful retrieval due to no parameters
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+
+        //Check for unsuccessful retrieval using bad id
+        params.add("id", "-1");
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for successful retrieval, which is cacheable and has no counters
+        params.add("id", testConcreteWikiPage1.getId().toString());
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+                .andExpect(jsonPath("$.id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$.content", is("testContent1")))
+                .andExpect(jsonPath("$.author", is(testUser1.getUserName())))
+                .andExpect(jsonPath("$.views").doesNotExist())
+                .andExpect(jsonPath("$.likes").doesNotExist());
+
+        //Check that a matching ETag, strong or weak, is answered without a body
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params).header(HttpHeaders.IF_NONE_MATCH, "\"0\", " + eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params).header(HttpHeaders.IF_NONE_MATCH, "W/" + eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified());
+
+        //Check that the ETag of another page does not match
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(testConcreteWikiPage1.getId().intValue())));
+        params.clear();
+    }
+
+    @Test
+    public void acceptsGzip() throws Exception {
+        assertTrue("Failure - gzip should be accepted", WikiPageController.acceptsGzip("gzip, deflate"));
+        assertTrue("Failure - gzip with a q-value above 0 should be accepted", WikiPageController.acceptsGzip("deflate;q=1.0, GZIP;q=0.5"));
+        assertTrue("Failure - * should accept gzip", WikiPageController.acceptsGzip("identity, *;q=0.1"));
+        assertFalse("Failure - gzip;q=0 should refuse gzip", WikiPageController.acceptsGzip("gzip;q=0"));
+        assertFalse("Failure - gzip;q=0 should refuse gzip even with *", WikiPageController.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse("Failure - a q-value of 0 for * should refuse gzip", WikiPageController.acceptsGzip("*;q=0"));
+        assertFalse("Failure - other codings should not accept gzip", WikiPageController.acceptsGzip("deflate, br"));
+        assertFalse("Failure - a missing header should not accept gzip", WikiPageController.acceptsGzip(null));
+    }
+
+    @Test
+    public void retrieveWikiPageContentAsHtml() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = new ConcreteWikiPage("testTitle1", "# testHeading\n\n**testContent1** &lt;b&gt;", testUser1);
+
+        testConcreteWikiPage1 = wikiPageRepository.save(testConcreteWikiPage1);
+        String eTag = "\"" + testConcreteWikiPage1.getId() + "-html-" + WikiPageRenderer.RENDERER_VERSION + "\"";
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check that the HTML is only sent when asked for
+        params.add("id", testConcreteWikiPage1.getId().toString());
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.html").doesNotExist());
+
+        //Check that the rendered HTML is a different version of the response
+        params.add("format", "html");
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=3600"))
+                .andExpect(jsonPath("$.content").doesNotExist())
+                .andExpect(jsonPath("$.html", is("<h1>testHeading</h1>\n<p><strong>testContent1</strong> &lt;b&gt;</p>\n")));
+
+        //Check that HTML from an older renderer is not reused
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params).header(HttpHeaders.IF_NONE_MATCH, "\"" + testConcreteWikiPage1.getId() + "-html\""))
+                .andDo(print())
+                .andExpect(status().isOk());
+        this.mockMvc.perform(get("/retrieveWikiPageContent").params(params).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=3600"));
+
+        //Check that retrieveWikiPage renders the same HTML
+        this.mockMvc.perform(get("/retrieveWikiPage").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").doesNotExist())
+                .andExpect(jsonPath("$.html", is("<h1>testHeading</h1>\n<p><strong>testContent1</strong> &lt;b&gt;</p>\n")));
+        params.clear();
+    }
+
+    @Test
+    public void diffWikiPages() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testLine1\ntestLine2", testUser1));
+        ConcreteWikiPage testConcreteWikiPage2 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testLine1\ntestChanged", testConcreteWikiPage1.getId(), testUser1));
+        ConcreteWikiPage testConcreteWikiPage3 = wikiPageRepository.save(new ConcreteWikiPage("testTitle3", "testContent3", testUser1));
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful diff due to no parameters
+        this.mockMvc.perform(get("/diffWikiPages").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+
+        //Check for unsuccessful diff of versions of different pages
+        params.add("from", testConcreteWikiPage1.getId().toString());
+        params.add("to", testConcreteWikiPage3.getId().toString());
+        this.mockMvc.perform(get("/diffWikiPages").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for successful diff of a version and its parent
+        params.add("from", testConcreteWikiPage1.getId().toString());
+        params.add("to", testConcreteWikiPage2.getId().toString());
+        this.mockMvc.perform(get("/diffWikiPages").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+                .andExpect(jsonPath("$.mode", is("line")))
+                .andExpect(jsonPath("$.insertions", is(1)))
+                .andExpect(jsonPath("$.deletions", is(1)))
+                .andExpect(jsonPath("$.chunks[0].type", is("equal")))
+                .andExpect(jsonPath("$.chunks[0].text", is("testLine1")))
+                .andExpect(jsonPath("$.chunks[1].text", is("testLine2")))
+                .andExpect(jsonPath("$.chunks[2].text", is("testChanged")));
+
+        //Check for unsuccessful diff with an unknown mode
+        params.add("mode", "testMode");
+        this.mockMvc.perform(get("/diffWikiPages").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+    }
+
+    @Test
+    public void suggestTitles() throws Exception {
+
+        wikiPageRepository.save(new ConcreteWikiPage("Zebra Crossing", "testContent1",testUser1));
+        wikiPageRepository.save(new ConcreteWikiPage("zebra  crossing", "testContent2",testUser2));
+        wikiPageRepository.save(new ConcreteWikiPage("Zebra Finch", "testContent3",testUser1));
+
+        //Pages saved directly to the repository are only picked up by the title index on a rebuild
+        wikiPageIndexer.rebuild();
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful suggestion due to no prefix
+        this.mockMvc.perform(get("/suggestTitles").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+
+        //Check for successful suggestion, titles differing in case and spacing counting as one
+        params.add("prefix", "zEBRA ");
+        this.mockMvc.perform(get("/suggestTitles").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].title", is("zebra  crossing")))
+                .andExpect(jsonPath("$[0].weight", is(2)))
+                .andExpect(jsonPath("$[1].title", is("Zebra Finch")));
+        params.clear();
+
+        //Check for successful suggestion with a prefix nothing starts with
+        params.add("prefix", "zebras");
+        this.mockMvc.perform(get("/suggestTitles").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        params.clear();
+    }
+
+    @Test
+    public void trendingWikiPages() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent1",testUser1));
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //View the WikiPage more than any other test views one, so it trends first
+        params.add("id", testConcreteWikiPage1.getId().toString());
+        for (int i = 0; i < 50; i++) {
+            this.mockMvc.perform(get("/retrieveWikiPageCounters").params(params))
+                    .andExpect(status().isOk());
+        }
+        //Retrieving the whole WikiPage counts a view too
+        this.mockMvc.perform(get("/retrieveWikiPage").params(params))
+                .andExpect(status().isOk());
+        params.clear();
+
+        //A like after the WikiPage was cached should still be shown
+        wikiPageRepository.incrementLikeCount(testConcreteWikiPage1.getId());
+
+        //Check for successful retrieval of the trending WikiPages
+        this.mockMvc.perform(get("/trendingWikiPages"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$[0].title", is("testTitle1")))
+                .andExpect(jsonPath("$[0].author", is(testUser1.getUserName())))
+                .andExpect(jsonPath("$[0].likes", is(1)))
+                .andExpect(jsonPath("$[0].trendingScore", greaterThan(50.0)))
+                .andExpect(jsonPath("$[0].trendingScore", lessThan(52.0)));
+    }
+
+    @Test
+    public void retrieveWikiPageCounters() throws Exception {
+
+        ConcreteWikiPage testConcreteWikiPage1 = new ConcreteWikiPage("testTitle1", "testContent1",testUser1);
+
+        testConcreteWikiPage1 = wikiPageRepository.save(testConcreteWikiPage1);
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful retrieval due to no parameters
+        this.mockMvc.perform(get("/retrieveWikiPageCounters").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+
+        //Check for unsuccessful retrieval using bad id
+        params.add("id", "-1");
+        this.mockMvc.perform(get("/retrieveWikiPageCounters").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for successful retrieval, which counts a view and is never cached
+        params.add("id", testConcreteWikiPage1.getId().toString());
+        this.mockMvc.perform(get("/retrieveWikiPageCounters").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(jsonPath("$.views", is(1)))
+                .andExpect(jsonPath("$.likes", is(0)))
+                .andExpect(jsonPath("$.authorDeleted", is(false)));
+
+        // Check for successful retrieval after the author account has been deleted
+        testUser1.delete();
+        testUser1 = userRepository.save(testUser1);
+        this.mockMvc.perform(get("/retrieveWikiPageCounters").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.views", is(2)))
+                .andExpect(jsonPath("$.authorDeleted", is(true)));
+        params.clear();
+    }
+
     @Test
     public void retrieveWikiPageHistory() throws Exception {
         ConcreteWikiPage testConcreteWikiPage1 = new ConcreteWikiPage("testTitle1", "testContent1",testUser1);
@@ -534,6 +1345,74 @@ public class WikiPageControllerTest {
         params.clear();
     }
 
+    @Test
+    public void retrieveWikiPageHistoryTree() throws Exception {
+        //Tree: 1 -> (2 -> (4, 5), 3)
+        ConcreteWikiPage testConcreteWikiPage1 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent1", testUser1));
+        ConcreteWikiPage testConcreteWikiPage2 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent2", testConcreteWikiPage1.getId(), testUser1));
+        ConcreteWikiPage testConcreteWikiPage3 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent3", testConcreteWikiPage1.getId(), testUser2));
+        ConcreteWikiPage testConcreteWikiPage4 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent4", testConcreteWikiPage2.getId(), testUser2));
+        ConcreteWikiPage testConcreteWikiPage5 = wikiPageRepository.save(new ConcreteWikiPage("testTitle1", "testContent5", testConcreteWikiPage2.getId(), testUser1));
+        wikiPageIndexer.rebuild();
+
+        MultiValueMap<String, String> params = new HttpHeaders();
+
+        //Check for unsuccessful retrieval due to no parameters
+        this.mockMvc.perform(get("/retrieveWikiPageHistoryTree").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+
+        //Check for unsuccessful retrieval using bad id
+        params.add("id", "-1");
+        this.mockMvc.perform(get("/retrieveWikiPageHistoryTree").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check for unsuccessful retrieval using a depth that is too large
+        params.add("id", testConcreteWikiPage1.getId().toString());
+        params.add("depth", "11");
+        this.mockMvc.perform(get("/retrieveWikiPageHistoryTree").params(params))
+                .andDo(print())
+                .andExpect(status().isUnprocessableEntity());
+        params.clear();
+
+        //Check that only one level is expanded, with the counts of the unexpanded pages
+        params.add("id", testConcreteWikiPage4.getId().toString());
+        params.add("root", "true");
+        params.add("depth", "1");
+        this.mockMvc.perform(get("/retrieveWikiPageHistoryTree").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(testConcreteWikiPage1.getId().intValue())))
+                .andExpect(jsonPath("$.childCount", is(2)))
+                .andExpect(jsonPath("$.subtreeSize", is(5)))
+                .andExpect(jsonPath("$.children.length()", is(2)))
+                .andExpect(jsonPath("$.children[0].id", is(testConcreteWikiPage2.getId().intValue())))
+                .andExpect(jsonPath("$.children[0].childCount", is(2)))
+                .andExpect(jsonPath("$.children[0].children").doesNotExist())
+                .andExpect(jsonPath("$.children[1].id", is(testConcreteWikiPage3.getId().intValue())));
+        params.clear();
+
+        //Check that a page can be expanded on its own, a part of its children at a time
+        params.add("id", testConcreteWikiPage2.getId().toString());
+        params.add("width", "1");
+        this.mockMvc.perform(get("/retrieveWikiPageHistoryTree").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(testConcreteWikiPage2.getId().intValue())))
+                .andExpect(jsonPath("$.children.length()", is(1)))
+                .andExpect(jsonPath("$.children[0].id", is(testConcreteWikiPage4.getId().intValue())))
+                .andExpect(jsonPath("$.children[0].children.length()", is(0)));
+        params.add("after", testConcreteWikiPage4.getId().toString());
+        this.mockMvc.perform(get("/retrieveWikiPageHistoryTree").params(params))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.children.length()", is(1)))
+                .andExpect(jsonPath("$.children[0].id", is(testConcreteWikiPage5.getId().intValue())));
+        params.clear();
+    }
+
     @Test
     public void searchWikiPage() throws Exception {
 
@@ -546,6 +1425,9 @@ public class WikiPageControllerTest {
         ConcreteWikiPage testConcreteWikiPage3 = new ConcreteWikiPage("testTitlePair", "testContent3", testConcreteWikiPage2.getId(),testUser2);
         testConcreteWikiPage3 = wikiPageRepository.save(testConcreteWikiPage3);
 
+        //Pages saved directly to the repository are only picked up by the search index on a rebuild
+        wikiPageIndexer.rebuild();
+
         MultiValueMap<String, String> params = new HttpHeaders();
 
         //Check for unsuccessful search due to no parameter
@@ -588,6 +1470,8 @@ public class WikiPageControllerTest {
 
         testUser1.likePage(testConcreteWikiPage1);
         testUser1 = userRepository.save(testUser1);
+        //Likes saved directly to the repository are only counted on the page by a repair
+        likeCountRepairJob.repair();
         //Check for successful search that also returns amount of likes page has
         params.add("title", "\n \r testTitle1 \t");
         this.mockMvc.perform(get("/searchWikiPage").params(params))
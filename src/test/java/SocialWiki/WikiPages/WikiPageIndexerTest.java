@@ -0,0 +1,172 @@
+package SocialWiki.WikiPages;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for WikiPageIndexer class
+ */
+public class WikiPageIndexerTest {
+
+    private WikiPageIndexer indexer;
+
+    /**
+     * Ids of the WikiPages added to the index, in the order they were added
+     */
+    private List<Long> added;
+
+    /**
+     * Batches returned by the repository during a rebuild, each run before it is returned
+     */
+    private List<Runnable> duringBatches;
+    private List<List<ConcreteWikiPage>> batches;
+
+    @Before
+    public void setUp() throws Exception {
+        indexer = new WikiPageIndexer();
+        added = new ArrayList<>();
+        duringBatches = new ArrayList<>();
+        batches = new ArrayList<>();
+
+        WikiPageIndex index = new WikiPageIndex() {
+            @Override
+            public void add(ConcreteWikiPage page) {
+                added.add(page.getId());
+            }
+
+            @Override
+            public void clear() {
+                added.clear();
+            }
+        };
+
+        //Only the batch query is used by a rebuild
+        WikiPageRepository repository = (WikiPageRepository) Proxy.newProxyInstance(WikiPageRepository.class.getClassLoader(),
+                new Class<?>[]{WikiPageRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findByIdGreaterThanOrderByIdAsc")) {
+                        return method.getName().equals("toString") ? "WikiPageRepository" : null;
+                    }
+                    if (batches.isEmpty()) {
+                        return Collections.emptyList();
+                    }
+                    duringBatches.remove(0).run();
+                    return batches.remove(0);
+                });
+
+        ReflectionTestUtils.setField(indexer, "indexes", Collections.singletonList(index));
+        ReflectionTestUtils.setField(indexer, "wikiPageRepo", repository);
+    }
+
+    @Test
+    public void indexBeforeRebuild() throws Exception {
+        assertFalse("Failure - the indexes are not ready before the first rebuild", indexer.isReady());
+
+        indexer.index(page(1L));
+        assertEquals("Failure - a page is added straight away when no rebuild is running", Collections.singletonList(1L), added);
+    }
+
+    @Test
+    public void indexDuringRebuild() throws Exception {
+        //Page 3 is created during the rebuild and committed in time for its batch, page 4 too late for it
+        duringBatches.add(() -> {
+            assertFalse("Failure - the indexes are not ready during a rebuild", indexer.isReady());
+            indexer.index(page(3L));
+            indexer.index(page(4L));
+        });
+        batches.add(Arrays.asList(page(1L), page(2L)));
+        duringBatches.add(() -> { });
+        batches.add(Collections.singletonList(page(3L)));
+
+        indexer.rebuild();
+
+        assertTrue("Failure - the indexes are ready after a rebuild", indexer.isReady());
+        assertEquals("Failure - pages created during a rebuild should be added exactly once", Arrays.asList(1L, 2L, 3L, 4L), added);
+    }
+
+    @Test
+    public void indexDuringRebuildInIdOrder() throws Exception {
+        //Page 16 is a child of page 1, both created during the rebuild and committed too late for any batch
+        duringBatches.add(() -> {
+            indexer.index(page(1L));
+            indexer.index(page(16L));
+        });
+        batches.add(Collections.singletonList(page(0L)));
+
+        indexer.rebuild();
+
+        assertEquals("Failure - pages created during a rebuild should be added parents first", Arrays.asList(0L, 1L, 16L), added);
+    }
+
+    @Test
+    public void indexAfterCommit() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            indexer.index(page(1L));
+            assertEquals("Failure - a page should not be added before its transaction commits", Collections.emptyList(), added);
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+            assertEquals("Failure - a page should be added once its transaction commits", Collections.singletonList(1L), added);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void indexRolledBack() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            indexer.index(page(1L));
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+            assertEquals("Failure - a page whose transaction rolled back should not be added", Collections.emptyList(), added);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void indexCommittedAfterRebuild() throws Exception {
+        //Page 2 is saved before the rebuild and loaded by it, but its transaction only completes once the rebuild has finished
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            indexer.index(page(2L));
+            duringBatches.add(() -> { });
+            batches.add(Arrays.asList(page(1L), page(2L)));
+
+            indexer.rebuild();
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+
+            assertEquals("Failure - a page loaded by a rebuild should not be added again when it commits", Arrays.asList(1L, 2L), added);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Complete the transaction the test is running in, as the transaction manager would
+     * @param status - TransactionSynchronization.STATUS_COMMITTED or STATUS_ROLLED_BACK
+     */
+    private static void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static ConcreteWikiPage page(Long id) {
+        ConcreteWikiPage page = new ConcreteWikiPage();
+        ReflectionTestUtils.setField(page, "id", id);
+        return page;
+    }
+
+}
@@ -8,6 +8,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.transaction.Transactional;
@@ -31,6 +32,12 @@ public class WikiPageRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private WikiPageIndexer wikiPageIndexer;
+
+    @Autowired
+    private VersionForest versionForest;
+
     private ConcreteWikiPage testConcreteWikiPage1;
     private ConcreteWikiPage testConcreteWikiPage2;
     private ConcreteWikiPage testConcreteWikiPage3;
@@ -199,6 +206,60 @@ public class WikiPageRepositoryTest {
         assertNull("Failure - page found by findRootById(-1L) should be null", page);
     }
 
+    @Test
+    public void findTreeFromVersionForest() throws Exception {
+        //Pages saved directly are only in the version forest after a rebuild, before that the tree queries fall back to the database
+        wikiPageIndexer.rebuild();
+
+        List<ConcreteWikiPage> pages = wikiPageRepository.findDescendantsById(testConcreteWikiPage1.getId());
+        assertEquals("Failure - Number of pages found by findDescendantsById(testConcreteWikiPage1.getId()) is not correct", 2, pages.size());
+        assertEquals("Failure - Second page found by findDescendantsById(testConcreteWikiPage1.getId()) is not correct", testConcreteWikiPage2.getId(), pages.get(1).getId());
+
+        pages = wikiPageRepository.findAncestorsById(testConcreteWikiPage4.getId());
+        assertEquals("Failure - Number of pages found by findAncestorsById(testConcreteWikiPage4.getId()) is not correct", 2, pages.size());
+        assertEquals("Failure - First page found by findAncestorsById(testConcreteWikiPage4.getId()) is not correct", testConcreteWikiPage3.getId(), pages.get(0).getId());
+
+        ConcreteWikiPage page = wikiPageRepository.findRootById(testConcreteWikiPage2.getId());
+        assertEquals("Failure - page found by findRootById(testConcreteWikiPage2.getId()) is not correct", testConcreteWikiPage1.getId(), page.getId());
+    }
+
+    @Test
+    public void findTreeBeforeIndexerReady() throws Exception {
+        //While the indexes are rebuilt the forest may hold a page without its children, so the tree queries must use the database
+        Object ready = ReflectionTestUtils.getField(wikiPageIndexer, "ready");
+        try {
+            ReflectionTestUtils.setField(wikiPageIndexer, "ready", false);
+            versionForest.add(testConcreteWikiPage1);
+
+            List<ConcreteWikiPage> pages = wikiPageRepository.findDescendantsById(testConcreteWikiPage1.getId());
+            assertEquals("Failure - Number of pages found by findDescendantsById(testConcreteWikiPage1.getId()) is not correct", 2, pages.size());
+
+            ConcreteWikiPage page = wikiPageRepository.findRootById(testConcreteWikiPage2.getId());
+            assertEquals("Failure - page found by findRootById(testConcreteWikiPage2.getId()) is not correct", testConcreteWikiPage1.getId(), page.getId());
+        } finally {
+            ReflectionTestUtils.setField(wikiPageIndexer, "ready", ready);
+        }
+    }
+
+    @Test
+    public void findByRootIdOrderByIdAsc() throws Exception {
+        ConcreteWikiPage testConcreteWikiPage5 = wikiPageRepository.save(new ConcreteWikiPage("testTitle2", "testContent5", testConcreteWikiPage2.getId(), testUser1));
+
+        List<ConcreteWikiPage> pages = wikiPageRepository.findByRootIdOrderByIdAsc(testConcreteWikiPage1.getId());
+        assertEquals("Failure - Number of pages found by findByRootIdOrderByIdAsc(testConcreteWikiPage1.getId()) is not correct", 3, pages.size());
+        assertEquals("Failure - First page found by findByRootIdOrderByIdAsc(testConcreteWikiPage1.getId()) is not correct", testConcreteWikiPage1.getId(), pages.get(0).getId());
+        assertEquals("Failure - Second page found by findByRootIdOrderByIdAsc(testConcreteWikiPage1.getId()) is not correct", testConcreteWikiPage2.getId(), pages.get(1).getId());
+        assertEquals("Failure - Third page found by findByRootIdOrderByIdAsc(testConcreteWikiPage1.getId()) is not correct", testConcreteWikiPage5.getId(), pages.get(2).getId());
+
+        assertEquals("Failure - root id of an original should be its own id", testConcreteWikiPage1.getId(), testConcreteWikiPage1.getRootId());
+        assertEquals("Failure - depth of an original should be 0", Integer.valueOf(0), testConcreteWikiPage1.getDepth());
+        assertEquals("Failure - root id of a version should be the id of its original", testConcreteWikiPage1.getId(), testConcreteWikiPage5.getRootId());
+        assertEquals("Failure - depth of a version should be one more than its parent", Integer.valueOf(2), testConcreteWikiPage5.getDepth());
+
+        pages = wikiPageRepository.findByRootIdOrderByIdAsc(-1L);
+        assertEquals("Failure - Number of pages found by findByRootIdOrderByIdAsc(-1L) is not correct", 0, pages.size());
+    }
+
     @Test
     public void findByTitleAndContent() throws Exception {
 
@@ -247,6 +308,60 @@ public class WikiPageRepositoryTest {
 
     }
 
+    @Test
+    public void findByTitleAndContentCollapsed() throws Exception {
+
+        //The version trees are maintained by the database, so the WikiPages have to be written first
+        wikiPageRepository.flush();
+
+        //Test when parameter is blank, one WikiPage for each of the two trees
+
+        List<WikiPageWithAuthorProxy> pages = wikiPageRepository.findByTitleAndContentCollapsed("");
+        assertEquals("Failure - Number of pages found by findByTitleAndContentCollapsed('') should be 2", 2, pages.size());
+        assertEquals("Failure - First page found by findByTitleAndContentCollapsed('') should be the newest", testConcreteWikiPage4.getId(), pages.get(0).getId());
+        assertEquals("Failure - Second page found by findByTitleAndContentCollapsed('') should be the newest of its tree", testConcreteWikiPage2.getId(), pages.get(1).getId());
+        assertEquals("Failure - Version count of a tree with an edit should be 2", Integer.valueOf(2), pages.get(0).getVersions());
+        pages.clear();
+
+        //Test with a title that only one version of a tree matches, which is found with the versions of its whole tree
+
+        pages = wikiPageRepository.findByTitleAndContentCollapsed("testTitle1");
+        assertEquals("Failure - Number of pages found by findByTitleAndContentCollapsed('testTitle1') should be 1", 1, pages.size());
+        assertEquals("Failure - Page found by findByTitleAndContentCollapsed('testTitle1') is not correct", testConcreteWikiPage1.getId(), pages.get(0).getId());
+        assertEquals("Failure - Version count should count versions that did not match", Integer.valueOf(2), pages.get(0).getVersions());
+        pages.clear();
+
+        //Test with a title that every version of a tree matches
+
+        pages = wikiPageRepository.findByTitleAndContentCollapsed("testTitlePair");
+        assertEquals("Failure - Number of pages found by findByTitleAndContentCollapsed('testTitlePair') should be 1", 1, pages.size());
+        assertEquals("Failure - Page found by findByTitleAndContentCollapsed('testTitlePair') should be the newest", testConcreteWikiPage4.getId(), pages.get(0).getId());
+        pages.clear();
+
+    }
+
+    @Test
+    public void findByTitleAndAuthorAndContentCollapsed() throws Exception {
+
+        wikiPageRepository.flush();
+
+        List<WikiPageWithAuthorProxy> pages = wikiPageRepository.findByTitleAndAuthorAndContentCollapsed("", "", "");
+        assertEquals("Failure - Number of pages found by findByTitleAndAuthorAndContentCollapsed('','','') should be 2", 2, pages.size());
+        pages.clear();
+
+        pages = wikiPageRepository.findByTitleAndAuthorAndContentCollapsed("", "", "testContent1");
+        assertEquals("Failure - Number of pages found by findByTitleAndAuthorAndContentCollapsed('','','testContent1') should be 1", 1, pages.size());
+        assertEquals("Failure - Page found by findByTitleAndAuthorAndContentCollapsed('','','testContent1') is not correct", testConcreteWikiPage1.getId(), pages.get(0).getId());
+        pages.clear();
+
+        pages = wikiPageRepository.findByTitleAndAuthorAndContentCollapsed("titlepair", testUser3.getUserName(), "");
+        assertEquals("Failure - Number of pages found by findByTitleAndAuthorAndContentCollapsed('titlepair',testUser3.getUserName(),'') should be 1", 1, pages.size());
+        assertEquals("Failure - Page found by findByTitleAndAuthorAndContentCollapsed('titlepair',testUser3.getUserName(),'') should be the newest", testConcreteWikiPage4.getId(), pages.get(0).getId());
+        assertEquals("Failure - Version count of a tree with an edit should be 2", Integer.valueOf(2), pages.get(0).getVersions());
+        pages.clear();
+
+    }
+
     @Before
     public void setUp() throws Exception {
         testUser1 = new User("testUserName1", "testFirstName1", "testLastName1", "Test1@email.com", "testPassword1");
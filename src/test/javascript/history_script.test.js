@@ -5,24 +5,100 @@ describe("history_script", function(){
 
     historyPage.onReady();
 
+    var date = new Date().getTime();
+
+    //A page of the history tree as returned by /retrieveWikiPageHistoryTree
+    var node = function(id, childCount, subtreeSize, children) {
+      var page = { id:id, title:"Test" + id, author:"tester", creationDate:date, childCount:childCount, subtreeSize:subtreeSize };
+      if( children !== undefined ) {
+        page.children = children;
+      }
+      return page;
+    };
+
+    //Answer every request with the given response, keeping the requested urls
+    var respondWith = function(response) {
+      var urls = [];
+      spyOn(webix, "ajax").and.returnValue({
+        get:function(url, callbacks) {
+          urls.push(url);
+          callbacks.success(JSON.stringify(response));
+        }
+      });
+      return urls;
+    };
+
     it("Empty History Result", function(){
 
+      historyPage.handler.success('');
+      expect($$("resultlabel").getValue()).toBe(historyPage.strings.noHistory);
+      expect($$("resultlist").isVisible()).not.toBeTruthy();
+
+      historyPage.handler.success('null');
+      expect($$("resultlabel").getValue()).toBe(historyPage.strings.noHistory);
+      expect($$("resultlist").isVisible()).not.toBeTruthy();
+
       historyPage.handler.success('[]');
       expect($$("resultlabel").getValue()).toBe(historyPage.strings.noHistory);
       expect($$("resultlist").isVisible()).not.toBeTruthy();
     });
 
+    it("Single Page History Result", function(){
+
+      historyPage.handler.success(JSON.stringify(node(1, 0, 1, [])));
+      expect($$("resultlabel").getValue()).toBe(historyPage.strings.noHistory);
+      expect($$("resultlist").isVisible()).not.toBeTruthy();
+
+      historyPage.handler.success(JSON.stringify(node(1, 0, 1)));
+      expect($$("resultlabel").getValue()).toBe(historyPage.strings.noHistory);
+      expect($$("resultlist").isVisible()).not.toBeTruthy();
+    });
+
     it("Valid History Result", function(){
-      var date = new Date();
 
-      historyPage.handler.success('[{"title":"Test", "creationDate":"'+ date + '", "author":"tester"},{"title":"Test", "creationDate":"'+ date + '", "author":"tester2"}]');
+      historyPage.handler.success(JSON.stringify(node(1, 2, 4, [node(2, 1, 2), node(3, 0, 1, [])])));
       expect($$("resultlabel").getValue()).toBe(historyPage.strings.pageHistory);
-      expect($$("resultlist").getNextId()).not.toBeNull();
       expect($$("resultlist").isVisible()).toBeTruthy();
+      expect($$("resultlist").exists(1)).toBeTruthy();
+      expect(String($$("resultlist").getParentId(2))).toBe("1");
+      expect(String($$("resultlist").getParentId(3))).toBe("1");
+      expect($$("resultlist").getItem(2).subtreeSize).toBe(2);
+    });
+
+    it("Expand Page Through Depth 1", function(){
+
+      historyPage.handler.success(JSON.stringify(node(1, 1, 3, [node(2, 1, 2)])));
+      var urls = respondWith(node(2, 1, 2, [node(4, 0, 1)]));
+
+      historyPage.handler.dataRequest(2);
+      expect(urls).toEqual(["/retrieveWikiPageHistoryTree?depth=1&id=2"]);
+      expect(String($$("resultlist").getParentId(4))).toBe("2");
+      expect($$("resultlist").getItem(4).title).toBe("Test4");
+    });
+
+    it("Expand Page With More Children Than Returned", function(){
+
+      historyPage.handler.success(JSON.stringify(node(1, 1, 4, [node(2, 2, 3)])));
+      var urls = respondWith(node(2, 2, 3, [node(4, 0, 1)]));
+
+      historyPage.handler.dataRequest(2);
+      expect(urls).toEqual(["/retrieveWikiPageHistoryTree?depth=1&id=2"]);
+      expect($$("resultlist").exists("more2_4")).toBeTruthy();
+
+      //Loading the rest continues after the last child shown, and replaces the "more" item
+      webix.ajax.and.returnValue({
+        get:function(url, callbacks) {
+          urls.push(url);
+          callbacks.success(JSON.stringify(node(2, 2, 3, [node(5, 0, 1)])));
+        }
+      });
+      historyPage.handler.itemClick("more2_4");
+      expect(urls[1]).toBe("/retrieveWikiPageHistoryTree?depth=1&id=2&after=4");
+      expect($$("resultlist").exists("more2_4")).not.toBeTruthy();
+      expect(String($$("resultlist").getParentId(5))).toBe("2");
     });
 
     it("Error ", function(){
-      var date = new Date();
 
       historyPage.handler.error();
       expect($$("resultlabel").getValue()).toBe(historyPage.strings.error);
@@ -11,19 +11,35 @@ describe("viewpage_script", function(){
   });
 
   describe("Existing Page With Parent", function(){
+    var counterUrls;
+
     beforeEach(function(){
-      viewPage.handler.setContent('{"id":1, "content":"#Testing!", "title":"Test", "author":"test", "creationDate":' + date + ', "parentID":0, "views":1, "likes":0}');
+      counterUrls = [];
+      spyOn(webix, "ajax").and.returnValue({
+        get:function(url) {
+          counterUrls.push(url);
+        }
+      });
+      viewPage.handler.setContent('{"id":1, "html":"<h1>Testing!</h1>", "title":"Test", "author":"test", "creationDate":' + date + ', "parentID":2}');
     });
 
     it("Page Content is correct", function(){
-      expect(viewPage.pageData.content).toBe("#Testing!");
+      expect(viewPage.pageData.html).toBe("<h1>Testing!</h1>");
       expect(viewPage.pageData.title).toBe("Test");
       expect(viewPage.pageData.author).toBe("test");
       expect(viewPage.pageData.creationDate).toBe(date);
-      expect(viewPage.pageData.parentID).toBe(0);
+      expect(viewPage.pageData.parentID).toBe(2);
       expect(viewPage.pageData.id).toBe(1);
-      expect(viewPage.pageData.views).toBe(1);
-      expect(viewPage.pageData.likes).toBe(0);
+    });
+
+    it("Heading and content are shown before the counters arrive", function(){
+      expect($$("heading").getNode().innerHTML).toContain("<h1>Test</h1>");
+      expect($$("heading").getNode().innerHTML).toContain('href="/profile?user=test"');
+      expect($$("content").getNode().innerHTML).toContain("Testing!");
+    });
+
+    it("Counters are requested to count the view", function(){
+      expect(counterUrls).toEqual(["/retrieveWikiPageCounters?id=1"]);
     });
 
     it("Parent button should be showing", function(){
@@ -33,18 +49,14 @@ describe("viewpage_script", function(){
 
   describe("Existing Page No Parent", function(){
     beforeEach(function(){
-      viewPage.handler.setContent('{"id":1, "content":"#Testing!", "title":"Test", "author":"test", "creationDate":' + date + ', "parentID":-1, "views":1, "likes":1}');
+      spyOn(webix, "ajax").and.returnValue({ get:function() {} });
+      viewPage.handler.setContent('{"id":1, "html":"<h1>Testing!</h1>", "title":"Test", "author":"test", "creationDate":' + date + ', "parentID":-1}');
     });
 
     it("Page Content is correct", function(){
-      expect(viewPage.pageData.content).toBe("#Testing!");
-      expect(viewPage.pageData.title).toBe("Test");
-      expect(viewPage.pageData.author).toBe("test");
-      expect(viewPage.pageData.creationDate).toBe(date);
+      expect(viewPage.pageData.html).toBe("<h1>Testing!</h1>");
       expect(viewPage.pageData.parentID).toBe(-1);
       expect(viewPage.pageData.id).toBe(1);
-      expect(viewPage.pageData.views).toBe(1);
-      expect(viewPage.pageData.likes).toBe(1);
     });
 
     it("No parent button should be showing", function(){
@@ -52,4 +64,61 @@ describe("viewpage_script", function(){
     });
   });
 
+  describe("Content Format", function(){
+    var urls;
+
+    beforeEach(function(){
+      urls = [];
+      spyOn(webix, "ajax").and.returnValue({
+        get:function(url) {
+          urls.push(url);
+        }
+      });
+    });
+
+    it("Markdown content is rendered in the browser", function(){
+      viewPage.handler.setContent('{"id":1, "content":"Testing!", "title":"Test", "author":"test", "creationDate":' + date + ', "parentID":-1}');
+      expect($$("content").getNode().innerHTML).toBe("<p>Testing!</p>");
+    });
+
+    it("Markdown content is requested by default", function(){
+      viewPage.getContent();
+      expect(urls).toEqual(["/retrieveWikiPageContent?id=1"]);
+    });
+
+    it("Server rendered content is requested with format=html", function(){
+      spyOn(pageUtil, "getUrlContent").and.returnValue({id:"1", format:"html"});
+      viewPage.getContent();
+      expect(urls).toEqual(["/retrieveWikiPageContent?format=html&id=1"]);
+    });
+  });
+
+  describe("Counters", function(){
+    beforeEach(function(){
+      spyOn(webix, "ajax").and.returnValue({ get:function() {} });
+      viewPage.handler.setContent('{"id":1, "html":"<h1>Testing!</h1>", "title":"Test", "author":"test", "creationDate":' + date + ', "parentID":-1}');
+    });
+
+    it("Views and likes are updated", function(){
+      viewPage.handler.setCounters('{"views":7, "likes":3, "authorDeleted":false}');
+      expect(viewPage.pageData.views).toBe(7);
+      expect(viewPage.pageData.likes).toBe(3);
+      expect($$("views").getNode().innerHTML).toContain("7");
+      expect($$("likes").getNode().innerHTML).toContain("3");
+      expect($$("heading").getNode().innerHTML).toContain('href="/profile?user=test"');
+    });
+
+    it("Deleted author is shown without a profile link", function(){
+      viewPage.handler.setCounters('{"views":7, "likes":3, "authorDeleted":true}');
+      expect($$("heading").getNode().innerHTML).toContain("test [Deleted]");
+      expect($$("heading").getNode().innerHTML).not.toContain("/profile?user=test");
+    });
+
+    it("Failed counters leave the page shown", function(){
+      viewPage.handler.countersErrorHandler();
+      expect($$("heading").getNode().innerHTML).toContain("<h1>Test</h1>");
+      expect($$("content").getNode().innerHTML).toContain("Testing!");
+    });
+  });
+
 });